@@ -0,0 +1,75 @@
+package com.example.encryptedexplorer.bench;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * 基准共用的数据工具：大小解析、可复现的伪随机内容、临时文件与空输出流。
+ */
+final class BenchData {
+	static final char[] PASSWORD = "bench-password".toCharArray();
+	private static final int PATTERN_SIZE = 1024 * 1024;
+
+	private BenchData() {}
+
+	/** 解析 512、64K、1M、1G 形式的字节数。 */
+	static long parseSize(String text) {
+		String t = text.trim().toUpperCase(Locale.ROOT);
+		long unit = 1;
+		char last = t.charAt(t.length() - 1);
+		if (last == 'K') unit = 1024L;
+		else if (last == 'M') unit = 1024L * 1024;
+		else if (last == 'G') unit = 1024L * 1024 * 1024;
+		if (unit > 1) t = t.substring(0, t.length() - 1);
+		return Long.parseLong(t) * unit;
+	}
+
+	/** 固定种子的伪随机字节（不可压缩）。 */
+	static byte[] randomBytes(int length, long seed) {
+		byte[] data = new byte[length];
+		new Random(seed).nextBytes(data);
+		return data;
+	}
+
+	/**
+	 * 写出指定大小的不可压缩文件：重复 1MB 伪随机块，生成 GB 级文件也不占用同等内存。
+	 */
+	static Path writeFile(Path file, long size, long seed) throws IOException {
+		byte[] pattern = randomBytes((int) Math.min(PATTERN_SIZE, Math.max(1, size)), seed);
+		try (OutputStream out = Files.newOutputStream(file)) {
+			long left = size;
+			while (left > 0) {
+				int n = (int) Math.min(pattern.length, left);
+				out.write(pattern, 0, n);
+				left -= n;
+			}
+		}
+		return file;
+	}
+
+	static void deleteTree(Path root) throws IOException {
+		if (root == null || !Files.exists(root)) return;
+		try (Stream<Path> walk = Files.walk(root)) {
+			walk.sorted(Comparator.reverseOrder()).forEach(p -> {
+				try {
+					Files.deleteIfExists(p);
+				} catch (IOException ignored) {}
+			});
+		}
+	}
+
+	/** 丢弃全部写入内容的输出流。 */
+	static final class NullOutputStream extends OutputStream {
+		long count;
+
+		@Override public void write(int b) { count++; }
+
+		@Override public void write(byte[] b, int off, int len) { count += len; }
+	}
+}
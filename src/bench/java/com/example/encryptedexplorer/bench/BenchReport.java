@@ -0,0 +1,111 @@
+package com.example.encryptedexplorer.bench;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 基准结果输出：每条记录一行 JSON（JSON Lines），写入 bench-results/&lt;名称&gt;-&lt;时间戳&gt;.jsonl，
+ * 便于跨版本逐次对比。每条记录自动带上 JDK 版本与 CPU 数。
+ */
+final class BenchReport implements Closeable {
+	private final Path file;
+	private final Writer out;
+
+	private BenchReport(Path file) throws IOException {
+		this.file = file;
+		this.out = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+	}
+
+	/** 在 dir（默认 bench-results）下创建结果文件。 */
+	static BenchReport create(String dir, String name) throws IOException {
+		Path base = Paths.get(dir != null ? dir : "bench-results");
+		Files.createDirectories(base);
+		String stamp = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+		return new BenchReport(base.resolve(name + "-" + stamp + ".jsonl"));
+	}
+
+	Path file() {
+		return file;
+	}
+
+	Record record(String type) {
+		return new Record(type);
+	}
+
+	final class Record {
+		private final Map<String, Object> fields = new LinkedHashMap<>();
+
+		private Record(String type) {
+			fields.put("type", type);
+			fields.put("time", System.currentTimeMillis());
+			fields.put("java", System.getProperty("java.version"));
+			fields.put("cpus", Runtime.getRuntime().availableProcessors());
+		}
+
+		Record put(String key, Object value) {
+			fields.put(key, value);
+			return this;
+		}
+
+		void write() throws IOException {
+			StringBuilder sb = new StringBuilder(256).append('{');
+			boolean first = true;
+			for (Map.Entry<String, Object> e : fields.entrySet()) {
+				if (!first) sb.append(',');
+				first = false;
+				string(sb, e.getKey());
+				sb.append(':');
+				Object v = e.getValue();
+				if (v == null) {
+					sb.append("null");
+				} else if (v instanceof Double || v instanceof Float) {
+					double d = ((Number) v).doubleValue();
+					sb.append(Double.isFinite(d) ? String.format(Locale.ROOT, "%.3f", d) : "null");
+				} else if (v instanceof Number || v instanceof Boolean) {
+					sb.append(v);
+				} else {
+					string(sb, v.toString());
+				}
+			}
+			sb.append('}');
+			synchronized (out) {
+				out.write(sb.toString());
+				out.write('\n');
+				out.flush();
+			}
+		}
+	}
+
+	private static void string(StringBuilder sb, String s) {
+		sb.append('"');
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			switch (c) {
+				case '"': sb.append("\\\""); break;
+				case '\\': sb.append("\\\\"); break;
+				case '\n': sb.append("\\n"); break;
+				case '\r': sb.append("\\r"); break;
+				case '\t': sb.append("\\t"); break;
+				default:
+					if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+					else sb.append(c);
+			}
+		}
+		sb.append('"');
+	}
+
+	@Override
+	public void close() throws IOException {
+		out.close();
+	}
+}
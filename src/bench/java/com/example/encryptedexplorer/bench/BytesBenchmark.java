@@ -0,0 +1,56 @@
+package com.example.encryptedexplorer.bench;
+
+import com.example.encryptedexplorer.util.EncryptionUtils;
+import com.example.encryptedexplorer.util.VaultKey;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * encryptBytes / decryptBytes（索引、旁路文件等小块数据）：keying=password 为 ENCV1（含 PBKDF2），
+ * keying=vault 为 ENCV2 保险库密钥。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class BytesBenchmark {
+	@Param({"1K", "64K", "1M"})
+	public String size;
+
+	@Param({"password", "vault"})
+	public String keying;
+
+	private byte[] plain;
+	private byte[] sealed;
+	private VaultKey vault;
+
+	@Setup
+	public void setUp() throws Exception {
+		plain = BenchData.randomBytes((int) BenchData.parseSize(size), 11);
+		vault = "vault".equals(keying) ? VaultKey.generate() : null;
+		sealed = EncryptionUtils.encryptBytes(plain, BenchData.PASSWORD, vault);
+	}
+
+	@Benchmark
+	public byte[] encryptBytes() throws Exception {
+		return EncryptionUtils.encryptBytes(plain, BenchData.PASSWORD, vault);
+	}
+
+	@Benchmark
+	public byte[] decryptBytes() throws Exception {
+		return EncryptionUtils.decryptBytes(sealed, BenchData.PASSWORD, vault);
+	}
+}
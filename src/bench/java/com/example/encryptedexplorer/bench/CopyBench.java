@@ -0,0 +1,226 @@
+package com.example.encryptedexplorer.bench;
+
+import com.example.encryptedexplorer.model.ConflictPolicy;
+import com.example.encryptedexplorer.model.CopyOptions;
+import com.example.encryptedexplorer.model.ErrorDecision;
+import com.example.encryptedexplorer.model.Resolution;
+import com.example.encryptedexplorer.service.CopyService;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 端到端复制基准：生成（或复用）合成目录树，以空操作回调运行 {@link CopyService#copyDirectory}
+ * 的 plain / encrypt / decrypt 三种模式，按线程数与轮次报告文件/秒、MB/秒、首字节时间、
+ * 峰值 RSS 与堆、GC 次数与耗时。结果追加到 bench-results/copy-&lt;时间戳&gt;.jsonl。
+ * <p>
+ * decrypt 的输入是同一轮 encrypt 的输出；未选择 encrypt 时先不计时地加密一次。
+ * 每次运行前清空目标目录，保证测的是全新写入。
+ */
+public final class CopyBench {
+	private static final char[] PASSWORD = BenchData.PASSWORD;
+
+	/** 命令行参数。 */
+	static final class Args {
+		Path work = Paths.get(System.getProperty("java.io.tmpdir"), "efe-bench");
+		String results;
+		List<String> modes = Arrays.asList("plain", "encrypt", "decrypt");
+		int[] workers = {1, Runtime.getRuntime().availableProcessors()};
+		int runs = 1;
+		boolean dirNames;
+		boolean vault;
+		boolean pack;
+		boolean compress;
+		boolean dedup;
+		boolean durable;
+		boolean keep;
+		final CorpusGenerator.Spec spec = new CorpusGenerator.Spec();
+
+		static Args parse(String[] args) {
+			Args a = new Args();
+			for (int i = 0; i < args.length; i++) {
+				String arg = args[i];
+				switch (arg) {
+					case "--work": a.work = Paths.get(value(args, ++i, arg)); break;
+					case "--results": a.results = value(args, ++i, arg); break;
+					case "--modes": a.modes = Arrays.asList(value(args, ++i, arg).split(",")); break;
+					case "--workers": a.workers = Arrays.stream(value(args, ++i, arg).split(",")).mapToInt(Integer::parseInt).toArray(); break;
+					case "--runs": a.runs = Integer.parseInt(value(args, ++i, arg)); break;
+					case "--dir-names": a.dirNames = true; break;
+					case "--vault": a.vault = true; break;
+					case "--pack": a.pack = true; break;
+					case "--compress": a.compress = true; break;
+					case "--dedup": a.dedup = true; break;
+					case "--durable": a.durable = true; break;
+					case "--keep": a.keep = true; break;
+					default: i = CorpusGenerator.parseOption(a.spec, args, i);
+				}
+			}
+			for (String m : a.modes) {
+				if (!"plain".equals(m) && !"encrypt".equals(m) && !"decrypt".equals(m)) throw new IllegalArgumentException("未知模式: " + m);
+			}
+			return a;
+		}
+
+		private static String value(String[] args, int i, String name) {
+			if (i >= args.length) throw new IllegalArgumentException(name + " 缺少参数值");
+			return args[i];
+		}
+	}
+
+	/** 空操作回调，只记录完成数、字节数、首字节时间与错误数。 */
+	private static final class Probe implements CopyService.Callbacks {
+		final long startNanos = System.nanoTime();
+		final AtomicLong firstByteNanos = new AtomicLong(-1);
+		final AtomicLong files = new AtomicLong();
+		final AtomicLong bytes = new AtomicLong();
+		final AtomicLong errors = new AtomicLong();
+
+		@Override public Resolution onConflict(Path targetPath) { return Resolution.REPLACE; }
+
+		@Override
+		public ErrorDecision onError(Path sourcePath, Exception error) {
+			if (errors.incrementAndGet() <= 5) System.err.println("错误: " + sourcePath + " - " + error);
+			return ErrorDecision.SKIP;
+		}
+
+		@Override
+		public void onProgress(String currentFile, long copiedBytes, long totalBytes) {
+			if (copiedBytes > 0 && firstByteNanos.get() < 0) firstByteNanos.compareAndSet(-1, System.nanoTime());
+		}
+
+		@Override public void onLog(String message) {}
+
+		@Override public boolean isCancelled() { return false; }
+
+		@Override
+		public void onFileCompleted(Path sourcePath, long size) {
+			files.incrementAndGet();
+			bytes.addAndGet(size);
+			if (firstByteNanos.get() < 0) firstByteNanos.compareAndSet(-1, System.nanoTime());
+		}
+	}
+
+	public static void main(String[] argv) throws Exception {
+		System.setProperty("java.awt.headless", "true");
+		Args a;
+		try {
+			a = Args.parse(argv);
+		} catch (IllegalArgumentException e) {
+			System.err.println("参数错误: " + e.getMessage());
+			System.err.println("用法: CopyBench [--work 目录] [--modes plain,encrypt,decrypt] [--workers 1,8] [--runs N]"
+					+ " [--dir-names] [--vault] [--pack] [--compress] [--dedup] [--durable] [--keep] [--results 目录] [语料选项...]");
+			System.exit(2);
+			return;
+		}
+		Files.createDirectories(a.work);
+		long t0 = System.nanoTime();
+		CorpusGenerator.Corpus corpus = CorpusGenerator.generate(a.work, a.spec);
+		System.out.printf(Locale.ROOT, "语料: %s 文件=%d 目录=%d 大小=%.1fMB 准备=%dms%n", corpus.root.getFileName(),
+				corpus.files, corpus.directories, corpus.bytes / 1048576.0, (System.nanoTime() - t0) / 1_000_000);
+
+		Path plainOut = a.work.resolve("out-plain");
+		Path encOut = a.work.resolve("out-encrypt");
+		Path decOut = a.work.resolve("out-decrypt");
+		try (BenchReport report = BenchReport.create(a.results, "copy")) {
+			System.out.printf("%-8s %7s %4s %10s %10s %9s %9s %9s %6s %8s%n",
+					"mode", "workers", "run", "files/s", "MB/s", "ttfb(ms)", "rss(MB)", "heap(MB)", "gc", "gc(ms)");
+			for (int workers : a.workers) {
+				for (int run = 1; run <= a.runs; run++) {
+					boolean encrypted = false;
+					for (String mode : a.modes) {
+						Path source = corpus.root;
+						Path target;
+						if ("plain".equals(mode)) {
+							target = plainOut;
+						} else if ("encrypt".equals(mode)) {
+							target = encOut;
+						} else {
+							if (!encrypted) {
+								copy(a, corpus.root, encOut, "encrypt", workers); // 准备密文，不计时
+								encrypted = true;
+							}
+							source = encOut;
+							target = decOut;
+						}
+						Result r = copy(a, source, target, mode, workers);
+						if ("encrypt".equals(mode)) encrypted = true;
+						r.print(mode, workers, run);
+						report.record("copy")
+								.put("corpus", a.spec.id()).put("corpusFiles", corpus.files).put("corpusBytes", corpus.bytes)
+								.put("mode", mode).put("workers", workers).put("run", run)
+								.put("dirNames", a.dirNames).put("vault", a.vault).put("pack", a.pack)
+								.put("compress", a.compress).put("dedup", a.dedup).put("durable", a.durable)
+								.put("seconds", r.seconds).put("files", r.files).put("bytes", r.bytes).put("errors", r.errors)
+								.put("filesPerSecond", r.files / r.seconds).put("mbPerSecond", r.bytes / 1048576.0 / r.seconds)
+								.put("timeToFirstByteMs", r.ttfbMillis)
+								.put("peakRssBytes", r.stats.peakRssBytes).put("peakHeapBytes", r.stats.peakHeapBytes)
+								.put("gcCount", r.stats.gcCount).put("gcMillis", r.stats.gcMillis)
+								.write();
+					}
+				}
+			}
+			System.out.println("结果: " + report.file());
+		} finally {
+			if (!a.keep) {
+				BenchData.deleteTree(plainOut);
+				BenchData.deleteTree(encOut);
+				BenchData.deleteTree(decOut);
+			}
+		}
+	}
+
+	private static final class Result {
+		double seconds;
+		long files;
+		long bytes;
+		long errors;
+		double ttfbMillis;
+		RuntimeStats stats;
+
+		void print(String mode, int workers, int run) {
+			System.out.printf(Locale.ROOT, "%-8s %7d %4d %10.0f %10.1f %9.1f %9.0f %9.0f %6d %8d%n",
+					mode, workers, run, files / seconds, bytes / 1048576.0 / seconds, ttfbMillis,
+					stats.peakRssBytes / 1048576.0, stats.peakHeapBytes / 1048576.0, stats.gcCount, stats.gcMillis);
+		}
+	}
+
+	private static Result copy(Args a, Path source, Path target, String mode, int workers) throws Exception {
+		BenchData.deleteTree(target);
+		CopyOptions options = new CopyOptions();
+		options.sourceDirectory = source;
+		options.targetDirectory = target;
+		options.encryptFiles = "encrypt".equals(mode);
+		options.decryptFiles = "decrypt".equals(mode);
+		options.encryptDirectoryNames = a.dirNames && options.encryptFiles;
+		options.password = PASSWORD;
+		options.useVault = a.vault && options.encryptFiles;
+		options.packSmallFiles = a.pack && options.encryptFiles;
+		options.compressFiles = a.compress && options.encryptFiles;
+		options.deduplicate = a.dedup && options.encryptFiles;
+		options.durable = a.durable;
+		options.workers = workers;
+		options.conflictPolicy = ConflictPolicy.OVERWRITE;
+		options.validate();
+
+		RuntimeStats stats = RuntimeStats.start();
+		Probe probe = new Probe();
+		new CopyService().copyDirectory(options, probe);
+		long end = System.nanoTime();
+		Result r = new Result();
+		r.stats = stats.stop();
+		r.seconds = Math.max(1e-9, (end - probe.startNanos) / 1e9);
+		r.files = probe.files.get();
+		r.bytes = probe.bytes.get();
+		r.errors = probe.errors.get();
+		long first = probe.firstByteNanos.get();
+		r.ttfbMillis = first < 0 ? -1 : (first - probe.startNanos) / 1e6;
+		return r;
+	}
+}
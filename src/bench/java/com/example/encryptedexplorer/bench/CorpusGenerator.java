@@ -0,0 +1,201 @@
+package com.example.encryptedexplorer.bench;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 可复现的合成目录树：文件大小按对数正态分布（外加若干超大文件），目录按扇出与深度展开，
+ * 可指定可压缩文件比例与重复内容比例。相同参数（含种子）总是生成逐字节相同的树，
+ * 生成完成后在树旁写入标记文件，再次使用相同参数时直接复用。
+ * <p>
+ * 也可单独运行：{@code CorpusGenerator <目录> [--files N] [--median 16K] ...}
+ */
+public final class CorpusGenerator {
+	private static final String MARKER_SUFFIX = ".complete";
+	private static final int POOL_SIZE = 8 * 1024 * 1024;
+	private static final String[] WORDS = {
+			"the", "encrypted", "file", "explorer", "copies", "folders", "and", "thumbnails", "with", "a", "password",
+			"segment", "vault", "index", "of", "photos", "2024", "report", "invoice", "draft", "final", "notes",
+	};
+
+	/** 生成参数。 */
+	public static final class Spec {
+		public long files = 10_000;
+		/** 普通文件大小中位数与对数正态分布的 sigma。 */
+		public long medianSize = 16 * 1024;
+		public double sigma = 2.0;
+		public long maxSize = 256L * 1024 * 1024;
+		/** 另外生成的超大文件个数与大小。 */
+		public int hugeFiles;
+		public long hugeSize = 1024L * 1024 * 1024;
+		/** 每个目录的子目录数与目录深度（0 表示全部文件放在根目录）。 */
+		public int fanout = 8;
+		public int depth = 3;
+		/** 可压缩（文本样式）文件比例与内容重复文件比例，0～1。 */
+		public double compressible = 0.3;
+		public double duplicates = 0.1;
+		public long seed = 1;
+
+		/** 参数摘要，用作缓存目录名与报告字段。 */
+		public String id() {
+			return "f" + files + "-m" + medianSize + "-s" + sigma + "-x" + maxSize + "-h" + hugeFiles + "x" + hugeSize
+					+ "-o" + fanout + "-d" + depth + "-c" + compressible + "-u" + duplicates + "-r" + seed;
+		}
+	}
+
+	/** 生成结果统计。 */
+	public static final class Corpus {
+		public Path root;
+		public long files;
+		public long directories;
+		public long bytes;
+	}
+
+	private final Spec spec;
+	private final byte[] randomPool;
+	private final byte[] textPool;
+
+	private CorpusGenerator(Spec spec) {
+		this.spec = spec;
+		this.randomPool = BenchData.randomBytes(POOL_SIZE, spec.seed);
+		this.textPool = textPool(spec.seed);
+	}
+
+	/**
+	 * 在 parent 下生成（或复用）与参数对应的目录树。
+	 */
+	public static Corpus generate(Path parent, Spec spec) throws IOException {
+		Path root = parent.resolve("corpus-" + spec.id());
+		// 完成标记放在树外，避免被当作语料复制
+		Path marker = parent.resolve(root.getFileName() + MARKER_SUFFIX);
+		if (Files.isRegularFile(marker)) {
+			Corpus c = new Corpus();
+			String[] parts = new String(Files.readAllBytes(marker), StandardCharsets.UTF_8).trim().split(" ");
+			c.root = root;
+			c.files = Long.parseLong(parts[0]);
+			c.directories = Long.parseLong(parts[1]);
+			c.bytes = Long.parseLong(parts[2]);
+			return c;
+		}
+		BenchData.deleteTree(root);
+		Files.createDirectories(root);
+		Corpus c = new CorpusGenerator(spec).write(root);
+		Files.write(marker, (c.files + " " + c.directories + " " + c.bytes).getBytes(StandardCharsets.UTF_8));
+		return c;
+	}
+
+	private Corpus write(Path root) throws IOException {
+		Random rnd = new Random(spec.seed);
+		List<Path> dirs = new ArrayList<>();
+		dirs.add(root);
+		expand(root, 0, dirs);
+		for (Path d : dirs) Files.createDirectories(d);
+
+		Corpus c = new Corpus();
+		c.root = root;
+		c.directories = dirs.size() - 1;
+		List<long[]> written = new ArrayList<>(); // {size, contentSeed, compressible}
+		long total = spec.files + spec.hugeFiles;
+		for (long i = 0; i < total; i++) {
+			boolean huge = i >= spec.files;
+			long size;
+			long contentSeed;
+			boolean text;
+			if (!huge && !written.isEmpty() && rnd.nextDouble() < spec.duplicates) {
+				long[] original = written.get(rnd.nextInt(written.size()));
+				size = original[0];
+				contentSeed = original[1];
+				text = original[2] != 0;
+			} else {
+				size = huge ? spec.hugeSize : Math.min(spec.maxSize, Math.round(spec.medianSize * Math.exp(spec.sigma * rnd.nextGaussian())));
+				contentSeed = rnd.nextLong();
+				text = !huge && rnd.nextDouble() < spec.compressible;
+				if (!huge) written.add(new long[]{size, contentSeed, text ? 1 : 0});
+			}
+			Path dir = dirs.get(rnd.nextInt(dirs.size()));
+			String name = (huge ? "huge-" : "file-") + i + (text ? ".txt" : ".bin");
+			writeContent(dir.resolve(name), size, contentSeed, text);
+			c.files++;
+			c.bytes += size;
+		}
+		return c;
+	}
+
+	private void expand(Path dir, int level, List<Path> dirs) {
+		if (level >= spec.depth) return;
+		for (int i = 0; i < spec.fanout; i++) {
+			Path child = dir.resolve("dir-" + level + "-" + i);
+			dirs.add(child);
+			expand(child, level + 1, dirs);
+		}
+	}
+
+	/** 从内容池的种子决定的位置循环取字节；相同种子与大小得到相同内容（用于重复文件）。 */
+	private void writeContent(Path file, long size, long contentSeed, boolean text) throws IOException {
+		byte[] pool = text ? textPool : randomPool;
+		int offset = (int) Math.floorMod(contentSeed, (long) pool.length);
+		try (OutputStream out = Files.newOutputStream(file)) {
+			long left = size;
+			while (left > 0) {
+				int n = (int) Math.min(pool.length - offset, left);
+				out.write(pool, offset, n);
+				left -= n;
+				offset = 0;
+			}
+		}
+	}
+
+	private static byte[] textPool(long seed) {
+		Random rnd = new Random(seed ^ 0x5DEECE66DL);
+		StringBuilder sb = new StringBuilder(POOL_SIZE / 4 + 64);
+		while (sb.length() < POOL_SIZE / 4) {
+			sb.append(WORDS[rnd.nextInt(WORDS.length)]).append(rnd.nextInt(8) == 0 ? ".\n" : " ");
+		}
+		return sb.toString().getBytes(StandardCharsets.US_ASCII);
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length == 0) {
+			System.err.println("用法: CorpusGenerator <目录> [--files N] [--median 16K] [--sigma 2.0] [--max-size 256M]"
+					+ " [--huge N] [--huge-size 1G] [--fanout 8] [--depth 3] [--compressible 0.3] [--duplicates 0.1] [--seed 1]");
+			System.exit(2);
+		}
+		Spec spec = new Spec();
+		for (int i = 1; i < args.length; i++) i = parseOption(spec, args, i);
+		long t0 = System.nanoTime();
+		Corpus c = generate(Paths.get(args[0]), spec);
+		System.out.printf("%s: 文件=%d 目录=%d 大小=%.1fMB 耗时=%dms%n", c.root, c.files, c.directories,
+				c.bytes / 1048576.0, (System.nanoTime() - t0) / 1_000_000);
+	}
+
+	/**
+	 * 解析一个语料选项，返回最后消费的参数下标；不认识的选项抛出 IllegalArgumentException。
+	 */
+	static int parseOption(Spec spec, String[] args, int i) {
+		String arg = args[i];
+		if (i + 1 >= args.length) throw new IllegalArgumentException(arg + " 缺少参数值");
+		String v = args[i + 1];
+		switch (arg) {
+			case "--files": spec.files = Long.parseLong(v); break;
+			case "--median": spec.medianSize = BenchData.parseSize(v); break;
+			case "--sigma": spec.sigma = Double.parseDouble(v); break;
+			case "--max-size": spec.maxSize = BenchData.parseSize(v); break;
+			case "--huge": spec.hugeFiles = Integer.parseInt(v); break;
+			case "--huge-size": spec.hugeSize = BenchData.parseSize(v); break;
+			case "--fanout": spec.fanout = Integer.parseInt(v); break;
+			case "--depth": spec.depth = Integer.parseInt(v); break;
+			case "--compressible": spec.compressible = Double.parseDouble(v); break;
+			case "--duplicates": spec.duplicates = Double.parseDouble(v); break;
+			case "--seed": spec.seed = Long.parseLong(v); break;
+			default: throw new IllegalArgumentException("未知选项: " + arg);
+		}
+		return i + 1;
+	}
+}
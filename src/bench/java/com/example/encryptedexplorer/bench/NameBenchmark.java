@@ -0,0 +1,80 @@
+package com.example.encryptedexplorer.bench;
+
+import com.example.encryptedexplorer.util.EncryptionUtils;
+import com.example.encryptedexplorer.util.NameCipher;
+import com.example.encryptedexplorer.util.VaultKey;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 名称路径：确定性名称加解密、目录短名（密码与保险库子密钥两种）以及查看页对明文名的预检。
+ * 名称集合大小 names 超过会话缓存（4096）时测到的是未命中缓存的成本。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class NameBenchmark {
+	@Param({"1000", "100000"})
+	public int names;
+
+	private String[] plain;
+	private String[] encrypted;
+	private byte[] vaultNameKey;
+	private int next;
+
+	@Setup
+	public void setUp() throws Exception {
+		plain = new String[names];
+		encrypted = new String[names];
+		for (int i = 0; i < names; i++) {
+			plain[i] = "目录 " + i + " - Photos " + (i * 7919 % 100000);
+			encrypted[i] = EncryptionUtils.encryptFileNameDeterministic(plain[i], BenchData.PASSWORD);
+		}
+		vaultNameKey = VaultKey.generate().subKey("dir-name:");
+	}
+
+	private int index() {
+		int i = next;
+		next = i + 1 == names ? 0 : i + 1;
+		return i;
+	}
+
+	@Benchmark
+	public String encryptFileNameDeterministic() throws Exception {
+		return EncryptionUtils.encryptFileNameDeterministic(plain[index()], BenchData.PASSWORD);
+	}
+
+	@Benchmark
+	public String decryptFileName() throws Exception {
+		return EncryptionUtils.decryptFileName(encrypted[index()], BenchData.PASSWORD);
+	}
+
+	@Benchmark
+	public String encryptDirectoryNameShortPassword() throws Exception {
+		return EncryptionUtils.encryptDirectoryNameShort(plain[index()], BenchData.PASSWORD, 16);
+	}
+
+	@Benchmark
+	public String encryptDirectoryNameShortVaultKey() throws Exception {
+		return EncryptionUtils.encryptDirectoryNameShort(plain[index()], vaultNameKey, 16);
+	}
+
+	@Benchmark
+	public String tryDecryptPlainName() {
+		return NameCipher.forPassword(BenchData.PASSWORD).tryDecrypt(plain[index()]);
+	}
+}
@@ -0,0 +1,75 @@
+package com.example.encryptedexplorer.bench;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * 一次测量区间内的进程资源：峰值 RSS（Linux 读 /proc/self/status 的 VmHWM，开始时尽量重置）、
+ * 各堆内存池峰值之和、GC 次数与耗时增量。其他平台取不到 RSS 时为 -1。
+ */
+final class RuntimeStats {
+	private static final Path STATUS = Paths.get("/proc/self/status");
+	private static final Path CLEAR_REFS = Paths.get("/proc/self/clear_refs");
+
+	private long gcCount0;
+	private long gcMillis0;
+
+	long peakRssBytes = -1;
+	long peakHeapBytes;
+	long gcCount;
+	long gcMillis;
+
+	/** 开始测量：重置堆峰值与 RSS 高水位，记录 GC 基线。 */
+	static RuntimeStats start() {
+		System.gc();
+		RuntimeStats s = new RuntimeStats();
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP) pool.resetPeakUsage();
+		}
+		try {
+			// 写 5 重置 VmHWM（Linux 4.0+），失败时峰值包含之前的运行
+			Files.write(CLEAR_REFS, "5".getBytes(StandardCharsets.US_ASCII));
+		} catch (Exception ignored) {}
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			s.gcCount0 += Math.max(0, gc.getCollectionCount());
+			s.gcMillis0 += Math.max(0, gc.getCollectionTime());
+		}
+		return s;
+	}
+
+	/** 结束测量，填充各字段。 */
+	RuntimeStats stop() {
+		long count = 0;
+		long millis = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			count += Math.max(0, gc.getCollectionCount());
+			millis += Math.max(0, gc.getCollectionTime());
+		}
+		gcCount = count - gcCount0;
+		gcMillis = millis - gcMillis0;
+		peakHeapBytes = 0;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null) peakHeapBytes += pool.getPeakUsage().getUsed();
+		}
+		peakRssBytes = readPeakRss();
+		return this;
+	}
+
+	private static long readPeakRss() {
+		try {
+			for (String line : Files.readAllLines(STATUS, StandardCharsets.US_ASCII)) {
+				if (line.startsWith("VmHWM:")) {
+					String[] parts = line.substring(6).trim().split("\\s+");
+					return Long.parseLong(parts[0]) * 1024;
+				}
+			}
+		} catch (Exception ignored) {}
+		return -1;
+	}
+}
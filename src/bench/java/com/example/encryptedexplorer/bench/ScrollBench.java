@@ -0,0 +1,334 @@
+package com.example.encryptedexplorer.bench;
+
+import com.example.encryptedexplorer.model.ConflictPolicy;
+import com.example.encryptedexplorer.model.CopyOptions;
+import com.example.encryptedexplorer.model.ErrorDecision;
+import com.example.encryptedexplorer.model.Resolution;
+import com.example.encryptedexplorer.service.CopyService;
+import com.example.encryptedexplorer.service.ThumbnailCache;
+import com.example.encryptedexplorer.util.EncryptionUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * 滚动模拟基准：按查看页的方式驱动 {@link ThumbnailCache#getThumbnail}——网格每格 150 像素，
+ * 每页追加 50 个格子且追加时立即请求缩略图，滚动到距底部 48 像素内时追加下一页——
+ * 以固定速度（默认每秒 3000 像素）从顶部滚到底部，统计：
+ * <ul>
+ *   <li>可见格子的等待时间（格子进入视口到缩略图送达，已先送达记 0）的 p50/p95/p99；</li>
+ *   <li>浪费的工作：缩略图送达时格子已滚出视口的个数与比例；</li>
+ *   <li>缓存命中率（同步回调即命中）、峰值堆与 GC。</li>
+ * </ul>
+ * 每种目录（明文 / 加密）连续模拟 passes 次（模拟重新打开同一文件夹），共用一个 ThumbnailCache。
+ * 图片默认生成 JPEG 与 PNG（有 WEBP 编码器时也生成 WEBP），也可用 --images 指定真实图片目录。
+ */
+public final class ScrollBench {
+	private static final int CELL = 150;          // 140 像素格子 + 10 像素间距
+	private static final int PAGE_SIZE = 50;
+	private static final int LOAD_MARGIN = 48;
+	private static final int THUMB_SIZE = 96;
+	private static final long TICK_NANOS = 16_000_000L;
+
+	/** 命令行参数。 */
+	static final class Args {
+		Path work = Paths.get(System.getProperty("java.io.tmpdir"), "efe-bench");
+		Path images;
+		String results;
+		int count = 600;
+		long seed = 1;
+		List<String> variants = Arrays.asList("plain", "encrypted");
+		int width = 900;
+		int height = 600;
+		int speed = 3000;
+		int passes = 2;
+		boolean vault = true;
+		boolean sidecar;
+
+		static Args parse(String[] args) {
+			Args a = new Args();
+			for (int i = 0; i < args.length; i++) {
+				String arg = args[i];
+				switch (arg) {
+					case "--work": a.work = Paths.get(value(args, ++i, arg)); break;
+					case "--images": a.images = Paths.get(value(args, ++i, arg)); break;
+					case "--results": a.results = value(args, ++i, arg); break;
+					case "--count": a.count = Integer.parseInt(value(args, ++i, arg)); break;
+					case "--seed": a.seed = Long.parseLong(value(args, ++i, arg)); break;
+					case "--variants": a.variants = Arrays.asList(value(args, ++i, arg).split(",")); break;
+					case "--viewport":
+						String[] wh = value(args, ++i, arg).toLowerCase(Locale.ROOT).split("x");
+						a.width = Integer.parseInt(wh[0]);
+						a.height = Integer.parseInt(wh[1]);
+						break;
+					case "--speed": a.speed = Integer.parseInt(value(args, ++i, arg)); break;
+					case "--passes": a.passes = Integer.parseInt(value(args, ++i, arg)); break;
+					case "--no-vault": a.vault = false; break;
+					case "--thumbnails": a.sidecar = true; break;
+					default: throw new IllegalArgumentException("未知选项: " + arg);
+				}
+			}
+			for (String v : a.variants) {
+				if (!"plain".equals(v) && !"encrypted".equals(v)) throw new IllegalArgumentException("未知目录类型: " + v);
+			}
+			return a;
+		}
+
+		private static String value(String[] args, int i, String name) {
+			if (i >= args.length) throw new IllegalArgumentException(name + " 缺少参数值");
+			return args[i];
+		}
+	}
+
+	/** 一个格子的时间线（System.nanoTime，未发生为 -1）。 */
+	private static final class Cell {
+		final Path path;
+		final int index;
+		long requested = -1;
+		long firstVisible = -1;
+		long lastVisible = -1;
+		volatile long delivered = -1;
+		volatile boolean hit;
+		volatile boolean empty;
+
+		Cell(Path path, int index) {
+			this.path = path;
+			this.index = index;
+		}
+	}
+
+	public static void main(String[] argv) throws Exception {
+		System.setProperty("java.awt.headless", "true");
+		Args a;
+		try {
+			a = Args.parse(argv);
+		} catch (IllegalArgumentException e) {
+			System.err.println("参数错误: " + e.getMessage());
+			System.err.println("用法: ScrollBench [--count 600] [--images 目录] [--variants plain,encrypted] [--viewport 900x600]"
+					+ " [--speed 3000] [--passes 2] [--no-vault] [--thumbnails] [--seed 1] [--work 目录] [--results 目录]");
+			System.exit(2);
+			return;
+		}
+		Files.createDirectories(a.work);
+		Path plain = a.images != null ? a.images : generateImages(a);
+		try (BenchReport report = BenchReport.create(a.results, "scroll")) {
+			System.out.printf("%-10s %4s %6s %9s %9s %9s %9s %8s %8s %9s%n",
+					"variant", "pass", "cells", "p50(ms)", "p95(ms)", "p99(ms)", "max(ms)", "wasted", "hit", "heap(MB)");
+			for (String variant : a.variants) {
+				Path folder = "plain".equals(variant) ? plain : encrypted(a, plain);
+				ThumbnailCache cache = new ThumbnailCache();
+				try {
+					for (int pass = 1; pass <= a.passes; pass++) {
+						RuntimeStats stats = RuntimeStats.start();
+						List<Cell> cells = simulate(a, cache, folder, "encrypted".equals(variant));
+						stats.stop();
+						report(report, a, variant, pass, cells, stats);
+					}
+				} finally {
+					cache.shutdown();
+				}
+			}
+			System.out.println("结果: " + report.file());
+		}
+		System.exit(0); // ThumbnailCache 的线程池不是守护线程
+	}
+
+	/**
+	 * 模拟一次打开文件夹并匀速滚动到底部，返回全部格子的时间线。
+	 */
+	private static List<Cell> simulate(Args a, ThumbnailCache cache, Path folder, boolean encrypted) throws Exception {
+		List<Path> entries = new ArrayList<>();
+		try (DirectoryStream<Path> ds = Files.newDirectoryStream(folder)) {
+			for (Path p : ds) {
+				String name = p.getFileName().toString();
+				if (Files.isRegularFile(p) && !name.startsWith(".")) entries.add(p);
+			}
+		}
+		int columns = Math.max(1, a.width / CELL);
+		List<Cell> cells = new ArrayList<>(entries.size());
+		AtomicInteger outstanding = new AtomicInteger();
+		double y = 0;
+		long start = System.nanoTime();
+		long tick = start;
+		while (true) {
+			long now = System.nanoTime();
+			int rows = (cells.size() + columns - 1) / columns;
+			int contentHeight = rows * CELL;
+			// 与查看页相同：接近底部时追加一页，追加的格子立即请求缩略图
+			if (cells.size() < entries.size() && y + a.height >= contentHeight - LOAD_MARGIN) {
+				int end = Math.min(entries.size(), cells.size() + PAGE_SIZE);
+				for (int i = cells.size(); i < end; i++) {
+					Cell c = new Cell(entries.get(i), i);
+					cells.add(c);
+					request(cache, c, encrypted, outstanding);
+				}
+				continue;
+			}
+			int firstRow = (int) (y / CELL);
+			int lastRow = (int) ((y + a.height - 1) / CELL);
+			for (int row = firstRow; row <= lastRow; row++) {
+				for (int col = 0; col < columns; col++) {
+					int i = row * columns + col;
+					if (i >= cells.size()) break;
+					Cell c = cells.get(i);
+					if (c.firstVisible < 0) c.firstVisible = now;
+					c.lastVisible = now;
+				}
+			}
+			double bottom = Math.max(0, contentHeight - a.height);
+			if (cells.size() == entries.size() && y >= bottom) {
+				// 停在底部：最后一屏的格子一直可见，之后送达不算浪费
+				for (int i = firstRow * columns; i < cells.size(); i++) cells.get(i).lastVisible = Long.MAX_VALUE;
+				break;
+			}
+			tick += TICK_NANOS;
+			long sleep = tick - System.nanoTime();
+			if (sleep > 0) Thread.sleep(sleep / 1_000_000, (int) (sleep % 1_000_000));
+			y = Math.min(bottom, y + a.speed * (System.nanoTime() - now) / 1e9);
+		}
+		// 滚动结束后停在底部，等待仍在加载的缩略图
+		long deadline = System.nanoTime() + 300_000_000_000L;
+		while (outstanding.get() > 0 && System.nanoTime() < deadline) Thread.sleep(10);
+		return cells;
+	}
+
+	private static void request(ThumbnailCache cache, Cell c, boolean encrypted, AtomicInteger outstanding) {
+		outstanding.incrementAndGet();
+		c.requested = System.nanoTime();
+		Thread caller = Thread.currentThread();
+		cache.getThumbnail(c.path, THUMB_SIZE, encrypted, encrypted ? BenchData.PASSWORD : null, icon -> {
+			c.hit = Thread.currentThread() == caller;
+			c.empty = icon == null;
+			c.delivered = System.nanoTime();
+			outstanding.decrementAndGet();
+		});
+	}
+
+	private static void report(BenchReport report, Args a, String variant, int pass, List<Cell> cells, RuntimeStats stats) throws IOException {
+		List<Double> waits = new ArrayList<>();
+		int wasted = 0;
+		int hits = 0;
+		int missing = 0;
+		for (Cell c : cells) {
+			if (c.hit) hits++;
+			if (c.delivered < 0 || c.empty) missing++;
+			if (c.firstVisible >= 0) {
+				long delivered = c.delivered >= 0 ? c.delivered : System.nanoTime();
+				waits.add(Math.max(0, delivered - c.firstVisible) / 1e6);
+				if (c.lastVisible != Long.MAX_VALUE && delivered > c.lastVisible + TICK_NANOS) wasted++;
+			}
+		}
+		waits.sort(null);
+		double p50 = percentile(waits, 50);
+		double p95 = percentile(waits, 95);
+		double p99 = percentile(waits, 99);
+		double max = waits.isEmpty() ? 0 : waits.get(waits.size() - 1);
+		double hitRate = cells.isEmpty() ? 0 : (double) hits / cells.size();
+		double wastedRate = cells.isEmpty() ? 0 : (double) wasted / cells.size();
+		System.out.printf(Locale.ROOT, "%-10s %4d %6d %9.1f %9.1f %9.1f %9.1f %7.1f%% %7.1f%% %9.0f%n",
+				variant, pass, cells.size(), p50, p95, p99, max, wastedRate * 100, hitRate * 100, stats.peakHeapBytes / 1048576.0);
+		report.record("scroll")
+				.put("variant", variant).put("pass", pass).put("cells", cells.size())
+				.put("viewport", a.width + "x" + a.height).put("speedPxPerSecond", a.speed)
+				.put("vault", a.vault).put("thumbnailSidecar", a.sidecar)
+				.put("p50Ms", p50).put("p95Ms", p95).put("p99Ms", p99).put("maxMs", max)
+				.put("wasted", wasted).put("wastedRate", wastedRate).put("hits", hits).put("hitRate", hitRate)
+				.put("missing", missing)
+				.put("peakHeapBytes", stats.peakHeapBytes).put("peakRssBytes", stats.peakRssBytes)
+				.put("gcCount", stats.gcCount).put("gcMillis", stats.gcMillis)
+				.write();
+	}
+
+	private static double percentile(List<Double> sorted, int p) {
+		if (sorted.isEmpty()) return 0;
+		int i = (int) Math.ceil(p / 100.0 * sorted.size()) - 1;
+		return sorted.get(Math.max(0, Math.min(sorted.size() - 1, i)));
+	}
+
+	/**
+	 * 生成（或复用）测试图片：约 60% 小图（800x600）、30% 中图（1920x1080）、10% 大图（4032x3024），
+	 * 格式在 JPEG、PNG 与（可用时）WEBP 间轮换。内容为渐变加色块，压缩后大小接近照片与截图。
+	 */
+	private static Path generateImages(Args a) throws IOException {
+		List<String> formats = new ArrayList<>(Arrays.asList("jpg", "png"));
+		if (ImageIO.getImageWritersByFormatName("webp").hasNext()) formats.add("webp");
+		Path dir = a.work.resolve("images-n" + a.count + "-r" + a.seed + "-" + String.join("", formats));
+		Path marker = dir.resolveSibling(dir.getFileName() + ".complete");
+		if (Files.isRegularFile(marker)) return dir;
+		BenchData.deleteTree(dir);
+		Files.createDirectories(dir);
+		Random rnd = new Random(a.seed);
+		long t0 = System.nanoTime();
+		for (int i = 0; i < a.count; i++) {
+			double r = rnd.nextDouble();
+			int w = r < 0.6 ? 800 : r < 0.9 ? 1920 : 4032;
+			int h = r < 0.6 ? 600 : r < 0.9 ? 1080 : 3024;
+			String format = formats.get(i % formats.size());
+			BufferedImage img = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+			Graphics2D g = img.createGraphics();
+			try {
+				g.setPaint(new GradientPaint(0, 0, new Color(rnd.nextInt()), w, h, new Color(rnd.nextInt())));
+				g.fillRect(0, 0, w, h);
+				for (int k = 0; k < 40; k++) {
+					g.setColor(new Color(rnd.nextInt(), true));
+					g.fillOval(rnd.nextInt(w), rnd.nextInt(h), 20 + rnd.nextInt(w / 3), 20 + rnd.nextInt(h / 3));
+				}
+			} finally {
+				g.dispose();
+			}
+			ImageIO.write(img, format, dir.resolve(String.format(Locale.ROOT, "img-%05d.%s", i, format)).toFile());
+		}
+		Files.write(marker, formats.toString().getBytes(StandardCharsets.UTF_8));
+		System.out.printf(Locale.ROOT, "生成图片: %d 张 %s 耗时=%dms%n", a.count, formats, (System.nanoTime() - t0) / 1_000_000);
+		return dir;
+	}
+
+	/** 用 CopyService 加密图片目录（可选保险库与缩略图旁路文件），结果按参数复用。 */
+	private static Path encrypted(Args a, Path plain) throws IOException {
+		Path dir = a.work.resolve(plain.getFileName() + "-enc" + (a.vault ? "-vault" : "") + (a.sidecar ? "-thumbs" : ""));
+		Path marker = dir.resolveSibling(dir.getFileName() + ".complete");
+		if (Files.isRegularFile(marker)) return dir;
+		BenchData.deleteTree(dir);
+		CopyOptions options = new CopyOptions();
+		options.sourceDirectory = plain;
+		options.targetDirectory = dir;
+		options.encryptFiles = true;
+		options.password = BenchData.PASSWORD;
+		options.useVault = a.vault;
+		options.thumbnails = a.sidecar;
+		options.conflictPolicy = ConflictPolicy.OVERWRITE;
+		options.workers = Runtime.getRuntime().availableProcessors();
+		options.validate();
+		long t0 = System.nanoTime();
+		new CopyService().copyDirectory(options, new CopyService.Callbacks() {
+			@Override public Resolution onConflict(Path targetPath) { return Resolution.REPLACE; }
+			@Override public ErrorDecision onError(Path sourcePath, Exception error) { return ErrorDecision.SKIP; }
+			@Override public void onProgress(String currentFile, long copiedBytes, long totalBytes) {}
+			@Override public void onLog(String message) {}
+			@Override public boolean isCancelled() { return false; }
+		});
+		Files.write(marker, new byte[0]);
+		long files;
+		try (Stream<Path> s = Files.list(dir)) {
+			files = s.filter(p -> EncryptionUtils.isEncryptedFileName(p.getFileName().toString())).count();
+		}
+		System.out.printf(Locale.ROOT, "加密图片: %d 个 耗时=%dms -> %s%n", files, (System.nanoTime() - t0) / 1_000_000, dir);
+		return dir;
+	}
+}
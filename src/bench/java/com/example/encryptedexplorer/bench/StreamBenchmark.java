@@ -0,0 +1,96 @@
+package com.example.encryptedexplorer.bench;
+
+import com.example.encryptedexplorer.util.CipherSuites;
+import com.example.encryptedexplorer.util.CompressionCodecs;
+import com.example.encryptedexplorer.util.EncryptionUtils;
+import com.example.encryptedexplorer.util.VaultKey;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * encryptStream / decryptStream 吞吐：明文与密文放在临时文件中（多次运行后位于页缓存），
+ * 以 bufferSize 大小的缓冲流读写，输出丢弃。吞吐 = payload / 每次耗时。
+ * <p>
+ * keying=vault 时文件密钥由保险库主密钥派生，测的是纯分段加解密；keying=password 时每个文件含一次 PBKDF2。
+ * cipher 为分段算法（见 CipherSuites），用于比较本机上 AES-GCM 与 ChaCha20-Poly1305 的吞吐。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class StreamBenchmark {
+	@Param({"1K", "64K", "1M", "64M", "1G"})
+	public String payload;
+
+	@Param({"8192", "65536", "1048576"})
+	public int bufferSize;
+
+	@Param({"vault"})
+	public String keying;
+
+	@Param({"aes-gcm", "chacha20-poly1305"})
+	public String cipher;
+
+	private Path dir;
+	private Path plainFile;
+	private Path cipherFile;
+	private VaultKey vault;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		CipherSuites.setPreferred(CipherSuites.byName(cipher));
+		dir = Files.createTempDirectory("efe-bench-stream");
+		plainFile = BenchData.writeFile(dir.resolve("plain.bin"), BenchData.parseSize(payload), 42);
+		vault = "vault".equals(keying) ? VaultKey.generate() : null;
+		cipherFile = dir.resolve("cipher.bin");
+		try (InputStream in = Files.newInputStream(plainFile); OutputStream out = Files.newOutputStream(cipherFile)) {
+			EncryptionUtils.encryptStream(in, out, BenchData.PASSWORD, vault, CompressionCodecs.NONE, null);
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		BenchData.deleteTree(dir);
+	}
+
+	@Benchmark
+	public long encryptStream() throws Exception {
+		BenchData.NullOutputStream sink = new BenchData.NullOutputStream();
+		try (InputStream in = new BufferedInputStream(Files.newInputStream(plainFile), bufferSize);
+			 OutputStream out = new BufferedOutputStream(sink, bufferSize)) {
+			EncryptionUtils.encryptStream(in, out, BenchData.PASSWORD, vault, CompressionCodecs.NONE, null);
+		}
+		return sink.count;
+	}
+
+	@Benchmark
+	public long decryptStream() throws Exception {
+		BenchData.NullOutputStream sink = new BenchData.NullOutputStream();
+		try (InputStream in = new BufferedInputStream(Files.newInputStream(cipherFile), bufferSize);
+			 OutputStream out = new BufferedOutputStream(sink, bufferSize)) {
+			EncryptionUtils.decryptStream(in, out, BenchData.PASSWORD, vault, null);
+		}
+		return sink.count;
+	}
+}
@@ -1,18 +1,45 @@
 package com.example.encryptedexplorer;
 
+import com.example.encryptedexplorer.cli.BatchCli;
+import com.example.encryptedexplorer.util.CipherSuite;
+import com.example.encryptedexplorer.util.CipherSuites;
+import com.example.encryptedexplorer.util.Tracing;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKeyFactory;
 import javax.imageio.ImageIO;
 import javax.swing.SwingUtilities;
 import javax.swing.UIManager;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.time.Instant;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * 应用程序入口。
- * 负责设置外观样式并启动主窗口。
+ * 负责设置外观样式并启动主窗口；首个参数为子命令（encrypt/decrypt/copy/verify）时以无界面批处理模式运行。
+ * 图片插件与加密提供者在后台线程预热，“查看”选项卡在首次选中时才创建。
  */
 public class Main {
 	private static final Logger LOG = LoggerFactory.getLogger(Main.class);
+	private static final String EXIT_AFTER_STARTUP = "encryptedexplorer.exitAfterStartup";
+
 	public static void main(String[] args) {
+		startTracing();
+		if (args.length > 0 && BatchCli.isCommand(args[0])) {
+			System.exit(BatchCli.run(args));
+		}
+
+		// 图片插件与加密提供者在后台预热，首个窗口不再等待它们：多核时与外观设置、主窗口构建并行，
+		// 单核时并行只会互相争抢，改为窗口显示后再开始
+		Thread warmUp = new Thread(Main::warmUp, "startup-warmup");
+		warmUp.setDaemon(true);
+		if (Runtime.getRuntime().availableProcessors() > 1) warmUp.start();
+
 		// 尝试设置系统原生外观，提升观感
 		try {
 			UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
@@ -20,13 +47,66 @@ public class Main {
 			// 忽略外观设置异常，使用默认外观
 		}
 
-		// 扫描 ImageIO 插件，启用 WEBP 支持
-		ImageIO.scanForPlugins();
-		LOG.info("启动 应用: ImageIO 插件已加载");
-
 		SwingUtilities.invokeLater(() -> {
 			MainFrame frame = new MainFrame();
+			frame.addWindowListener(new WindowAdapter() {
+				@Override
+				public void windowOpened(WindowEvent e) {
+					firstWindowShown(warmUp);
+				}
+			});
 			frame.setVisible(true);
 		});
 	}
-} 
\ No newline at end of file
+
+	/**
+	 * 后台预热：ImageIO 首次使用时注册类路径上的插件（TwelveMonkeys 的 WEBP 等，无需再 scanForPlugins），
+	 * 加密提供者首次查找算法时初始化。以 -Dencryptedexplorer.cipher=auto 启动时在此运行加密算法微基准，
+	 * 为新文件选出本机最快的算法。
+	 */
+	private static void warmUp() {
+		long t0 = System.nanoTime();
+		ImageIO.getReaderFormatNames();
+		long t1 = System.nanoTime();
+		try {
+			SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256");
+			CipherSuite suite = CipherSuites.preferred();
+			suite.newCipher();
+			Mac.getInstance("HmacSHA256");
+			if (CipherSuites.AUTO.equalsIgnoreCase(System.getProperty(CipherSuites.PROPERTY, "").trim())) {
+				LOG.info("新文件加密算法自动选择: {}，实测吞吐（MB/s）{}", suite.name(), CipherSuites.benchmark());
+			}
+		} catch (GeneralSecurityException | IllegalArgumentException e) {
+			LOG.warn("预热加密提供者失败: {}", e.toString());
+		}
+		LOG.info("后台预热完成: ImageIO 插件 {}ms, 加密提供者 {}ms", (t1 - t0) / 1_000_000, (System.nanoTime() - t1) / 1_000_000);
+	}
+
+	/** 记录从进程启动到首个窗口显示的时间；以 -Dencryptedexplorer.exitAfterStartup=true 启动时随后退出（AppCDS 训练与启动测量）。 */
+	private static void firstWindowShown(Thread warmUp) {
+		long millis = ProcessHandle.current().info().startInstant()
+				.map(start -> Duration.between(start, Instant.now()).toMillis())
+				.orElse(-1L);
+		LOG.info("首个窗口已显示: 距进程启动 {}ms", millis);
+		if (warmUp.getState() == Thread.State.NEW) warmUp.start();
+		if (!Boolean.getBoolean(EXIT_AFTER_STARTUP)) return;
+		try {
+			warmUp.join(10_000); // 训练时让预热加载的类也进入类列表
+		} catch (InterruptedException ignored) {
+			Thread.currentThread().interrupt();
+		}
+		System.out.println("firstWindowMillis=" + millis);
+		System.exit(0);
+	}
+
+	/** 以 -Dencryptedexplorer.trace=文件.jfr 启动时开始 JFR 录制，退出时写出。 */
+	private static void startTracing() {
+		if (!Tracing.ENABLED) return;
+		try {
+			Path recording = Tracing.startRecording();
+			LOG.info("JFR 自定义事件已开启{}", recording != null ? "，录制写入 " + recording : "");
+		} catch (Exception | LinkageError e) {
+			LOG.warn("无法开始 JFR 录制: {}", e.toString());
+		}
+	}
+}
@@ -1,15 +1,25 @@
 package com.example.encryptedexplorer;
 
+import com.example.encryptedexplorer.service.Vault;
 import com.example.encryptedexplorer.ui.CopyPanel;
 import com.example.encryptedexplorer.ui.ViewPanel;
 
+import javax.swing.JFileChooser;
 import javax.swing.JFrame;
 import javax.swing.JMenu;
 import javax.swing.JMenuBar;
 import javax.swing.JMenuItem;
 import javax.swing.JCheckBoxMenuItem;
+import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.JPasswordField;
 import javax.swing.JTabbedPane;
+import javax.swing.SwingWorker;
 import java.awt.BorderLayout;
+import java.awt.Cursor;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -18,9 +28,11 @@ import org.slf4j.LoggerFactory;
  */
 public class MainFrame extends JFrame {
 	private static final Logger LOG = LoggerFactory.getLogger(MainFrame.class);
+	private static final int VIEW_TAB = 1;
 	private final JTabbedPane tabbedPane;
 	private final CopyPanel copyPanel;
-	private final ViewPanel viewPanel;
+	// “查看”选项卡首次被选中时才创建（缩略图缓存、目录索引等随之初始化），不拖慢首个窗口显示
+	private ViewPanel viewPanel;
 	private boolean dirTransformEnabled = false;
 
 	public MainFrame() {
@@ -30,10 +42,12 @@ public class MainFrame extends JFrame {
 		setLocationRelativeTo(null);
 
 		this.copyPanel = new CopyPanel();
-		this.viewPanel = new ViewPanel();
 		this.tabbedPane = new JTabbedPane();
 		tabbedPane.addTab("文件复制", copyPanel);
-		tabbedPane.addTab("查看", viewPanel);
+		tabbedPane.addTab("查看", new JPanel());
+		tabbedPane.addChangeListener(e -> {
+			if (tabbedPane.getSelectedIndex() == VIEW_TAB) viewPanel();
+		});
 
 		setLayout(new BorderLayout());
 		add(tabbedPane, BorderLayout.CENTER);
@@ -41,6 +55,18 @@ public class MainFrame extends JFrame {
 		setJMenuBar(createMenuBar());
 	}
 
+	/** 取得“查看”选项卡，第一次调用时创建并替换占位面板。 */
+	private ViewPanel viewPanel() {
+		if (viewPanel == null) {
+			long t0 = System.nanoTime();
+			viewPanel = new ViewPanel();
+			if (dirTransformEnabled) viewPanel.setDirectoryTransformEnabled(true);
+			tabbedPane.setComponentAt(VIEW_TAB, viewPanel);
+			LOG.info("创建 查看页: {}ms", (System.nanoTime() - t0) / 1_000_000);
+		}
+		return viewPanel;
+	}
+
 	private JMenuBar createMenuBar() {
 		JMenuBar menuBar = new JMenuBar();
 		JMenu encMenu = new JMenu("加密/解密");
@@ -50,11 +76,83 @@ public class MainFrame extends JFrame {
 			dirTransformEnabled = toggleDirTransform.isSelected();
 			LOG.info("切换 菜单[加解密目录]: {}", dirTransformEnabled ? "开启" : "关闭");
 			copyPanel.setDirectoryTransformEnabled(dirTransformEnabled);
-			viewPanel.setDirectoryTransformEnabled(dirTransformEnabled);
+			if (viewPanel != null) viewPanel.setDirectoryTransformEnabled(dirTransformEnabled);
 		});
 
+		JMenuItem rekeyVault = new JMenuItem("修改保险库密码...");
+		rekeyVault.addActionListener(e -> changeVaultPassword(rekeyVault));
+
 		encMenu.add(toggleDirTransform);
+		encMenu.add(rekeyVault);
 		menuBar.add(encMenu);
 		return menuBar;
 	}
+
+	/**
+	 * 选择保险库并输入新旧密码，在后台线程中重新包装主密钥（含两次密钥派生），完成后提示结果；
+	 * 进行期间菜单项不可用。
+	 */
+	private void changeVaultPassword(JMenuItem menuItem) {
+		JFileChooser chooser = new JFileChooser();
+		chooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+		chooser.setDialogTitle("选择保险库根目录");
+		if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) return;
+		Path root = chooser.getSelectedFile().toPath();
+		if (!Vault.exists(root)) {
+			JOptionPane.showMessageDialog(this, "所选目录不是保险库（缺少 " + Vault.FILE_NAME + "）", "提示", JOptionPane.WARNING_MESSAGE);
+			return;
+		}
+		char[] oldPassword = askPassword("当前密码");
+		if (oldPassword == null) return;
+		char[] newPassword = askPassword("新密码");
+		char[] confirm = newPassword != null ? askPassword("确认新密码") : null;
+		if (newPassword == null || confirm == null) {
+			clear(oldPassword, newPassword, confirm);
+			return;
+		}
+		if (newPassword.length == 0 || !Arrays.equals(newPassword, confirm)) {
+			JOptionPane.showMessageDialog(this, "新密码为空或两次输入不一致", "提示", JOptionPane.WARNING_MESSAGE);
+			clear(oldPassword, newPassword, confirm);
+			return;
+		}
+		menuItem.setEnabled(false);
+		setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+		new SwingWorker<Void, Void>() {
+			@Override
+			protected Void doInBackground() throws Exception {
+				Vault.rekey(root, oldPassword, newPassword);
+				return null;
+			}
+
+			@Override
+			protected void done() {
+				clear(oldPassword, newPassword, confirm);
+				menuItem.setEnabled(true);
+				setCursor(Cursor.getDefaultCursor());
+				try {
+					get();
+					LOG.info("保险库密码已修改: {}", root);
+					JOptionPane.showMessageDialog(MainFrame.this, "保险库密码已修改", "完成", JOptionPane.INFORMATION_MESSAGE);
+				} catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				} catch (ExecutionException ex) {
+					Throwable cause = ex.getCause();
+					LOG.warn("修改保险库密码失败: {} - {}", root, cause.toString());
+					JOptionPane.showMessageDialog(MainFrame.this, "修改失败（密码错误或保险库已损坏）: " + cause.getMessage(), "错误", JOptionPane.ERROR_MESSAGE);
+				}
+			}
+		}.execute();
+	}
+
+	private static void clear(char[]... passwords) {
+		for (char[] password : passwords) {
+			if (password != null) Arrays.fill(password, '\0');
+		}
+	}
+
+	private char[] askPassword(String title) {
+		JPasswordField field = new JPasswordField(20);
+		int r = JOptionPane.showConfirmDialog(this, field, title, JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+		return r == JOptionPane.OK_OPTION ? field.getPassword() : null;
+	}
 } 
\ No newline at end of file
@@ -0,0 +1,596 @@
+package com.example.encryptedexplorer.cli;
+
+import com.example.encryptedexplorer.model.ConflictPolicy;
+import com.example.encryptedexplorer.model.CopyOptions;
+import com.example.encryptedexplorer.model.ErrorDecision;
+import com.example.encryptedexplorer.model.Resolution;
+import com.example.encryptedexplorer.model.VerifyOptions;
+import com.example.encryptedexplorer.service.CopyService;
+import com.example.encryptedexplorer.service.FolderWatcher;
+import com.example.encryptedexplorer.service.ObjectCollector;
+import com.example.encryptedexplorer.service.SecretCaches;
+import com.example.encryptedexplorer.service.VerifyService;
+import com.example.encryptedexplorer.util.CipherSuites;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 无界面批处理入口：encrypt / decrypt / copy / verify / watch / gc 子命令。
+ * 冲突与错误按命令行策略自动决策，进度与结果以 JSON Lines 输出到标准输出，日志走标准错误。
+ *
+ * 退出码：0 成功；1 有文件失败或校验发现损坏；2 参数错误；3 被取消。
+ */
+public final class BatchCli {
+	private static final Logger LOG = LoggerFactory.getLogger(BatchCli.class);
+	static final int EXIT_OK = 0;
+	static final int EXIT_FAILED = 1;
+	static final int EXIT_USAGE = 2;
+	static final int EXIT_CANCELLED = 3;
+	private static final int MAX_RETRIES = 3;
+
+	private final JsonLineWriter json;
+	private final PrintStream err;
+	private volatile boolean cancelled;
+	private volatile Closeable active;
+
+	BatchCli(PrintStream out, PrintStream err) {
+		this.json = new JsonLineWriter(out);
+		this.err = err;
+	}
+
+	/** 子命令名是否由本入口处理。 */
+	public static boolean isCommand(String arg) {
+		return "encrypt".equals(arg) || "decrypt".equals(arg) || "copy".equals(arg) || "verify".equals(arg)
+				|| "watch".equals(arg) || "gc".equals(arg) || "help".equals(arg) || "--help".equals(arg);
+	}
+
+	public static int run(String[] args) {
+		System.setProperty("java.awt.headless", "true");
+		BatchCli cli = new BatchCli(System.out, System.err);
+		CountDownLatch finished = new CountDownLatch(1);
+		Thread hook = new Thread(() -> {
+			cli.cancelled = true;
+			try {
+				Closeable watcher = cli.active;
+				if (watcher != null) watcher.close();
+				finished.await(30, TimeUnit.SECONDS);
+			} catch (IOException ignored) {
+				// 退出中
+			} catch (InterruptedException ignored) {
+				Thread.currentThread().interrupt();
+			}
+		}, "cli-shutdown");
+		Runtime.getRuntime().addShutdownHook(hook);
+		try {
+			return cli.execute(args);
+		} finally {
+			finished.countDown();
+		}
+	}
+
+	int execute(String[] args) {
+		Args a;
+		try {
+			a = Args.parse(args);
+			if (a.command == null || "help".equals(a.command) || "--help".equals(a.command)) {
+				printUsage();
+				return a.command == null ? EXIT_USAGE : EXIT_OK;
+			}
+			a.password = readPassword(a);
+			if (a.cipher != null) CipherSuites.setPreferred(CipherSuites.resolve(a.cipher));
+		} catch (IllegalArgumentException | IOException e) {
+			err.println("参数错误: " + e.getMessage());
+			printUsage();
+			return EXIT_USAGE;
+		}
+		try {
+			if ("verify".equals(a.command)) return verify(a);
+			if ("watch".equals(a.command)) return watch(a);
+			if ("gc".equals(a.command)) return gc(a);
+			return copy(a);
+		} catch (IllegalArgumentException e) {
+			err.println("参数错误: " + e.getMessage());
+			return EXIT_USAGE;
+		} finally {
+			// 命令结束后清零密码与进程内缓存的密钥
+			if (a.password != null) Arrays.fill(a.password, '\0');
+			SecretCaches.clear();
+		}
+	}
+
+	private static CopyOptions copyOptions(Args a) {
+		if (a.positional.size() != 2) throw new IllegalArgumentException(a.command + " 需要 <源目录> <目标目录>");
+		CopyOptions options = new CopyOptions();
+		options.sourceDirectory = Paths.get(a.positional.get(0)).toAbsolutePath().normalize();
+		options.targetDirectory = Paths.get(a.positional.get(1)).toAbsolutePath().normalize();
+		options.encryptFiles = "encrypt".equals(a.command) || "watch".equals(a.command);
+		options.decryptFiles = "decrypt".equals(a.command);
+		options.encryptDirectoryNames = a.dirNames && options.encryptFiles;
+		options.decryptDirectoryNames = a.dirNames && options.decryptFiles;
+		options.password = a.password;
+		options.packSmallFiles = a.pack;
+		options.compressFiles = a.compressCodec != null;
+		if (a.compressCodec != null) options.compressionCodec = a.compressCodec;
+		options.deduplicate = a.dedup;
+		options.chunkLargeFiles = a.chunk;
+		if (a.chunkThreshold >= 0) options.chunkThresholdBytes = a.chunkThreshold;
+		options.useVault = a.vault;
+		options.indexDirectories = a.index;
+		options.thumbnails = a.thumbnails;
+		options.searchIndex = a.searchIndex;
+		options.workers = a.workers;
+		options.maxBytesPerSecond = a.limitBytesPerSecond;
+		options.durable = a.durable;
+		// cancel 以外的冲突处理交给批量策略，不再逐个回调
+		options.conflictPolicy = a.onConflict == Resolution.CANCEL ? ConflictPolicy.ASK : a.conflictPolicy;
+		options.identicalByHash = a.identicalByHash;
+		options.validate();
+		return options;
+	}
+
+	private int copy(Args a) {
+		CopyOptions options = copyOptions(a);
+		Stats stats = new Stats();
+		AtomicLong errors = new AtomicLong();
+		Map<Path, AtomicInteger> retries = new ConcurrentHashMap<>();
+		json.event("start").put("command", a.command).put("source", options.sourceDirectory).put("target", options.targetDirectory)
+				.put("workers", options.workers).put("limitBytesPerSecond", options.maxBytesPerSecond)
+				.put("cipher", options.encryptFiles ? CipherSuites.preferred().name() : null).emit();
+
+		CopyService service = new CopyService();
+		String scan = a.preScan ? preScan(service, options, a) : null;
+		if (scan != null) {
+			json.event("done").put("status", scan).put("files", 0).put("bytes", 0).put("errors", 0)
+					.put("elapsedMs", stats.elapsedMs()).put("avgBytesPerSecond", 0).emit();
+			return exitCode(scan);
+		}
+		ScheduledExecutorService ticker = startProgress(a.progressIntervalMs, stats);
+		String status;
+		try {
+			service.copyDirectory(options, new CopyService.Callbacks() {
+				@Override
+				public Resolution onConflict(Path targetPath) {
+					json.event("conflict").put("path", targetPath).put("decision", a.onConflict).emit();
+					return a.onConflict;
+				}
+
+				@Override
+				public ErrorDecision onError(Path sourcePath, Exception error) {
+					ErrorDecision d = a.onError;
+					if (d == ErrorDecision.RETRY
+							&& retries.computeIfAbsent(sourcePath, k -> new AtomicInteger()).incrementAndGet() > MAX_RETRIES) {
+						d = ErrorDecision.SKIP;
+					}
+					if (d != ErrorDecision.RETRY) errors.incrementAndGet();
+					json.event("error").put("path", sourcePath).put("message", error.toString()).put("decision", d).emit();
+					return d;
+				}
+
+				@Override
+				public void onProgress(String currentFile, long copiedBytes, long totalBytes) {
+					stats.bytes.accumulateAndGet(copiedBytes, Math::max);
+					stats.totalBytes = totalBytes;
+				}
+
+				@Override
+				public void onLog(String message) {
+					LOG.debug(message);
+				}
+
+				@Override
+				public void onFileCompleted(Path sourcePath, long bytes) {
+					stats.files.incrementAndGet();
+				}
+
+				@Override
+				public boolean isCancelled() {
+					return cancelled;
+				}
+			});
+			status = cancelled ? "cancelled" : errors.get() > 0 ? "failed" : "ok";
+		} catch (IOException | RuntimeException e) {
+			LOG.error("任务失败: {}", e.toString());
+			json.event("fatal").put("message", e.toString()).emit();
+			status = "failed";
+		} finally {
+			ticker.shutdownNow();
+		}
+		emitProgress(stats);
+		json.event("done").put("status", status).put("files", stats.files.get()).put("bytes", stats.bytes.get())
+				.put("errors", errors.get()).put("elapsedMs", stats.elapsedMs())
+				.put("avgBytesPerSecond", stats.averageRate()).emit();
+		return exitCode(status);
+	}
+
+	/**
+	 * 复制前预扫描冲突并逐条输出。可以继续复制时返回 null；冲突策略为 cancel 且存在冲突时返回
+	 * "cancelled"（不写入任何文件），扫描失败返回 "failed"。
+	 */
+	private String preScan(CopyService service, CopyOptions options, Args a) {
+		List<Path> conflicts;
+		try {
+			conflicts = service.findConflicts(options);
+		} catch (IOException | RuntimeException e) {
+			LOG.error("冲突预扫描失败: {}", e.toString());
+			json.event("fatal").put("message", e.toString()).emit();
+			return "failed";
+		}
+		for (Path p : conflicts) {
+			json.event("conflict").put("path", p).put("decision", a.onConflict == Resolution.CANCEL ? Resolution.CANCEL : a.conflictPolicy).emit();
+		}
+		json.event("scan").put("conflicts", conflicts.size()).emit();
+		return conflicts.isEmpty() || a.onConflict != Resolution.CANCEL ? null : "cancelled";
+	}
+
+	/**
+	 * 监视模式：持续把源目录中新建或修改的文件增量加密到目标目录，直到收到 SIGINT/SIGTERM。
+	 */
+	private int watch(Args a) {
+		CopyOptions options = copyOptions(a);
+		AtomicLong files = new AtomicLong();
+		AtomicLong errors = new AtomicLong();
+		FolderWatcher watcher = new FolderWatcher(options, a.debounceMs, a.reconcileSeconds * 1000, new FolderWatcher.Listener() {
+			@Override
+			public void onBatch(int count) {
+				json.event("batch").put("files", count).emit();
+			}
+
+			@Override
+			public void onEncrypted(Path source) {
+				files.incrementAndGet();
+				json.event("encrypted").put("path", source).emit();
+			}
+
+			@Override
+			public void onError(Path source, Exception error) {
+				errors.incrementAndGet();
+				json.event("error").put("path", source).put("message", error.toString()).emit();
+			}
+
+			@Override
+			public void onReconciled(int queued) {
+				json.event("reconcile").put("queued", queued).emit();
+			}
+		});
+		json.event("start").put("command", a.command).put("source", options.sourceDirectory).put("target", options.targetDirectory)
+				.put("debounceMs", a.debounceMs).put("reconcileSeconds", a.reconcileSeconds).put("cipher", CipherSuites.preferred().name()).emit();
+		long t0 = System.nanoTime();
+		active = watcher;
+		String status = "cancelled";
+		try {
+			if (!cancelled) watcher.run();
+		} catch (IOException | RuntimeException e) {
+			LOG.error("监视失败: {}", e.toString());
+			json.event("fatal").put("message", e.toString()).emit();
+			status = "failed";
+		} finally {
+			active = null;
+		}
+		json.event("done").put("status", status).put("files", files.get()).put("errors", errors.get())
+				.put("elapsedMs", (System.nanoTime() - t0) / 1_000_000).emit();
+		return "failed".equals(status) ? EXIT_FAILED : EXIT_OK;
+	}
+
+	private int verify(Args a) {
+		if (a.positional.size() != 1) throw new IllegalArgumentException("verify 需要 <加密目录>");
+		VerifyOptions options = new VerifyOptions();
+		options.rootDirectory = Paths.get(a.positional.get(0)).toAbsolutePath().normalize();
+		options.password = a.password;
+		options.workers = a.workersGiven ? a.workers : options.workers;
+		options.maxBytesPerSecond = a.limitBytesPerSecond;
+		options.validate();
+
+		Stats stats = new Stats();
+		json.event("start").put("command", a.command).put("source", options.rootDirectory)
+				.put("workers", options.workers).put("limitBytesPerSecond", options.maxBytesPerSecond).emit();
+		ScheduledExecutorService ticker = startProgress(a.progressIntervalMs, stats);
+		VerifyService.Report report;
+		try {
+			report = new VerifyService().verify(options, new VerifyService.Callbacks() {
+				@Override
+				public void onVerified(Path file, long bytes) {
+					stats.files.incrementAndGet();
+					stats.bytes.addAndGet(bytes);
+				}
+
+				@Override
+				public void onFailure(Path file, Exception error) {
+					json.event("corrupt").put("path", file).put("message", error.toString()).emit();
+				}
+
+				@Override
+				public boolean isCancelled() {
+					return cancelled;
+				}
+			});
+		} catch (IOException | RuntimeException e) {
+			LOG.error("校验失败: {}", e.toString());
+			json.event("fatal").put("message", e.toString()).emit();
+			return EXIT_FAILED;
+		} finally {
+			ticker.shutdownNow();
+		}
+		String status = report.cancelled ? "cancelled" : report.failures.isEmpty() ? "ok" : "failed";
+		emitProgress(stats);
+		json.event("done").put("status", status).put("files", report.filesVerified).put("bytes", report.bytesVerified)
+				.put("skipped", report.filesSkipped).put("failures", report.failures.size())
+				.put("elapsedMs", report.elapsedNanos / 1_000_000).put("avgBytesPerSecond", (long) report.bytesPerSecond()).emit();
+		return exitCode(status);
+	}
+
+	private int gc(Args a) {
+		if (a.positional.size() != 1) throw new IllegalArgumentException("gc 需要 <加密目录>");
+		Path root = Paths.get(a.positional.get(0)).toAbsolutePath().normalize();
+		json.event("start").put("command", a.command).put("source", root).put("dryRun", a.dryRun).emit();
+		long t0 = System.nanoTime();
+		ObjectCollector.Report report;
+		try {
+			report = ObjectCollector.collect(root, a.password, a.dryRun);
+		} catch (IOException | GeneralSecurityException | RuntimeException e) {
+			LOG.error("清理失败: {}", e.toString());
+			json.event("fatal").put("message", e.toString()).emit();
+			return EXIT_FAILED;
+		}
+		json.event("done").put("status", "ok").put("objects", report.objects).put("chunkLists", report.chunkLists)
+				.put("removed", report.removed).put("removedBytes", report.removedBytes).put("tempFiles", report.tempFiles)
+				.put("elapsedMs", (System.nanoTime() - t0) / 1_000_000).emit();
+		return EXIT_OK;
+	}
+
+	private static int exitCode(String status) {
+		switch (status) {
+			case "ok": return EXIT_OK;
+			case "cancelled": return EXIT_CANCELLED;
+			default: return EXIT_FAILED;
+		}
+	}
+
+	private ScheduledExecutorService startProgress(long intervalMs, Stats stats) {
+		ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "cli-progress");
+			t.setDaemon(true);
+			return t;
+		});
+		if (intervalMs > 0) {
+			ticker.scheduleAtFixedRate(() -> emitProgress(stats), intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+		}
+		return ticker;
+	}
+
+	private void emitProgress(Stats stats) {
+		long now = System.nanoTime();
+		long bytes = stats.bytes.get();
+		long intervalRate;
+		synchronized (stats) {
+			long dt = now - stats.lastTickNanos;
+			intervalRate = dt > 0 ? (long) ((bytes - stats.lastTickBytes) * 1_000_000_000.0 / dt) : 0;
+			stats.lastTickNanos = now;
+			stats.lastTickBytes = bytes;
+		}
+		json.event("progress").put("files", stats.files.get()).put("bytes", bytes).put("totalBytes", stats.totalBytes)
+				.put("elapsedMs", stats.elapsedMs()).put("bytesPerSecond", intervalRate)
+				.put("avgBytesPerSecond", stats.averageRate()).emit();
+	}
+
+	/**
+	 * 密码来源：--password-stdin（读取第一行）、--password-env 变量名、--password-fd 文件描述符。
+	 */
+	private static char[] readPassword(Args a) throws IOException {
+		if ("copy".equals(a.command)) return a.password;
+		String value;
+		if (a.passwordEnv != null) {
+			value = System.getenv(a.passwordEnv);
+			if (value == null) throw new IllegalArgumentException("环境变量未设置: " + a.passwordEnv);
+		} else if (a.passwordFd >= 0) {
+			Path fd = Paths.get("/proc/self/fd/" + a.passwordFd);
+			if (!Files.exists(fd)) fd = Paths.get("/dev/fd/" + a.passwordFd);
+			try (BufferedReader r = Files.newBufferedReader(fd, StandardCharsets.UTF_8)) {
+				value = r.readLine();
+			}
+		} else if (a.passwordStdin) {
+			BufferedReader r = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+			value = r.readLine();
+		} else {
+			throw new IllegalArgumentException("需要 --password-stdin、--password-env 或 --password-fd 之一");
+		}
+		if (value == null || value.isEmpty()) throw new IllegalArgumentException("密码为空");
+		return value.toCharArray();
+	}
+
+	private void printUsage() {
+		err.println("用法: encrypted-file-explorer <encrypt|decrypt|copy> <源目录> <目标目录> [选项]");
+		err.println("      encrypted-file-explorer verify <加密目录> [选项]");
+		err.println("      encrypted-file-explorer watch <源目录> <目标目录> [加密选项]");
+		err.println("      encrypted-file-explorer gc <加密目录> [--dry-run]（清理 .objects 中不再被引用的去重与分块对象）");
+		err.println("密码: --password-stdin | --password-env <变量名> | --password-fd <描述符>");
+		err.println("通用: --workers <N>  --on-conflict <replace|skip|skip-identical|keep-newer|rename|cancel>（默认 skip）");
+		err.println("      --identical <metadata|hash>（skip-identical 的比较方式，默认 metadata）  --pre-scan（复制前列出全部冲突）");
+		err.println("      --on-error <skip|retry|cancel>（默认 skip，retry 每个文件最多 " + MAX_RETRIES + " 次）");
+		err.println("      --progress-interval <毫秒>（默认 1000，0 表示只在结束时输出）");
+		err.println("      --durable（批量 fsync 后原子重命名，断电或崩溃后不留半写文件）");
+		err.println("加密: --pack  --compress[=codec]  --dedup  --vault  --dir-names");
+		err.println("      --chunk[=阈值]（不小于阈值的文件按内容分块，默认 64M；再次复制修改过的文件时只加密写出变化的分块）");
+		err.println("      --index（目录元数据索引）  --thumbnails（同时生成加密缩略图）  --search-index（保险库名称搜索索引）");
+		err.println("      --cipher <aes-gcm|chacha20-poly1305|auto>（新文件的分段算法，默认 aes-gcm，auto 为本机实测最快者；解密按文件头识别）");
+		err.println("解密: --dir-names");
+		err.println("限速: --limit <字节/秒，可带 K/M/G>（复制、校验与监视均适用，默认不限速）");
+		err.println("监视: --debounce <毫秒>（默认 1000）  --reconcile-interval <秒>（默认 300）");
+		err.println("退出码: 0 成功；1 有失败或损坏；2 参数错误；3 被取消");
+	}
+
+	/** 进度计数（跨线程）。 */
+	private static final class Stats {
+		final long startNanos = System.nanoTime();
+		final AtomicLong files = new AtomicLong();
+		final AtomicLong bytes = new AtomicLong();
+		volatile long totalBytes;
+		long lastTickNanos = startNanos;
+		long lastTickBytes;
+
+		long elapsedMs() {
+			return (System.nanoTime() - startNanos) / 1_000_000;
+		}
+
+		long averageRate() {
+			long dt = System.nanoTime() - startNanos;
+			return dt > 0 ? (long) (bytes.get() * 1_000_000_000.0 / dt) : 0;
+		}
+	}
+
+	/** 命令行参数。 */
+	static final class Args {
+		String command;
+		final List<String> positional = new ArrayList<>();
+		boolean passwordStdin;
+		String passwordEnv;
+		int passwordFd = -1;
+		char[] password;
+		int workers = 1;
+		boolean workersGiven;
+		Resolution onConflict = Resolution.SKIP;
+		ConflictPolicy conflictPolicy = ConflictPolicy.SKIP;
+		boolean identicalByHash;
+		boolean preScan;
+		ErrorDecision onError = ErrorDecision.SKIP;
+		long progressIntervalMs = 1000;
+		long limitBytesPerSecond;
+		boolean durable;
+		long debounceMs = 1000;
+		long reconcileSeconds = 300;
+		boolean pack;
+		String compressCodec;
+		String cipher;
+		boolean dedup;
+		boolean chunk;
+		long chunkThreshold = -1;
+		boolean vault;
+		boolean index;
+		boolean thumbnails;
+		boolean searchIndex;
+		boolean dirNames;
+		boolean dryRun;
+
+		static Args parse(String[] args) {
+			Args a = new Args();
+			if (args.length == 0) return a;
+			a.command = args[0];
+			if (!isCommand(a.command)) throw new IllegalArgumentException("未知命令: " + a.command);
+			for (int i = 1; i < args.length; i++) {
+				String arg = args[i];
+				switch (arg) {
+					case "--password-stdin": a.passwordStdin = true; break;
+					case "--password-env": a.passwordEnv = value(args, ++i, arg); break;
+					case "--password-fd": a.passwordFd = (int) number(value(args, ++i, arg), arg); break;
+					case "--workers":
+						a.workers = (int) number(value(args, ++i, arg), arg);
+						a.workersGiven = true;
+						break;
+					case "--on-conflict": a.conflict(value(args, ++i, arg)); break;
+					case "--identical": a.identicalByHash = "hash".equals(choice(value(args, ++i, arg), arg, "metadata", "hash")); break;
+					case "--pre-scan": a.preScan = true; break;
+					case "--on-error": a.onError = ErrorDecision.valueOf(upper(value(args, ++i, arg))); break;
+					case "--progress-interval": a.progressIntervalMs = number(value(args, ++i, arg), arg); break;
+					case "--limit": a.limitBytesPerSecond = size(value(args, ++i, arg), arg); break;
+					case "--durable": a.durable = true; break;
+					case "--debounce": a.debounceMs = number(value(args, ++i, arg), arg); break;
+					case "--reconcile-interval": a.reconcileSeconds = number(value(args, ++i, arg), arg); break;
+					case "--pack": a.pack = true; break;
+					case "--compress": a.compressCodec = "deflate"; break;
+					case "--cipher": a.cipher = value(args, ++i, arg); break;
+					case "--dedup": a.dedup = true; break;
+					case "--chunk": a.chunk = true; break;
+					case "--vault": a.vault = true; break;
+					case "--index": a.index = true; break;
+					case "--thumbnails": a.thumbnails = true; break;
+					case "--search-index": a.searchIndex = true; break;
+					case "--dir-names": a.dirNames = true; break;
+					case "--dry-run": a.dryRun = true; break;
+					default:
+						if (arg.startsWith("--compress=")) {
+							a.compressCodec = arg.substring("--compress=".length());
+						} else if (arg.startsWith("--chunk=")) {
+							a.chunk = true;
+							a.chunkThreshold = size(arg.substring("--chunk=".length()), "--chunk");
+						} else if (arg.startsWith("--")) {
+							throw new IllegalArgumentException("未知选项: " + arg);
+						} else {
+							a.positional.add(arg);
+						}
+				}
+			}
+			return a;
+		}
+
+		private void conflict(String v) {
+			switch (v.toLowerCase(Locale.ROOT)) {
+				case "replace": case "overwrite": conflictPolicy = ConflictPolicy.OVERWRITE; break;
+				case "skip": conflictPolicy = ConflictPolicy.SKIP; break;
+				case "skip-identical": conflictPolicy = ConflictPolicy.SKIP_IF_IDENTICAL; break;
+				case "keep-newer": conflictPolicy = ConflictPolicy.KEEP_NEWER; break;
+				case "rename": conflictPolicy = ConflictPolicy.RENAME; break;
+				case "cancel": onConflict = Resolution.CANCEL; return;
+				default: throw new IllegalArgumentException("--on-conflict 不支持: " + v);
+			}
+			onConflict = conflictPolicy == ConflictPolicy.OVERWRITE ? Resolution.REPLACE : Resolution.SKIP;
+		}
+
+		private static String choice(String v, String option, String... allowed) {
+			for (String c : allowed) {
+				if (c.equals(v)) return c;
+			}
+			throw new IllegalArgumentException(option + " 只能是 " + String.join("/", allowed) + ": " + v);
+		}
+
+		private static String value(String[] args, int i, String option) {
+			if (i >= args.length) throw new IllegalArgumentException(option + " 缺少参数值");
+			return args[i];
+		}
+
+		private static String upper(String s) {
+			return s.toUpperCase(Locale.ROOT);
+		}
+
+		private static long number(String s, String option) {
+			try {
+				return Long.parseLong(s.trim());
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException(option + " 需要数字: " + s);
+			}
+		}
+
+		/** 解析带 K/M/G 后缀（1024 进制）的字节数。 */
+		static long size(String s, String option) {
+			String t = s.trim().toUpperCase(Locale.ROOT);
+			long unit = 1;
+			if (t.endsWith("B")) t = t.substring(0, t.length() - 1);
+			if (t.endsWith("K")) unit = 1024L;
+			else if (t.endsWith("M")) unit = 1024L * 1024;
+			else if (t.endsWith("G")) unit = 1024L * 1024 * 1024;
+			if (unit > 1) t = t.substring(0, t.length() - 1);
+			return number(t, option) * unit;
+		}
+	}
+}
@@ -0,0 +1,78 @@
+package com.example.encryptedexplorer.cli;
+
+import java.io.PrintStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 以 JSON Lines 格式输出事件（每行一个 JSON 对象），供脚本与监控程序解析。线程安全。
+ */
+final class JsonLineWriter {
+	private final PrintStream out;
+
+	JsonLineWriter(PrintStream out) {
+		this.out = out;
+	}
+
+	/** 开始构造一个事件，字段按加入顺序输出。 */
+	Event event(String type) {
+		return new Event(type);
+	}
+
+	final class Event {
+		private final Map<String, Object> fields = new LinkedHashMap<>();
+
+		private Event(String type) {
+			fields.put("event", type);
+			fields.put("time", System.currentTimeMillis());
+		}
+
+		Event put(String key, Object value) {
+			fields.put(key, value);
+			return this;
+		}
+
+		void emit() {
+			StringBuilder sb = new StringBuilder(128);
+			sb.append('{');
+			boolean first = true;
+			for (Map.Entry<String, Object> e : fields.entrySet()) {
+				if (!first) sb.append(',');
+				first = false;
+				appendString(sb, e.getKey());
+				sb.append(':');
+				Object v = e.getValue();
+				if (v == null) {
+					sb.append("null");
+				} else if (v instanceof Number || v instanceof Boolean) {
+					sb.append(v);
+				} else {
+					appendString(sb, v.toString());
+				}
+			}
+			sb.append('}');
+			synchronized (out) {
+				out.println(sb);
+				out.flush();
+			}
+		}
+	}
+
+	private static void appendString(StringBuilder sb, String s) {
+		sb.append('"');
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			switch (c) {
+				case '"': sb.append("\\\""); break;
+				case '\\': sb.append("\\\\"); break;
+				case '\n': sb.append("\\n"); break;
+				case '\r': sb.append("\\r"); break;
+				case '\t': sb.append("\\t"); break;
+				default:
+					if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+					else sb.append(c);
+			}
+		}
+		sb.append('"');
+	}
+}
@@ -0,0 +1,19 @@
+package com.example.encryptedexplorer.model;
+
+/**
+ * 批量冲突策略：目标已存在时的统一处理方式，避免复制过程中逐个弹窗。
+ */
+public enum ConflictPolicy {
+	/** 逐个通过回调询问（默认，兼容旧行为）。 */
+	ASK,
+	/** 全部覆盖。 */
+	OVERWRITE,
+	/** 全部跳过。 */
+	SKIP,
+	/** 内容相同则跳过，否则覆盖；按大小/修改时间或内容摘要判断，见 CopyOptions.identicalByHash。 */
+	SKIP_IF_IDENTICAL,
+	/** 源文件较新时覆盖，否则跳过。 */
+	KEEP_NEWER,
+	/** 保留已有文件，新文件以“名称 (n).扩展名”写入。 */
+	RENAME
+}
@@ -1,5 +1,7 @@
 package com.example.encryptedexplorer.model;
 
+import com.example.encryptedexplorer.util.CompressionCodecs;
+
 import java.nio.file.Path;
 
 /**
@@ -13,6 +15,37 @@ public class CopyOptions {
 	public boolean encryptDirectoryNames;
 	public boolean decryptDirectoryNames;
 	public char[] password;
+	// 小文件打包：加密时小于阈值的文件追加到目录内的加密打包段，而非各自生成 .encrypted 文件
+	public boolean packSmallFiles;
+	public long packThresholdBytes = 64 * 1024;
+	public long packSegmentBytes = 64L * 1024 * 1024;
+	// 加密前压缩：已压缩格式或高熵数据自动跳过；编解码器名见 CompressionCodecs
+	public boolean compressFiles;
+	public String compressionCodec = "deflate";
+	// 内容去重：相同内容只保存一个加密对象（目标根目录 .objects/），其余以硬链接或指针文件引用
+	public boolean deduplicate;
+	// 分块增量：加密时不小于阈值的大文件按内容定义分块，分块作为加密对象保存在 .objects/，目标文件为加密的分块清单；
+	// 再次复制修改过的文件时只有新的或变化的分块被加密写出
+	public boolean chunkLargeFiles;
+	public long chunkThresholdBytes = 64L * 1024 * 1024;
+	// 保险库：目标根目录保存密码包裹的主密钥（.vault），文件密钥由主密钥派生；修改密码无需重新加密文件
+	public boolean useVault;
+	// 并行复制线程数：1 为顺序执行（图形界面默认）；大于 1 时回调可能并发调用
+	public int workers = 1;
+	// 全局限速（字节/秒），0 为不限速；各设备的并发与块大小由 IoScheduler 按实测吞吐自适应
+	public long maxBytesPerSecond;
+	// 目录元数据索引：加密时在每个目标目录写出加密的 .dir.idx（原名、大小、时间、类型、图片尺寸、摘要），查看时免逐个解密
+	public boolean indexDirectories;
+	// 复制时生成缩略图：加密图片时用已在内存中的明文生成缩略图，加密保存到目录的 .thumbs，查看时无需解密原图
+	public boolean thumbnails;
+	// 名称搜索索引：加密时在目标根目录写出加密的 .search.idx（原始路径 -> 目标路径），查看页可按名称前缀或子串搜索
+	public boolean searchIndex;
+	// 持久模式：目标写入临时名后按批并行 fsync、原子重命名，再按目录 fsync，崩溃后不会留下不完整的文件
+	public boolean durable;
+	// 目标已存在时的批量策略；ASK 时逐个回调 Callbacks.onConflict
+	public ConflictPolicy conflictPolicy = ConflictPolicy.ASK;
+	// SKIP_IF_IDENTICAL 是否比较内容摘要（SHA-256，需读取并解密双方）；否则只比较大小与修改时间
+	public boolean identicalByHash;
 
 	public void validate() {
 		if (sourceDirectory == null || targetDirectory == null) {
@@ -28,5 +61,23 @@ public class CopyOptions {
 				&& (password == null || password.length == 0)) {
 			throw new IllegalArgumentException("开启加/解密时必须提供密码");
 		}
+		if (maxBytesPerSecond < 0) {
+			throw new IllegalArgumentException("限速不能为负数");
+		}
+		if (conflictPolicy == null) {
+			throw new IllegalArgumentException("冲突策略不可为空");
+		}
+		if (workers <= 0) {
+			throw new IllegalArgumentException("复制线程数必须大于 0");
+		}
+		if (compressFiles) {
+			CompressionCodecs.byName(compressionCodec);
+		}
+		if (packSmallFiles && (packThresholdBytes <= 0 || packSegmentBytes < packThresholdBytes)) {
+			throw new IllegalArgumentException("打包阈值或打包段大小不合法");
+		}
+		if (chunkLargeFiles && chunkThresholdBytes <= 0) {
+			throw new IllegalArgumentException("分块阈值必须大于 0");
+		}
 	}
 } 
\ No newline at end of file
@@ -0,0 +1,30 @@
+package com.example.encryptedexplorer.model;
+
+import java.nio.file.Path;
+
+/**
+ * 完整性校验（scrub）选项。
+ */
+public class VerifyOptions {
+	public Path rootDirectory;
+	public char[] password;
+	// 并行校验线程数，默认等于 CPU 核数
+	public int workers = Runtime.getRuntime().availableProcessors();
+	// 读取限速（字节/秒），0 表示不限速；所有线程共享
+	public long maxBytesPerSecond;
+
+	public void validate() {
+		if (rootDirectory == null) {
+			throw new IllegalArgumentException("校验目录不可为空");
+		}
+		if (password == null || password.length == 0) {
+			throw new IllegalArgumentException("校验时必须提供密码");
+		}
+		if (workers <= 0) {
+			throw new IllegalArgumentException("校验线程数必须大于 0");
+		}
+		if (maxBytesPerSecond < 0) {
+			throw new IllegalArgumentException("限速不能为负数");
+		}
+	}
+}
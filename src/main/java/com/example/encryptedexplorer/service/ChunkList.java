@@ -0,0 +1,186 @@
+package com.example.encryptedexplorer.service;
+
+import com.example.encryptedexplorer.util.EncryptionUtils;
+import com.example.encryptedexplorer.util.IoScheduler;
+import com.example.encryptedexplorer.util.VaultKey;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.LongConsumer;
+
+/**
+ * 分块文件的清单（见 {@link DedupStore#storeChunked}）：目标文件内容为魔数 + 加密的清单，清单以密码或保险库加密
+ * （每个文件一次密钥派生），记录分块数据密钥、标识密钥与各分块的对象标识、明文长度；分块本身是 .objects/ 中
+ * 以数据密钥派生的文件密钥加密的 ENCV2 对象，按顺序拼接即为原文件。对象标识 = HMAC(标识密钥, 明文)，
+ * 读取时逐块重算比对，对象被替换或错位时报错。
+ */
+final class ChunkList {
+	static final byte[] MAGIC = "ENCCDC1\n".getBytes(StandardCharsets.US_ASCII);
+	static final int ID_LEN = 32;
+	private static final int VERSION = 1;
+
+	/** 一个分块：对象标识与明文长度。 */
+	static final class Chunk {
+		final byte[] id;
+		final int length;
+
+		Chunk(byte[] id, int length) {
+			this.id = id;
+			this.length = length;
+		}
+	}
+
+	private final Path storeDir;
+	private final VaultKey dataKey;
+	private final byte[] idKey;
+	private final long size;
+	private final List<Chunk> chunks;
+
+	private ChunkList(Path storeDir, VaultKey dataKey, byte[] idKey, long size, List<Chunk> chunks) {
+		this.storeDir = storeDir;
+		this.dataKey = dataKey;
+		this.idKey = idKey;
+		this.size = size;
+		this.chunks = chunks;
+	}
+
+	static boolean isChunkList(byte[] head) {
+		return head != null && head.length >= MAGIC.length && Arrays.equals(Arrays.copyOf(head, MAGIC.length), MAGIC);
+	}
+
+	static boolean isChunkList(Path file) throws IOException {
+		if (!Files.isRegularFile(file) || Files.size(file) < MAGIC.length) return false;
+		try (InputStream in = Files.newInputStream(file)) {
+			return isChunkList(in.readNBytes(MAGIC.length));
+		}
+	}
+
+	/** 生成清单文件的完整内容。 */
+	static byte[] encode(byte[] keyId, byte[] key, byte[] idKey, long size, List<Chunk> chunks, char[] password, VaultKey vault) throws IOException, GeneralSecurityException {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream(64 + chunks.size() * (ID_LEN + 4));
+		try (DataOutputStream out = new DataOutputStream(bos)) {
+			out.writeInt(VERSION);
+			out.write(keyId);
+			out.write(key);
+			out.write(idKey);
+			out.writeLong(size);
+			out.writeInt(chunks.size());
+			for (Chunk c : chunks) {
+				out.write(c.id);
+				out.writeInt(c.length);
+			}
+		}
+		byte[] sealed = EncryptionUtils.encryptBytes(bos.toByteArray(), password, vault);
+		byte[] file = Arrays.copyOf(MAGIC, MAGIC.length + sealed.length);
+		System.arraycopy(sealed, 0, file, MAGIC.length, sealed.length);
+		return file;
+	}
+
+	/** 读取并解密清单；分块对象在 file 所在目录向上最近的 .objects 中查找。 */
+	static ChunkList read(Path file, char[] password, VaultKey vault) throws IOException, GeneralSecurityException {
+		return read(file, password, vault, null);
+	}
+
+	private static ChunkList read(Path file, char[] password, VaultKey vault, IoScheduler.Ticket io) throws IOException, GeneralSecurityException {
+		byte[] raw = readAll(file, io);
+		if (!isChunkList(raw)) throw new IOException("不是分块清单: " + file);
+		byte[] plain = EncryptionUtils.decryptBytes(Arrays.copyOfRange(raw, MAGIC.length, raw.length), password, vault);
+		try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(plain))) {
+			int version = in.readInt();
+			if (version != VERSION) throw new IOException("不支持的分块清单版本: " + version);
+			byte[] keyId = new byte[VaultKey.ID_LEN];
+			in.readFully(keyId);
+			byte[] key = new byte[32];
+			in.readFully(key);
+			byte[] idKey = new byte[32];
+			in.readFully(idKey);
+			long size = in.readLong();
+			int count = in.readInt();
+			List<Chunk> chunks = new ArrayList<>(Math.max(0, count));
+			long total = 0;
+			for (int i = 0; i < count; i++) {
+				byte[] id = new byte[ID_LEN];
+				in.readFully(id);
+				int length = in.readInt();
+				chunks.add(new Chunk(id, length));
+				total += length;
+			}
+			if (total != size) throw new IOException("分块清单已损坏: " + file);
+			return new ChunkList(DedupStore.storeFor(file), VaultKey.of(keyId, key), idKey, size, Collections.unmodifiableList(chunks));
+		} catch (EOFException e) {
+			throw new IOException("分块清单已损坏: " + file, e);
+		}
+	}
+
+	/** 清单引用的分块对象路径（按清单顺序，可能重复）。 */
+	List<Path> objects() {
+		List<Path> objects = new ArrayList<>(chunks.size());
+		for (Chunk c : chunks) objects.add(DedupStore.objectPath(storeDir, DedupStore.toHex(c.id)));
+		return objects;
+	}
+
+	/** 解密分块文件，把明文写入 out；onBytes 按写出的明文字节数回调。 */
+	static void decrypt(Path file, OutputStream out, char[] password, VaultKey vault, LongConsumer onBytes) throws IOException, GeneralSecurityException {
+		decrypt(file, out, password, vault, null, onBytes);
+	}
+
+	/** 同上；io 不为 null 时清单与分块对象的读取经其限速并计入设备吞吐。 */
+	static void decrypt(Path file, OutputStream out, char[] password, VaultKey vault, IoScheduler.Ticket io, LongConsumer onBytes) throws IOException, GeneralSecurityException {
+		ChunkList list = read(file, password, vault, io);
+		for (int i = 0; i < list.chunks.size(); i++) {
+			byte[] plain = list.chunk(i, io);
+			out.write(plain);
+			if (onBytes != null) onBytes.accept(plain.length);
+		}
+	}
+
+	/** 认证清单与全部分块，返回明文字节数；io 不为 null 时读取经其限速并计入设备吞吐。 */
+	static long verify(Path file, char[] password, VaultKey vault, IoScheduler.Ticket io) throws IOException, GeneralSecurityException {
+		ChunkList list = read(file, password, vault, io);
+		for (int i = 0; i < list.chunks.size(); i++) list.chunk(i, io);
+		return list.size;
+	}
+
+	/** 读取并解密第 index 个分块；io 不为 null 时读取经其限速。 */
+	private byte[] chunk(int index, IoScheduler.Ticket io) throws IOException, GeneralSecurityException {
+		Chunk c = chunks.get(index);
+		Path object = DedupStore.objectPath(storeDir, DedupStore.toHex(c.id));
+		if (!Files.isRegularFile(object)) throw new IOException("分块对象不存在: " + storeDir.relativize(object));
+		byte[] plain = EncryptionUtils.decryptBytes(readAll(object, io), null, dataKey);
+		if (plain.length != c.length || !MessageDigest.isEqual(id(idKey, plain), c.id)) {
+			throw new IOException("分块内容与清单不符: " + storeDir.relativize(object));
+		}
+		return plain;
+	}
+
+	private static byte[] readAll(Path file, IoScheduler.Ticket io) throws IOException {
+		if (io == null) return Files.readAllBytes(file);
+		try (InputStream in = io.throttle(Files.newInputStream(file))) {
+			return in.readAllBytes();
+		}
+	}
+
+	/** 分块的对象标识。 */
+	static byte[] id(byte[] idKey, byte[] plain) throws GeneralSecurityException {
+		Mac mac = Mac.getInstance("HmacSHA256");
+		mac.init(new SecretKeySpec(idKey, "HmacSHA256"));
+		return mac.doFinal(plain);
+	}
+}
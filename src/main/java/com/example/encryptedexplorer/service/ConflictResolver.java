@@ -0,0 +1,200 @@
+package com.example.encryptedexplorer.service;
+
+import com.example.encryptedexplorer.model.ConflictPolicy;
+import com.example.encryptedexplorer.model.CopyOptions;
+import com.example.encryptedexplorer.model.Resolution;
+import com.example.encryptedexplorer.util.EncryptionUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.DigestOutputStream;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * 按 CopyOptions.conflictPolicy 处理目标已存在的冲突；仅 ASK 策略会回调 Callbacks.onConflict。
+ * 并行复制时由多个工作线程共用，自动重命名时保证不会分配出相同的新名字。
+ */
+final class ConflictResolver {
+	private static final Logger LOG = LoggerFactory.getLogger(ConflictResolver.class);
+
+	/** 冲突处理结果；target 为实际写入的目标（RENAME 时为新名字，格式与传入的目标相同）。 */
+	static final class Outcome {
+		final Resolution resolution;
+		final Path target;
+
+		Outcome(Resolution resolution, Path target) {
+			this.resolution = resolution;
+			this.target = target;
+		}
+	}
+
+	/**
+	 * 冲突一方的可比较信息。size 为明文大小，加密文件不在目录索引中时未知，为 -1；modified 为源文件修改时间
+	 * （复制输出沿用源文件时间，加密文件在目录索引中时取索引记录）；content 为 null 时无法比较摘要。
+	 */
+	static final class Side {
+		final long size;
+		final long modified;
+		final PlainContent content;
+
+		Side(long size, long modified, PlainContent content) {
+			this.size = size;
+			this.modified = modified;
+			this.content = content;
+		}
+	}
+
+	interface PlainContent {
+		/** 将明文写入 out。 */
+		void writeTo(OutputStream out) throws IOException, GeneralSecurityException;
+	}
+
+	private final CopyOptions options;
+	private final CopyService.Callbacks callbacks;
+	private final Set<Path> reserved = ConcurrentHashMap.newKeySet();
+
+	ConflictResolver(CopyOptions options, CopyService.Callbacks callbacks) {
+		this.options = options;
+		this.callbacks = callbacks;
+	}
+
+	/**
+	 * 复制完成后目标的最终文件名：加密时加 .encrypted 后缀，解密时去掉后缀。
+	 */
+	static Path finalTarget(Path targetFile, CopyOptions options) {
+		String name = targetFile.getFileName().toString();
+		if (options.encryptFiles && !EncryptionUtils.isEncryptedFileName(name)) {
+			return targetFile.resolveSibling(EncryptionUtils.toEncryptedFileName(name));
+		}
+		if (options.decryptFiles && EncryptionUtils.isEncryptedFileName(name)) {
+			return targetFile.resolveSibling(EncryptionUtils.toDecryptedFileName(name));
+		}
+		return targetFile;
+	}
+
+	/** 源文件一方；解密时源为加密文件，明文大小与修改时间取自目录索引（有时）。 */
+	Side source(Path file) throws IOException {
+		return side(file, options.decryptFiles && EncryptionUtils.isEncryptedFileName(file.getFileName().toString()));
+	}
+
+	/** 已存在的目标文件一方。 */
+	Side existing(Path file) throws IOException {
+		return side(file, EncryptionUtils.isEncryptedFileName(file.getFileName().toString()));
+	}
+
+	private Side side(Path file, boolean encrypted) throws IOException {
+		BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+		DirectoryIndex.Entry indexed = encrypted ? indexed(file) : null;
+		if (indexed != null) return new Side(indexed.size, indexed.lastModified, plainContent(file, true));
+		return new Side(encrypted ? -1 : attrs.size(), attrs.lastModifiedTime().toMillis(), plainContent(file, encrypted));
+	}
+
+	/** 加密文件在所在目录元数据索引中的条目；没有索引或索引无法读取时返回 null。 */
+	private DirectoryIndex.Entry indexed(Path file) {
+		try {
+			DirectoryIndex index = DirectoryIndex.forDirectory(file.getParent(), options.password);
+			return index != null ? index.entry(file.getFileName().toString()) : null;
+		} catch (IOException | GeneralSecurityException e) {
+			LOG.debug("读取目录索引失败，按未知明文大小处理: {} - {}", file, e.toString());
+			return null;
+		}
+	}
+
+	/** 打包成员一方；pack 为 null（成员尚未写出索引）时只能比较元数据。 */
+	static Side member(PackReader.Entry entry, PackReader pack) {
+		return new Side(entry.size, entry.lastModified, pack == null ? null : out -> out.write(pack.read(entry.name)));
+	}
+
+	/**
+	 * 处理一次冲突。target 为写入目标，existing 为已存在的文件（用于询问与日志），
+	 * taken 判断重命名候选是否已被占用。
+	 */
+	Outcome resolve(Path target, Path existing, Side source, Side current, Predicate<Path> taken) {
+		ConflictPolicy policy = options.conflictPolicy;
+		switch (policy) {
+			case OVERWRITE:
+				return new Outcome(Resolution.REPLACE, target);
+			case SKIP:
+				return new Outcome(Resolution.SKIP, target);
+			case SKIP_IF_IDENTICAL:
+				return new Outcome(identical(source, current, existing) ? Resolution.SKIP : Resolution.REPLACE, target);
+			case KEEP_NEWER:
+				return new Outcome(source.modified > current.modified ? Resolution.REPLACE : Resolution.SKIP, target);
+			case RENAME:
+				return new Outcome(Resolution.REPLACE, freeName(target, taken));
+			default:
+				return new Outcome(callbacks.onConflict(existing), target);
+		}
+	}
+
+	/**
+	 * 元数据判断：明文大小（已知时）相同且已有文件不早于源文件；开启摘要比较时以 SHA-256 为准。
+	 */
+	private boolean identical(Side source, Side current, Path existing) {
+		if (source.size >= 0 && current.size >= 0 && source.size != current.size) return false;
+		if (options.identicalByHash && source.content != null && current.content != null) {
+			try {
+				return Arrays.equals(digest(source.content), digest(current.content));
+			} catch (IOException | GeneralSecurityException e) {
+				LOG.warn("比较内容摘要失败，按不同处理: {} - {}", existing, e.toString());
+				return false;
+			}
+		}
+		return current.modified >= source.modified;
+	}
+
+	/**
+	 * 在同目录下寻找第一个可用的“名称 (n).扩展名”；.encrypted 后缀保持在末尾。
+	 */
+	private Path freeName(Path target, Predicate<Path> taken) {
+		String name = target.getFileName().toString();
+		String suffix = "";
+		if (EncryptionUtils.isEncryptedFileName(name)) {
+			suffix = EncryptionUtils.ENCRYPTED_FILE_SUFFIX;
+			name = EncryptionUtils.toDecryptedFileName(name);
+		}
+		int dot = name.lastIndexOf('.');
+		String base = dot > 0 ? name.substring(0, dot) : name;
+		String ext = dot > 0 ? name.substring(dot) : "";
+		for (int n = 1; ; n++) {
+			Path candidate = target.resolveSibling(base + " (" + n + ")" + ext + suffix);
+			if (!taken.test(candidate) && reserved.add(candidate)) {
+				LOG.debug("冲突自动重命名: {} -> {}", target, candidate);
+				return candidate;
+			}
+		}
+	}
+
+	private PlainContent plainContent(Path file, boolean encrypted) {
+		if (!encrypted) return out -> Files.copy(file, out);
+		return out -> {
+			if (ChunkList.isChunkList(file)) {
+				ChunkList.decrypt(file, out, options.password, Vault.locate(file.getParent(), options.password), null);
+				return;
+			}
+			try (InputStream in = Files.newInputStream(DedupStore.resolve(file), StandardOpenOption.READ)) {
+				EncryptionUtils.decryptStream(in, out, options.password, Vault.locate(file.getParent(), options.password), null);
+			}
+		};
+	}
+
+	private static byte[] digest(PlainContent content) throws IOException, GeneralSecurityException {
+		MessageDigest md = MessageDigest.getInstance("SHA-256");
+		try (OutputStream out = new DigestOutputStream(OutputStream.nullOutputStream(), md)) {
+			content.writeTo(out);
+		}
+		return md.digest();
+	}
+}
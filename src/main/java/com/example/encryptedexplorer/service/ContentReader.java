@@ -0,0 +1,84 @@
+package com.example.encryptedexplorer.service;
+
+import com.example.encryptedexplorer.util.EncryptionUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+
+/**
+ * 查看端统一的内容读取入口：普通文件、加密文件、去重指针文件、分块清单以及打包内成员（磁盘上不存在的虚拟路径）。
+ */
+public final class ContentReader {
+	private ContentReader() {}
+
+	/**
+	 * 路径是否为打包成员：文件本身不存在，但父目录有打包索引。
+	 */
+	public static boolean isPackMember(Path path) {
+		return !Files.exists(path) && PackReader.hasPack(path.getParent());
+	}
+
+	/**
+	 * 读取完整内容；decrypt 为 true 时按加密文件解密。打包成员总是解密。
+	 */
+	public static byte[] readAll(Path path, boolean decrypt, char[] password) throws IOException, GeneralSecurityException {
+		if (isPackMember(path)) {
+			return readPackMember(path, password);
+		}
+		if (!decrypt) return Files.readAllBytes(path);
+		if (ChunkList.isChunkList(path)) {
+			ByteArrayOutputStream bos = new ByteArrayOutputStream();
+			ChunkList.decrypt(path, bos, password != null ? password : new char[0], Vault.locate(path.getParent(), password), null);
+			return bos.toByteArray();
+		}
+		Path source = DedupStore.resolve(path);
+		ByteArrayOutputStream bos = new ByteArrayOutputStream((int) Math.min(Integer.MAX_VALUE - 8, Math.max(32, Files.size(source))));
+		try (InputStream in = Files.newInputStream(source)) {
+			EncryptionUtils.decryptStream(in, bos, password != null ? password : new char[0], Vault.locate(path.getParent(), password), null);
+		}
+		return bos.toByteArray();
+	}
+
+	/**
+	 * 解密已读入内存的密文（如虚拟线程预读的文件内容）；保险库按 path 所在目录查找。
+	 */
+	public static byte[] decrypt(Path path, byte[] encrypted, char[] password) throws IOException, GeneralSecurityException {
+		if (ChunkList.isChunkList(encrypted)) return readAll(path, true, password);
+		ByteArrayOutputStream bos = new ByteArrayOutputStream(Math.max(32, encrypted.length));
+		EncryptionUtils.decryptStream(new ByteArrayInputStream(encrypted), bos, password != null ? password : new char[0], Vault.locate(path.getParent(), password), null);
+		return bos.toByteArray();
+	}
+
+	/**
+	 * 将（解密后的）内容写入输出流，用于临时文件预览等场景。
+	 */
+	public static void writeTo(Path path, boolean decrypt, char[] password, OutputStream out) throws IOException, GeneralSecurityException {
+		if (isPackMember(path)) {
+			out.write(readPackMember(path, password));
+			return;
+		}
+		if (decrypt && ChunkList.isChunkList(path)) {
+			ChunkList.decrypt(path, out, password != null ? password : new char[0], Vault.locate(path.getParent(), password), null);
+			return;
+		}
+		try (InputStream in = Files.newInputStream(decrypt ? DedupStore.resolve(path) : path)) {
+			if (decrypt) {
+				EncryptionUtils.decryptStream(in, out, password != null ? password : new char[0], Vault.locate(path.getParent(), password), null);
+			} else {
+				in.transferTo(out);
+			}
+		}
+	}
+
+	private static byte[] readPackMember(Path path, char[] password) throws IOException, GeneralSecurityException {
+		PackReader pack = PackReader.forDirectory(path.getParent(), password != null ? password : new char[0]);
+		if (pack == null) throw new IOException("文件不存在: " + path);
+		return pack.read(path.getFileName().toString());
+	}
+}
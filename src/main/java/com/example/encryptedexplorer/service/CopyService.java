@@ -3,168 +3,1187 @@ package com.example.encryptedexplorer.service;
 import com.example.encryptedexplorer.model.CopyOptions;
 import com.example.encryptedexplorer.model.ErrorDecision;
 import com.example.encryptedexplorer.model.Resolution;
+import com.example.encryptedexplorer.util.ChunkedEncryptor;
+import com.example.encryptedexplorer.util.CompressionCodec;
+import com.example.encryptedexplorer.util.CompressionCodecs;
+import com.example.encryptedexplorer.util.ContentProbe;
 import com.example.encryptedexplorer.util.EncryptionUtils;
 import com.example.encryptedexplorer.util.FileUtilsEx;
+import com.example.encryptedexplorer.util.IoExecutors;
+import com.example.encryptedexplorer.util.IoScheduler;
+import com.example.encryptedexplorer.util.Metrics;
+import com.example.encryptedexplorer.util.NameCipher;
+import com.example.encryptedexplorer.util.RateLimiter;
+import com.example.encryptedexplorer.util.Tracing;
+import com.example.encryptedexplorer.util.TreeScanner;
+import com.example.encryptedexplorer.util.VaultKey;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.stream.Collectors;
 
 /**
  * 复制服务：支持加密/解密、目录名转换、冲突与错误回调。
+ * workers &gt; 1 时单文件复制并行执行，回调可能来自多个工作线程，实现需线程安全。
  */
 public class CopyService {
 	private static final Logger LOG = LoggerFactory.getLogger(CopyService.class);
+	// 运行指标（JMX：type=CopyService）：各任务累计的文件、字节与错误数，正在运行的任务数；
+	// 单文件复制按阶段记录每个文件的读、KDF、加解密（含压缩与摘要）、写耗时，重命名与刷盘见 Publisher
+	private static final AtomicInteger ACTIVE_JOBS = new AtomicInteger();
+	private static final Metrics.Counter FILES = Metrics.counter("CopyService", "files");
+	private static final Metrics.Counter BYTES = Metrics.counter("CopyService", "bytes");
+	private static final Metrics.Counter ERRORS = Metrics.counter("CopyService", "errors");
+	private static final Metrics.Timer FILE_TIME = Metrics.timer("CopyService", "fileTime");
+	private static final Metrics.Timer READ_TIME = Metrics.timer("CopyService", "readTime");
+	private static final Metrics.Timer KDF_TIME = Metrics.timer("CopyService", "kdfTime");
+	private static final Metrics.Timer CIPHER_TIME = Metrics.timer("CopyService", "cipherTime");
+	private static final Metrics.Timer WRITE_TIME = Metrics.timer("CopyService", "writeTime");
+
+	static {
+		Metrics.gauge("CopyService", "activeJobs", ACTIVE_JOBS::get);
+	}
+	// 不低于此大小的文件映射输入加/解密（见 copyMapped）
+	private static final long MAPPED_MIN_BYTES = 64L * 1024 * 1024;
+	// 虚拟线程模式下，小于此大小且没有逐文件密钥派生的文件交给虚拟线程（见 ioBound）
+	private static final long IO_BOUND_MAX_BYTES = 1024 * 1024;
 	public interface Callbacks {
 		Resolution onConflict(Path targetPath);
 		ErrorDecision onError(Path sourcePath, Exception error);
 		void onProgress(String currentFile, long copiedBytes, long totalBytes);
 		void onLog(String message);
 		boolean isCancelled();
+		/** 单个文件处理成功（含打包与解包成员）。默认忽略。 */
+		default void onFileCompleted(Path sourcePath, long bytes) {}
+	}
+
+	/** 复制单个文件（含冲突与错误处理），供拆分文件提交失败后整体重试。 */
+	interface FileCopier {
+		FileVisitResult copy(Path file, Path targetFile) throws IOException;
 	}
 
 	public void copyDirectory(CopyOptions options, Callbacks callbacks) throws IOException {
+		// 任务期间使用缓存的名称会话与保险库密钥，期间请求的清理推迟到结束
+		SecretCaches.enter();
+		try {
+			copyTree(options, callbacks);
+		} finally {
+			SecretCaches.exit();
+		}
+	}
+
+	private void copyTree(CopyOptions options, Callbacks callbacks) throws IOException {
 		Objects.requireNonNull(options);
 		Objects.requireNonNull(callbacks);
 		options.validate();
 
 		Path src = options.sourceDirectory;
 		Path dst = options.targetDirectory;
-		LOG.info("开始复制: {} -> {} (encryptFiles={}, decryptFiles={}, encDir={}, decDir={})",
-			src, dst, options.encryptFiles, options.decryptFiles, options.encryptDirectoryNames, options.decryptDirectoryNames);
+		LOG.info("开始复制: {} -> {} (encryptFiles={}, decryptFiles={}, encDir={}, decDir={}, compress={}, workers={}, limit={}B/s)",
+			src, dst, options.encryptFiles, options.decryptFiles, options.encryptDirectoryNames, options.decryptDirectoryNames, options.compressFiles, options.workers, options.maxBytesPerSecond);
 
-		// 统计总大小（粗略，用于进度）
-		final long totalBytes = Files.walk(src)
-				.filter(Files::isRegularFile)
-				.mapToLong(FileUtilsEx::safeSize)
-				.sum();
-		final long[] copied = {0L};
+		// 统计总大小（粗略，用于进度）；虚拟线程模式下并行列举与 stat
+		final long totalBytes = TreeScanner.totalBytes(src);
 
 		Files.createDirectories(dst);
+		final Job job = new Job(options, callbacks, totalBytes);
+		final NameCipher names = job.names;
+		ACTIVE_JOBS.incrementAndGet();
 
-		Files.walkFileTree(src, new SimpleFileVisitor<Path>() {
-			@Override
-			public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
-				if (callbacks.isCancelled()) return FileVisitResult.TERMINATE;
-				Path rel = src.relativize(dir);
-				Path targetDir = resolveTargetPath(rel, dst, options, true);
-				Files.createDirectories(targetDir);
-				LOG.debug("创建目录: {}", targetDir);
-				// 写入短名映射（父目录/.dirnames.map），用于查看时还原显示
-				if (options.encryptDirectoryNames && rel.getNameCount() > 0) {
-					String originalName = rel.getFileName().toString();
-					String shortName = targetDir.getFileName().toString();
-					Path mapFile = targetDir.getParent() != null ? targetDir.getParent().resolve(".dirnames.map") : null;
-					if (mapFile != null) {
-						try {
-							Files.createDirectories(mapFile.getParent());
-							Files.write(mapFile, (shortName + "=" + originalName + System.lineSeparator()).getBytes(StandardCharsets.UTF_8),
-									StandardOpenOption.CREATE, StandardOpenOption.APPEND);
-						} catch (Exception ex) {
-							LOG.warn("写入目录映射失败: {} -> {} 于 {} - {}", shortName, originalName, mapFile, ex.toString());
-						}
+		// 并行模式：目录遍历、打包与解包仍在当前线程，遍历时只收集单文件任务，遍历结束后按大小降序交给工作线程；
+		// 虚拟线程模式下 I/O 为主的小文件另交给虚拟线程，加解密为主的任务仍在 workers 个平台线程中
+		final ExecutorService pool = options.workers > 1 ? IoExecutors.platform("copy-worker", options.workers) : null;
+		final ExecutorService ioPool = pool != null && IoExecutors.virtual() ? IoExecutors.io("copy-io", options.workers) : null;
+		final List<Task> tasks = new ArrayList<>();
+		final AtomicBoolean stopped = job.stopped;
+		final PackCopier packs = new PackCopier(job);
+		final SplitCopier splits = new SplitCopier(job, (file, targetFile) -> copyFile(file, targetFile, job));
+
+		try {
+			Files.walkFileTree(src, new SimpleFileVisitor<Path>() {
+				@Override
+				public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+					if (callbacks.isCancelled() || stopped.get()) return FileVisitResult.TERMINATE;
+					if (options.decryptFiles && DedupStore.isStoreDirectory(dir)) return FileVisitResult.SKIP_SUBTREE;
+					Path targetDir = prepareTargetDirectory(src.relativize(dir), dst, options, names);
+					if (!dir.equals(src)) job.searchable(dir, targetDir, true);
+					return FileVisitResult.CONTINUE;
+				}
+
+				@Override
+				public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+					packs.close(resolveTargetPath(src.relativize(dir), dst, options, names, true));
+					return super.postVisitDirectory(dir, exc);
+				}
+
+				@Override
+				public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+					if (callbacks.isCancelled() || stopped.get()) return FileVisitResult.TERMINATE;
+					Path rel = src.relativize(file);
+					Path targetFile = resolveTargetPath(rel, dst, options, names, false);
+					LOG.debug("处理文件: {} -> {}", file, targetFile);
+
+					if (isInternalFile(file.getFileName().toString())) return FileVisitResult.CONTINUE;
+
+					// 打包内部文件：解密时由索引展开成员，段文件本身跳过
+					if (options.decryptFiles && PackReader.isPackFile(file.getFileName().toString())) {
+						if (!PackReader.INDEX_FILE.equals(file.getFileName().toString())) return FileVisitResult.CONTINUE;
+						return packs.extractPack(file.getParent(), targetFile.getParent());
+					}
+
+					// 小文件打包：追加到目标目录的打包段，不单独创建加密文件
+					long fileSize = attrs.size();
+					if (options.encryptFiles && options.packSmallFiles && fileSize < options.packThresholdBytes) {
+						return packs.packFile(file, attrs, targetFile);
 					}
+
+					if (pool == null) return copyFile(file, targetFile, job);
+					tasks.add(new Task(file, targetFile, fileSize));
+					return FileVisitResult.CONTINUE;
 				}
-				return FileVisitResult.CONTINUE;
+			});
+			if (pool != null && !callbacks.isCancelled() && !stopped.get()) dispatch(tasks, pool, ioPool, job, splits);
+		} finally {
+			try {
+				if (ioPool != null) awaitWorkers(ioPool, callbacks);
+				if (pool != null) awaitWorkers(pool, callbacks);
+				packs.closeAll();
+				splits.discardUnfinished();
+				job.flushPublished();
+				job.writeIndexes();
+				job.writeThumbnails();
+				job.writeSearchIndex();
+			} finally {
+				ACTIVE_JOBS.decrementAndGet();
 			}
+		}
 
-			@Override
-			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-				if (callbacks.isCancelled()) return FileVisitResult.TERMINATE;
+		rethrowWorkerError(job);
+		DedupStore dedup = job.dedup;
+		if (dedup != null) {
+			callbacks.onLog("去重命中 " + dedup.hits() + " 个文件，节省约 " + dedup.savedBytes() + " 字节");
+			LOG.info("去重统计: 命中={} 节省字节={}", dedup.hits(), dedup.savedBytes());
+		}
+		DedupStore chunks = job.chunks;
+		if (chunks != null && chunks.chunksWritten() + chunks.chunksReused() > 0) {
+			callbacks.onLog("分块增量: 新写 " + chunks.chunksWritten() + " 块（" + chunks.chunkBytesWritten() + " 字节），复用 " + chunks.chunksReused() + " 块");
+			LOG.info("分块统计: 新写={} 新写字节={} 复用={}", chunks.chunksWritten(), chunks.chunkBytesWritten(), chunks.chunksReused());
+		}
+		for (IoScheduler.Device device : job.io.devices()) LOG.info("设备 I/O: {}", device);
+		LOG.info("复制完成: {} -> {}", src, dst);
+	}
+
+	/**
+	 * 只处理给定的源文件（必须位于 sourceDirectory 之下），目标命名、打包、去重与保险库处理均与
+	 * {@link #copyDirectory} 相同。供增量加密（监视目录）使用，顺序执行。
+	 */
+	public void copyFiles(CopyOptions options, Collection<Path> files, Callbacks callbacks) throws IOException {
+		SecretCaches.enter();
+		try {
+			copyEach(options, files, callbacks);
+		} finally {
+			SecretCaches.exit();
+		}
+	}
+
+	private void copyEach(CopyOptions options, Collection<Path> files, Callbacks callbacks) throws IOException {
+		Objects.requireNonNull(options);
+		Objects.requireNonNull(callbacks);
+		options.validate();
+
+		Path src = options.sourceDirectory;
+		Path dst = options.targetDirectory;
+		long totalBytes = files.stream().mapToLong(FileUtilsEx::safeSize).sum();
+		Files.createDirectories(dst);
+		Job job = new Job(options, callbacks, totalBytes);
+		NameCipher names = job.names;
+		PackCopier packs = new PackCopier(job);
+		ACTIVE_JOBS.incrementAndGet();
+		try {
+			for (Path file : files) {
+				if (callbacks.isCancelled()) break;
 				Path rel = src.relativize(file);
-				Path targetFile = resolveTargetPath(rel, dst, options, false);
-				LOG.debug("处理文件: {} -> {}", file, targetFile);
-
-				// 处理冲突
-				if (Files.exists(targetFile)) {
-					Resolution res = callbacks.onConflict(targetFile);
-					LOG.info("冲突: {} 决策={}", targetFile, res);
-					if (res == Resolution.CANCEL) return FileVisitResult.TERMINATE;
-					if (res == Resolution.SKIP) {
-						callbacks.onLog("跳过已存在文件: " + targetFile);
-						return FileVisitResult.CONTINUE;
+				if (rel.getNameCount() == 0 || rel.startsWith("..") || isInternalFile(file.getFileName().toString())) continue;
+				BasicFileAttributes attrs;
+				try {
+					attrs = Files.readAttributes(file, BasicFileAttributes.class);
+				} catch (NoSuchFileException gone) {
+					continue; // 处理前已被删除或改名
+				}
+				if (!attrs.isRegularFile()) continue;
+				// 逐级准备目标目录，只在新建时写入短名映射
+				for (int i = 1; i < rel.getNameCount(); i++) {
+					Path relDir = rel.subpath(0, i);
+					if (!Files.isDirectory(resolveTargetPath(relDir, dst, options, names, true))) {
+						job.searchable(src.resolve(relDir), prepareTargetDirectory(relDir, dst, options, names), true);
 					}
 				}
+				Path targetFile = resolveTargetPath(rel, dst, options, names, false);
+				FileVisitResult r = options.encryptFiles && options.packSmallFiles && attrs.size() < options.packThresholdBytes
+						? packs.packFile(file, attrs, targetFile)
+						: copyFile(file, targetFile, job);
+				if (r == FileVisitResult.TERMINATE) break;
+			}
+		} finally {
+			try {
+				packs.closeAll();
+				job.flushPublished();
+				job.writeIndexes();
+				job.writeThumbnails();
+				job.writeSearchIndex();
+			} finally {
+				ACTIVE_JOBS.decrementAndGet();
+			}
+		}
+		rethrowWorkerError(job);
+	}
+
+	/**
+	 * 工作线程或提交阶段记录的失败原样抛出：IOException、非受检异常与 Error 不变，其余包装为 IOException。
+	 */
+	private static void rethrowWorkerError(Job job) throws IOException {
+		Throwable failed = job.workerError.get();
+		if (failed == null) return;
+		if (failed instanceof IOException) throw (IOException) failed;
+		if (failed instanceof RuntimeException) throw (RuntimeException) failed;
+		if (failed instanceof Error) throw (Error) failed;
+		throw new IOException(failed.toString(), failed);
+	}
+
+	/**
+	 * 源文件在目标中的路径（加密时为加 .encrypted 后缀前的名字；目录名按选项转换）。
+	 */
+	Path targetPathFor(Path sourceFile, CopyOptions options) throws IOException {
+		NameCipher names = openNames(options, openVault(options, false), false);
+		return resolveTargetPath(options.sourceDirectory.relativize(sourceFile), options.targetDirectory, options, names, false);
+	}
+
+	/** 保险库、名称盐、目录索引、缩略图旁路文件、搜索索引与未发布的临时文件不作为源文件处理。 */
+	private static boolean isInternalFile(String name) {
+		return Vault.isVaultFile(name) || NameSalt.isSaltFile(name) || DirectoryIndex.isIndexFile(name) || ThumbnailStore.isStoreFile(name)
+				|| SearchIndex.isIndexFile(name) || Publisher.isTempName(name);
+	}
+
+	/**
+	 * 预扫描冲突：并行检查每个源文件的最终目标（含打包成员）是否已存在，返回已存在的目标路径（已排序）。
+	 * 供一次性批量决定冲突策略，之后复制过程不再暂停询问。不写入任何文件（保险库与名称盐只读取，不创建）。
+	 */
+	public List<Path> findConflicts(CopyOptions options) throws IOException {
+		SecretCaches.enter();
+		try {
+			return scanConflicts(options);
+		} finally {
+			SecretCaches.exit();
+		}
+	}
+
+	private List<Path> scanConflicts(CopyOptions options) throws IOException {
+		Objects.requireNonNull(options);
+		options.validate();
+		Path src = options.sourceDirectory;
+		Path dst = options.targetDirectory;
+		NameCipher names = openNames(options, openVault(options, false), false);
+		List<Path> files = new ArrayList<>();
+		Files.walkFileTree(src, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+				return options.decryptFiles && DedupStore.isStoreDirectory(dir) ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+			}
 
-				// 目标磁盘空间简单检查
-				long size = FileUtilsEx.safeSize(file);
-				if (!FileUtilsEx.hasEnoughDiskSpace(targetFile.getParent(), size)) {
-					ErrorDecision d = callbacks.onError(file, new IOException("磁盘空间可能不足"));
-					LOG.warn("磁盘空间可能不足: {} -> {} 决策={}", file, targetFile, d);
-					if (d == ErrorDecision.CANCEL) return FileVisitResult.TERMINATE;
-					if (d == ErrorDecision.SKIP) return FileVisitResult.CONTINUE;
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+				String name = file.getFileName().toString();
+				if (isInternalFile(name)) return FileVisitResult.CONTINUE;
+				if (options.decryptFiles && PackReader.isPackFile(name) && !PackReader.INDEX_FILE.equals(name)) return FileVisitResult.CONTINUE;
+				if (attrs.isRegularFile()) files.add(file);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+		long t0 = System.nanoTime();
+		List<Path> conflicts = files.parallelStream()
+				.flatMap(file -> conflictsOf(file, resolveTargetPath(src.relativize(file), dst, options, names, false), options).stream())
+				.sorted()
+				.collect(Collectors.toList());
+		LOG.info("冲突预扫描: 文件={} 冲突={} 耗时={}ms", files.size(), conflicts.size(), (System.nanoTime() - t0) / 1_000_000);
+		return conflicts;
+	}
+
+	private static List<Path> conflictsOf(Path file, Path targetFile, CopyOptions options) {
+		String name = file.getFileName().toString();
+		Path targetDir = targetFile.getParent();
+		try {
+			if (options.decryptFiles && PackReader.INDEX_FILE.equals(name)) {
+				PackReader pack = PackReader.forDirectory(file.getParent(), options.password);
+				if (pack == null) return Collections.emptyList();
+				List<Path> found = new ArrayList<>();
+				for (String member : pack.names()) {
+					if (Files.exists(targetDir.resolve(member))) found.add(targetDir.resolve(member));
 				}
+				return found;
+			}
+			if (options.encryptFiles && options.packSmallFiles && Files.size(file) < options.packThresholdBytes) {
+				Path sibling = targetDir.resolve(EncryptionUtils.toEncryptedFileName(targetFile.getFileName().toString()));
+				if (Files.exists(sibling)) return Collections.singletonList(sibling);
+				PackReader pack = PackReader.forDirectory(targetDir, options.password);
+				return pack != null && pack.contains(targetFile.getFileName().toString())
+						? Collections.singletonList(targetFile) : Collections.emptyList();
+			}
+		} catch (IOException | GeneralSecurityException e) {
+			LOG.debug("预扫描跳过: {} - {}", file, e.toString());
+			return Collections.emptyList();
+		}
+		Path existing = ConflictResolver.finalTarget(targetFile, options);
+		return Files.exists(existing) ? Collections.singletonList(existing) : Collections.emptyList();
+	}
 
-				// 执行复制（可选加/解密）
-				try {
-					Files.createDirectories(targetFile.getParent());
-					try (InputStream in = Files.newInputStream(file, StandardOpenOption.READ);
-						 OutputStream out = Files.newOutputStream(targetFile, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
-						if (options.encryptFiles) {
-							LOG.debug("加密复制文件: {}", file);
-							EncryptionUtils.encryptStream(in, out, options.password, inc -> {
-								copied[0] += inc;
-								callbacks.onProgress(file.toString(), copied[0], totalBytes);
-							});
-						} else if (options.decryptFiles) {
-							LOG.debug("解密复制文件: {}", file);
-							EncryptionUtils.decryptStream(in, out, options.password, inc -> {
-								copied[0] += inc;
-								callbacks.onProgress(file.toString(), copied[0], totalBytes);
-							});
-						} else {
-							// 采用较小的分块，减少内存压力
-							byte[] buf = new byte[(int)Math.min(256 * 1024, Math.max(64 * 1024, FileUtilsEx.suggestBufferSize(size)))];
-							int r;
-							while ((r = in.read(buf)) != -1) {
-								out.write(buf, 0, r);
-								copied[0] += r;
-								callbacks.onProgress(file.toString(), copied[0], totalBytes);
-							}
+	/** 并行任务：整个文件，或拆分文件的一个分段区间 [first, end)（单位为 split.unit 字节）。size 用于排序。 */
+	static final class Task {
+		final Path file;
+		final Path targetFile;
+		final long size;
+		final SplitCopier.SplitFile split;
+		final long first;
+		final long end;
+
+		Task(Path file, Path targetFile, long size) {
+			this(file, targetFile, size, null, 0, 0);
+		}
+
+		Task(SplitCopier.SplitFile split, long first, long end, long size) {
+			this(split.file, split.target, size, split, first, end);
+		}
+
+		private Task(Path file, Path targetFile, long size, SplitCopier.SplitFile split, long first, long end) {
+			this.file = file;
+			this.targetFile = targetFile;
+			this.size = size;
+			this.split = split;
+			this.first = first;
+			this.end = end;
+		}
+	}
+
+	/** 在用户回调之外累计完成文件数与错误数。 */
+	private static final class MeteredCallbacks implements Callbacks {
+		private final Callbacks delegate;
+
+		MeteredCallbacks(Callbacks delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override public Resolution onConflict(Path targetPath) { return delegate.onConflict(targetPath); }
+
+		@Override
+		public ErrorDecision onError(Path sourcePath, Exception error) {
+			ERRORS.increment();
+			return delegate.onError(sourcePath, error);
+		}
+
+		@Override public void onProgress(String currentFile, long copiedBytes, long totalBytes) { delegate.onProgress(currentFile, copiedBytes, totalBytes); }
+
+		@Override public void onLog(String message) { delegate.onLog(message); }
+
+		@Override public boolean isCancelled() { return delegate.isCancelled(); }
+
+		@Override
+		public void onFileCompleted(Path sourcePath, long bytes) {
+			FILES.increment();
+			delegate.onFileCompleted(sourcePath, bytes);
+		}
+	}
+
+	/** 累计读取耗时的输入流（不含限速等待，限速包装在其外层）。 */
+	static final class TimedInputStream extends FilterInputStream {
+		long nanos;
+
+		TimedInputStream(InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public int read() throws IOException {
+			long t0 = System.nanoTime();
+			try {
+				return super.read();
+			} finally {
+				nanos += System.nanoTime() - t0;
+			}
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			long t0 = System.nanoTime();
+			try {
+				return super.read(b, off, len);
+			} finally {
+				nanos += System.nanoTime() - t0;
+			}
+		}
+	}
+
+	/** 累计写入耗时的输出流，位于缓冲之下，只统计真正落到文件的写。 */
+	static final class TimedOutputStream extends FilterOutputStream {
+		long nanos;
+
+		TimedOutputStream(OutputStream out) {
+			super(out);
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			long t0 = System.nanoTime();
+			try {
+				out.write(b);
+			} finally {
+				nanos += System.nanoTime() - t0;
+			}
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			long t0 = System.nanoTime();
+			try {
+				out.write(b, off, len);
+			} finally {
+				nanos += System.nanoTime() - t0;
+			}
+		}
+	}
+
+	/**
+	 * 单次复制任务的共享状态：选项、回调、保险库、去重库、冲突处理、发布与进度计数；
+	 * 拆分复制（{@link SplitCopier}）与打包（{@link PackCopier}）等协作者通过它共享这些状态。
+	 */
+	static final class Job {
+		final CopyOptions options;
+		final Callbacks callbacks;
+		final VaultKey vault;
+		// 目录短名的名称会话；不加密目录名时为 null
+		final NameCipher names;
+		final DedupStore dedup;
+		// 分块增量使用同一个去重域；未开启时为 null
+		final DedupStore chunks;
+		final ConflictResolver conflicts;
+		final AtomicLong copied = new AtomicLong();
+		final IoScheduler io;
+		final long totalBytes;
+		// 并行模式下：任一线程决定取消或失败后停止分派与遍历
+		final AtomicBoolean stopped = new AtomicBoolean();
+		final AtomicReference<Throwable> workerError = new AtomicReference<>();
+		final Publisher publisher;
+		// 目录元数据索引：目标目录 -> 本次已发布文件的索引项，结束时合并写出；未开启时为 null
+		final Map<Path, List<DirectoryIndex.Entry>> indexed;
+		// 复制时生成缩略图：旁路线程池解码，目标目录 -> (名字 -> 缩略图)，结束时写出；未开启时为 null
+		final ExecutorService thumbnailPool;
+		final Semaphore thumbnailPermits;
+		final Map<Path, Map<String, Future<byte[]>>> thumbnails;
+		// 保险库级名称搜索索引：目标相对路径 -> 记录，结束时合并写出到目标根目录；未开启时为 null
+		final Map<String, SearchIndex.Hit> searchable;
+		// 批量提交失败后决定重试的文件，由 flushPublished 在提交结束后顺序重做
+		final List<Retry> retries = Collections.synchronizedList(new ArrayList<>());
+
+		/** 重新处理一个文件，返回值含义同 copyFile。 */
+		interface Retry {
+			FileVisitResult run() throws IOException;
+		}
+
+		Job(CopyOptions options, Callbacks callbacks, long totalBytes) throws IOException {
+			this.options = options;
+			this.callbacks = new MeteredCallbacks(callbacks);
+			this.totalBytes = totalBytes;
+			// 虚拟线程模式下小文件的并发远多于 workers，每个设备的并发上限随之提高，仍由吞吐自适应
+			int deviceConcurrency = options.workers > 1 ? IoExecutors.parallelism(options.workers) : options.workers;
+			this.io = new IoScheduler(deviceConcurrency, new RateLimiter(options.maxBytesPerSecond));
+			this.vault = openVault(options, true);
+			this.names = openNames(options, vault, true);
+			DedupStore store = openDedupStore(options, vault);
+			this.dedup = options.deduplicate ? store : null;
+			this.chunks = options.chunkLargeFiles ? store : null;
+			this.conflicts = new ConflictResolver(options, this.callbacks);
+			this.publisher = new Publisher(options.durable);
+			this.indexed = options.encryptFiles && options.indexDirectories ? new ConcurrentHashMap<>() : null;
+			this.searchable = options.encryptFiles && options.searchIndex ? new ConcurrentHashMap<>() : null;
+			if (options.encryptFiles && options.thumbnails) {
+				int threads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+				this.thumbnailPool = Executors.newFixedThreadPool(threads, r -> {
+					Thread t = new Thread(r, "thumbnail-worker");
+					t.setDaemon(true);
+					t.setPriority(Thread.MIN_PRIORITY);
+					return t;
+				});
+				// 限制待解码的明文份数，解码跟不上时复制线程等待，避免内存堆积
+				this.thumbnailPermits = new Semaphore(threads * 2);
+				this.thumbnails = new ConcurrentHashMap<>();
+			} else {
+				this.thumbnailPool = null;
+				this.thumbnailPermits = null;
+				this.thumbnails = null;
+			}
+		}
+
+		/**
+		 * 包装明文输入流：开启目录索引或需要为图片生成缩略图时返回 ContentProbe，否则返回 null。
+		 */
+		ContentProbe probe(Path file, InputStream in) {
+			boolean image = thumbnails != null && FileUtilsEx.isImageFile(file);
+			if (indexed == null && !image) return null;
+			return new ContentProbe(in, image ? ThumbnailStore.MAX_SOURCE_BYTES : 0);
+		}
+
+		/**
+		 * 把完整明文交给旁路线程池生成缩略图；image 为 null（未开启、非图片或过大）时忽略。
+		 */
+		void thumbnail(Path target, byte[] image) {
+			if (thumbnails == null || image == null) return;
+			thumbnailPermits.acquireUninterruptibly();
+			Future<byte[]> future;
+			try {
+				future = thumbnailPool.submit(() -> {
+					try {
+						return ThumbnailStore.render(image);
+					} finally {
+						thumbnailPermits.release();
+					}
+				});
+			} catch (RuntimeException e) {
+				thumbnailPermits.release();
+				throw e;
+			}
+			thumbnails.computeIfAbsent(target.getParent(), d -> new ConcurrentHashMap<>()).put(target.getFileName().toString(), future);
+		}
+
+		/** 记录一个已写出的文件或目录的原始路径与目标路径，供名称搜索。 */
+		void searchable(Path source, Path target, boolean directory) {
+			if (searchable == null) return;
+			String targetPath = slashed(options.targetDirectory.relativize(target));
+			searchable.put(targetPath, new SearchIndex.Hit(slashed(options.sourceDirectory.relativize(source)), targetPath, directory));
+		}
+
+		/** 合并写出搜索索引。 */
+		void writeSearchIndex() {
+			if (searchable == null || searchable.isEmpty()) return;
+			try {
+				SearchIndex.update(options.targetDirectory, searchable.values(), options.password, vault, options.durable);
+			} catch (IOException | GeneralSecurityException e) {
+				LOG.warn("写入搜索索引失败: {} - {}", options.targetDirectory, e.toString());
+			}
+		}
+
+		private static String slashed(Path relative) {
+			StringBuilder sb = new StringBuilder();
+			for (Path part : relative) {
+				if (sb.length() > 0) sb.append('/');
+				sb.append(part);
+			}
+			return sb.toString();
+		}
+
+		/** 等待缩略图生成完成并写出各目录的旁路文件；须在待发布文件都已写出之后调用。 */
+		void writeThumbnails() {
+			if (thumbnails == null) return;
+			int written = 0;
+			try {
+				for (Map.Entry<Path, Map<String, Future<byte[]>>> dir : thumbnails.entrySet()) {
+					Map<String, byte[]> images = new HashMap<>();
+					for (Map.Entry<String, Future<byte[]>> e : dir.getValue().entrySet()) {
+						try {
+							byte[] thumb = e.getValue().get();
+							if (thumb != null) images.put(e.getKey(), thumb);
+						} catch (ExecutionException ex) {
+							LOG.debug("生成缩略图失败: {} - {}", dir.getKey().resolve(e.getKey()), ex.getCause().toString());
 						}
 					}
+					if (images.isEmpty()) continue;
+					try {
+						ThumbnailStore.update(dir.getKey(), images, options.password, vault, options.durable);
+						written += images.size();
+					} catch (IOException | GeneralSecurityException ex) {
+						LOG.warn("写入缩略图失败: {} - {}", dir.getKey(), ex.toString());
+					}
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} finally {
+				thumbnailPool.shutdownNow();
+			}
+			LOG.info("复制时生成缩略图: 目录={} 数量={}", thumbnails.size(), written);
+		}
+
+		/**
+		 * 映射路径的进度回调：扣减限速额度、计入设备吞吐并汇报进度。限速等待被中断时抛出
+		 * UncheckedIOException，由调用方还原为 IOException。
+		 */
+		LongConsumer meter(Path file, IoScheduler.Ticket io) {
+			return bytes -> {
+				try {
+					this.io.charge(bytes);
+				} catch (InterruptedIOException e) {
+					throw new UncheckedIOException(e);
+				}
+				io.transferred(bytes);
+				progress(file, bytes);
+			};
+		}
+
+		void progress(Path file, long bytes) {
+			BYTES.add(bytes);
+			callbacks.onProgress(file.toString(), copied.addAndGet(bytes), totalBytes);
+		}
+
+		/**
+		 * 记录已发布文件的索引项；head 为明文开头字节（见 ContentProbe），sha256 未知时为 null。
+		 */
+		void index(Path target, Path source, long size, byte[] head, byte[] sha256) {
+			if (indexed == null) return;
+			String name = target.getFileName().toString();
+			long modified;
+			try {
+				modified = Files.getLastModifiedTime(source).toMillis();
+			} catch (IOException e) {
+				modified = 0;
+			}
+			DirectoryIndex.Entry entry = DirectoryIndex.Entry.describe(name, EncryptionUtils.toDecryptedFileName(name), size, modified, head, sha256);
+			indexed.computeIfAbsent(target.getParent(), d -> Collections.synchronizedList(new ArrayList<>())).add(entry);
+		}
+
+		/** 写出各目录的元数据索引；须在打包索引与待发布文件都已写出之后调用。 */
+		void writeIndexes() {
+			if (indexed == null) return;
+			for (Map.Entry<Path, List<DirectoryIndex.Entry>> e : indexed.entrySet()) {
+				try {
+					DirectoryIndex.update(e.getKey(), e.getValue(), options.password, vault, options.durable);
+				} catch (IOException | GeneralSecurityException ex) {
+					LOG.warn("写入目录索引失败: {} - {}", e.getKey(), ex.toString());
+				}
+			}
+			LOG.info("目录索引: 目录={} 条目={}", indexed.size(), indexed.values().stream().mapToInt(List::size).sum());
+		}
 
-					// 若是加密，重命名添加后缀；若解密，去后缀
-					if (options.encryptFiles && !EncryptionUtils.isEncryptedFileName(targetFile.getFileName().toString())) {
-						Path renamed = targetFile.resolveSibling(EncryptionUtils.toEncryptedFileName(targetFile.getFileName().toString()));
-						Files.move(targetFile, renamed, StandardCopyOption.REPLACE_EXISTING);
-						callbacks.onLog("已加密: " + renamed);
-						LOG.debug("重命名(加密后缀): {} -> {}", targetFile, renamed);
-					} else if (options.decryptFiles && EncryptionUtils.isEncryptedFileName(targetFile.getFileName().toString())) {
-						Path renamed = targetFile.resolveSibling(EncryptionUtils.toDecryptedFileName(targetFile.getFileName().toString()));
-						Files.move(targetFile, renamed, StandardCopyOption.REPLACE_EXISTING);
-						callbacks.onLog("已解密: " + renamed);
-						LOG.debug("重命名(去后缀): {} -> {}", targetFile, renamed);
+		/**
+		 * 处理冲突：按加/去后缀之后的最终文件名判断。返回实际写入目标；跳过时返回 null，取消时另外置位 stopped。
+		 */
+		Path resolveConflict(Path file, Path targetFile) throws IOException {
+			Path existing = ConflictResolver.finalTarget(targetFile, options);
+			if (!Files.exists(existing)) return targetFile;
+			ConflictResolver.Outcome outcome = conflicts.resolve(targetFile, existing,
+					conflicts.source(file), conflicts.existing(existing),
+					p -> Files.exists(ConflictResolver.finalTarget(p, options)));
+			LOG.info("冲突: {} 策略={} 决策={}", existing, options.conflictPolicy, outcome.resolution);
+			if (outcome.resolution == Resolution.CANCEL) {
+				stopped.set(true);
+				return null;
+			}
+			if (outcome.resolution == Resolution.SKIP) {
+				callbacks.onLog("跳过已存在文件: " + existing);
+				return null;
+			}
+			return outcome.target;
+		}
+
+		/**
+		 * 一个文件在批量提交中失败（临时文件已由 Publisher 删除）：只为该文件回调错误决策，
+		 * 决定重试时记入 retries，不影响同批的其他文件。可能在提交其他文件的线程中调用。
+		 */
+		void publishFailed(Path source, IOException error, Retry retry) {
+			ErrorDecision d = callbacks.onError(source, error);
+			LOG.warn("提交失败: {} - {} 决策={}", source, error.toString(), d);
+			if (d == ErrorDecision.CANCEL) stopped.set(true);
+			if (d == ErrorDecision.RETRY) retries.add(retry);
+		}
+
+		/** 提交最后一批待发布文件，再顺序重试提交失败的文件，直到没有待重试的文件或任务已停止。 */
+		void flushPublished() {
+			publisher.flush();
+			while (!retries.isEmpty() && !stopped.get() && !callbacks.isCancelled()) {
+				List<Retry> pending;
+				synchronized (retries) {
+					pending = new ArrayList<>(retries);
+					retries.clear();
+				}
+				for (Retry retry : pending) {
+					if (stopped.get() || callbacks.isCancelled()) break;
+					try {
+						if (retry.run() == FileVisitResult.TERMINATE) stopped.set(true);
+					} catch (IOException | RuntimeException e) {
+						LOG.error("重试提交失败的文件时出错: {}", e.toString());
+						workerError.compareAndSet(null, e);
+						stopped.set(true);
 					}
+				}
+				publisher.flush();
+			}
+		}
+	}
 
-				} catch (GeneralSecurityException gse) {
-					ErrorDecision d = callbacks.onError(file, gse);
-					LOG.warn("安全错误: {} - {} 决策={}", file, gse.toString(), d);
-					if (d == ErrorDecision.CANCEL) return FileVisitResult.TERMINATE;
-					if (d == ErrorDecision.SKIP) return FileVisitResult.CONTINUE;
-					return visitFile(file, attrs); // RETRY
-				} catch (IOException ioe) {
-					ErrorDecision d = callbacks.onError(file, ioe);
-					LOG.warn("IO 错误: {} - {} 决策={}", file, ioe.toString(), d);
-					if (d == ErrorDecision.CANCEL) return FileVisitResult.TERMINATE;
-					if (d == ErrorDecision.SKIP) return FileVisitResult.CONTINUE;
-					return visitFile(file, attrs); // RETRY
+	/**
+	 * 创建与源目录对应的目标目录；加密目录名时在父目录的 .dirnames.map 追加短名映射，用于查看时还原显示。
+	 * 返回目标目录。
+	 */
+	private Path prepareTargetDirectory(Path rel, Path dst, CopyOptions options, NameCipher names) throws IOException {
+		Path targetDir = resolveTargetPath(rel, dst, options, names, true);
+		Files.createDirectories(targetDir);
+		LOG.debug("创建目录: {}", targetDir);
+		if (options.encryptDirectoryNames && rel.getNameCount() > 0) {
+			String originalName = rel.getFileName().toString();
+			String shortName = targetDir.getFileName().toString();
+			Path mapFile = targetDir.getParent() != null ? targetDir.getParent().resolve(".dirnames.map") : null;
+			if (mapFile != null) {
+				try {
+					Files.createDirectories(mapFile.getParent());
+					Files.write(mapFile, (shortName + "=" + originalName + System.lineSeparator()).getBytes(StandardCharsets.UTF_8),
+							StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+				} catch (Exception ex) {
+					LOG.warn("写入目录映射失败: {} -> {} 于 {} - {}", shortName, originalName, mapFile, ex.toString());
 				}
+			}
+		}
+		return targetDir;
+	}
+
+	private static void awaitWorkers(ExecutorService pool, Callbacks callbacks) {
+		pool.shutdown();
+		try {
+			while (!pool.awaitTermination(500, TimeUnit.MILLISECONDS)) {
+				if (callbacks.isCancelled()) pool.shutdownNow();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * 加密时在目标根目录打开保险库，create 为 true 且开启保险库时按需创建（预扫描与目标路径计算只读取）；
+	 * 解密时向上查找源目录所属保险库。
+	 */
+	private static VaultKey openVault(CopyOptions options, boolean create) throws IOException {
+		try {
+			if (options.encryptFiles) return Vault.openOrCreate(options.targetDirectory, options.password, create && options.useVault);
+			if (options.decryptFiles) return Vault.locate(options.sourceDirectory, options.password);
+			return null;
+		} catch (GeneralSecurityException e) {
+			throw new IOException("保险库密码错误或保险库已损坏: " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * 加密目录名时的名称会话：保险库内由主密钥派生；否则以目标目录树的名称盐派生，create 为 true 时在新的目标根目录
+	 * 创建名称盐（见 {@link NameSalt}），没有名称盐的旧目标沿用旧版短名。不加密目录名时返回 null。
+	 */
+	private static NameCipher openNames(CopyOptions options, VaultKey vault, boolean create) throws IOException {
+		if (!options.encryptDirectoryNames) return null;
+		try {
+			if (vault != null) return NameCipher.forVault(vault, options.password);
+		} catch (GeneralSecurityException e) {
+			throw new IOException(e.getMessage(), e);
+		}
+		Path root = options.targetDirectory;
+		return NameCipher.forPassword(options.password, create ? NameSalt.openOrCreate(root) : NameSalt.read(root));
+	}
+
+	private static DedupStore openDedupStore(CopyOptions options, VaultKey vault) throws IOException {
+		if (!options.deduplicate && !options.chunkLargeFiles || !options.encryptFiles) return null;
+		try {
+			return DedupStore.open(options.targetDirectory, options.password, vault);
+		} catch (GeneralSecurityException e) {
+			throw new IOException(e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * 复制单个文件（可选加/解密），含冲突、磁盘空间与错误处理。并行模式下在工作线程中执行。
+	 * 开启追踪时整个处理过程（含冲突处理与重试）为一个文件复制事件，模式为最终走的路径。
+	 */
+	private FileVisitResult copyFile(Path file, Path targetFile, Job job) throws IOException {
+		Tracing.FileCopyEvent trace = Tracing.fileCopy();
+		Stages stages = new Stages();
+		try {
+			return copyOne(file, targetFile, job, stages);
+		} finally {
+			stages.complete(trace, file);
+		}
+	}
+
+	private FileVisitResult copyOne(Path file, Path targetFile, Job job, Stages stages) throws IOException {
+		CopyOptions options = job.options;
+		Callbacks callbacks = job.callbacks;
+		targetFile = job.resolveConflict(file, targetFile);
+		if (targetFile == null) return job.stopped.get() ? FileVisitResult.TERMINATE : FileVisitResult.CONTINUE;
+
+		// 目标磁盘空间简单检查
+		long size = FileUtilsEx.safeSize(file);
+		stages.size = size;
+		if (!FileUtilsEx.hasEnoughDiskSpace(targetFile.getParent(), size)) {
+			ErrorDecision d = callbacks.onError(file, new IOException("磁盘空间可能不足"));
+			LOG.warn("磁盘空间可能不足: {} -> {} 决策={}", file, targetFile, d);
+			if (d == ErrorDecision.CANCEL) return FileVisitResult.TERMINATE;
+			if (d == ErrorDecision.SKIP) return FileVisitResult.CONTINUE;
+		}
+
+		// 执行复制（可选加/解密）；按源与目标所在设备申请 I/O 并发额度，块大小随设备实测吞吐调整。
+		// 内容写入最终名对应的临时文件，完成后一次原子重命名发布
+		Path finalTarget = ConflictResolver.finalTarget(targetFile, options);
+		Path temp = Publisher.tempFor(finalTarget);
+		// 批量提交中失败时只回调本文件，重试时重新复制（临时文件已由 Publisher 删除）
+		Path resolved = targetFile;
+		Consumer<IOException> onFailed = e -> job.publishFailed(file, e, () -> copyFile(file, resolved, job));
+		try (IoScheduler.Ticket io = job.io.acquire(file, targetFile)) {
+			Files.createDirectories(targetFile.getParent());
+			if (chunked(size, job)) {
+				stages.start("chunked");
+				TimedInputStream reads = new TimedInputStream(Files.newInputStream(file, StandardOpenOption.READ));
+				InputStream raw = io.throttle(reads);
+				ContentProbe probe = job.probe(file, raw);
+				byte[] list;
+				try (BufferedInputStream source = new BufferedInputStream(probe != null ? probe : raw, io.blockSize())) {
+					list = job.chunks.storeChunked(source, selectCodec(file, source, options), inc -> job.progress(file, inc));
+				}
+				long t0 = System.nanoTime();
+				Files.write(temp, list);
+				stages.write = System.nanoTime() - t0;
+				stages.read = reads.nanos;
+				stages.finish();
+				keepModified(file, temp);
+				if (probe != null) job.thumbnail(finalTarget, probe.content());
+				LOG.debug("分块加密: {} -> {}", file, finalTarget);
+				job.publisher.publish(temp, finalTarget, size, () -> {
+					if (probe != null) job.index(finalTarget, file, size, probe.head(), probe.sha256());
+					job.searchable(file, finalTarget, false);
+					callbacks.onLog("已加密(分块): " + finalTarget);
+					callbacks.onFileCompleted(file, size);
+				}, onFailed);
 				return FileVisitResult.CONTINUE;
 			}
-		});
+			if (job.dedup != null) {
+				// 第一遍只计算内容标识（同时做目录索引与缩略图的探测），命中时不再加密与写出；
+				// 未命中才第二遍读取源文件加密写入对象
+				stages.start("dedup");
+				TimedInputStream reads = new TimedInputStream(Files.newInputStream(file, StandardOpenOption.READ));
+				InputStream raw = io.throttle(reads);
+				ContentProbe probe = job.probe(file, raw);
+				String id;
+				try (InputStream source = new BufferedInputStream(probe != null ? probe : raw, io.blockSize())) {
+					id = job.dedup.contentId(source, inc -> job.progress(file, inc));
+				}
+				stages.read = reads.nanos;
+				Path object = job.dedup.lookup(id);
+				if (object == null) {
+					TimedInputStream again = new TimedInputStream(Files.newInputStream(file, StandardOpenOption.READ));
+					try (BufferedInputStream source = new BufferedInputStream(io.throttle(again), io.blockSize())) {
+						object = job.dedup.store(id, source, selectCodec(file, source, options), null);
+					}
+					stages.read += again.nanos;
+				}
+				// 硬链接与对象共用修改时间，不改写（冲突比较改用目录索引中的源文件时间）
+				long t0 = System.nanoTime();
+				job.dedup.link(object, temp);
+				stages.write = System.nanoTime() - t0;
+				stages.finish();
+				if (probe != null) job.thumbnail(finalTarget, probe.content());
+				LOG.debug("去重加密: {} -> {}", file, finalTarget);
+				job.publisher.publish(temp, finalTarget, size, () -> {
+					if (probe != null) job.index(finalTarget, file, size, probe.head(), probe.sha256());
+					job.searchable(file, finalTarget, false);
+					callbacks.onLog("已加密(去重): " + finalTarget);
+					callbacks.onFileCompleted(file, size);
+				}, onFailed);
+				return FileVisitResult.CONTINUE;
+			}
+			if (size >= MAPPED_MIN_BYTES && canMap(job) && copyMapped(file, temp, size, job, io, stages)) {
+				keepModified(file, temp);
+				job.publisher.publish(temp, finalTarget, size, () -> {
+					job.searchable(file, finalTarget, false);
+					callbacks.onLog((options.encryptFiles ? "已加密: " : "已解密: ") + finalTarget);
+					callbacks.onFileCompleted(file, size);
+				}, onFailed);
+				return FileVisitResult.CONTINUE;
+			}
+			ContentProbe probe = null;
+			stages.start(options.encryptFiles ? "encrypt" : options.decryptFiles ? "decrypt" : "plain");
+			try (TimedInputStream reads = new TimedInputStream(Files.newInputStream(options.decryptFiles ? DedupStore.resolve(file) : file, StandardOpenOption.READ));
+				 TimedOutputStream writes = new TimedOutputStream(Files.newOutputStream(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING));
+				 InputStream in = io.throttle(reads);
+				 OutputStream out = new BufferedOutputStream(writes, io.blockSize())) {
+				if (options.encryptFiles) {
+					LOG.debug("加密复制文件: {}", file);
+					// 在明文流经处顺带计算摘要并保留文件头（目录索引），图片另保留完整内容用于生成缩略图
+					probe = job.probe(file, in);
+					BufferedInputStream source = new BufferedInputStream(probe != null ? probe : in, io.blockSize());
+					EncryptionUtils.encryptStream(source, out, options.password, job.vault, selectCodec(file, source, options), inc -> job.progress(file, inc));
+				} else if (options.decryptFiles && ChunkList.isChunkList(file)) {
+					LOG.debug("解密分块文件: {}", file);
+					ChunkList.decrypt(file, out, options.password, job.vault, io, inc -> job.progress(file, inc));
+				} else if (options.decryptFiles) {
+					LOG.debug("解密复制文件: {}", file);
+					EncryptionUtils.decryptStream(in, out, options.password, job.vault, inc -> job.progress(file, inc));
+				} else {
+					byte[] buf = new byte[io.blockSize()];
+					int r;
+					while ((r = in.read(buf)) != -1) {
+						out.write(buf, 0, r);
+						job.progress(file, r);
+					}
+				}
+				out.flush();
+				stages.read = reads.nanos;
+				stages.write = writes.nanos;
+				stages.finish();
+			}
+			keepModified(file, temp);
+			ContentProbe probed = probe;
+			if (probed != null) job.thumbnail(finalTarget, probed.content());
+			job.publisher.publish(temp, finalTarget, size, () -> {
+				if (probed != null) job.index(finalTarget, file, size, probed.head(), probed.sha256());
+				job.searchable(file, finalTarget, false);
+				if (options.encryptFiles || options.decryptFiles) callbacks.onLog((options.encryptFiles ? "已加密: " : "已解密: ") + finalTarget);
+				callbacks.onFileCompleted(file, size);
+			}, onFailed);
+		} catch (GeneralSecurityException gse) {
+			deleteQuietly(temp);
+			ErrorDecision d = callbacks.onError(file, gse);
+			LOG.warn("安全错误: {} - {} 决策={}", file, gse.toString(), d);
+			if (d == ErrorDecision.CANCEL) return FileVisitResult.TERMINATE;
+			if (d == ErrorDecision.SKIP) return FileVisitResult.CONTINUE;
+			return copyOne(file, targetFile, job, stages); // RETRY
+		} catch (IOException ioe) {
+			deleteQuietly(temp);
+			ErrorDecision d = callbacks.onError(file, ioe);
+			LOG.warn("IO 错误: {} - {} 决策={}", file, ioe.toString(), d);
+			if (d == ErrorDecision.CANCEL) return FileVisitResult.TERMINATE;
+			if (d == ErrorDecision.SKIP) return FileVisitResult.CONTINUE;
+			return copyOne(file, targetFile, job, stages); // RETRY
+		}
+		return FileVisitResult.CONTINUE;
+	}
 
-		LOG.info("复制完成: {} -> {}", src, dst);
+	/**
+	 * 大文件走映射路径的条件：不压缩、不需要流经明文的目录索引（映射路径不计算摘要）的加密，或解密
+	 * （压缩或旧格式的密文由 {@link EncryptionUtils#decryptMapped} 判断后退回流式）。
+	 */
+	private static boolean canMap(Job job) {
+		CopyOptions options = job.options;
+		return options.encryptFiles ? !options.compressFiles && job.indexed == null : options.decryptFiles;
+	}
+
+	/**
+	 * 映射输入复制一个大文件：源文件按窗口只读映射，分段切片直接加/解密，结果经通道写入临时文件，
+	 * 堆上只有约 1MB 的直接缓冲区。解密时遇到不支持映射的格式返回 false，由调用方改走流式。
+	 * 读取阶段为各窗口的预读耗时，写入阶段为各批经通道写出的耗时。
+	 */
+	private static boolean copyMapped(Path file, Path temp, long size, Job job, IoScheduler.Ticket io, Stages stages) throws IOException, GeneralSecurityException {
+		CopyOptions options = job.options;
+		stages.start("mapped");
+		try (FileChannel in = FileChannel.open(options.decryptFiles ? DedupStore.resolve(file) : file, StandardOpenOption.READ);
+			 FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			LongConsumer onBytes = job.meter(file, io);
+			if (options.encryptFiles) {
+				LOG.debug("映射加密: {}", file);
+				ChunkedEncryptor encryptor = EncryptionUtils.chunkedEncryptor(size, options.password, job.vault);
+				ByteBuffer header = ByteBuffer.wrap(encryptor.header());
+				while (header.hasRemaining()) out.write(header);
+				encryptor.encryptSegments(in, out, 0, encryptor.segmentCount(), onBytes);
+			} else {
+				LOG.debug("映射解密: {}", file);
+				if (!EncryptionUtils.decryptMapped(in, out, options.password, job.vault, onBytes)) return false;
+			}
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+		stages.finish();
+		return true;
+	}
+
+	/** 输出沿用源文件的修改时间，冲突策略（保留较新、相同则跳过）与监视对账据此与源文件比较。 */
+	static void keepModified(Path file, Path temp) throws IOException {
+		Files.setLastModifiedTime(temp, Files.getLastModifiedTime(file));
+	}
+
+	/**
+	 * 一个文件的阶段计时。读、写由调用方按计时流或计时片段填入，结束时再加上映射预读、映射写出与
+	 * 去重对象写盘在本线程的累计值之差；KDF 取本线程 PBKDF2 累计值之差。
+	 * <p>
+	 * mode 为实际走的复制路径（chunked / dedup / mapped / encrypt / decrypt / plain / pack / split），
+	 * 每次 {@link #start} 重新计时；冲突跳过或未开始即失败时保持 skipped，各阶段为 0。
+	 */
+	static final class Stages {
+		String mode = "skipped";
+		long size;
+		private long started;
+		private long kdfBefore;
+		private long readBefore;
+		private long writeBefore;
+		long read;
+		long write;
+		long kdf;
+		long total;
+
+		/** 按给定路径开始（或重试时重新开始）计时。 */
+		void start(String mode) {
+			this.mode = mode;
+			read = write = kdf = total = 0;
+			started = System.nanoTime();
+			kdfBefore = EncryptionUtils.KDF_TIME.threadNanos();
+			readBefore = EncryptionUtils.MAPPED_READ_TIME.threadNanos();
+			writeBefore = writeNanos();
+		}
+
+		/** 结束计时，不记录到指标（拆分文件的单个分段只用于追踪事件）。 */
+		void measure() {
+			total = System.nanoTime() - started;
+			kdf = EncryptionUtils.KDF_TIME.threadNanos() - kdfBefore;
+			read += EncryptionUtils.MAPPED_READ_TIME.threadNanos() - readBefore;
+			write += writeNanos() - writeBefore;
+		}
+
+		/** 结束计时并记录各阶段。 */
+		void finish() {
+			measure();
+			recordStages(total, read, kdf, write);
+		}
+
+		/** 提交文件复制事件；未开启追踪（trace 为 null）时什么也不做。 */
+		void complete(Tracing.FileCopyEvent trace, Path file) {
+			if (trace != null) trace.complete(file, size, mode, read, kdf, write, total);
+		}
+
+		private static long writeNanos() {
+			return EncryptionUtils.MAPPED_WRITE_TIME.threadNanos() + DedupStore.OBJECT_WRITE_TIME.threadNanos();
+		}
+	}
+
+	/** 记录一个文件的阶段耗时；加解密阶段取总耗时扣除读、KDF 与写之后的剩余部分。 */
+	private static void recordStages(long total, long read, long kdf, long write) {
+		FILE_TIME.record(total);
+		READ_TIME.record(read);
+		KDF_TIME.record(kdf);
+		WRITE_TIME.record(write);
+		CIPHER_TIME.record(total - read - kdf - write);
+	}
+
+	/**
+	 * 按大小降序（最长处理时间优先）分派并行任务：先启动最大的文件，小文件随后填满空闲线程，
+	 * 使总耗时接近总字节数 / 总吞吐。单个文件超过每个线程的平均工作量时拆成分段区间并行处理，
+	 * 避免最后只剩一个线程处理超大文件。排队任务数有上限。ioPool 不为 null 时（虚拟线程模式）
+	 * I/O 为主的小文件交给它，同时进行的数量上限为 {@link IoExecutors#parallelism}。
+	 */
+	private void dispatch(List<Task> tasks, ExecutorService pool, ExecutorService ioPool, Job job, SplitCopier splits) {
+		long queuedBytes = tasks.stream().mapToLong(t -> t.size).sum();
+		long share = queuedBytes / job.options.workers;
+		List<Task> ordered = new ArrayList<>(tasks.size());
+		for (Task t : tasks) {
+			if (job.callbacks.isCancelled() || job.stopped.get()) return;
+			if (t.size > share && canSplit(t, job)) {
+				ordered.addAll(splits.split(t));
+			} else {
+				ordered.add(t);
+			}
+		}
+		ordered.sort(Comparator.comparingLong((Task t) -> t.size).reversed());
+		LOG.info("并行分派: 任务={} 字节={} 最大任务={}", ordered.size(), queuedBytes, ordered.isEmpty() ? 0 : ordered.get(0).size);
+
+		Semaphore inFlight = new Semaphore(job.options.workers * 4);
+		Semaphore ioInFlight = ioPool != null ? new Semaphore(IoExecutors.parallelism(job.options.workers)) : null;
+		for (Task t : ordered) {
+			if (job.callbacks.isCancelled() || job.stopped.get()) return;
+			boolean ioBound = ioPool != null && ioBound(t, job);
+			Semaphore permits = ioBound ? ioInFlight : inFlight;
+			try {
+				permits.acquire();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+			(ioBound ? ioPool : pool).execute(() -> {
+				try {
+					if (t.split != null) {
+						splits.copyChunk(t);
+					} else if (copyFile(t.file, t.targetFile, job) == FileVisitResult.TERMINATE) {
+						job.stopped.set(true);
+					}
+				} catch (IOException | RuntimeException | Error e) {
+					LOG.error("复制线程失败: {} - {}", t.file, e.toString());
+					job.workerError.compareAndSet(null, e);
+					job.stopped.set(true);
+				} finally {
+					permits.release();
+				}
+			});
+		}
+	}
+
+	/**
+	 * 耗时主要在等待存储的任务：整个小文件、不压缩，且没有逐文件的 PBKDF2（普通复制，或密钥由保险库主密钥派生）。
+	 * 这类文件的加解密只有几十微秒，放在虚拟线程中；其余任务的加解密仍由固定大小的平台线程池承担。
+	 */
+	private static boolean ioBound(Task t, Job job) {
+		CopyOptions options = job.options;
+		boolean cheapKeys = job.vault != null || !options.encryptFiles && !options.decryptFiles;
+		return t.split == null && t.size < IO_BOUND_MAX_BYTES && !options.compressFiles && cheapKeys;
+	}
+
+	/** 只有明文大小与密文布局都可预先确定时才能拆分：不压缩、不去重、不分块、非解密。 */
+	private static boolean canSplit(Task t, Job job) {
+		CopyOptions options = job.options;
+		return t.size >= 2 * SplitCopier.MIN_CHUNK_BYTES && !options.decryptFiles && !options.compressFiles && job.dedup == null && !chunked(t.size, job);
+	}
+
+	/** 分块增量只用于加密时不小于阈值的文件。 */
+	private static boolean chunked(long size, Job job) {
+		return job.chunks != null && size >= job.options.chunkThresholdBytes;
+	}
+
+	private static void deleteQuietly(Path file) {
+		try {
+			Files.deleteIfExists(file);
+		} catch (IOException e) {
+			LOG.warn("删除临时文件失败: {} - {}", file, e.toString());
+		}
+	}
+
+	private static CompressionCodec selectCodec(Path file, BufferedInputStream source, CopyOptions options) throws IOException {
+		if (!options.compressFiles) return CompressionCodecs.NONE;
+		CompressionCodec codec = CompressionCodecs.select(file.getFileName().toString(), source, CompressionCodecs.byName(options.compressionCodec));
+		if (codec != CompressionCodecs.NONE) LOG.debug("压缩后加密: {} codec={}", file, codec.name());
+		return codec;
 	}
 
-	private Path resolveTargetPath(Path relative, Path rootTarget, CopyOptions options, boolean isDirectory) {
+	private Path resolveTargetPath(Path relative, Path rootTarget, CopyOptions options, NameCipher names, boolean isDirectory) {
 		Path current = rootTarget;
 		int nameCount = relative.getNameCount();
 		for (int i = 0; i < nameCount; i++) {
@@ -174,7 +1193,8 @@ public class CopyService {
 			if (thisIsDirectorySegment) {
 				if (options.encryptDirectoryNames) {
 					try {
-						name = EncryptionUtils.encryptDirectoryNameShort(name, options.password, 16);
+						// 会话级名称密钥与短名缓存：每个文件解析路径时不再逐段派生子密钥、计算 HMAC
+						name = names.shortName(name, 16);
 					} catch (Exception ignored) {}
 				} else if (options.decryptDirectoryNames) {
 					// 短名无法直接还原，需要外部映射，暂不在复制中做短名解密
@@ -0,0 +1,372 @@
+package com.example.encryptedexplorer.service;
+
+import com.example.encryptedexplorer.util.CompressionCodec;
+import com.example.encryptedexplorer.util.ContentChunker;
+import com.example.encryptedexplorer.util.EncryptionUtils;
+import com.example.encryptedexplorer.util.Metrics;
+import com.example.encryptedexplorer.util.VaultKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+import java.util.regex.Pattern;
+
+/**
+ * 内容寻址去重存储：目标根目录下的 .objects/ 保存按内容标识命名的加密对象，
+ * 目标文件是指向对象的硬链接；文件系统不支持硬链接时写入指针文件，由查看端解析。
+ *
+ * 去重域密钥设计：
+ * <ul>
+ *   <li>每个目标根目录是一个去重域，.objects/domain 保存随机域盐(16) 与校验值；</li>
+ *   <li>域密钥 = PBKDF2(密码, 域盐)，每次任务只派生一次；在保险库内则为 HMAC(保险库去重子密钥, 域盐)，
+ *       修改保险库密码后去重域保持不变；</li>
+ *   <li>对象标识 = HMAC-SHA256(域密钥, 明文)，不同域（或不同密码）下同一内容的标识不同，
+ *       拿到目标盘的人无法用已知文件的普通哈希确认其是否存在；</li>
+ *   <li>同一域内相同内容必然得到相同标识，这是去重本身决定的信息泄露（可知哪些文件内容相同）；</li>
+ *   <li>对象本身仍是普通 ENCV2 文件（随机盐与 nonce），与非去重模式的加密强度相同。</li>
+ * </ul>
+ * 大文件可按内容定义分块存储（{@link #storeChunked}）：分块的数据密钥、标识密钥与 gear 表均由域密钥派生，
+ * 同一域内多次复制得到相同的分块与标识，文件修改后只有变化的分块需要加密写出。
+ */
+public class DedupStore {
+	private static final Logger LOG = LoggerFactory.getLogger(DedupStore.class);
+	public static final String STORE_DIR = ".objects";
+	private static final String DOMAIN_FILE = "domain";
+	private static final byte[] DOMAIN_MAGIC = "DEDUP1".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] REF_MAGIC = "ENCREF1\n".getBytes(StandardCharsets.US_ASCII);
+	// 指针文件中对象的相对路径：两位十六进制子目录 / 其余 62 位标识 .encrypted，见 objectPath
+	private static final Pattern REF_PATH = Pattern.compile("[0-9a-f]{2}/[0-9a-f]{62}" + Pattern.quote(EncryptionUtils.ENCRYPTED_FILE_SUFFIX));
+	private static final int SALT_LEN = 16;
+	/** 对象（整文件与分块）写盘耗时，每个对象一次；CopyService 按线程累计值拆分去重与分块复制的写入阶段。 */
+	public static final Metrics.Timer OBJECT_WRITE_TIME = Metrics.timer("DedupStore", "objectWrite");
+
+	private final Path storeDir;
+	private final byte[] domainKey;
+	private final char[] password;
+	private final VaultKey vault;
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong savedBytes = new AtomicLong();
+	private final AtomicLong chunksWritten = new AtomicLong();
+	private final AtomicLong chunksReused = new AtomicLong();
+	private final AtomicLong chunkBytesWritten = new AtomicLong();
+	// 分块：数据密钥（以保险库的方式派生每个对象的文件密钥）、标识密钥与 gear 表，首次分块时派生
+	private volatile Chunking chunking;
+
+	private DedupStore(Path storeDir, byte[] domainKey, char[] password, VaultKey vault) {
+		this.storeDir = storeDir;
+		this.domainKey = domainKey;
+		this.password = password;
+		this.vault = vault;
+	}
+
+	private static final class Chunking {
+		final byte[] keyId;
+		final byte[] dataKey;
+		final VaultKey objectKey;
+		final byte[] idKey;
+		final long[] gear;
+
+		Chunking(byte[] domainKey) throws GeneralSecurityException {
+			this.keyId = Arrays.copyOf(hmac(domainKey, "chunk-key-id".getBytes(StandardCharsets.US_ASCII)), VaultKey.ID_LEN);
+			this.dataKey = hmac(domainKey, "chunk-data-key".getBytes(StandardCharsets.US_ASCII));
+			this.objectKey = VaultKey.of(keyId, dataKey);
+			this.idKey = hmac(domainKey, "chunk-id-key".getBytes(StandardCharsets.US_ASCII));
+			this.gear = ContentChunker.gear(hmac(domainKey, "chunk-gear".getBytes(StandardCharsets.US_ASCII)));
+		}
+	}
+
+	/**
+	 * 打开（或创建）目标根目录下的去重存储，并校验密码与域匹配。
+	 */
+	public static DedupStore open(Path targetRoot, char[] password, VaultKey vault) throws IOException, GeneralSecurityException {
+		Path storeDir = targetRoot.resolve(STORE_DIR);
+		Files.createDirectories(storeDir.resolve("tmp"));
+		Path domainFile = storeDir.resolve(DOMAIN_FILE);
+		if (Files.isRegularFile(domainFile)) {
+			byte[] raw = Files.readAllBytes(domainFile);
+			if (raw.length != DOMAIN_MAGIC.length + SALT_LEN + 32
+					|| !Arrays.equals(Arrays.copyOf(raw, DOMAIN_MAGIC.length), DOMAIN_MAGIC)) {
+				throw new IOException("去重域文件已损坏: " + domainFile);
+			}
+			byte[] salt = Arrays.copyOfRange(raw, DOMAIN_MAGIC.length, DOMAIN_MAGIC.length + SALT_LEN);
+			byte[] check = Arrays.copyOfRange(raw, DOMAIN_MAGIC.length + SALT_LEN, raw.length);
+			byte[] key = domainKey(password, vault, salt);
+			if (!MessageDigest.isEqual(check, hmac(key, "check".getBytes(StandardCharsets.US_ASCII)))) {
+				throw new GeneralSecurityException("密码与已有去重存储不匹配: " + storeDir);
+			}
+			return new DedupStore(storeDir, key, password, vault);
+		}
+		byte[] salt = EncryptionUtils.randomBytes(SALT_LEN);
+		byte[] key = domainKey(password, vault, salt);
+		byte[] raw = new byte[DOMAIN_MAGIC.length + SALT_LEN + 32];
+		System.arraycopy(DOMAIN_MAGIC, 0, raw, 0, DOMAIN_MAGIC.length);
+		System.arraycopy(salt, 0, raw, DOMAIN_MAGIC.length, SALT_LEN);
+		System.arraycopy(hmac(key, "check".getBytes(StandardCharsets.US_ASCII)), 0, raw, DOMAIN_MAGIC.length + SALT_LEN, 32);
+		Files.write(domainFile, raw, StandardOpenOption.CREATE_NEW);
+		LOG.info("创建去重存储: {}", storeDir);
+		return new DedupStore(storeDir, key, password, vault);
+	}
+
+	private static byte[] domainKey(char[] password, VaultKey vault, byte[] salt) throws GeneralSecurityException {
+		if (vault == null) return EncryptionUtils.deriveKeyBytes(password, salt);
+		return hmac(vault.subKey("dedup-domain:"), salt);
+	}
+
+	/**
+	 * 读完明文并计算内容标识（第一遍，只做 HMAC，不加密、不写盘）。onBytes 按读取的明文字节数回调。
+	 */
+	public String contentId(InputStream plain, LongConsumer onBytes) throws IOException, GeneralSecurityException {
+		Mac mac = mac();
+		byte[] buf = new byte[64 * 1024];
+		int r;
+		while ((r = plain.read(buf)) != -1) {
+			mac.update(buf, 0, r);
+			if (onBytes != null) onBytes.accept(r);
+		}
+		return toHex(mac.doFinal());
+	}
+
+	/**
+	 * 标识对应的对象已存在时记为一次命中并返回对象路径，调用方无需再读取、加密源文件；否则返回 null。
+	 */
+	public Path lookup(String id) throws IOException {
+		Path object = objectPath(id);
+		if (!Files.isRegularFile(object)) return null;
+		hits.incrementAndGet();
+		savedBytes.addAndGet(Files.size(object));
+		return object;
+	}
+
+	/**
+	 * 未命中时的第二遍：加密写入临时对象并发布为标识 id 的对象，返回对象路径。加密时重新计算标识，
+	 * 与 id 不符（两遍之间源文件被修改）时放弃并抛出 IOException。
+	 */
+	public Path store(String id, InputStream plain, CompressionCodec codec, LongConsumer onBytes) throws IOException, GeneralSecurityException {
+		Mac mac = mac();
+		Path tmp = Files.createTempFile(storeDir.resolve("tmp"), "obj", ".tmp");
+		try {
+			CopyService.TimedOutputStream timed = new CopyService.TimedOutputStream(Files.newOutputStream(tmp, StandardOpenOption.TRUNCATE_EXISTING));
+			try (InputStream hashing = new MacInputStream(plain, mac);
+				 OutputStream out = timed) {
+				EncryptionUtils.encryptStream(hashing, out, password, vault, codec, onBytes);
+			} finally {
+				OBJECT_WRITE_TIME.record(timed.nanos);
+			}
+			if (!id.equals(toHex(mac.doFinal()))) throw new IOException("源文件在去重复制过程中被修改");
+			Path object = objectPath(id);
+			Files.createDirectories(object.getParent());
+			try {
+				Files.move(tmp, object, StandardCopyOption.ATOMIC_MOVE);
+			} catch (FileAlreadyExistsException raced) {
+				hits.incrementAndGet();
+			}
+			return object;
+		} finally {
+			Files.deleteIfExists(tmp);
+		}
+	}
+
+	private Mac mac() throws GeneralSecurityException {
+		Mac mac = Mac.getInstance("HmacSHA256");
+		mac.init(new SecretKeySpec(domainKey, "HmacSHA256"));
+		return mac;
+	}
+
+	/**
+	 * 让 target 引用对象：优先硬链接，不支持时写入指针文件。target 应为最终名对应的临时文件
+	 * （{@link Publisher#tempFor}），由调用方原子发布，最终名下不会出现被删除后尚未链接的空档。
+	 */
+	public void link(Path object, Path target) throws IOException {
+		Files.deleteIfExists(target);
+		try {
+			Files.createLink(target, object);
+		} catch (UnsupportedOperationException | FileSystemException e) {
+			LOG.debug("硬链接不可用，写入指针文件: {} - {}", target, e.toString());
+			String rel = storeDir.relativize(object).toString().replace('\\', '/');
+			byte[] ref = new byte[REF_MAGIC.length + rel.length()];
+			System.arraycopy(REF_MAGIC, 0, ref, 0, REF_MAGIC.length);
+			System.arraycopy(rel.getBytes(StandardCharsets.US_ASCII), 0, ref, REF_MAGIC.length, rel.length());
+			Files.write(target, ref);
+		}
+	}
+
+	/**
+	 * 按内容定义分块存储大文件（见 {@link ContentChunker}）：每个分块按标识查找对象，已存在则直接引用，
+	 * 只有新分块被加密写出（压缩按 codec）。返回分块清单，由调用方写入目标文件；整个文件只读一遍，
+	 * 未变化的分块只需计算标识。onBytes 按读取的明文字节数回调。
+	 */
+	public byte[] storeChunked(InputStream plain, CompressionCodec codec, LongConsumer onBytes) throws IOException, GeneralSecurityException {
+		Chunking c = chunking();
+		ContentChunker chunker = new ContentChunker(plain, c.gear);
+		List<ChunkList.Chunk> chunks = new ArrayList<>();
+		long size = 0;
+		byte[] chunk;
+		while ((chunk = chunker.next()) != null) {
+			byte[] id = ChunkList.id(c.idKey, chunk);
+			Path object = objectPath(storeDir, toHex(id));
+			if (Files.exists(object)) {
+				chunksReused.incrementAndGet();
+				savedBytes.addAndGet(chunk.length);
+			} else {
+				writeChunk(object, chunk, codec, c.objectKey);
+			}
+			chunks.add(new ChunkList.Chunk(id, chunk.length));
+			size += chunk.length;
+			if (onBytes != null) onBytes.accept(chunk.length);
+		}
+		return ChunkList.encode(c.keyId, c.dataKey, c.idKey, size, chunks, password, vault);
+	}
+
+	private void writeChunk(Path object, byte[] chunk, CompressionCodec codec, VaultKey objectKey) throws IOException, GeneralSecurityException {
+		Path tmp = Files.createTempFile(storeDir.resolve("tmp"), "chunk", ".tmp");
+		try {
+			CopyService.TimedOutputStream timed = new CopyService.TimedOutputStream(Files.newOutputStream(tmp, StandardOpenOption.TRUNCATE_EXISTING));
+			try (OutputStream out = timed) {
+				EncryptionUtils.encryptStream(new ByteArrayInputStream(chunk), out, null, objectKey, codec, null);
+			} finally {
+				OBJECT_WRITE_TIME.record(timed.nanos);
+			}
+			Files.createDirectories(object.getParent());
+			try {
+				Files.move(tmp, object, StandardCopyOption.ATOMIC_MOVE);
+				chunksWritten.incrementAndGet();
+				chunkBytesWritten.addAndGet(chunk.length);
+			} catch (FileAlreadyExistsException raced) {
+				chunksReused.incrementAndGet();
+			}
+		} finally {
+			Files.deleteIfExists(tmp);
+		}
+	}
+
+	private Chunking chunking() throws GeneralSecurityException {
+		Chunking c = chunking;
+		if (c == null) {
+			synchronized (this) {
+				c = chunking;
+				if (c == null) {
+					c = new Chunking(domainKey);
+					chunking = c;
+				}
+			}
+		}
+		return c;
+	}
+
+	public long hits() { return hits.get(); }
+
+	public long savedBytes() { return savedBytes.get(); }
+
+	public long chunksWritten() { return chunksWritten.get(); }
+
+	public long chunksReused() { return chunksReused.get(); }
+
+	public long chunkBytesWritten() { return chunkBytesWritten.get(); }
+
+	private Path objectPath(String id) {
+		return objectPath(storeDir, id);
+	}
+
+	static Path objectPath(Path storeDir, String id) {
+		return storeDir.resolve(id.substring(0, 2)).resolve(id.substring(2) + EncryptionUtils.ENCRYPTED_FILE_SUFFIX);
+	}
+
+	/** file 是否为 storeDir 中按标识命名的对象（不含域文件与临时文件）。 */
+	static boolean isObject(Path storeDir, Path file) {
+		return file.startsWith(storeDir) && REF_PATH.matcher(storeDir.relativize(file).toString().replace('\\', '/')).matches();
+	}
+
+	/**
+	 * 若 file 是指针文件，返回其指向的对象路径（向上查找 .objects）；否则原样返回。
+	 * 指针内容只接受对象路径的格式，且解析结果必须位于 .objects 之内，防止构造的指针文件读取目录树之外的文件。
+	 */
+	public static Path resolve(Path file) throws IOException {
+		if (!Files.isRegularFile(file) || Files.size(file) > 256) return file;
+		byte[] raw = Files.readAllBytes(file);
+		if (raw.length <= REF_MAGIC.length || !Arrays.equals(Arrays.copyOf(raw, REF_MAGIC.length), REF_MAGIC)) return file;
+		String rel = new String(raw, REF_MAGIC.length, raw.length - REF_MAGIC.length, StandardCharsets.US_ASCII).trim();
+		if (!REF_PATH.matcher(rel).matches()) throw new IOException("指针文件内容无效: " + file);
+		for (Path dir = file.toAbsolutePath().getParent(); dir != null; dir = dir.getParent()) {
+			Path store = dir.resolve(STORE_DIR).normalize();
+			Path object = store.resolve(rel).normalize();
+			if (!object.startsWith(store)) throw new IOException("指针文件内容无效: " + file);
+			if (Files.isRegularFile(object)) return object;
+		}
+		throw new IOException("去重对象不存在: " + rel);
+	}
+
+	/** file 所在目录向上最近的去重存储目录；找不到时抛出 IOException。 */
+	static Path storeFor(Path file) throws IOException {
+		for (Path dir = file.toAbsolutePath().getParent(); dir != null; dir = dir.getParent()) {
+			Path store = dir.resolve(STORE_DIR);
+			if (isStoreDirectory(store)) return store;
+		}
+		throw new IOException("未找到去重存储（" + STORE_DIR + "）: " + file);
+	}
+
+	public static boolean isStoreDirectory(Path dir) {
+		return dir.getFileName() != null && STORE_DIR.equals(dir.getFileName().toString())
+				&& Files.isRegularFile(dir.resolve(DOMAIN_FILE));
+	}
+
+	private static byte[] hmac(byte[] key, byte[] data) throws GeneralSecurityException {
+		Mac mac = Mac.getInstance("HmacSHA256");
+		mac.init(new SecretKeySpec(key, "HmacSHA256"));
+		return mac.doFinal(data);
+	}
+
+	static String toHex(byte[] bytes) {
+		StringBuilder sb = new StringBuilder(bytes.length * 2);
+		for (byte b : bytes) sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		return sb.toString();
+	}
+
+	/** 读取时同步更新 HMAC 的输入流。 */
+	private static final class MacInputStream extends FilterInputStream {
+		private final Mac mac;
+
+		MacInputStream(InputStream in, Mac mac) {
+			super(in);
+			this.mac = mac;
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			if (b >= 0) mac.update((byte) b);
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int n = super.read(b, off, len);
+			if (n > 0) mac.update(b, off, n);
+			return n;
+		}
+
+		@Override
+		public boolean markSupported() {
+			return false;
+		}
+	}
+}
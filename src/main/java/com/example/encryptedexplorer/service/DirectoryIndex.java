@@ -0,0 +1,222 @@
+package com.example.encryptedexplorer.service;
+
+import com.example.encryptedexplorer.util.ContentProbe;
+import com.example.encryptedexplorer.util.EncryptionUtils;
+import com.example.encryptedexplorer.util.FileUtilsEx;
+import com.example.encryptedexplorer.util.VaultKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 目录元数据索引（目录/.dir.idx）：加密复制时记录每个文件的原名、明文大小、修改时间、MIME 类型、
+ * 图片尺寸与内容摘要，整个索引加密为一个小文件。查看端每个目录只需一次读取与一次密钥派生即可
+ * 列出、排序并判断哪些是图片，不必逐个解密文件。
+ * <p>
+ * 索引项以目录内的实际名字（独立加密文件为 xxx.encrypted，打包成员为成员名）为键。
+ */
+public final class DirectoryIndex {
+	private static final Logger LOG = LoggerFactory.getLogger(DirectoryIndex.class);
+	public static final String INDEX_FILE = ".dir.idx";
+	private static final int VERSION = 1;
+	private static final int HASH_LEN = 32;
+
+	// 已载入索引缓存（目录 -> 索引），LRU 64
+	private static final Map<Path, DirectoryIndex> CACHE = Collections.synchronizedMap(new LinkedHashMap<Path, DirectoryIndex>(16, 0.75f, true) {
+		@Override protected boolean removeEldestEntry(Map.Entry<Path, DirectoryIndex> eldest) { return size() > 64; }
+	});
+
+	/** 索引项。width/height 未知时为 -1；sha256 未计算时（如拆分并行加密的大文件）为 null。 */
+	public static final class Entry {
+		public final String name;
+		public final String originalName;
+		public final long size;
+		public final long lastModified;
+		public final String mimeType;
+		public final int width;
+		public final int height;
+		public final byte[] sha256;
+
+		public Entry(String name, String originalName, long size, long lastModified, String mimeType, int width, int height, byte[] sha256) {
+			this.name = name;
+			this.originalName = originalName;
+			this.size = size;
+			this.lastModified = lastModified;
+			this.mimeType = mimeType != null ? mimeType : ContentProbe.OCTET_STREAM;
+			this.width = width;
+			this.height = height;
+			this.sha256 = sha256;
+		}
+
+		/**
+		 * 由明文开头字节推断类型与尺寸生成索引项。
+		 */
+		static Entry describe(String name, String originalName, long size, long lastModified, byte[] head, byte[] sha256) {
+			String mime = ContentProbe.mimeType(originalName, head);
+			int[] dims = ContentProbe.isImageType(mime) ? ContentProbe.imageSize(head) : null;
+			return new Entry(name, originalName, size, lastModified, mime, dims != null ? dims[0] : -1, dims != null ? dims[1] : -1, sha256);
+		}
+
+		public boolean isImage() {
+			return ContentProbe.isImageType(mimeType);
+		}
+	}
+
+	private final Path directory;
+	private final Map<String, Entry> entries;
+	private final char[] password;
+	private final long indexModified;
+
+	private DirectoryIndex(Path directory, Map<String, Entry> entries, char[] password, long indexModified) {
+		this.directory = directory;
+		this.entries = entries;
+		this.password = password;
+		this.indexModified = indexModified;
+	}
+
+	public static Path indexFileFor(Path directory) {
+		return directory.resolve(INDEX_FILE);
+	}
+
+	/** 索引文件及其临时文件，复制与浏览时不作为普通文件处理。 */
+	public static boolean isIndexFile(String name) {
+		return INDEX_FILE.equals(name) || (INDEX_FILE + ".tmp").equals(name);
+	}
+
+	public static boolean hasIndex(Path directory) {
+		return directory != null && Files.isRegularFile(indexFileFor(directory));
+	}
+
+	/**
+	 * 取得目录的元数据索引（带缓存）；目录无索引时返回 null。
+	 */
+	public static DirectoryIndex forDirectory(Path directory, char[] password) throws IOException, GeneralSecurityException {
+		if (!hasIndex(directory)) return null;
+		long modified = Files.getLastModifiedTime(indexFileFor(directory)).toMillis();
+		DirectoryIndex cached = CACHE.get(directory);
+		if (cached != null && cached.indexModified == modified && Arrays.equals(cached.password, password)) {
+			return cached;
+		}
+		DirectoryIndex loaded = load(directory, password, Vault.locate(directory, password));
+		CACHE.put(directory, loaded);
+		return loaded;
+	}
+
+	/** 清零并丢弃已载入索引的密码副本（见 {@link SecretCaches}）。 */
+	static void clearCache() {
+		synchronized (CACHE) {
+			for (DirectoryIndex index : CACHE.values()) Arrays.fill(index.password, '\0');
+			CACHE.clear();
+		}
+	}
+
+	static DirectoryIndex load(Path directory, char[] password, VaultKey vault) throws IOException, GeneralSecurityException {
+		Path indexFile = indexFileFor(directory);
+		long t0 = System.nanoTime();
+		long modified = Files.getLastModifiedTime(indexFile).toMillis();
+		byte[] plain = EncryptionUtils.decryptBytes(Files.readAllBytes(indexFile), password, vault);
+		try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(plain))) {
+			int version = in.readInt();
+			if (version != VERSION) throw new IOException("不支持的目录索引版本: " + version);
+			int count = in.readInt();
+			Map<String, Entry> entries = new LinkedHashMap<>(Math.max(16, count * 2));
+			for (int i = 0; i < count; i++) {
+				String name = in.readUTF();
+				String originalName = in.readUTF();
+				long size = in.readLong();
+				long lastModified = in.readLong();
+				String mime = in.readUTF();
+				int width = in.readInt();
+				int height = in.readInt();
+				byte[] hash = null;
+				if (in.readBoolean()) {
+					hash = new byte[HASH_LEN];
+					in.readFully(hash);
+				}
+				entries.put(name, new Entry(name, originalName, size, lastModified, mime, width, height, hash));
+			}
+			LOG.debug("载入目录索引: {} 条目={} 耗时={}ms", indexFile, entries.size(), (System.nanoTime() - t0) / 1_000_000);
+			return new DirectoryIndex(directory, entries, password != null ? password.clone() : new char[0], modified);
+		} catch (EOFException e) {
+			throw new IOException("目录索引已损坏: " + indexFile, e);
+		}
+	}
+
+	/**
+	 * 将本次写入的条目合并进目录已有索引（同名覆盖），并移除目录中已不存在的文件的条目。
+	 * 已有索引无法解密（如换了密码）时重建。durable 为真时临时文件 fsync 后原子替换。
+	 */
+	static void update(Path directory, Collection<Entry> updates, char[] password, VaultKey vault, boolean durable) throws IOException, GeneralSecurityException {
+		Map<String, Entry> merged = new LinkedHashMap<>();
+		if (hasIndex(directory)) {
+			try {
+				merged.putAll(load(directory, password, vault).entries);
+			} catch (IOException | GeneralSecurityException e) {
+				LOG.warn("已有目录索引无法读取，将重建: {} - {}", directory, e.toString());
+			}
+		}
+		PackReader pack = PackReader.hasPack(directory) ? PackReader.forDirectory(directory, password) : null;
+		merged.values().removeIf(e -> !Files.exists(directory.resolve(e.name)) && (pack == null || !pack.contains(e.name)));
+		for (Entry e : updates) merged.put(e.name, e);
+
+		byte[] sealed = EncryptionUtils.encryptBytes(serialize(merged), password, vault);
+		Path indexFile = indexFileFor(directory);
+		Path tmp = indexFile.resolveSibling(INDEX_FILE + ".tmp");
+		Files.write(tmp, sealed);
+		if (durable) {
+			FileUtilsEx.force(tmp);
+			Files.move(tmp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			FileUtilsEx.forceDirectory(directory);
+		} else {
+			Files.move(tmp, indexFile, StandardCopyOption.REPLACE_EXISTING);
+		}
+		CACHE.remove(directory);
+		LOG.debug("写入目录索引: {} 条目={} 本次={}", indexFile, merged.size(), updates.size());
+	}
+
+	private static byte[] serialize(Map<String, Entry> entries) throws IOException {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream(16 + entries.size() * 96);
+		try (DataOutputStream out = new DataOutputStream(bos)) {
+			out.writeInt(VERSION);
+			out.writeInt(entries.size());
+			for (Entry e : entries.values()) {
+				out.writeUTF(e.name);
+				out.writeUTF(e.originalName);
+				out.writeLong(e.size);
+				out.writeLong(e.lastModified);
+				out.writeUTF(e.mimeType);
+				out.writeInt(e.width);
+				out.writeInt(e.height);
+				out.writeBoolean(e.sha256 != null);
+				if (e.sha256 != null) out.write(e.sha256);
+			}
+		}
+		return bos.toByteArray();
+	}
+
+	public Path directory() { return directory; }
+
+	public Entry entry(String name) { return entries.get(name); }
+
+	public int size() { return entries.size(); }
+
+	/** 按写入顺序列出全部条目。 */
+	public List<Entry> entries() { return new ArrayList<>(entries.values()); }
+}
@@ -0,0 +1,374 @@
+package com.example.encryptedexplorer.service;
+
+import com.example.encryptedexplorer.model.ConflictPolicy;
+import com.example.encryptedexplorer.model.CopyOptions;
+import com.example.encryptedexplorer.model.ErrorDecision;
+import com.example.encryptedexplorer.model.Resolution;
+import com.example.encryptedexplorer.util.EncryptionUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 监视目录：基于 WatchService 监听源目录树的新建、修改与改名，去抖合并后只加密受影响的文件，
+ * 目标命名与 {@link CopyService#copyDirectory} 完全一致。定期对账扫描补上丢失的事件（含 OVERFLOW）。
+ *
+ * 监听线程在没有待处理文件时阻塞等待事件或下一次对账，空闲时几乎不占 CPU；加密在单独的工作线程中顺序执行。
+ */
+public class FolderWatcher implements Closeable {
+	private static final Logger LOG = LoggerFactory.getLogger(FolderWatcher.class);
+
+	public interface Listener {
+		void onBatch(int files);
+		void onEncrypted(Path source);
+		void onError(Path source, Exception error);
+		void onReconciled(int queued);
+	}
+
+	/** 待处理文件：最近一次事件时间与当时观察到的大小、修改时间，用于判断写入是否已稳定。 */
+	private static final class Pending {
+		long lastEventNanos;
+		long size = -1;
+		long modified = -1;
+	}
+
+	private final CopyOptions options;
+	private final long debounceNanos;
+	private final long reconcileNanos;
+	private final Listener listener;
+	private final CopyService copyService = new CopyService();
+	private final Map<WatchKey, Path> keys = new HashMap<>();
+	private final Map<Path, Pending> pending = new HashMap<>();
+	// 源文件 -> 已加密时的修改时间，对账时据此跳过未变化的文件
+	private final Map<Path, Long> processed = new ConcurrentHashMap<>();
+	private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+		Thread t = new Thread(r, "watch-encrypt");
+		t.setDaemon(true);
+		return t;
+	});
+	private volatile boolean running = true;
+	private WatchService watcher;
+
+	public FolderWatcher(CopyOptions options, long debounceMillis, long reconcileMillis, Listener listener) {
+		if (!options.encryptFiles) throw new IllegalArgumentException("监视目录只支持加密模式");
+		if (debounceMillis < 0 || reconcileMillis <= 0) throw new IllegalArgumentException("去抖或对账间隔不合法");
+		options.validate();
+		// 源文件变化后总是覆盖旧密文，不使用批量冲突策略
+		options.conflictPolicy = ConflictPolicy.OVERWRITE;
+		this.options = options;
+		this.debounceNanos = TimeUnit.MILLISECONDS.toNanos(debounceMillis);
+		this.reconcileNanos = TimeUnit.MILLISECONDS.toNanos(reconcileMillis);
+		this.listener = listener;
+	}
+
+	/**
+	 * 运行监视循环，直到 {@link #close()} 被调用。启动时先做一次对账，补齐上次停止期间的变化。
+	 */
+	public void run() throws IOException {
+		Path src = options.sourceDirectory;
+		synchronized (this) {
+			if (!running) return;
+			watcher = src.getFileSystem().newWatchService();
+		}
+		// 监视期间持续使用同一组名称会话与保险库密钥，停止后才允许清理
+		SecretCaches.enter();
+		try {
+			watch(src);
+		} finally {
+			SecretCaches.exit();
+		}
+	}
+
+	private void watch(Path src) throws IOException {
+		registerAll(src);
+		LOG.info("开始监视: {} -> {} (去抖={}ms, 对账={}s)", src, options.targetDirectory,
+				TimeUnit.NANOSECONDS.toMillis(debounceNanos), TimeUnit.NANOSECONDS.toSeconds(reconcileNanos));
+		reconcile();
+		long nextReconcile = System.nanoTime() + reconcileNanos;
+		try {
+			while (running) {
+				long now = System.nanoTime();
+				long deadline = Math.min(nextReconcile, nextPendingDeadline());
+				WatchKey key = deadline <= now ? watcher.poll() : watcher.poll(deadline - now, TimeUnit.NANOSECONDS);
+				if (key != null) {
+					if (handleEvents(key)) nextReconcile = System.nanoTime();
+				}
+				flushDue();
+				if (System.nanoTime() >= nextReconcile) {
+					reconcile();
+					nextReconcile = System.nanoTime() + reconcileNanos;
+				}
+			}
+		} catch (ClosedWatchServiceException closed) {
+			// close() 已调用
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			worker.shutdown();
+			try {
+				worker.awaitTermination(1, TimeUnit.MINUTES);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			LOG.info("停止监视: {}", src);
+		}
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		running = false;
+		if (watcher != null) watcher.close();
+	}
+
+	/** 返回 true 表示发生了事件溢出，需要立即对账。 */
+	private boolean handleEvents(WatchKey key) {
+		Path dir = keys.get(key);
+		boolean overflow = false;
+		for (WatchEvent<?> event : key.pollEvents()) {
+			if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+				LOG.warn("监视事件溢出，将立即对账: {}", dir);
+				overflow = true;
+				continue;
+			}
+			if (dir == null) continue;
+			Path path = dir.resolve((Path) event.context());
+			if (isIgnored(path)) continue;
+			if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+				pending.remove(path);
+				processed.remove(path);
+			} else if (Files.isDirectory(path)) {
+				// 新建或移入的目录：注册并把其中已有文件全部排队
+				if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+					try {
+						registerAll(path);
+						enqueueTree(path);
+					} catch (IOException e) {
+						LOG.warn("注册目录失败: {} - {}", path, e.toString());
+					}
+				}
+			} else {
+				touch(path);
+			}
+		}
+		if (!key.reset()) keys.remove(key);
+		return overflow;
+	}
+
+	private void touch(Path path) {
+		Pending p = pending.computeIfAbsent(path, k -> new Pending());
+		p.lastEventNanos = System.nanoTime();
+		try {
+			BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+			p.size = attrs.size();
+			p.modified = attrs.lastModifiedTime().toMillis();
+		} catch (IOException ignored) {
+			// 到期时再判断
+		}
+	}
+
+	private long nextPendingDeadline() {
+		long earliest = Long.MAX_VALUE;
+		for (Pending p : pending.values()) earliest = Math.min(earliest, p.lastEventNanos + debounceNanos);
+		return earliest;
+	}
+
+	/**
+	 * 去抖到期的文件：大小与修改时间自上次观察后未变化才提交加密，否则继续等待。
+	 */
+	private void flushDue() {
+		long now = System.nanoTime();
+		List<Path> batch = new ArrayList<>();
+		for (Iterator<Map.Entry<Path, Pending>> it = pending.entrySet().iterator(); it.hasNext(); ) {
+			Map.Entry<Path, Pending> e = it.next();
+			Pending p = e.getValue();
+			if (p.lastEventNanos + debounceNanos > now) continue;
+			BasicFileAttributes attrs;
+			try {
+				attrs = Files.readAttributes(e.getKey(), BasicFileAttributes.class);
+			} catch (IOException gone) {
+				it.remove();
+				continue;
+			}
+			if (!attrs.isRegularFile()) {
+				it.remove();
+				continue;
+			}
+			long modified = attrs.lastModifiedTime().toMillis();
+			if (attrs.size() != p.size || modified != p.modified) {
+				p.size = attrs.size();
+				p.modified = modified;
+				p.lastEventNanos = now;
+				if (debounceNanos > 0) continue;
+			}
+			it.remove();
+			batch.add(e.getKey());
+		}
+		if (!batch.isEmpty()) submit(batch);
+	}
+
+	private void submit(List<Path> batch) {
+		LOG.info("增量加密: {} 个文件", batch.size());
+		listener.onBatch(batch.size());
+		worker.execute(() -> {
+			try {
+				copyService.copyFiles(options, batch, new CopyService.Callbacks() {
+					@Override
+					public Resolution onConflict(Path targetPath) {
+						return Resolution.REPLACE; // 源文件已变化，覆盖旧密文
+					}
+
+					@Override
+					public ErrorDecision onError(Path sourcePath, Exception error) {
+						listener.onError(sourcePath, error);
+						return ErrorDecision.SKIP; // 下一次对账会重试
+					}
+
+					@Override
+					public void onProgress(String currentFile, long copiedBytes, long totalBytes) {}
+
+					@Override
+					public void onLog(String message) {
+						LOG.debug(message);
+					}
+
+					@Override
+					public void onFileCompleted(Path sourcePath, long bytes) {
+						try {
+							processed.put(sourcePath, Files.getLastModifiedTime(sourcePath).toMillis());
+						} catch (IOException ignored) {
+							// 已被删除，下一次事件或对账处理
+						}
+						listener.onEncrypted(sourcePath);
+					}
+
+					@Override
+					public boolean isCancelled() {
+						return !running;
+					}
+				});
+			} catch (IOException | RuntimeException e) {
+				LOG.warn("增量加密失败: {}", e.toString());
+				listener.onError(options.sourceDirectory, e);
+			}
+		});
+	}
+
+	/**
+	 * 对账扫描：源文件与已处理记录（首次则与目标文件修改时间）比较，把变化或缺失的文件立即排队。
+	 */
+	private void reconcile() throws IOException {
+		long dueNow = System.nanoTime() - debounceNanos;
+		int[] queued = {0};
+		Files.walkFileTree(options.sourceDirectory, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+				return isIgnored(dir) ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+				if (!attrs.isRegularFile() || isIgnored(file) || pending.containsKey(file)) return FileVisitResult.CONTINUE;
+				long modified = attrs.lastModifiedTime().toMillis();
+				Long done = processed.get(file);
+				if (done != null && done == modified) return FileVisitResult.CONTINUE;
+				if (done == null && isTargetUpToDate(file, attrs)) {
+					processed.put(file, modified);
+					return FileVisitResult.CONTINUE;
+				}
+				Pending p = new Pending();
+				p.lastEventNanos = dueNow;
+				p.size = attrs.size();
+				p.modified = modified;
+				pending.put(file, p);
+				queued[0]++;
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFileFailed(Path file, IOException exc) {
+				return FileVisitResult.CONTINUE;
+			}
+		});
+		LOG.debug("对账完成: 排队 {} 个文件", queued[0]);
+		listener.onReconciled(queued[0]);
+		flushDue();
+	}
+
+	private boolean isTargetUpToDate(Path source, BasicFileAttributes attrs) {
+		try {
+			Path target = copyService.targetPathFor(source, options);
+			long modified = attrs.lastModifiedTime().toMillis();
+			if (options.packSmallFiles && attrs.size() < options.packThresholdBytes) {
+				PackReader pack = PackReader.forDirectory(target.getParent(), options.password);
+				PackReader.Entry entry = pack != null ? pack.entry(target.getFileName().toString()) : null;
+				if (entry != null) return entry.lastModified >= modified;
+			}
+			Path encrypted = target.resolveSibling(EncryptionUtils.toEncryptedFileName(target.getFileName().toString()));
+			return Files.isRegularFile(encrypted) && Files.getLastModifiedTime(encrypted).toMillis() >= modified;
+		} catch (NoSuchFileException e) {
+			return false;
+		} catch (Exception e) {
+			LOG.debug("判断目标状态失败: {} - {}", source, e.toString());
+			return false;
+		}
+	}
+
+	private void enqueueTree(Path dir) throws IOException {
+		try (Stream<Path> files = Files.walk(dir)) {
+			files.filter(Files::isRegularFile).filter(p -> !isIgnored(p)).forEach(this::touch);
+		}
+	}
+
+	private void registerAll(Path root) throws IOException {
+		Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+				if (isIgnored(dir)) return FileVisitResult.SKIP_SUBTREE;
+				WatchKey key = dir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+						StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+				keys.put(key, dir);
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFileFailed(Path file, IOException exc) {
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+
+	/**
+	 * 忽略目标目录（位于源目录内时）以及常见的临时/未完成文件。
+	 */
+	private boolean isIgnored(Path path) {
+		if (path.startsWith(options.targetDirectory)) return true;
+		Path name = path.getFileName();
+		if (name == null) return false;
+		String n = name.toString().toLowerCase();
+		return n.endsWith(".tmp") || n.endsWith(".part") || n.endsWith(".crdownload") || n.endsWith("~")
+				|| n.startsWith("~$") || n.startsWith(".~");
+	}
+}
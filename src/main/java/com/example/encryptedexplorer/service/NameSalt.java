@@ -0,0 +1,102 @@
+package com.example.encryptedexplorer.service;
+
+import com.example.encryptedexplorer.util.EncryptionUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * 目录树的名称盐（根目录/.namesalt）：魔数 + 随机盐(16)。不在保险库内时，名称密钥（SIV 名称与目录短名，
+ * 见 {@link com.example.encryptedexplorer.util.NameCipher}）以此盐派生，不同目录树之间同名目录的短名与密文互不相同。
+ * 盐本身不保密。只在新的（尚无加密目录的）目标根目录创建；没有盐的旧目录树沿用旧版固定盐，已有名称保持不变。
+ */
+public final class NameSalt {
+	private static final Logger LOG = LoggerFactory.getLogger(NameSalt.class);
+	public static final String FILE_NAME = ".namesalt";
+	private static final byte[] MAGIC = "ENCNAMES1".getBytes(StandardCharsets.US_ASCII);
+	private static final int SALT_LEN = 16;
+
+	// 目录 -> 所属目录树的名称盐（无则 empty），LRU 1024
+	private static final Map<Path, Optional<byte[]>> LOCATED = Collections.synchronizedMap(new LinkedHashMap<Path, Optional<byte[]>>(64, 0.75f, true) {
+		@Override protected boolean removeEldestEntry(Map.Entry<Path, Optional<byte[]>> eldest) { return size() > 1024; }
+	});
+
+	private NameSalt() {}
+
+	public static boolean isSaltFile(String name) {
+		return FILE_NAME.equals(name);
+	}
+
+	/** 读取根目录的名称盐；没有时返回 null。 */
+	public static byte[] read(Path root) throws IOException {
+		Path file = root.resolve(FILE_NAME);
+		if (!Files.isRegularFile(file)) return null;
+		byte[] raw = Files.readAllBytes(file);
+		if (raw.length != MAGIC.length + SALT_LEN || !Arrays.equals(Arrays.copyOf(raw, MAGIC.length), MAGIC)) {
+			throw new IOException("名称盐文件已损坏: " + file);
+		}
+		return Arrays.copyOfRange(raw, MAGIC.length, raw.length);
+	}
+
+	/**
+	 * 读取根目录的名称盐；没有且根目录中还没有加密目录（为空或只有以 . 开头的内部文件）时创建。
+	 * 旧目录树返回 null，继续使用旧版固定盐。
+	 */
+	public static byte[] openOrCreate(Path root) throws IOException {
+		byte[] salt = read(root);
+		if (salt != null || !isFresh(root)) return salt;
+		salt = EncryptionUtils.randomBytes(SALT_LEN);
+		byte[] raw = Arrays.copyOf(MAGIC, MAGIC.length + SALT_LEN);
+		System.arraycopy(salt, 0, raw, MAGIC.length, SALT_LEN);
+		try {
+			Files.write(root.resolve(FILE_NAME), raw, StandardOpenOption.CREATE_NEW);
+		} catch (FileAlreadyExistsException raced) {
+			return read(root);
+		}
+		LOG.info("创建名称盐: {}", root);
+		LOCATED.clear();
+		return salt;
+	}
+
+	/** 查找 dir 自身或上级目录中的名称盐；不在带盐的目录树内返回 null。 */
+	public static byte[] locate(Path dir) throws IOException {
+		if (dir == null) return null;
+		Path start = dir.toAbsolutePath().normalize();
+		Optional<byte[]> found = LOCATED.get(start);
+		if (found == null) {
+			found = Optional.empty();
+			for (Path p = start; p != null; p = p.getParent()) {
+				byte[] salt = read(p);
+				if (salt != null) {
+					found = Optional.of(salt);
+					break;
+				}
+			}
+			LOCATED.put(start, found);
+		}
+		return found.map(byte[]::clone).orElse(null);
+	}
+
+	/** 加密目录短名只由 Base64URL 字符组成，不以 . 开头；根目录中只有 . 开头的条目说明还没有写入过加密目录。 */
+	private static boolean isFresh(Path root) throws IOException {
+		if (!Files.isDirectory(root)) return true;
+		try (DirectoryStream<Path> entries = Files.newDirectoryStream(root)) {
+			for (Path entry : entries) {
+				if (!entry.getFileName().toString().startsWith(".")) return false;
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,139 @@
+package com.example.encryptedexplorer.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 去重存储（.objects/）的标记-清除：整文件对象以硬链接计数（指针文件另行解析）判断是否仍被引用，
+ * 分块对象以目录树中全部分块清单为根标记；未被引用的对象与残留的临时文件被删除。
+ * <p>
+ * 分块清单需以密码（或保险库）解密，任何一个清单无法读取时中止且不删除任何对象，避免误删仍被引用的分块。
+ * 文件系统不提供硬链接计数（如 Windows）时同样中止。清理期间不应有复制任务写入同一目标。
+ */
+public final class ObjectCollector {
+	private static final Logger LOG = LoggerFactory.getLogger(ObjectCollector.class);
+
+	/** 清理结果。 */
+	public static final class Report {
+		public long objects;
+		public long chunkLists;
+		public long removed;
+		public long removedBytes;
+		public long tempFiles;
+	}
+
+	private ObjectCollector() {}
+
+	/**
+	 * 清理 targetRoot 下的去重存储；dryRun 时只统计不删除。targetRoot 没有去重存储时返回空结果。
+	 * 密码与去重域不匹配时抛出 GeneralSecurityException。
+	 */
+	public static Report collect(Path targetRoot, char[] password, boolean dryRun) throws IOException, GeneralSecurityException {
+		SecretCaches.enter();
+		try {
+			return collectTree(targetRoot.toAbsolutePath().normalize(), password, dryRun);
+		} finally {
+			SecretCaches.exit();
+		}
+	}
+
+	private static Report collectTree(Path root, char[] password, boolean dryRun) throws IOException, GeneralSecurityException {
+		Report report = new Report();
+		Path storeDir = root.resolve(DedupStore.STORE_DIR);
+		if (!DedupStore.isStoreDirectory(storeDir)) return report;
+		DedupStore.open(root, password, Vault.locate(root, password));
+
+		// 标记：指针文件指向的对象与分块清单引用的分块
+		Set<Path> reachable = new HashSet<>();
+		Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+				return dir.equals(storeDir) ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+				if (!attrs.isRegularFile()) return FileVisitResult.CONTINUE;
+				if (ChunkList.isChunkList(file)) {
+					try {
+						reachable.addAll(ChunkList.read(file, password, Vault.locate(file.getParent(), password)).objects());
+					} catch (GeneralSecurityException e) {
+						throw new IOException("无法读取分块清单，已中止清理: " + file, e);
+					}
+					report.chunkLists++;
+				} else {
+					try {
+						Path object = DedupStore.resolve(file);
+						if (!object.equals(file)) reachable.add(object.toAbsolutePath().normalize());
+					} catch (IOException e) {
+						LOG.warn("忽略无效的指针文件: {} - {}", file, e.toString());
+					}
+				}
+				return FileVisitResult.CONTINUE;
+			}
+		});
+
+		// 清除：未被标记且没有其他硬链接的对象
+		List<Path> objects;
+		try (Stream<Path> s = Files.walk(storeDir)) {
+			objects = s.filter(p -> DedupStore.isObject(storeDir, p) && Files.isRegularFile(p)).collect(Collectors.toList());
+		}
+		for (Path object : objects) {
+			report.objects++;
+			if (reachable.contains(object) || linkCount(object) > 1) continue;
+			long size = Files.size(object);
+			if (!dryRun) Files.delete(object);
+			report.removed++;
+			report.removedBytes += size;
+		}
+		Path tmp = storeDir.resolve("tmp");
+		if (Files.isDirectory(tmp)) {
+			try (DirectoryStream<Path> files = Files.newDirectoryStream(tmp)) {
+				for (Path f : files) {
+					if (!dryRun) Files.deleteIfExists(f);
+					report.tempFiles++;
+				}
+			}
+		}
+		if (!dryRun) removeEmptyDirectories(storeDir, tmp);
+		LOG.info("去重存储清理{}: {} 对象={} 清单={} 删除={} ({} 字节) 临时文件={}", dryRun ? "(预演)" : "", storeDir,
+				report.objects, report.chunkLists, report.removed, report.removedBytes, report.tempFiles);
+		return report;
+	}
+
+	private static int linkCount(Path object) throws IOException {
+		try {
+			return ((Number) Files.getAttribute(object, "unix:nlink")).intValue();
+		} catch (UnsupportedOperationException | IllegalArgumentException e) {
+			throw new IOException("文件系统不提供硬链接计数，无法确认对象是否仍被引用: " + object, e);
+		}
+	}
+
+	private static void removeEmptyDirectories(Path storeDir, Path keep) throws IOException {
+		List<Path> dirs = new ArrayList<>();
+		try (DirectoryStream<Path> entries = Files.newDirectoryStream(storeDir, Files::isDirectory)) {
+			for (Path d : entries) if (!d.equals(keep)) dirs.add(d);
+		}
+		for (Path d : dirs) {
+			try (DirectoryStream<Path> entries = Files.newDirectoryStream(d)) {
+				if (entries.iterator().hasNext()) continue;
+			}
+			Files.deleteIfExists(d);
+		}
+	}
+}
@@ -0,0 +1,208 @@
+package com.example.encryptedexplorer.service;
+
+import com.example.encryptedexplorer.model.CopyOptions;
+import com.example.encryptedexplorer.model.ErrorDecision;
+import com.example.encryptedexplorer.model.Resolution;
+import com.example.encryptedexplorer.util.ContentProbe;
+import com.example.encryptedexplorer.util.EncryptionUtils;
+import com.example.encryptedexplorer.util.FileUtilsEx;
+import com.example.encryptedexplorer.util.Tracing;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 复制任务中的打包路径：加密时把小文件追加到目标目录的打包段（每个目标目录一个 {@link PackWriter}，
+ * 目录访问结束时写出索引），解密时按打包索引展开成员。只在遍历线程中使用。
+ */
+final class PackCopier {
+	private static final Logger LOG = LoggerFactory.getLogger(PackCopier.class);
+
+	private final CopyService.Job job;
+	private final Map<Path, PackWriter> packs = new HashMap<>();
+
+	PackCopier(CopyService.Job job) {
+		this.job = job;
+	}
+
+	/**
+	 * 把一个小文件追加到 targetFile 所在目录的打包段，含冲突与错误处理。开启追踪时整个处理过程为一个
+	 * 模式为 pack 的文件复制事件；段写入经缓冲，与封装一起计入加解密阶段。
+	 */
+	FileVisitResult packFile(Path file, BasicFileAttributes attrs, Path targetFile) {
+		Tracing.FileCopyEvent trace = Tracing.fileCopy();
+		CopyService.Stages stages = new CopyService.Stages();
+		stages.size = attrs.size();
+		try {
+			return packOne(file, attrs, targetFile, stages);
+		} finally {
+			stages.complete(trace, file);
+		}
+	}
+
+	private FileVisitResult packOne(Path file, BasicFileAttributes attrs, Path targetFile, CopyService.Stages stages) {
+		CopyOptions options = job.options;
+		CopyService.Callbacks callbacks = job.callbacks;
+		Path targetDir = targetFile.getParent();
+		String name = targetFile.getFileName().toString();
+		while (true) {
+			try {
+				Files.createDirectories(targetDir);
+				PackWriter writer = packs.get(targetDir);
+				if (writer == null) {
+					writer = PackWriter.open(targetDir, options.password, options.packSegmentBytes, options.durable);
+					packs.put(targetDir, writer);
+				}
+				Path sibling = targetDir.resolve(EncryptionUtils.toEncryptedFileName(name));
+				PackReader.Entry member = writer.entry(name);
+				if (member != null || Files.exists(sibling)) {
+					PackWriter w = writer;
+					ConflictResolver.Side current = member != null
+							? ConflictResolver.member(member, writtenMember(targetDir, member, options.password))
+							: job.conflicts.existing(sibling);
+					ConflictResolver.Outcome outcome = job.conflicts.resolve(targetDir.resolve(name), member != null ? targetFile : sibling,
+							job.conflicts.source(file), current,
+							p -> w.contains(p.getFileName().toString())
+									|| Files.exists(p.resolveSibling(EncryptionUtils.toEncryptedFileName(p.getFileName().toString()))));
+					LOG.info("冲突(打包): {} 策略={} 决策={}", targetFile, options.conflictPolicy, outcome.resolution);
+					if (outcome.resolution == Resolution.CANCEL) return FileVisitResult.TERMINATE;
+					if (outcome.resolution == Resolution.SKIP) {
+						callbacks.onLog("跳过已存在文件: " + targetFile);
+						return FileVisitResult.CONTINUE;
+					}
+					if (!outcome.target.getFileName().toString().equals(name)) {
+						name = outcome.target.getFileName().toString();
+						continue;
+					}
+					// 覆盖独立加密文件：删除旧文件，避免与打包成员同名
+					Files.deleteIfExists(sibling);
+				}
+				stages.start("pack");
+				job.io.charge(attrs.size());
+				long t0 = System.nanoTime();
+				byte[] plain = Files.readAllBytes(file);
+				stages.read = System.nanoTime() - t0;
+				writer.add(name, plain, attrs.lastModifiedTime().toMillis());
+				stages.finish();
+				if (job.indexed != null) {
+					job.index(targetDir.resolve(name), file, plain.length, Arrays.copyOf(plain, Math.min(plain.length, ContentProbe.HEAD_BYTES)), ContentProbe.sha256(plain));
+				}
+				if (job.thumbnails != null && FileUtilsEx.isImageFile(file)) job.thumbnail(targetDir.resolve(name), plain);
+				job.searchable(file, targetDir.resolve(name), false);
+				job.progress(file, plain.length);
+				callbacks.onLog("已打包: " + targetDir.resolve(name));
+				callbacks.onFileCompleted(file, plain.length);
+				return FileVisitResult.CONTINUE;
+			} catch (GeneralSecurityException | IOException e) {
+				ErrorDecision d = callbacks.onError(file, e);
+				LOG.warn("打包失败: {} - {} 决策={}", file, e.toString(), d);
+				if (d == ErrorDecision.CANCEL) return FileVisitResult.TERMINATE;
+				if (d == ErrorDecision.SKIP) return FileVisitResult.CONTINUE;
+			}
+		}
+	}
+
+	/**
+	 * 已写出索引的打包成员对应的读取器（用于内容比较）；本次新追加、尚未写出索引的成员返回 null。
+	 */
+	private static PackReader writtenMember(Path dir, PackReader.Entry entry, char[] password) {
+		try {
+			PackReader pack = PackReader.forDirectory(dir, password);
+			PackReader.Entry written = pack != null ? pack.entry(entry.name) : null;
+			return written != null && written.segment == entry.segment && written.offset == entry.offset ? pack : null;
+		} catch (IOException | GeneralSecurityException e) {
+			return null;
+		}
+	}
+
+	/** 按打包索引把 sourceDir 中的成员解密到 targetDir，含冲突与错误处理。 */
+	FileVisitResult extractPack(Path sourceDir, Path targetDir) {
+		CopyOptions options = job.options;
+		CopyService.Callbacks callbacks = job.callbacks;
+		PackReader pack;
+		while (true) {
+			try {
+				pack = PackReader.load(sourceDir, options.password);
+				Files.createDirectories(targetDir);
+				break;
+			} catch (GeneralSecurityException | IOException e) {
+				ErrorDecision d = callbacks.onError(PackReader.indexFileFor(sourceDir), e);
+				LOG.warn("读取打包失败: {} - {} 决策={}", sourceDir, e.toString(), d);
+				if (d == ErrorDecision.CANCEL) return FileVisitResult.TERMINATE;
+				if (d == ErrorDecision.SKIP) return FileVisitResult.CONTINUE;
+			}
+		}
+		for (String name : pack.names()) {
+			if (callbacks.isCancelled()) return FileVisitResult.TERMINATE;
+			Path target = targetDir.resolve(name);
+			if (Files.exists(target)) {
+				Resolution res;
+				try {
+					ConflictResolver.Outcome outcome = job.conflicts.resolve(target, target,
+							ConflictResolver.member(pack.entry(name), pack), job.conflicts.existing(target), Files::exists);
+					res = outcome.resolution;
+					target = outcome.target;
+				} catch (IOException e) {
+					res = Resolution.REPLACE; // 已有文件无法读取属性，按覆盖处理
+				}
+				LOG.info("冲突(解包): {} 策略={} 决策={}", target, options.conflictPolicy, res);
+				if (res == Resolution.CANCEL) return FileVisitResult.TERMINATE;
+				if (res == Resolution.SKIP) continue;
+			}
+			if (extractMember(pack, sourceDir, name, target) == FileVisitResult.TERMINATE) return FileVisitResult.TERMINATE;
+		}
+		return FileVisitResult.CONTINUE;
+	}
+
+	/** 解密一个成员到 target（冲突已处理），含错误处理；批量提交失败后决定重试时再次调用。 */
+	private FileVisitResult extractMember(PackReader pack, Path sourceDir, String name, Path target) {
+		CopyService.Callbacks callbacks = job.callbacks;
+		while (true) {
+			try {
+				byte[] plain = pack.read(name);
+				Path temp = Publisher.tempFor(target);
+				Files.write(temp, plain);
+				Files.setLastModifiedTime(temp, FileTime.fromMillis(pack.entry(name).lastModified));
+				job.progress(target, plain.length);
+				job.publisher.publish(temp, target, plain.length, () -> {
+					callbacks.onLog("已解包: " + target);
+					callbacks.onFileCompleted(sourceDir.resolve(name), plain.length);
+				}, e -> job.publishFailed(sourceDir.resolve(name), e, () -> extractMember(pack, sourceDir, name, target)));
+				return FileVisitResult.CONTINUE;
+			} catch (GeneralSecurityException | IOException e) {
+				ErrorDecision d = callbacks.onError(sourceDir.resolve(name), e);
+				LOG.warn("解包失败: {} - {} 决策={}", name, e.toString(), d);
+				if (d == ErrorDecision.CANCEL) return FileVisitResult.TERMINATE;
+				if (d == ErrorDecision.SKIP) return FileVisitResult.CONTINUE;
+			}
+		}
+	}
+
+	/** 目标目录访问结束：写出该目录打包的索引。 */
+	void close(Path targetDir) throws IOException {
+		PackWriter writer = packs.remove(targetDir);
+		if (writer != null) writer.close();
+	}
+
+	/** 写出其余打包的索引（遍历中断或增量复制结束时）。 */
+	void closeAll() {
+		for (PackWriter writer : packs.values()) {
+			try {
+				writer.close();
+			} catch (IOException e) {
+				LOG.warn("关闭打包失败: {}", e.toString());
+			}
+		}
+		packs.clear();
+	}
+}
@@ -0,0 +1,217 @@
+package com.example.encryptedexplorer.service;
+
+import com.example.encryptedexplorer.util.EncryptionUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 小文件打包读取器：一次解密目录下的 .pack.idx，之后按 (段, 偏移, 长度) 直接读取成员。
+ * 查看页与缩略图通过 {@link #forDirectory(Path, char[])} 共享已载入的索引。
+ */
+public class PackReader {
+	private static final Logger LOG = LoggerFactory.getLogger(PackReader.class);
+	public static final String INDEX_FILE = ".pack.idx";
+	private static final String SEGMENT_PREFIX = ".pack.";
+	private static final int INDEX_VERSION = 1;
+	private static final int IV_LEN = 12;
+	private static final int GCM_TAG_LEN_BITS = 128;
+
+	// 已载入索引缓存（目录 -> 读取器），LRU 64
+	private static final Map<Path, PackReader> CACHE = Collections.synchronizedMap(new LinkedHashMap<Path, PackReader>(16, 0.75f, true) {
+		@Override protected boolean removeEldestEntry(Map.Entry<Path, PackReader> eldest) { return size() > 64; }
+	});
+
+	/** 索引项：成员名 -> 段号、段内偏移、记录长度（含 IV 与标签）、明文大小、修改时间。 */
+	public static final class Entry {
+		public final String name;
+		public final int segment;
+		public final long offset;
+		public final int length;
+		public final long size;
+		public final long lastModified;
+
+		Entry(String name, int segment, long offset, int length, long size, long lastModified) {
+			this.name = name;
+			this.segment = segment;
+			this.offset = offset;
+			this.length = length;
+			this.size = size;
+			this.lastModified = lastModified;
+		}
+	}
+
+	private final Path directory;
+	private final byte[] dataKey;
+	private final Map<String, Entry> entries;
+	private final char[] password;
+	private final long indexModified;
+
+	private PackReader(Path directory, byte[] dataKey, Map<String, Entry> entries, char[] password, long indexModified) {
+		this.directory = directory;
+		this.dataKey = dataKey;
+		this.entries = entries;
+		this.password = password;
+		this.indexModified = indexModified;
+	}
+
+	public static Path indexFileFor(Path directory) {
+		return directory.resolve(INDEX_FILE);
+	}
+
+	static Path segmentFileFor(Path directory, int segment) {
+		return directory.resolve(String.format("%s%04d", SEGMENT_PREFIX, segment));
+	}
+
+	/**
+	 * 是否为打包内部文件（索引、段或临时索引），复制与浏览时不应作为普通文件处理。
+	 */
+	public static boolean isPackFile(String name) {
+		if (name == null || !name.startsWith(SEGMENT_PREFIX)) return false;
+		if (name.equals(INDEX_FILE) || name.equals(INDEX_FILE + ".tmp")) return true;
+		String rest = name.substring(SEGMENT_PREFIX.length());
+		return !rest.isEmpty() && rest.chars().allMatch(Character::isDigit);
+	}
+
+	public static boolean hasPack(Path directory) {
+		return directory != null && Files.isRegularFile(indexFileFor(directory));
+	}
+
+	/**
+	 * 取得目录的打包读取器（带缓存）；目录无打包时返回 null。
+	 */
+	public static PackReader forDirectory(Path directory, char[] password) throws IOException, GeneralSecurityException {
+		if (!hasPack(directory)) return null;
+		long modified = Files.getLastModifiedTime(indexFileFor(directory)).toMillis();
+		PackReader cached = CACHE.get(directory);
+		if (cached != null && cached.indexModified == modified && Arrays.equals(cached.password, password)) {
+			return cached;
+		}
+		PackReader loaded = load(directory, password);
+		CACHE.put(directory, loaded);
+		return loaded;
+	}
+
+	static void invalidate(Path directory) {
+		CACHE.remove(directory);
+	}
+
+	/** 清零并丢弃已载入读取器的数据密钥与密码副本（见 {@link SecretCaches}）。 */
+	static void clearCache() {
+		synchronized (CACHE) {
+			for (PackReader r : CACHE.values()) {
+				Arrays.fill(r.dataKey, (byte) 0);
+				Arrays.fill(r.password, '\0');
+			}
+			CACHE.clear();
+		}
+	}
+
+	static PackReader load(Path directory, char[] password) throws IOException, GeneralSecurityException {
+		Path indexFile = indexFileFor(directory);
+		long modified = Files.getLastModifiedTime(indexFile).toMillis();
+		byte[] plain = EncryptionUtils.decryptBytes(Files.readAllBytes(indexFile), password, Vault.locate(directory, password));
+		try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(plain))) {
+			int version = in.readInt();
+			if (version != INDEX_VERSION) throw new IOException("不支持的打包索引版本: " + version);
+			byte[] key = new byte[32];
+			in.readFully(key);
+			int count = in.readInt();
+			Map<String, Entry> entries = new LinkedHashMap<>(Math.max(16, count * 2));
+			for (int i = 0; i < count; i++) {
+				String name = in.readUTF();
+				entries.put(name, new Entry(name, in.readInt(), in.readLong(), in.readInt(), in.readLong(), in.readLong()));
+			}
+			LOG.debug("载入打包索引: {} 成员={}", indexFile, entries.size());
+			return new PackReader(directory, key, entries, password != null ? password.clone() : new char[0], modified);
+		} catch (EOFException e) {
+			throw new IOException("打包索引已损坏: " + indexFile, e);
+		}
+	}
+
+	static byte[] serializeIndex(byte[] dataKey, Map<String, Entry> entries) throws IOException {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream(64 + entries.size() * 64);
+		try (DataOutputStream out = new DataOutputStream(bos)) {
+			out.writeInt(INDEX_VERSION);
+			out.write(dataKey);
+			out.writeInt(entries.size());
+			for (Entry e : entries.values()) {
+				out.writeUTF(e.name);
+				out.writeInt(e.segment);
+				out.writeLong(e.offset);
+				out.writeInt(e.length);
+				out.writeLong(e.size);
+				out.writeLong(e.lastModified);
+			}
+		}
+		return bos.toByteArray();
+	}
+
+	static byte[] sealMember(byte[] dataKey, String name, byte[] plain) throws GeneralSecurityException {
+		byte[] iv = EncryptionUtils.randomBytes(IV_LEN);
+		Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+		cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(dataKey, "AES"), new GCMParameterSpec(GCM_TAG_LEN_BITS, iv));
+		cipher.updateAAD(name.getBytes(StandardCharsets.UTF_8));
+		byte[] out = new byte[IV_LEN + cipher.getOutputSize(plain.length)];
+		System.arraycopy(iv, 0, out, 0, IV_LEN);
+		cipher.doFinal(plain, 0, plain.length, out, IV_LEN);
+		return out;
+	}
+
+	public Path directory() { return directory; }
+
+	Map<String, Entry> entries() { return entries; }
+
+	byte[] dataKey() { return dataKey; }
+
+	public boolean contains(String name) { return entries.containsKey(name); }
+
+	public Entry entry(String name) { return entries.get(name); }
+
+	/** 按写入顺序列出成员名。 */
+	public List<String> names() { return new ArrayList<>(entries.keySet()); }
+
+	/**
+	 * 读取并解密一个成员。
+	 */
+	public byte[] read(String name) throws IOException, GeneralSecurityException {
+		Entry e = entries.get(name);
+		if (e == null) throw new IOException("打包中不存在成员: " + name);
+		ByteBuffer buf = ByteBuffer.allocate(e.length);
+		try (FileChannel ch = FileChannel.open(segmentFileFor(directory, e.segment), StandardOpenOption.READ)) {
+			long pos = e.offset;
+			while (buf.hasRemaining()) {
+				int r = ch.read(buf, pos);
+				if (r < 0) throw new IOException("打包段被截断: " + name);
+				pos += r;
+			}
+		}
+		byte[] record = buf.array();
+		Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+		cipher.init(Cipher.DECRYPT_MODE, new SecretKeySpec(dataKey, "AES"), new GCMParameterSpec(GCM_TAG_LEN_BITS, record, 0, IV_LEN));
+		cipher.updateAAD(name.getBytes(StandardCharsets.UTF_8));
+		return cipher.doFinal(record, IV_LEN, record.length - IV_LEN);
+	}
+}
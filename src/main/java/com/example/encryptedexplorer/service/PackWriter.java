@@ -0,0 +1,130 @@
+package com.example.encryptedexplorer.service;
+
+import com.example.encryptedexplorer.util.EncryptionUtils;
+import com.example.encryptedexplorer.util.FileUtilsEx;
+import com.example.encryptedexplorer.util.VaultKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 小文件打包写入器：同一目标目录下的小文件依次追加到打包段（.pack.NNNN），
+ * 关闭时写出加密索引（.pack.idx）。整个包只在索引上做一次 PBKDF2（保险库内由主密钥派生），
+ * 成员使用索引内随机生成的数据密钥加密（AES-GCM，AAD=成员名）。
+ */
+public class PackWriter implements AutoCloseable {
+	private static final Logger LOG = LoggerFactory.getLogger(PackWriter.class);
+
+	private final Path directory;
+	private final char[] password;
+	private final long segmentLimit;
+	private final boolean durable;
+	private final byte[] dataKey;
+	private final Map<String, PackReader.Entry> entries;
+	private int segment;
+	private long segmentOffset;
+	private OutputStream segmentOut;
+	private boolean dirty;
+
+	private PackWriter(Path directory, char[] password, long segmentLimit, boolean durable, byte[] dataKey, Map<String, PackReader.Entry> entries, int nextSegment) {
+		this.directory = directory;
+		this.password = password;
+		this.segmentLimit = segmentLimit;
+		this.durable = durable;
+		this.dataKey = dataKey;
+		this.entries = entries;
+		this.segment = nextSegment;
+	}
+
+	/**
+	 * 打开目录下的打包写入器；若已有索引则载入并在新的段中继续追加。
+	 */
+	public static PackWriter open(Path directory, char[] password, long segmentLimit) throws IOException, GeneralSecurityException {
+		return open(directory, password, segmentLimit, false);
+	}
+
+	/**
+	 * durable 为真时段文件在关闭前 fsync，索引写入临时文件并 fsync 后原子替换，最后 fsync 目录。
+	 */
+	public static PackWriter open(Path directory, char[] password, long segmentLimit, boolean durable) throws IOException, GeneralSecurityException {
+		Path indexFile = PackReader.indexFileFor(directory);
+		if (Files.isRegularFile(indexFile)) {
+			PackReader existing = PackReader.load(directory, password);
+			Map<String, PackReader.Entry> entries = new LinkedHashMap<>(existing.entries());
+			int next = 0;
+			for (PackReader.Entry e : entries.values()) next = Math.max(next, e.segment + 1);
+			LOG.debug("续写已有打包: {} 成员={} 起始段={}", directory, entries.size(), next);
+			return new PackWriter(directory, password, segmentLimit, durable, existing.dataKey(), entries, next);
+		}
+		return new PackWriter(directory, password, segmentLimit, durable, EncryptionUtils.randomBytes(32), new LinkedHashMap<>(), 0);
+	}
+
+	public synchronized boolean contains(String name) {
+		return entries.containsKey(name);
+	}
+
+	public synchronized PackReader.Entry entry(String name) {
+		return entries.get(name);
+	}
+
+	/**
+	 * 追加一个成员；同名成员被替换（旧数据留在段中成为无引用数据）。
+	 */
+	public synchronized void add(String name, byte[] plain, long lastModified) throws IOException, GeneralSecurityException {
+		byte[] record = PackReader.sealMember(dataKey, name, plain);
+		if (segmentOut != null && segmentOffset + record.length > segmentLimit && segmentOffset > 0) {
+			closeSegment();
+			segment++;
+		}
+		if (segmentOut == null) {
+			Path segFile = PackReader.segmentFileFor(directory, segment);
+			segmentOut = new BufferedOutputStream(Files.newOutputStream(segFile, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING), 256 * 1024);
+			segmentOffset = 0;
+		}
+		segmentOut.write(record);
+		entries.put(name, new PackReader.Entry(name, segment, segmentOffset, record.length, plain.length, lastModified));
+		segmentOffset += record.length;
+		dirty = true;
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if (segmentOut != null) closeSegment();
+		if (!dirty) return;
+		try {
+			VaultKey vault = Vault.locate(directory, password);
+			byte[] sealed = EncryptionUtils.encryptBytes(PackReader.serializeIndex(dataKey, entries), password, vault);
+			Path indexFile = PackReader.indexFileFor(directory);
+			Path tmp = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+			Files.write(tmp, sealed);
+			if (durable) {
+				FileUtilsEx.force(tmp);
+				Files.move(tmp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+				FileUtilsEx.forceDirectory(directory);
+			} else {
+				Files.move(tmp, indexFile, StandardCopyOption.REPLACE_EXISTING);
+			}
+			PackReader.invalidate(directory);
+			dirty = false;
+			LOG.debug("写入打包索引: {} 成员={}", indexFile, entries.size());
+		} catch (GeneralSecurityException e) {
+			throw new IOException("写入打包索引失败: " + directory, e);
+		}
+	}
+
+	private void closeSegment() throws IOException {
+		segmentOut.close();
+		segmentOut = null;
+		if (durable) FileUtilsEx.force(PackReader.segmentFileFor(directory, segment));
+	}
+}
@@ -0,0 +1,243 @@
+package com.example.encryptedexplorer.service;
+
+import com.example.encryptedexplorer.util.FileUtilsEx;
+import com.example.encryptedexplorer.util.IoExecutors;
+import com.example.encryptedexplorer.util.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * 原子发布目标文件：内容先写入同目录下的临时名（.名称.part），完成后一次重命名为最终名，
+ * 最终名下不会出现写了一半的文件。
+ * <p>
+ * 持久模式下不逐个 fsync：累积一批文件（默认 256 个或 256MB）后把整批的数据 fsync 同时交给刷盘线程池
+ * （{@link #FORCE_THREADS} 个线程），多个 fsync 同时在途时文件系统可以合并日志提交，总耗时远小于逐个串行；
+ * 之后原子重命名，再对涉及的目录各 fsync 一次（同样并行）。onPublished 回调在文件持久化之后才执行。
+ * 批次由填满它的那次 publish 提交，失败按文件记录：刷盘或重命名失败的文件删除临时文件后回调各自的 onFailed，
+ * 不影响同批的其他文件，也不抛给触发提交的调用方。
+ * 非持久模式下立即重命名，失败时直接抛出。
+ * 可在多个工作线程中并发调用。
+ */
+public final class Publisher implements Closeable {
+	private static final Logger LOG = LoggerFactory.getLogger(Publisher.class);
+	private static final String TEMP_PREFIX = ".";
+	private static final String TEMP_SUFFIX = ".part";
+	private static final int BATCH_FILES = 256;
+	private static final long BATCH_BYTES = 256L * 1024 * 1024;
+	// 复制的发布阶段：原子重命名与批量刷盘耗时
+	private static final Metrics.Timer RENAME_TIME = Metrics.timer("CopyService", "renameTime");
+	private static final Metrics.Timer FSYNC_TIME = Metrics.timer("CopyService", "fsyncTime");
+	// 同时在途的 fsync 数；所有复制任务共用
+	private static final int FORCE_THREADS = 16;
+
+	/** 刷盘线程池，首次持久提交时创建。 */
+	private static final class ForcePool {
+		static final ExecutorService POOL = IoExecutors.platform("publisher-fsync", FORCE_THREADS);
+	}
+
+	/** 待提交项；failure 为提交中记录的失败。 */
+	private static final class Item {
+		final Path temp;
+		final Path target;
+		final Runnable onPublished;
+		final Consumer<IOException> onFailed;
+		IOException failure;
+
+		Item(Path temp, Path target, Runnable onPublished, Consumer<IOException> onFailed) {
+			this.temp = temp;
+			this.target = target;
+			this.onPublished = onPublished;
+			this.onFailed = onFailed;
+		}
+	}
+
+	private final boolean durable;
+	private List<Item> batch = new ArrayList<>();
+	private long batchBytes;
+
+	Publisher(boolean durable) {
+		this.durable = durable;
+	}
+
+	boolean isDurable() {
+		return durable;
+	}
+
+	/** 目标对应的临时文件名（同目录，保证重命名是原子的）。 */
+	static Path tempFor(Path target) {
+		return target.resolveSibling(TEMP_PREFIX + target.getFileName() + TEMP_SUFFIX);
+	}
+
+	public static boolean isTempName(String name) {
+		return name.startsWith(TEMP_PREFIX) && name.endsWith(TEMP_SUFFIX);
+	}
+
+	/**
+	 * 发布已写完并关闭的临时文件。持久模式下加入批次，批次满时由当前线程提交；该文件在提交中失败时
+	 * 临时文件已删除，回调 onFailed（可能在提交其他文件的线程中）。非持久模式下重命名失败直接抛出。
+	 */
+	void publish(Path temp, Path target, long bytes, Runnable onPublished, Consumer<IOException> onFailed) throws IOException {
+		if (!durable) {
+			move(temp, target);
+			onPublished.run();
+			return;
+		}
+		add(new Item(temp, target, onPublished, onFailed), bytes);
+	}
+
+	private void add(Item item, long bytes) {
+		List<Item> full = null;
+		synchronized (this) {
+			batch.add(item);
+			batchBytes += bytes;
+			if (batch.size() >= BATCH_FILES || batchBytes >= BATCH_BYTES) {
+				full = batch;
+				batch = new ArrayList<>();
+				batchBytes = 0;
+			}
+		}
+		if (full != null) commit(full);
+	}
+
+	/** 提交当前批次。 */
+	void flush() {
+		List<Item> pending;
+		synchronized (this) {
+			pending = batch;
+			batch = new ArrayList<>();
+			batchBytes = 0;
+		}
+		if (!pending.isEmpty()) commit(pending);
+	}
+
+	@Override
+	public void close() {
+		flush();
+	}
+
+	/**
+	 * 先把整批数据并行刷盘，再逐个原子重命名，最后每个目录只 fsync 一次。
+	 * 崩溃时最终名下要么是旧文件，要么是完整的新文件；残留的临时文件可直接删除。
+	 * 刷盘或重命名失败的文件删除临时文件，所在目录刷盘失败的文件已经就位但未持久化，均回调各自的 onFailed。
+	 */
+	private void commit(List<Item> items) {
+		long t0 = System.nanoTime();
+		Map<Path, Item> files = new LinkedHashMap<>();
+		for (Item item : items) files.put(item.temp, item);
+		forceAll(files.keySet(), false).forEach((file, e) -> files.get(file).failure = e);
+		long synced = System.nanoTime();
+		Set<Path> dirs = new LinkedHashSet<>();
+		for (Item item : items) {
+			if (item.failure != null) continue;
+			try {
+				move(item.temp, item.target);
+			} catch (IOException e) {
+				item.failure = e;
+				continue;
+			}
+			dirs.add(item.target.getParent());
+		}
+		long dirSync = System.nanoTime();
+		Map<Path, IOException> dirFailures = forceAll(dirs, true);
+		FSYNC_TIME.record(synced - t0 + System.nanoTime() - dirSync);
+		int failed = 0;
+		for (Item item : items) {
+			if (item.failure == null) item.failure = dirFailures.get(item.target.getParent());
+			if (item.failure == null) continue;
+			failed++;
+			deleteQuietly(item.temp);
+		}
+		LOG.debug("持久化提交: 文件={} 目录={} 失败={} 耗时={}ms", items.size(), dirs.size(), failed, (System.nanoTime() - t0) / 1_000_000);
+		for (Item item : items) {
+			if (item.failure != null) {
+				LOG.warn("持久化提交失败: {} - {}", item.target, item.failure.toString());
+				item.onFailed.accept(item.failure);
+			} else {
+				item.onPublished.run();
+			}
+		}
+	}
+
+	/** 同时对 paths 发起 fsync 并等待全部完成，返回失败的路径及其错误；等待时被中断则其余路径都记为中断。 */
+	private static Map<Path, IOException> forceAll(Collection<Path> paths, boolean directories) {
+		Map<Path, IOException> failed = new LinkedHashMap<>();
+		if (paths.size() == 1) {
+			Path path = paths.iterator().next();
+			try {
+				force(path, directories);
+			} catch (IOException e) {
+				failed.put(path, e);
+			}
+			return failed;
+		}
+		Map<Path, Future<?>> pending = new LinkedHashMap<>();
+		for (Path path : paths) {
+			pending.put(path, ForcePool.POOL.submit(() -> {
+				force(path, directories);
+				return null;
+			}));
+		}
+		for (Map.Entry<Path, Future<?>> f : pending.entrySet()) {
+			if (Thread.currentThread().isInterrupted()) {
+				failed.put(f.getKey(), new InterruptedIOException("等待刷盘时被中断"));
+				continue;
+			}
+			try {
+				f.getValue().get();
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				failed.put(f.getKey(), cause instanceof IOException ? (IOException) cause : new IOException(cause.toString(), cause));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				failed.put(f.getKey(), new InterruptedIOException("等待刷盘时被中断"));
+			}
+		}
+		return failed;
+	}
+
+	private static void force(Path path, boolean directory) throws IOException {
+		if (directory) {
+			FileUtilsEx.forceDirectory(path);
+		} else {
+			FileUtilsEx.force(path);
+		}
+	}
+
+	private static void deleteQuietly(Path temp) {
+		try {
+			Files.deleteIfExists(temp);
+		} catch (IOException e) {
+			LOG.warn("删除临时文件失败: {} - {}", temp, e.toString());
+		}
+	}
+
+	private static void move(Path temp, Path target) throws IOException {
+		long t0 = System.nanoTime();
+		try {
+			Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+		} finally {
+			RENAME_TIME.recordSince(t0);
+		}
+	}
+}
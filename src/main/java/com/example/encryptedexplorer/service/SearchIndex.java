@@ -0,0 +1,287 @@
+package com.example.encryptedexplorer.service;
+
+import com.example.encryptedexplorer.util.EncryptionUtils;
+import com.example.encryptedexplorer.util.FileUtilsEx;
+import com.example.encryptedexplorer.util.VaultKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * 保险库级名称搜索索引（目标根目录/.search.idx）：加密复制时记录每个文件与目录的原始相对路径及其在目标中的路径，
+ * 压缩后整体加密保存。查看端载入一次（一次读取、一次密钥派生）后在内存中查询。
+ * <p>
+ * 全部小写名称以 \0 分隔拼成一个字符串，前缀与子串查询都是对它的 indexOf 扫描（JIT 内建的向量化查找），
+ * 命中位置按各名称起点二分定位到条目；百万条目的查询在毫秒级，载入时也无需构建倒排表。
+ * 含路径分隔符的查询改用原始路径拼成的字符串，首次使用时构建。
+ */
+public final class SearchIndex {
+	private static final Logger LOG = LoggerFactory.getLogger(SearchIndex.class);
+	public static final String INDEX_FILE = ".search.idx";
+	private static final int VERSION = 1;
+
+	// 已载入索引（根目录 -> 索引），只保留最近 4 个，单个索引可能很大
+	private static final Map<Path, SearchIndex> CACHE = Collections.synchronizedMap(new LinkedHashMap<Path, SearchIndex>(8, 0.75f, true) {
+		@Override protected boolean removeEldestEntry(Map.Entry<Path, SearchIndex> eldest) { return size() > 4; }
+	});
+
+	/** 一条记录：原始相对路径与目标相对路径，均以 / 分隔。 */
+	public static final class Hit {
+		public final String originalPath;
+		public final String targetPath;
+		public final boolean directory;
+
+		public Hit(String originalPath, String targetPath, boolean directory) {
+			this.originalPath = originalPath;
+			this.targetPath = targetPath;
+			this.directory = directory;
+		}
+
+		/** 原始名称（路径最后一段）。 */
+		public String name() {
+			return originalPath.substring(originalPath.lastIndexOf('/') + 1);
+		}
+
+		public Path resolve(Path root) {
+			return root.resolve(targetPath.replace('/', root.getFileSystem().getSeparator().charAt(0)));
+		}
+	}
+
+	private static final char SEPARATOR = '\0';
+
+	private final Path root;
+	private final Hit[] hits;
+	private final Blob names;
+	private Blob paths;
+	private final char[] password;
+	private final long modified;
+
+	private SearchIndex(Path root, Hit[] hits, char[] password, long modified) {
+		this.root = root;
+		this.hits = hits;
+		this.password = password;
+		this.modified = modified;
+		this.names = new Blob(hits, false);
+	}
+
+	/** 以 \0 分隔拼接的小写字符串："\0名称0\0名称1\0…"，starts[i] 为第 i 个名称的起点。 */
+	private static final class Blob {
+		final String text;
+		final int[] starts;
+
+		Blob(Hit[] hits, boolean fullPath) {
+			StringBuilder sb = new StringBuilder(hits.length * (fullPath ? 48 : 20));
+			starts = new int[hits.length];
+			for (int i = 0; i < hits.length; i++) {
+				sb.append(SEPARATOR);
+				starts[i] = sb.length();
+				// 逐条转小写：个别字符转小写后长度会变，整体转换会使起点错位
+				sb.append((fullPath ? hits[i].originalPath : hits[i].name()).toLowerCase(Locale.ROOT));
+			}
+			sb.append(SEPARATOR);
+			text = sb.toString();
+		}
+
+		/** 文本位置所在的条目号。 */
+		int entryAt(int pos) {
+			int i = Arrays.binarySearch(starts, pos);
+			return i >= 0 ? i : -i - 2;
+		}
+
+		/** 从 from 起查找 needle，返回命中的条目号与下一次查找起点；没有时返回 null。 */
+		int[] next(String needle, int from) {
+			int pos = text.indexOf(needle, from);
+			if (pos < 0) return null;
+			int id = entryAt(needle.charAt(0) == SEPARATOR ? pos + 1 : pos);
+			int after = id + 1 < starts.length ? starts[id + 1] - 1 : text.length();
+			return new int[]{id, after};
+		}
+	}
+
+	public static Path indexFileFor(Path root) {
+		return root.resolve(INDEX_FILE);
+	}
+
+	/** 索引文件及其临时文件，复制与浏览时不作为普通文件处理。 */
+	public static boolean isIndexFile(String name) {
+		return INDEX_FILE.equals(name) || (INDEX_FILE + ".tmp").equals(name);
+	}
+
+	/**
+	 * 从目录向上查找带搜索索引的根目录；没有时返回 null。
+	 */
+	public static Path locate(Path dir) {
+		for (Path p = dir; p != null; p = p.getParent()) {
+			if (Files.isRegularFile(indexFileFor(p))) return p;
+		}
+		return null;
+	}
+
+	/**
+	 * 取得根目录的搜索索引（带缓存）。
+	 */
+	public static SearchIndex forRoot(Path root, char[] password) throws IOException, GeneralSecurityException {
+		long modified = Files.getLastModifiedTime(indexFileFor(root)).toMillis();
+		SearchIndex cached = CACHE.get(root);
+		if (cached != null && cached.modified == modified && Arrays.equals(cached.password, password)) {
+			return cached;
+		}
+		long t0 = System.nanoTime();
+		List<Hit> records = read(root, password, Vault.locate(root, password));
+		SearchIndex loaded = new SearchIndex(root, records.toArray(new Hit[0]), password != null ? password.clone() : new char[0], modified);
+		LOG.info("载入搜索索引: {} 条目={} 耗时={}ms", root, records.size(), (System.nanoTime() - t0) / 1_000_000);
+		CACHE.put(root, loaded);
+		return loaded;
+	}
+
+	/** 清零并丢弃已载入索引的密码副本（见 {@link SecretCaches}）。 */
+	static void clearCache() {
+		synchronized (CACHE) {
+			for (SearchIndex index : CACHE.values()) Arrays.fill(index.password, '\0');
+			CACHE.clear();
+		}
+	}
+
+	private static List<Hit> read(Path root, char[] password, VaultKey vault) throws IOException, GeneralSecurityException {
+		Path file = indexFileFor(root);
+		byte[] plain = EncryptionUtils.decryptBytes(Files.readAllBytes(file), password, vault);
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new InflaterInputStream(new ByteArrayInputStream(plain)), 64 * 1024))) {
+			int version = in.readInt();
+			if (version != VERSION) throw new IOException("不支持的搜索索引版本: " + version);
+			int count = in.readInt();
+			List<Hit> records = new ArrayList<>(count);
+			for (int i = 0; i < count; i++) {
+				boolean directory = in.readBoolean();
+				records.add(new Hit(in.readUTF(), in.readUTF(), directory));
+			}
+			return records;
+		} catch (EOFException e) {
+			throw new IOException("搜索索引已损坏: " + file, e);
+		}
+	}
+
+	/**
+	 * 合并本次记录（按目标路径去重覆盖）并写出。只检查本次涉及的目录中旧条目的目标是否还在，
+	 * 避免每次复制都对整个保险库逐条 stat。
+	 */
+	static void update(Path root, Collection<Hit> additions, char[] password, VaultKey vault, boolean durable) throws IOException, GeneralSecurityException {
+		Map<String, Hit> merged = new LinkedHashMap<>();
+		if (Files.isRegularFile(indexFileFor(root))) {
+			try {
+				for (Hit h : read(root, password, vault)) merged.put(h.targetPath, h);
+			} catch (IOException | GeneralSecurityException e) {
+				LOG.warn("已有搜索索引无法读取，将重建: {} - {}", root, e.toString());
+			}
+		}
+		Set<String> touched = new HashSet<>();
+		for (Hit h : additions) touched.add(parentOf(h.targetPath));
+		merged.values().removeIf(h -> touched.contains(parentOf(h.targetPath)) && !exists(root, h, password));
+		for (Hit h : additions) merged.put(h.targetPath, h);
+
+		ByteArrayOutputStream bos = new ByteArrayOutputStream(1024 + merged.size() * 24);
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new DeflaterOutputStream(bos), 64 * 1024))) {
+			out.writeInt(VERSION);
+			out.writeInt(merged.size());
+			for (Hit h : merged.values()) {
+				out.writeBoolean(h.directory);
+				out.writeUTF(h.originalPath);
+				out.writeUTF(h.targetPath);
+			}
+		}
+		byte[] sealed = EncryptionUtils.encryptBytes(bos.toByteArray(), password, vault);
+		Path file = indexFileFor(root);
+		Path tmp = file.resolveSibling(INDEX_FILE + ".tmp");
+		Files.write(tmp, sealed);
+		if (durable) {
+			FileUtilsEx.force(tmp);
+			Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			FileUtilsEx.forceDirectory(root);
+		} else {
+			Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+		}
+		CACHE.remove(root);
+		LOG.info("写入搜索索引: {} 条目={} 本次={} 大小={}", file, merged.size(), additions.size(), sealed.length);
+	}
+
+	private static String parentOf(String targetPath) {
+		int slash = targetPath.lastIndexOf('/');
+		return slash < 0 ? "" : targetPath.substring(0, slash);
+	}
+
+	private static boolean exists(Path root, Hit h, char[] password) {
+		Path target = h.resolve(root);
+		if (Files.exists(target)) return true;
+		if (h.directory) return false;
+		try {
+			PackReader pack = PackReader.forDirectory(target.getParent(), password);
+			return pack != null && pack.contains(target.getFileName().toString());
+		} catch (IOException | GeneralSecurityException e) {
+			return PackReader.hasPack(target.getParent()); // 无法确认时保留
+		}
+	}
+
+	public Path root() { return root; }
+
+	public int size() { return hits.length; }
+
+	/**
+	 * 按原始名称查询（不区分大小写）：先列出名称前缀匹配，再列出名称中包含查询串的；
+	 * 查询串含 / 时按原始相对路径子串匹配。最多返回 limit 条。
+	 */
+	public List<Hit> search(String query, int limit) {
+		String q = query.trim().toLowerCase(Locale.ROOT).replace('\\', '/').replace(String.valueOf(SEPARATOR), "");
+		List<Hit> result = new ArrayList<>();
+		if (q.isEmpty() || limit <= 0) return result;
+		if (q.indexOf('/') >= 0) {
+			collect(pathBlob(), q, limit, null, result);
+			return result;
+		}
+		BitSet taken = new BitSet(hits.length);
+		collect(names, SEPARATOR + q, limit, taken, result);
+		if (result.size() < limit) collect(names, q, limit, taken, result);
+		return result;
+	}
+
+	private void collect(Blob blob, String needle, int limit, BitSet taken, List<Hit> result) {
+		int from = 0;
+		int[] found;
+		while (result.size() < limit && (found = blob.next(needle, from)) != null) {
+			int id = found[0];
+			if (taken == null || !taken.get(id)) {
+				result.add(hits[id]);
+				if (taken != null) taken.set(id);
+			}
+			from = found[1];
+		}
+	}
+
+	private synchronized Blob pathBlob() {
+		if (paths == null) paths = new Blob(hits, true);
+		return paths;
+	}
+}
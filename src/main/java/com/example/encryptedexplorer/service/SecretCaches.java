@@ -0,0 +1,52 @@
+package com.example.encryptedexplorer.service;
+
+import com.example.encryptedexplorer.util.NameCipher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 进程内密码与密钥缓存的统一清理：名称会话、已解包的保险库主密钥、打包数据密钥，以及目录索引、缩略图与
+ * 搜索索引用于比对密码的副本。查看页换密码、复制任务结束时调用 {@link #clear()}，清零后丢弃。
+ * <p>
+ * 复制、校验与缩略图生成期间以 {@link #enter()}/{@link #exit()} 登记为使用者；有使用者时请求的清理
+ * 推迟到最后一个使用者结束，任务中途不会拿到被清零的密钥。
+ */
+public final class SecretCaches {
+	private static final Logger LOG = LoggerFactory.getLogger(SecretCaches.class);
+
+	private static int users;
+	private static boolean pending;
+
+	private SecretCaches() {}
+
+	/** 登记一个使用者，须与 {@link #exit()} 成对调用。 */
+	public static synchronized void enter() {
+		users++;
+	}
+
+	public static synchronized void exit() {
+		if (--users == 0 && pending) {
+			pending = false;
+			clearNow();
+		}
+	}
+
+	/** 清零并丢弃全部缓存的密码副本与密钥；有使用者时推迟到其全部结束。 */
+	public static synchronized void clear() {
+		if (users > 0) {
+			pending = true;
+			return;
+		}
+		clearNow();
+	}
+
+	private static void clearNow() {
+		NameCipher.clearSessions();
+		Vault.clearUnlocked();
+		PackReader.clearCache();
+		DirectoryIndex.clearCache();
+		ThumbnailStore.clearCache();
+		SearchIndex.clearCache();
+		LOG.debug("已清理密钥缓存");
+	}
+}
@@ -0,0 +1,212 @@
+package com.example.encryptedexplorer.service;
+
+import com.example.encryptedexplorer.model.CopyOptions;
+import com.example.encryptedexplorer.model.ErrorDecision;
+import com.example.encryptedexplorer.util.ChunkedEncryptor;
+import com.example.encryptedexplorer.util.ContentProbe;
+import com.example.encryptedexplorer.util.EncryptionUtils;
+import com.example.encryptedexplorer.util.IoScheduler;
+import com.example.encryptedexplorer.util.Tracing;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 大文件拆分复制（并行模式）：分派线程中处理冲突并写出文件头，文件按分段区间拆成多个任务交给工作线程，
+ * 各区间直接写入同一临时文件的对应位置，最后完成的区间发布目标文件。任一区间未正常完成时整个文件不发布，
+ * 复制结束时由 {@link #discardUnfinished} 删除部分输出。
+ */
+final class SplitCopier {
+	private static final Logger LOG = LoggerFactory.getLogger(SplitCopier.class);
+	/** 拆分后每个分段区间的最小字节数；不足两个区间的文件不拆分。 */
+	static final long MIN_CHUNK_BYTES = 64L * 1024 * 1024;
+
+	/** 拆分文件的共享状态：各分段写入临时文件 target，全部完成后由最后一个分段发布为 finalTarget。 */
+	static final class SplitFile {
+		final Path file;
+		final Path target;
+		final Path finalTarget;
+		final long size;
+		final int unit;
+		final ChunkedEncryptor encryptor;
+		final AtomicInteger pending;
+		volatile boolean failed;
+		volatile boolean published;
+
+		SplitFile(Path file, Path target, Path finalTarget, long size, int unit, ChunkedEncryptor encryptor, int chunks) {
+			this.file = file;
+			this.target = target;
+			this.finalTarget = finalTarget;
+			this.size = size;
+			this.unit = unit;
+			this.encryptor = encryptor;
+			this.pending = new AtomicInteger(chunks);
+		}
+	}
+
+	private final CopyService.Job job;
+	// 提交失败后决定重试时，整个文件改为不拆分地重新复制
+	private final CopyService.FileCopier retry;
+	private final List<SplitFile> splits = Collections.synchronizedList(new ArrayList<>());
+
+	SplitCopier(CopyService.Job job, CopyService.FileCopier retry) {
+		this.job = job;
+		this.retry = retry;
+	}
+
+	/**
+	 * 在分派线程中完成冲突处理、密钥派生与文件头写入，返回各分段区间任务；跳过或失败时返回空列表。
+	 */
+	List<CopyService.Task> split(CopyService.Task t) {
+		CopyOptions options = job.options;
+		while (true) {
+			try {
+				Path resolved = job.resolveConflict(t.file, t.targetFile);
+				if (resolved == null) return Collections.emptyList();
+				Path finalTarget = ConflictResolver.finalTarget(resolved, options);
+				Path target = Publisher.tempFor(finalTarget);
+				Files.createDirectories(target.getParent());
+				ChunkedEncryptor encryptor = options.encryptFiles
+						? EncryptionUtils.chunkedEncryptor(t.size, options.password, job.vault) : null;
+				int unit = encryptor != null ? encryptor.segmentSize() : IoScheduler.MIN_BLOCK;
+				long units = encryptor != null ? encryptor.segmentCount() : (t.size + unit - 1) / unit;
+				try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+					if (encryptor != null) {
+						ByteBuffer header = ByteBuffer.wrap(encryptor.header());
+						while (header.hasRemaining()) out.write(header);
+					}
+				}
+				long chunkBytes = Math.max(MIN_CHUNK_BYTES, (t.size + options.workers - 1) / options.workers);
+				long unitsPerChunk = (chunkBytes + unit - 1) / unit;
+				int chunks = (int) ((units + unitsPerChunk - 1) / unitsPerChunk);
+				SplitFile split = new SplitFile(t.file, target, finalTarget, t.size, unit, encryptor, chunks);
+				splits.add(split);
+				List<CopyService.Task> parts = new ArrayList<>(chunks);
+				for (long first = 0; first < units; first += unitsPerChunk) {
+					long end = Math.min(units, first + unitsPerChunk);
+					parts.add(new CopyService.Task(split, first, end, Math.min(t.size, end * unit) - first * unit));
+				}
+				LOG.debug("拆分大文件: {} 大小={} 分块={}", t.file, t.size, chunks);
+				return parts;
+			} catch (IOException | GeneralSecurityException e) {
+				ErrorDecision d = job.callbacks.onError(t.file, e);
+				LOG.warn("准备分块复制失败: {} - {} 决策={}", t.file, e.toString(), d);
+				if (d == ErrorDecision.CANCEL) job.stopped.set(true);
+				if (d != ErrorDecision.RETRY) return Collections.emptyList();
+			}
+		}
+	}
+
+	/**
+	 * 处理拆分文件的一个分段区间（工作线程中执行）；最后完成的分段负责发布目标文件。
+	 * 分段未正常完成（出错、取消或抛出非受检异常）时整个文件记为失败，不会发布不完整的输出。
+	 */
+	void copyChunk(CopyService.Task t) {
+		SplitFile s = t.split;
+		boolean completed = false;
+		Tracing.FileCopyEvent trace = Tracing.fileCopy();
+		CopyService.Stages stages = new CopyService.Stages();
+		stages.size = t.size;
+		try {
+			while (!s.failed && !job.stopped.get() && !job.callbacks.isCancelled()) {
+				try (IoScheduler.Ticket io = job.io.acquire(s.file, s.target);
+					 FileChannel in = FileChannel.open(s.file, StandardOpenOption.READ);
+					 FileChannel out = FileChannel.open(s.target, StandardOpenOption.WRITE)) {
+					stages.start("split");
+					if (s.encryptor != null) {
+						// 映射输入整段加密，每批写出后扣减限速额度并汇报进度
+						try {
+							s.encryptor.encryptSegments(in, out, t.first, t.end, job.meter(s.file, io));
+						} catch (UncheckedIOException e) {
+							throw e.getCause();
+						}
+						completed = true;
+						return;
+					}
+					// 按块处理，块间扣减限速额度并汇报进度
+					long step = Math.max(1, io.blockSize() / s.unit);
+					for (long first = t.first; first < t.end; first += step) {
+						long end = Math.min(t.end, first + step);
+						long bytes = Math.min(s.size, end * s.unit) - first * s.unit;
+						job.io.charge(bytes);
+						long pos = first * s.unit;
+						out.position(pos);
+						for (long done = 0; done < bytes; ) {
+							long n = in.transferTo(pos + done, bytes - done, out);
+							if (n <= 0 && in.size() <= pos + done) throw new IOException("源文件在复制过程中被截短");
+							done += n;
+						}
+						io.transferred(bytes);
+						job.progress(s.file, bytes);
+					}
+					completed = true;
+					return;
+				} catch (IOException | GeneralSecurityException e) {
+					ErrorDecision d = job.callbacks.onError(s.file, e);
+					LOG.warn("分块复制失败: {} [{}, {}) - {} 决策={}", s.file, t.first, t.end, e.toString(), d);
+					if (d == ErrorDecision.CANCEL) job.stopped.set(true);
+					if (d != ErrorDecision.RETRY) s.failed = true;
+				}
+			}
+		} finally {
+			// 每个分段一个事件（分段在不同线程中处理）；整个文件的阶段指标不在此记录
+			if (completed) stages.measure();
+			stages.complete(trace, s.file);
+			if (!completed) s.failed = true;
+			if (s.pending.decrementAndGet() == 0) publish(s);
+		}
+	}
+
+	private void publish(SplitFile s) {
+		if (s.failed) return; // 由 discardUnfinished 删除残留
+		try {
+			CopyService.keepModified(s.file, s.target);
+			s.published = true;
+			job.publisher.publish(s.target, s.finalTarget, s.size, () -> {
+				// 分段并行加密不经过顺序明文流，只记录类型与尺寸，不计算摘要
+				if (s.encryptor != null && job.indexed != null) job.index(s.finalTarget, s.file, s.size, readHead(s.file), null);
+				job.searchable(s.file, s.finalTarget, false);
+				job.callbacks.onLog((s.encryptor != null ? "已加密(分块): " : "已复制(分块): ") + s.finalTarget);
+				job.callbacks.onFileCompleted(s.file, s.size);
+			}, e -> job.publishFailed(s.file, e, () -> retry.copy(s.file, s.finalTarget)));
+		} catch (IOException e) {
+			s.failed = true;
+			s.published = false;
+			if (job.callbacks.onError(s.file, e) == ErrorDecision.CANCEL) job.stopped.set(true);
+		}
+	}
+
+	/** 删除未完成（失败、跳过或被取消）的拆分文件的部分输出。 */
+	void discardUnfinished() {
+		for (SplitFile s : splits) {
+			if (s.published) continue;
+			try {
+				Files.deleteIfExists(s.target);
+				LOG.info("删除未完成的分块输出: {}", s.target);
+			} catch (IOException e) {
+				LOG.warn("删除未完成的分块输出失败: {} - {}", s.target, e.toString());
+			}
+		}
+	}
+
+	private static byte[] readHead(Path file) {
+		try (InputStream in = Files.newInputStream(file, StandardOpenOption.READ)) {
+			return in.readNBytes(ContentProbe.HEAD_BYTES);
+		} catch (IOException e) {
+			return new byte[0];
+		}
+	}
+}
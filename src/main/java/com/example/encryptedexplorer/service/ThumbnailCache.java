@@ -1,6 +1,9 @@
 package com.example.encryptedexplorer.service;
 
 import com.example.encryptedexplorer.util.EncryptionUtils;
+import com.example.encryptedexplorer.util.IoExecutors;
+import com.example.encryptedexplorer.util.Metrics;
+import com.example.encryptedexplorer.util.Tracing;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -10,28 +13,53 @@ import javax.swing.SwingUtilities;
 import java.awt.Image;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 缩略图缓存，异步加载，避免阻塞 UI。
+ * <p>
+ * 虚拟线程模式下（见 {@link IoExecutors}）源文件的读取在虚拟线程中进行，网络挂载上多个文件同时等待存储；
+ * 解密、解码与缩放仍在固定大小的平台线程池中，预读后待解码的文件数有上限。
  */
 public class ThumbnailCache {
 	private static final Logger LOG = LoggerFactory.getLogger(ThumbnailCache.class);
+	// 运行指标（JMX：type=ThumbnailCache）：命中、未命中、淘汰，排队中的加载任务数，
+	// 整个加载（含解密）与解码缩放的耗时
+	private static final AtomicInteger QUEUED = new AtomicInteger();
+	private static final Metrics.Counter HITS = Metrics.counter("ThumbnailCache", "hits");
+	private static final Metrics.Counter MISSES = Metrics.counter("ThumbnailCache", "misses");
+	private static final Metrics.Counter EVICTIONS = Metrics.counter("ThumbnailCache", "evictions");
+	private static final Metrics.Timer LOAD_TIME = Metrics.timer("ThumbnailCache", "loadTime");
+	private static final Metrics.Timer DECODE_TIME = Metrics.timer("ThumbnailCache", "decodeTime");
+
+	static {
+		Metrics.gauge("ThumbnailCache", "queueDepth", QUEUED::get);
+	}
+
 	// LRU 缓存，最多保存 300 个缩略图，自动淘汰最久未使用
 	private final Map<Path, ImageIcon> cache = Collections.synchronizedMap(new LinkedHashMap<Path, ImageIcon>(128, 0.75f, true) {
-		@Override protected boolean removeEldestEntry(Map.Entry<Path, ImageIcon> eldest) { return size() > 300; }
+		@Override protected boolean removeEldestEntry(Map.Entry<Path, ImageIcon> eldest) {
+			if (size() <= 300) return false;
+			EVICTIONS.increment();
+			return true;
+		}
 	});
-	// 限制并发加载线程数量，降低内存压力
-	private final ExecutorService executor = Executors.newFixedThreadPool(Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors() / 2)));
+	// 虚拟线程预读的单个文件上限与同时预读/待解码的文件数，超过上限的文件由解码线程自行读取
+	private static final long PREFETCH_MAX_BYTES = 8L * 1024 * 1024;
+	private static final int PREFETCH_IN_FLIGHT = 16;
+
+	// 限制并发加载线程数量，降低内存压力；首次未命中时才创建，不占用启动时间
+	private volatile ExecutorService executor;
+	private volatile ExecutorService ioExecutor;
 	private final Semaphore permits = new Semaphore(2);
+	// 公平信号量：预读大致按请求（滚动）顺序进行
+	private final Semaphore prefetchPermits = new Semaphore(PREFETCH_IN_FLIGHT, true);
 
 	public void getThumbnail(Path path, int size, java.util.function.Consumer<ImageIcon> callback) {
 		getThumbnail(path, size, false, null, callback);
@@ -43,65 +71,168 @@ public class ThumbnailCache {
 	public void getThumbnail(Path path, int size, boolean tryDecrypt, char[] password, java.util.function.Consumer<ImageIcon> callback) {
 		ImageIcon cached = cache.get(path);
 		if (cached != null) {
+			HITS.increment();
 			callback.accept(cached);
 			return;
 		}
-		executor.submit(() -> {
-			ImageIcon icon = null;
+		MISSES.increment();
+		QUEUED.incrementAndGet();
+		if (ioExecutor() == null) {
+			executor().submit(() -> load(path, size, tryDecrypt, password, null, callback));
+			return;
+		}
+		ioExecutor().execute(() -> {
 			try {
-				permits.acquire();
-				icon = loadThumbnail(path, size, tryDecrypt, password);
-			} catch (OutOfMemoryError oom) {
-				LOG.warn("内存不足，清理缩略图缓存后重试: {}", oom.toString());
-				cache.clear();
-				System.gc();
-				try {
-					icon = loadThumbnail(path, size, tryDecrypt, password);
-				} catch (Throwable t) {
-					LOG.warn("缩略图重试失败: {}", t.toString());
-				}
+				prefetchPermits.acquire();
 			} catch (InterruptedException ie) {
+				QUEUED.decrementAndGet();
 				Thread.currentThread().interrupt();
-			} finally {
-				permits.release();
-			}
-			if (icon != null) {
-				cache.put(path, icon);
+				return;
 			}
-			final ImageIcon toDeliver = icon;
-			SwingUtilities.invokeLater(() -> callback.accept(toDeliver));
+			byte[] raw = prefetch(path, tryDecrypt);
+			executor().submit(() -> {
+				try {
+					load(path, size, tryDecrypt, password, raw, callback);
+				} finally {
+					prefetchPermits.release();
+				}
+			});
 		});
 	}
 
-	private ImageIcon loadThumbnail(Path path, int size, boolean tryDecrypt, char[] password) {
+	/** 在平台线程池中生成缩略图并回调；raw 为虚拟线程预读的源文件内容，没有时自行读取。 */
+	private void load(Path path, int size, boolean tryDecrypt, char[] password, byte[] raw, java.util.function.Consumer<ImageIcon> callback) {
+		ImageIcon icon = null;
+		boolean queued = true;
+		SecretCaches.enter();
 		try {
-			if (!Files.exists(path)) return null;
+			permits.acquire();
+			QUEUED.decrementAndGet();
+			queued = false;
+			long t0 = System.nanoTime();
+			icon = loadThumbnail(path, size, tryDecrypt, password, raw);
+			LOAD_TIME.recordSince(t0);
+		} catch (OutOfMemoryError oom) {
+			LOG.warn("内存不足，清理缩略图缓存后重试: {}", oom.toString());
+			cache.clear();
+			System.gc();
+			try {
+				icon = loadThumbnail(path, size, tryDecrypt, password, null);
+			} catch (Throwable t) {
+				LOG.warn("缩略图重试失败: {}", t.toString());
+			}
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+		} finally {
+			if (queued) QUEUED.decrementAndGet();
+			permits.release();
+			SecretCaches.exit();
+		}
+		if (icon != null) {
+			cache.put(path, icon);
+		}
+		final ImageIcon toDeliver = icon;
+		SwingUtilities.invokeLater(() -> callback.accept(toDeliver));
+	}
+
+	/**
+	 * 在虚拟线程中读入源文件（等待存储的部分）。打包成员、已有加密时生成的缩略图、文件过大或读取失败时返回 null，
+	 * 由解码阶段按原方式读取。
+	 */
+	private static byte[] prefetch(Path path, boolean tryDecrypt) {
+		try {
+			if (!Files.isRegularFile(path)) return null;
+			boolean encrypted = tryDecrypt || EncryptionUtils.isEncryptedFileName(path.getFileName().toString());
+			if (encrypted && ThumbnailStore.hasStore(path.getParent())) return null;
+			Path source = encrypted ? DedupStore.resolve(path) : path;
+			if (Files.size(source) > PREFETCH_MAX_BYTES) return null;
+			return Files.readAllBytes(source);
+		} catch (Exception e) {
+			LOG.debug("缩略图预读失败: {} - {}", path, e.toString());
+			return null;
+		}
+	}
+
+	private ImageIcon loadThumbnail(Path path, int size, boolean tryDecrypt, char[] password, byte[] raw) {
+		Tracing.ThumbnailLoadEvent trace = Tracing.thumbnailLoad();
+		String source = "plain";
+		long decryptNanos = 0;
+		long decodeNanos = 0;
+		long scaleNanos = 0;
+		ImageIcon icon = null;
+		try {
+			boolean packMember = raw == null && ContentReader.isPackMember(path);
+			if (!packMember && raw == null && !Files.exists(path)) return null;
 			BufferedImage img;
-			if (tryDecrypt || EncryptionUtils.isEncryptedFileName(path.getFileName().toString())) {
-				try (InputStream in = Files.newInputStream(path)) {
-					ByteArrayOutputStream bos = new ByteArrayOutputStream();
-					EncryptionUtils.decryptStream(in, bos, password != null ? password : new char[0]);
-					byte[] bytes = bos.toByteArray();
-					img = ImageIO.read(new ByteArrayInputStream(bytes));
-				}
+			long t0 = System.nanoTime();
+			if (packMember || tryDecrypt || EncryptionUtils.isEncryptedFileName(path.getFileName().toString())) {
+				// 优先使用加密复制时生成的缩略图（每个目录一次解密），没有时才解密原图
+				byte[] stored = ThumbnailStore.lookup(path, password);
+				source = stored != null ? "store" : "decrypt";
+				byte[] bytes = stored != null ? stored
+						: raw != null ? ContentReader.decrypt(path, raw, password) : ContentReader.readAll(path, true, password);
+				long t1 = System.nanoTime();
+				decryptNanos = t1 - t0;
+				img = ImageIO.read(new ByteArrayInputStream(bytes));
+				decodeNanos = System.nanoTime() - t1;
 			} else {
-				img = ImageIO.read(path.toFile());
+				img = raw != null ? ImageIO.read(new ByteArrayInputStream(raw)) : ImageIO.read(path.toFile());
+				decodeNanos = System.nanoTime() - t0;
 			}
 			if (img == null) return null;
-			Image scaled = img.getScaledInstance(size, size, Image.SCALE_SMOOTH);
-			return new ImageIcon(scaled);
+			long t2 = System.nanoTime();
+			icon = new ImageIcon(img.getScaledInstance(size, size, Image.SCALE_SMOOTH));
+			scaleNanos = System.nanoTime() - t2;
+			DECODE_TIME.record(decodeNanos + scaleNanos);
+			return icon;
 		} catch (OutOfMemoryError oom) {
 			throw oom;
 		} catch (Exception e) {
 			LOG.debug("缩略图生成失败: {} - {}", path, e.toString());
 			return null;
+		} finally {
+			if (trace != null) trace.complete(path, source, decryptNanos, decodeNanos, scaleNanos, icon != null);
+		}
+	}
+
+	/** 虚拟线程模式下的预读执行器（首次使用时创建）；否则返回 null。 */
+	private ExecutorService ioExecutor() {
+		if (!IoExecutors.virtual()) return null;
+		ExecutorService e = ioExecutor;
+		if (e == null) {
+			synchronized (this) {
+				e = ioExecutor;
+				if (e == null) {
+					e = IoExecutors.io("thumbnail-io", 1);
+					ioExecutor = e;
+				}
+			}
+		}
+		return e;
+	}
+
+	private ExecutorService executor() {
+		ExecutorService e = executor;
+		if (e == null) {
+			synchronized (this) {
+				e = executor;
+				if (e == null) {
+					e = Executors.newFixedThreadPool(Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors() / 2)));
+					executor = e;
+				}
+			}
 		}
+		return e;
 	}
 
 	public void shutdown() {
-		executor.shutdown();
+		ExecutorService io = ioExecutor;
+		if (io != null) io.shutdown();
+		ExecutorService e = executor;
+		if (e == null) return;
+		e.shutdown();
 		try {
-			executor.awaitTermination(2, TimeUnit.SECONDS);
+			e.awaitTermination(2, TimeUnit.SECONDS);
 		} catch (InterruptedException ignored) {}
 	}
 } 
\ No newline at end of file
@@ -0,0 +1,211 @@
+package com.example.encryptedexplorer.service;
+
+import com.example.encryptedexplorer.util.EncryptionUtils;
+import com.example.encryptedexplorer.util.FileUtilsEx;
+import com.example.encryptedexplorer.util.VaultKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 缩略图旁路文件（目录/.thumbs）：加密复制时用流经的明文生成缩略图，整个目录的缩略图加密为一个小文件。
+ * 查看端每个目录一次读取、一次密钥派生即可显示全部缩略图，无需逐个解密原图。
+ * <p>
+ * 以目录内的实际名字（独立加密文件为 xxx.encrypted，打包成员为成员名）为键，内容为 JPEG（带透明通道时为 PNG）。
+ */
+public final class ThumbnailStore {
+	private static final Logger LOG = LoggerFactory.getLogger(ThumbnailStore.class);
+	public static final String STORE_FILE = ".thumbs";
+	/** 缩略图最长边（像素），查看页显示时再缩放到所需尺寸。 */
+	public static final int MAX_EDGE = 128;
+	/** 超过该大小的图片不在复制时生成缩略图，避免占用过多内存。 */
+	public static final int MAX_SOURCE_BYTES = 32 * 1024 * 1024;
+	private static final int VERSION = 1;
+
+	// 已载入缓存（目录 -> 缩略图集），LRU 32
+	private static final Map<Path, ThumbnailStore> CACHE = Collections.synchronizedMap(new LinkedHashMap<Path, ThumbnailStore>(16, 0.75f, true) {
+		@Override protected boolean removeEldestEntry(Map.Entry<Path, ThumbnailStore> eldest) { return size() > 32; }
+	});
+
+	private final Map<String, byte[]> images;
+	private final char[] password;
+	private final long modified;
+
+	private ThumbnailStore(Map<String, byte[]> images, char[] password, long modified) {
+		this.images = images;
+		this.password = password;
+		this.modified = modified;
+	}
+
+	public static Path storeFileFor(Path directory) {
+		return directory.resolve(STORE_FILE);
+	}
+
+	/** 旁路文件及其临时文件，复制与浏览时不作为普通文件处理。 */
+	public static boolean isStoreFile(String name) {
+		return STORE_FILE.equals(name) || (STORE_FILE + ".tmp").equals(name);
+	}
+
+	public static boolean hasStore(Path directory) {
+		return directory != null && Files.isRegularFile(storeFileFor(directory));
+	}
+
+	/**
+	 * 查找文件（含打包成员的虚拟路径）预先生成的缩略图；没有或无法解密时返回 null。
+	 */
+	public static byte[] lookup(Path file, char[] password) {
+		Path dir = file.getParent();
+		if (!hasStore(dir) || file.getFileName() == null) return null;
+		try {
+			return forDirectory(dir, password).images.get(file.getFileName().toString());
+		} catch (IOException | GeneralSecurityException e) {
+			LOG.debug("读取缩略图旁路文件失败: {} - {}", dir, e.toString());
+			return null;
+		}
+	}
+
+	static ThumbnailStore forDirectory(Path directory, char[] password) throws IOException, GeneralSecurityException {
+		long modified = Files.getLastModifiedTime(storeFileFor(directory)).toMillis();
+		ThumbnailStore cached = CACHE.get(directory);
+		if (cached != null && cached.modified == modified && Arrays.equals(cached.password, password)) {
+			return cached;
+		}
+		ThumbnailStore loaded = load(directory, password, Vault.locate(directory, password));
+		CACHE.put(directory, loaded);
+		return loaded;
+	}
+
+	/** 清零并丢弃已载入缩略图集的密码副本（见 {@link SecretCaches}）。 */
+	static void clearCache() {
+		synchronized (CACHE) {
+			for (ThumbnailStore store : CACHE.values()) Arrays.fill(store.password, '\0');
+			CACHE.clear();
+		}
+	}
+
+	private static ThumbnailStore load(Path directory, char[] password, VaultKey vault) throws IOException, GeneralSecurityException {
+		Path file = storeFileFor(directory);
+		long modified = Files.getLastModifiedTime(file).toMillis();
+		byte[] plain = EncryptionUtils.decryptBytes(Files.readAllBytes(file), password, vault);
+		try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(plain))) {
+			int version = in.readInt();
+			if (version != VERSION) throw new IOException("不支持的缩略图文件版本: " + version);
+			int count = in.readInt();
+			Map<String, byte[]> images = new LinkedHashMap<>(Math.max(16, count * 2));
+			for (int i = 0; i < count; i++) {
+				String name = in.readUTF();
+				byte[] data = new byte[in.readInt()];
+				in.readFully(data);
+				images.put(name, data);
+			}
+			LOG.debug("载入缩略图: {} 数量={}", file, images.size());
+			return new ThumbnailStore(images, password != null ? password.clone() : new char[0], modified);
+		} catch (EOFException e) {
+			throw new IOException("缩略图文件已损坏: " + file, e);
+		}
+	}
+
+	/**
+	 * 将本次生成的缩略图合并进目录已有旁路文件（同名覆盖），并移除目录中已不存在的文件的缩略图。
+	 */
+	static void update(Path directory, Map<String, byte[]> updates, char[] password, VaultKey vault, boolean durable) throws IOException, GeneralSecurityException {
+		Map<String, byte[]> merged = new LinkedHashMap<>();
+		if (hasStore(directory)) {
+			try {
+				merged.putAll(load(directory, password, vault).images);
+			} catch (IOException | GeneralSecurityException e) {
+				LOG.warn("已有缩略图文件无法读取，将重建: {} - {}", directory, e.toString());
+			}
+		}
+		merged.putAll(updates);
+		PackReader pack = PackReader.hasPack(directory) ? PackReader.forDirectory(directory, password) : null;
+		merged.keySet().removeIf(name -> !Files.exists(directory.resolve(name)) && (pack == null || !pack.contains(name)));
+
+		ByteArrayOutputStream bos = new ByteArrayOutputStream(16 + merged.values().stream().mapToInt(b -> b.length + 32).sum());
+		try (DataOutputStream out = new DataOutputStream(bos)) {
+			out.writeInt(VERSION);
+			out.writeInt(merged.size());
+			for (Map.Entry<String, byte[]> e : merged.entrySet()) {
+				out.writeUTF(e.getKey());
+				out.writeInt(e.getValue().length);
+				out.write(e.getValue());
+			}
+		}
+		byte[] sealed = EncryptionUtils.encryptBytes(bos.toByteArray(), password, vault);
+		Path file = storeFileFor(directory);
+		Path tmp = file.resolveSibling(STORE_FILE + ".tmp");
+		Files.write(tmp, sealed);
+		if (durable) {
+			FileUtilsEx.force(tmp);
+			Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			FileUtilsEx.forceDirectory(directory);
+		} else {
+			Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+		}
+		CACHE.remove(directory);
+		LOG.debug("写入缩略图: {} 数量={} 本次={}", file, merged.size(), updates.size());
+	}
+
+	/**
+	 * 由图片内容生成最长边为 {@link #MAX_EDGE} 的缩略图。解码时按比例隔行隔列采样，
+	 * 不必完整解码大图；无法识别的格式返回 null。
+	 */
+	static byte[] render(byte[] image) throws IOException {
+		try (ImageInputStream iis = ImageIO.createImageInputStream(new ByteArrayInputStream(image))) {
+			if (iis == null) return null;
+			Iterator<ImageReader> readers = ImageIO.getImageReaders(iis);
+			if (!readers.hasNext()) return null;
+			ImageReader reader = readers.next();
+			BufferedImage source;
+			try {
+				reader.setInput(iis, true, true);
+				int longest = Math.max(reader.getWidth(0), reader.getHeight(0));
+				// 采样到约两倍目标尺寸，再平滑缩放，兼顾速度与质量
+				int step = Math.max(1, longest / (MAX_EDGE * 2));
+				ImageReadParam param = reader.getDefaultReadParam();
+				param.setSourceSubsampling(step, step, 0, 0);
+				source = reader.read(0, param);
+			} finally {
+				reader.dispose();
+			}
+			double scale = Math.min(1.0, (double) MAX_EDGE / Math.max(source.getWidth(), source.getHeight()));
+			int w = Math.max(1, (int) Math.round(source.getWidth() * scale));
+			int h = Math.max(1, (int) Math.round(source.getHeight() * scale));
+			boolean alpha = source.getColorModel().hasAlpha();
+			BufferedImage thumb = new BufferedImage(w, h, alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+			Graphics2D g = thumb.createGraphics();
+			try {
+				g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+				g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+				g.drawImage(source, 0, 0, w, h, null);
+			} finally {
+				g.dispose();
+			}
+			ByteArrayOutputStream out = new ByteArrayOutputStream(8 * 1024);
+			ImageIO.write(thumb, alpha ? "png" : "jpg", out);
+			return out.toByteArray();
+		}
+	}
+}
@@ -0,0 +1,156 @@
+package com.example.encryptedexplorer.service;
+
+import com.example.encryptedexplorer.util.VaultKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * 保险库头文件（根目录/.vault）：魔数 + 保险库标识(16) + 密码包裹的主密钥。
+ * 查看端通过 {@link #locate(Path, char[])} 向上查找所属保险库，每个保险库每次会话只解包一次。
+ */
+public final class Vault {
+	private static final Logger LOG = LoggerFactory.getLogger(Vault.class);
+	public static final String FILE_NAME = ".vault";
+	private static final byte[] MAGIC = "ENCVAULT1".getBytes(StandardCharsets.US_ASCII);
+
+	// 目录 -> 所属保险库根目录（无则 empty），LRU 1024
+	private static final Map<Path, Optional<Path>> ROOTS = Collections.synchronizedMap(new LinkedHashMap<Path, Optional<Path>>(64, 0.75f, true) {
+		@Override protected boolean removeEldestEntry(Map.Entry<Path, Optional<Path>> eldest) { return size() > 1024; }
+	});
+	// 保险库根目录 -> 已解包密钥（连同解包所用密码，用于校验密码是否变化）
+	private static final Map<Path, Unlocked> UNLOCKED = Collections.synchronizedMap(new LinkedHashMap<>());
+
+	private static final class Unlocked {
+		final VaultKey key;
+		final char[] password;
+		final long modified;
+
+		Unlocked(VaultKey key, char[] password, long modified) {
+			this.key = key;
+			this.password = password;
+			this.modified = modified;
+		}
+
+		void destroy() {
+			Arrays.fill(password, '\0');
+			key.destroy();
+		}
+	}
+
+	private Vault() {}
+
+	/** 保险库头文件及其临时文件，复制与浏览时不作为普通文件处理。 */
+	public static boolean isVaultFile(String name) {
+		return FILE_NAME.equals(name) || (FILE_NAME + ".tmp").equals(name);
+	}
+
+	public static boolean exists(Path root) {
+		return Files.isRegularFile(root.resolve(FILE_NAME));
+	}
+
+	/**
+	 * 打开根目录的保险库；不存在且 create 为 true 时创建新的主密钥。不存在且不创建时返回 null。
+	 */
+	public static VaultKey openOrCreate(Path root, char[] password, boolean create) throws IOException, GeneralSecurityException {
+		if (exists(root)) return open(root, password);
+		if (!create) return null;
+		VaultKey key = VaultKey.generate();
+		Files.createDirectories(root);
+		write(root, key, password);
+		LOG.info("创建保险库: {}", root);
+		ROOTS.clear();
+		return key;
+	}
+
+	public static VaultKey open(Path root, char[] password) throws IOException, GeneralSecurityException {
+		Path file = root.resolve(FILE_NAME);
+		long modified = Files.getLastModifiedTime(file).toMillis();
+		Unlocked cached = UNLOCKED.get(root);
+		if (cached != null && cached.modified == modified && Arrays.equals(cached.password, password)) {
+			return cached.key;
+		}
+		byte[] raw = Files.readAllBytes(file);
+		if (raw.length <= MAGIC.length + VaultKey.ID_LEN || !Arrays.equals(Arrays.copyOf(raw, MAGIC.length), MAGIC)) {
+			throw new IOException("保险库文件已损坏: " + file);
+		}
+		byte[] id = Arrays.copyOfRange(raw, MAGIC.length, MAGIC.length + VaultKey.ID_LEN);
+		byte[] wrapped = Arrays.copyOfRange(raw, MAGIC.length + VaultKey.ID_LEN, raw.length);
+		VaultKey key = VaultKey.unwrap(id, wrapped, password);
+		UNLOCKED.put(root, new Unlocked(key, password.clone(), modified));
+		return key;
+	}
+
+	/**
+	 * 查找 dir 自身或上级目录中的保险库并解包；不在保险库内返回 null。
+	 */
+	public static VaultKey locate(Path dir, char[] password) throws IOException, GeneralSecurityException {
+		if (dir == null) return null;
+		Path start = dir.toAbsolutePath().normalize();
+		Optional<Path> root = ROOTS.get(start);
+		if (root == null) {
+			root = Optional.empty();
+			for (Path p = start; p != null; p = p.getParent()) {
+				if (exists(p)) {
+					root = Optional.of(p);
+					break;
+				}
+			}
+			ROOTS.put(start, root);
+		}
+		return root.isPresent() ? open(root.get(), password != null ? password : new char[0]) : null;
+	}
+
+	/** 清零并丢弃已解包的主密钥及其密码副本（见 {@link SecretCaches}）。 */
+	static void clearUnlocked() {
+		synchronized (UNLOCKED) {
+			for (Unlocked u : UNLOCKED.values()) u.destroy();
+			UNLOCKED.clear();
+		}
+	}
+
+	/**
+	 * 修改保险库密码：用旧密码解包主密钥，用新密码重新包裹并原子替换 .vault。文件内容不变。
+	 */
+	public static void rekey(Path root, char[] oldPassword, char[] newPassword) throws IOException, GeneralSecurityException {
+		if (!exists(root)) throw new IOException("目录不是保险库: " + root);
+		SecretCaches.enter();
+		try {
+			VaultKey key = open(root, oldPassword);
+			write(root, key, newPassword);
+			Unlocked old = UNLOCKED.remove(root);
+			if (old != null) Arrays.fill(old.password, '\0');
+		} finally {
+			SecretCaches.exit();
+		}
+		LOG.info("保险库密码已更新: {}", root);
+	}
+
+	private static void write(Path root, VaultKey key, char[] password) throws IOException, GeneralSecurityException {
+		byte[] wrapped = key.wrap(password);
+		byte[] id = key.id();
+		byte[] raw = new byte[MAGIC.length + id.length + wrapped.length];
+		System.arraycopy(MAGIC, 0, raw, 0, MAGIC.length);
+		System.arraycopy(id, 0, raw, MAGIC.length, id.length);
+		System.arraycopy(wrapped, 0, raw, MAGIC.length + id.length, wrapped.length);
+		Path file = root.resolve(FILE_NAME);
+		Path tmp = root.resolve(FILE_NAME + ".tmp");
+		Files.write(tmp, raw);
+		try {
+			Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException atomicUnsupported) {
+			Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+}
@@ -0,0 +1,237 @@
+package com.example.encryptedexplorer.service;
+
+import com.example.encryptedexplorer.model.VerifyOptions;
+import com.example.encryptedexplorer.util.EncryptionUtils;
+import com.example.encryptedexplorer.util.IoScheduler;
+import com.example.encryptedexplorer.util.RateLimiter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * 完整性校验（scrub）：遍历加密目录，多线程认证每个加密文件的全部 GCM 标签与打包成员，
+ * 明文直接丢弃，从不写出任何文件。报告损坏/截断的文件以及整体吞吐量。
+ * 硬链接（去重引用）与指针文件按实际对象只校验一次；分块文件校验清单及其引用的全部分块，
+ * .objects/ 中的对象只经引用校验。
+ */
+public class VerifyService {
+	private static final Logger LOG = LoggerFactory.getLogger(VerifyService.class);
+
+	public interface Callbacks {
+		void onVerified(Path file, long bytes);
+		void onFailure(Path file, Exception error);
+		boolean isCancelled();
+	}
+
+	/** 单个校验失败项。 */
+	public static final class Failure {
+		public final Path file;
+		public final String reason;
+
+		Failure(Path file, String reason) {
+			this.file = file;
+			this.reason = reason;
+		}
+	}
+
+	/** 校验结果汇总。 */
+	public static final class Report {
+		public long filesVerified;
+		public long bytesVerified;
+		public long filesSkipped;
+		public long elapsedNanos;
+		public boolean cancelled;
+		public final List<Failure> failures = new ArrayList<>();
+
+		public boolean isClean() {
+			return failures.isEmpty() && !cancelled;
+		}
+
+		public double bytesPerSecond() {
+			return elapsedNanos > 0 ? bytesVerified * 1_000_000_000.0 / elapsedNanos : 0;
+		}
+	}
+
+	public Report verify(VerifyOptions options, Callbacks callbacks) throws IOException {
+		// 校验期间使用缓存的保险库与打包密钥，期间请求的清理推迟到结束
+		SecretCaches.enter();
+		try {
+			return verifyTree(options, callbacks);
+		} finally {
+			SecretCaches.exit();
+		}
+	}
+
+	private Report verifyTree(VerifyOptions options, Callbacks callbacks) throws IOException {
+		Objects.requireNonNull(options);
+		Objects.requireNonNull(callbacks);
+		options.validate();
+
+		Path root = options.rootDirectory;
+		RateLimiter limiter = new RateLimiter(options.maxBytesPerSecond);
+		IoScheduler io = new IoScheduler(options.workers, limiter);
+		LOG.info("开始校验: {} (workers={}, limit={}B/s)", root, options.workers, options.maxBytesPerSecond);
+
+		long t0 = System.nanoTime();
+		AtomicLong files = new AtomicLong();
+		AtomicLong bytes = new AtomicLong();
+		AtomicLong skipped = new AtomicLong();
+		List<Failure> failures = Collections.synchronizedList(new ArrayList<>());
+		Set<Object> seen = ConcurrentHashMap.newKeySet();
+
+		ExecutorService pool = Executors.newFixedThreadPool(options.workers, r -> {
+			Thread t = new Thread(r, "verify-worker");
+			t.setDaemon(true);
+			return t;
+		});
+		// 限制排队任务数，避免超大目录一次性积压全部路径
+		Semaphore inFlight = new Semaphore(options.workers * 4);
+		boolean cancelled = false;
+		try {
+			Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+				@Override
+				public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+					if (callbacks.isCancelled()) return FileVisitResult.TERMINATE;
+					String name = file.getFileName().toString();
+					Check task;
+					if (PackReader.INDEX_FILE.equals(name)) {
+						task = () -> verifyPack(file.getParent(), options.password, limiter, (member, e) -> {
+							failures.add(new Failure(member, e.toString()));
+							LOG.warn("校验失败: {} - {}", member, e.toString());
+							callbacks.onFailure(member, e);
+						});
+					} else if (EncryptionUtils.isEncryptedFileName(name)) {
+						task = () -> verifyFile(file, options.password, io, seen);
+					} else {
+						skipped.incrementAndGet();
+						return FileVisitResult.CONTINUE;
+					}
+					try {
+						inFlight.acquire();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						return FileVisitResult.TERMINATE;
+					}
+					pool.execute(() -> {
+						try {
+							long verified = task.run();
+							bytes.addAndGet(verified);
+							files.incrementAndGet();
+							callbacks.onVerified(file, verified);
+						} catch (Exception e) {
+							failures.add(new Failure(file, e.toString()));
+							LOG.warn("校验失败: {} - {}", file, e.toString());
+							callbacks.onFailure(file, e);
+						} finally {
+							inFlight.release();
+						}
+					});
+					return FileVisitResult.CONTINUE;
+				}
+
+				@Override
+				public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+					return DedupStore.isStoreDirectory(dir) ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+				}
+
+				@Override
+				public FileVisitResult visitFileFailed(Path file, IOException exc) {
+					failures.add(new Failure(file, exc.toString()));
+					callbacks.onFailure(file, exc);
+					return FileVisitResult.CONTINUE;
+				}
+			});
+			cancelled = callbacks.isCancelled();
+		} finally {
+			if (cancelled) pool.shutdownNow(); else pool.shutdown();
+			try {
+				while (!pool.awaitTermination(1, TimeUnit.SECONDS)) {
+					if (!cancelled && callbacks.isCancelled()) {
+						cancelled = true;
+						pool.shutdownNow();
+					}
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				pool.shutdownNow();
+			}
+		}
+
+		Report report = new Report();
+		report.filesVerified = files.get();
+		report.bytesVerified = bytes.get();
+		report.filesSkipped = skipped.get();
+		report.elapsedNanos = System.nanoTime() - t0;
+		report.cancelled = cancelled;
+		synchronized (failures) {
+			report.failures.addAll(failures);
+		}
+		for (IoScheduler.Device device : io.devices()) LOG.info("设备 I/O: {}", device);
+		LOG.info("校验完成: {} 文件={} 字节={} 失败={} 跳过={} 吞吐={}MB/s", root, report.filesVerified, report.bytesVerified,
+				report.failures.size(), report.filesSkipped, String.format("%.1f", report.bytesPerSecond() / (1024 * 1024)));
+		return report;
+	}
+
+	private static long verifyFile(Path file, char[] password, IoScheduler io, Set<Object> seen)
+			throws IOException, GeneralSecurityException {
+		if (ChunkList.isChunkList(file)) {
+			// 清单与分块对象的读取都经 ticket 限速，与普通文件一致
+			try (IoScheduler.Ticket ticket = io.acquire(file)) {
+				return ChunkList.verify(file, password, Vault.locate(file.getParent(), password), ticket);
+			}
+		}
+		Path object = DedupStore.resolve(file);
+		BasicFileAttributes attrs = Files.readAttributes(object, BasicFileAttributes.class);
+		Object identity = attrs.fileKey() != null ? attrs.fileKey() : object.toRealPath();
+		if (!seen.add(identity)) return 0; // 同一对象的其他引用已校验
+		try (IoScheduler.Ticket ticket = io.acquire(object);
+			 InputStream in = ticket.throttle(Files.newInputStream(object, StandardOpenOption.READ))) {
+			return EncryptionUtils.verifyStream(in, password, Vault.locate(file.getParent(), password), null);
+		}
+	}
+
+	/**
+	 * 校验打包索引及全部成员；单个成员损坏不影响其余成员，逐个上报。
+	 */
+	private static long verifyPack(Path dir, char[] password, RateLimiter limiter,
+								   BiConsumer<Path, Exception> memberFailed) throws IOException, GeneralSecurityException {
+		PackReader pack = PackReader.load(dir, password);
+		long verified = 0;
+		for (PackReader.Entry e : pack.entries().values()) {
+			limiter.acquire(e.length);
+			try {
+				pack.read(e.name);
+				verified += e.length;
+			} catch (IOException | GeneralSecurityException ex) {
+				memberFailed.accept(dir.resolve(e.name), ex);
+			}
+		}
+		return verified;
+	}
+
+	private interface Check {
+		/** 返回本次认证的字节数。 */
+		long run() throws IOException, GeneralSecurityException;
+	}
+}
@@ -1,9 +1,11 @@
 package com.example.encryptedexplorer.ui;
 
+import com.example.encryptedexplorer.model.ConflictPolicy;
 import com.example.encryptedexplorer.model.CopyOptions;
 import com.example.encryptedexplorer.model.ErrorDecision;
 import com.example.encryptedexplorer.model.Resolution;
 import com.example.encryptedexplorer.service.CopyService;
+import com.example.encryptedexplorer.service.SecretCaches;
 import com.example.encryptedexplorer.ui.dialog.ConflictResolutionDialog;
 import com.example.encryptedexplorer.ui.dialog.ErrorHandlingDialog;
 import org.slf4j.Logger;
@@ -14,17 +16,34 @@ import javax.swing.border.EmptyBorder;
 import java.awt.*;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * “文件复制”选项卡面板。
  */
 public class CopyPanel extends JPanel {
 	private static final Logger LOG = LoggerFactory.getLogger(CopyPanel.class);
+	private static final ConflictPolicy[] CONFLICT_POLICIES = {
+			ConflictPolicy.ASK, ConflictPolicy.OVERWRITE, ConflictPolicy.SKIP,
+			ConflictPolicy.SKIP_IF_IDENTICAL, ConflictPolicy.KEEP_NEWER, ConflictPolicy.RENAME};
+	private static final String[] CONFLICT_LABELS = {"逐个询问", "全部覆盖", "全部跳过", "相同则跳过", "保留较新", "自动重命名"};
 	private final JTextField sourceField = new JTextField();
 	private final JTextField targetField = new JTextField();
 	private final JCheckBox encryptFiles = new JCheckBox("加密文件");
 	private final JCheckBox decryptFiles = new JCheckBox("解密文件");
+	private final JCheckBox packSmallFiles = new JCheckBox("小文件打包");
+	private final JCheckBox compressFiles = new JCheckBox("压缩");
+	private final JCheckBox deduplicate = new JCheckBox("去重");
+	private final JCheckBox chunkLargeFiles = new JCheckBox("分块增量");
+	private final JCheckBox useVault = new JCheckBox("保险库");
+	private final JCheckBox indexDirectories = new JCheckBox("目录索引");
+	private final JCheckBox thumbnails = new JCheckBox("生成缩略图");
+	private final JCheckBox searchIndex = new JCheckBox("搜索索引");
 	private final JPasswordField passwordField = new JPasswordField();
+	private final JComboBox<String> conflictPolicy = new JComboBox<>(CONFLICT_LABELS);
+	private final JCheckBox identicalByHash = new JCheckBox("按内容比较");
+	private final JCheckBox durable = new JCheckBox("持久写入");
 	private final JButton startButton = new JButton("开始复制");
 	private final JButton cancelButton = new JButton("取消");
 	private final JProgressBar progressBar = new JProgressBar();
@@ -51,7 +70,9 @@ public class CopyPanel extends JPanel {
 		gc.gridx = 2; gc.weightx = 0; JButton browseDst = new JButton("浏览..."); top.add(browseDst, gc);
 		gc.gridx = 0; gc.gridy = 2; top.add(new JLabel("密码:"), gc);
 		gc.gridx = 1; gc.weightx = 1; top.add(passwordField, gc);
-		gc.gridx = 2; gc.weightx = 0; JPanel encPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 0, 0)); encPanel.add(encryptFiles); encPanel.add(Box.createHorizontalStrut(8)); encPanel.add(decryptFiles); top.add(encPanel, gc);
+		gc.gridx = 2; gc.weightx = 0; JPanel encPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 0, 0)); encPanel.add(encryptFiles); encPanel.add(Box.createHorizontalStrut(8)); encPanel.add(decryptFiles); encPanel.add(Box.createHorizontalStrut(8)); encPanel.add(packSmallFiles); encPanel.add(Box.createHorizontalStrut(8)); encPanel.add(compressFiles); encPanel.add(Box.createHorizontalStrut(8)); encPanel.add(deduplicate); encPanel.add(Box.createHorizontalStrut(8)); encPanel.add(chunkLargeFiles); encPanel.add(Box.createHorizontalStrut(8)); encPanel.add(useVault); encPanel.add(Box.createHorizontalStrut(8)); encPanel.add(indexDirectories); encPanel.add(Box.createHorizontalStrut(8)); encPanel.add(thumbnails); encPanel.add(Box.createHorizontalStrut(8)); encPanel.add(searchIndex); top.add(encPanel, gc);
+		gc.gridx = 0; gc.gridy = 3; top.add(new JLabel("冲突处理:"), gc);
+		gc.gridx = 1; gc.weightx = 1; JPanel conflictPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 0, 0)); conflictPanel.add(conflictPolicy); conflictPanel.add(Box.createHorizontalStrut(8)); conflictPanel.add(identicalByHash); conflictPanel.add(Box.createHorizontalStrut(8)); conflictPanel.add(durable); top.add(conflictPanel, gc);
 
 		add(top, BorderLayout.NORTH);
 
@@ -102,6 +123,17 @@ public class CopyPanel extends JPanel {
 		options.encryptDirectoryNames = directoryTransformEnabled && encryptFiles.isSelected();
 		options.decryptDirectoryNames = directoryTransformEnabled && decryptFiles.isSelected();
 		options.password = passwordField.getPassword();
+		options.packSmallFiles = packSmallFiles.isSelected() && encryptFiles.isSelected();
+		options.compressFiles = compressFiles.isSelected() && encryptFiles.isSelected();
+		options.deduplicate = deduplicate.isSelected() && encryptFiles.isSelected();
+		options.chunkLargeFiles = chunkLargeFiles.isSelected() && encryptFiles.isSelected();
+		options.useVault = useVault.isSelected() && encryptFiles.isSelected();
+		options.indexDirectories = indexDirectories.isSelected() && encryptFiles.isSelected();
+		options.thumbnails = thumbnails.isSelected() && encryptFiles.isSelected();
+		options.searchIndex = searchIndex.isSelected() && encryptFiles.isSelected();
+		options.conflictPolicy = CONFLICT_POLICIES[conflictPolicy.getSelectedIndex()];
+		options.identicalByHash = identicalByHash.isSelected();
+		options.durable = durable.isSelected();
 
 		try {
 			options.validate();
@@ -114,9 +146,9 @@ public class CopyPanel extends JPanel {
 		startButton.setEnabled(false);
 		progressBar.setValue(0);
 		logArea.setText("");
-		LOG.info("开始复制: src={}, dst={}, encFiles={}, decFiles={}, dirTransform={}, encDir={}, decDir={}",
+		LOG.info("开始复制: src={}, dst={}, encFiles={}, decFiles={}, dirTransform={}, encDir={}, decDir={}, pack={}, compress={}, dedup={}, chunk={}, vault={}",
 				options.sourceDirectory, options.targetDirectory, options.encryptFiles, options.decryptFiles,
-				directoryTransformEnabled, options.encryptDirectoryNames, options.decryptDirectoryNames);
+				directoryTransformEnabled, options.encryptDirectoryNames, options.decryptDirectoryNames, options.packSmallFiles, options.compressFiles, options.deduplicate, options.chunkLargeFiles, options.useVault);
 
 		CopyService service = new CopyService();
 		SwingWorker<Void, Void> worker = new SwingWorker<>() {
@@ -128,6 +160,10 @@ public class CopyPanel extends JPanel {
 			@Override
 			protected Void doInBackground() {
 				try {
+					if (options.conflictPolicy == ConflictPolicy.ASK && !decideConflicts(service, options)) {
+						SwingUtilities.invokeLater(() -> logArea.append("已取消：目标中存在冲突文件\n"));
+						return null;
+					}
 					service.copyDirectory(options, new CopyService.Callbacks() {
 						@Override
 						public Resolution onConflict(Path targetPath) {
@@ -185,9 +221,38 @@ public class CopyPanel extends JPanel {
 			@Override
 			protected void done() {
 				startButton.setEnabled(true);
+				// 任务结束后不再保留密码与缓存的密钥
+				Arrays.fill(options.password, '\0');
+				SecretCaches.clear();
 				LOG.info("复制任务结束");
 			}
 		};
 		worker.execute();
 	}
+
+	/**
+	 * 预扫描冲突并弹出一次批量决定对话框，选定的策略写入 options；选择取消时返回 false。
+	 * 在后台线程调用，对话框在事件线程中显示。
+	 */
+	private boolean decideConflicts(CopyService service, CopyOptions options) throws Exception {
+		SwingUtilities.invokeLater(() -> currentLabel.setText("当前文件: 正在扫描冲突..."));
+		List<Path> conflicts = service.findConflicts(options);
+		if (conflicts.isEmpty()) return true;
+		StringBuilder msg = new StringBuilder("目标中已存在 " + conflicts.size() + " 个文件，例如：\n");
+		for (int i = 0; i < Math.min(8, conflicts.size()); i++) {
+			msg.append("  ").append(options.targetDirectory.relativize(conflicts.get(i))).append('\n');
+		}
+		if (conflicts.size() > 8) msg.append("  ...\n");
+		msg.append("请选择对全部冲突的处理方式：");
+		String[] choices = {"全部覆盖", "全部跳过", "相同则跳过", "保留较新", "自动重命名", "逐个询问", "取消"};
+		ConflictPolicy[] policies = {ConflictPolicy.OVERWRITE, ConflictPolicy.SKIP, ConflictPolicy.SKIP_IF_IDENTICAL,
+				ConflictPolicy.KEEP_NEWER, ConflictPolicy.RENAME, ConflictPolicy.ASK};
+		int[] picked = {-1};
+		SwingUtilities.invokeAndWait(() -> picked[0] = JOptionPane.showOptionDialog(this, msg.toString(), "批量冲突处理",
+				JOptionPane.DEFAULT_OPTION, JOptionPane.QUESTION_MESSAGE, null, choices, choices[2]));
+		LOG.info("批量冲突决策: 冲突={} 选择={}", conflicts.size(), picked[0] >= 0 ? choices[picked[0]] : "关闭");
+		if (picked[0] < 0 || picked[0] >= policies.length) return false;
+		options.conflictPolicy = policies[picked[0]];
+		return true;
+	}
 } 
\ No newline at end of file
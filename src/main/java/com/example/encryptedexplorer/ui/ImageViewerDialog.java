@@ -1,6 +1,8 @@
 package com.example.encryptedexplorer.ui;
 
+import com.example.encryptedexplorer.service.ContentReader;
 import com.example.encryptedexplorer.util.EncryptionUtils;
+import com.example.encryptedexplorer.util.Tracing;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -14,9 +16,6 @@ import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.InputStream;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.security.GeneralSecurityException;
 import java.util.List;
@@ -164,19 +163,28 @@ public class ImageViewerDialog extends JDialog {
 	}
 
 	private BufferedImage loadImage(Path file) throws Exception {
-		if (tryDecrypt || EncryptionUtils.isEncryptedFileName(file.getFileName().toString())) {
-			try (InputStream in = Files.newInputStream(file)) {
-				ByteArrayOutputStream bos = new ByteArrayOutputStream();
-				EncryptionUtils.decryptStream(in, bos, password);
-				byte[] bytes = bos.toByteArray();
-				BufferedImage img = ImageIO.read(new ByteArrayInputStream(bytes));
+		Tracing.ImageLoadEvent trace = Tracing.imageLoad();
+		boolean encrypted = tryDecrypt || EncryptionUtils.isEncryptedFileName(file.getFileName().toString()) || ContentReader.isPackMember(file);
+		long decryptNanos = 0;
+		long t0 = System.nanoTime();
+		BufferedImage img = null;
+		try {
+			if (encrypted) {
+				byte[] bytes = ContentReader.readAll(file, true, password);
+				long t1 = System.nanoTime();
+				decryptNanos = t1 - t0;
+				t0 = t1;
+				img = ImageIO.read(new ByteArrayInputStream(bytes));
 				if (img == null) throw new GeneralSecurityException("解密后不是有效图片");
-				return img;
+			} else {
+				img = ImageIO.read(file.toFile());
+				if (img == null) throw new IllegalArgumentException("不是有效图片文件");
 			}
-		} else {
-			BufferedImage img = ImageIO.read(file.toFile());
-			if (img == null) throw new IllegalArgumentException("不是有效图片文件");
 			return img;
+		} finally {
+			if (trace != null) {
+				trace.complete(file, encrypted, img != null ? img.getWidth() : 0, img != null ? img.getHeight() : 0, decryptNanos, System.nanoTime() - t0);
+			}
 		}
 	}
 } 
\ No newline at end of file
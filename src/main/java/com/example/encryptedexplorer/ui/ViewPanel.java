@@ -1,14 +1,27 @@
 package com.example.encryptedexplorer.ui;
 
+import com.example.encryptedexplorer.service.ContentReader;
+import com.example.encryptedexplorer.service.DedupStore;
+import com.example.encryptedexplorer.service.DirectoryIndex;
+import com.example.encryptedexplorer.service.NameSalt;
+import com.example.encryptedexplorer.service.PackReader;
+import com.example.encryptedexplorer.service.Publisher;
+import com.example.encryptedexplorer.service.SearchIndex;
+import com.example.encryptedexplorer.service.SecretCaches;
 import com.example.encryptedexplorer.service.ThumbnailCache;
+import com.example.encryptedexplorer.service.ThumbnailStore;
+import com.example.encryptedexplorer.service.Vault;
 import com.example.encryptedexplorer.util.EncryptionUtils;
 import com.example.encryptedexplorer.util.FileUtilsEx;
+import com.example.encryptedexplorer.util.NameCipher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.imageio.ImageIO;
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import java.awt.BorderLayout;
 import java.awt.Dimension;
 import java.awt.FlowLayout;
@@ -25,6 +38,8 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.security.GeneralSecurityException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -39,26 +54,155 @@ public class ViewPanel extends JPanel {
 	private final JCheckBox includeSubdirs = new JCheckBox("包含子文件夹");
 	private volatile boolean directoryTransformEnabled = false; // 菜单总开关（不再作为还原显示的必要条件）
 	private final JButton chooseButton = new JButton("选择文件夹");
+	private final JTextField searchField = new JTextField();
+	private final JButton searchButton = new JButton("搜索");
 	private final JPanel grid = new JPanel(new WrapLayout(FlowLayout.LEFT, 10, 10));
 	private final JScrollPane scrollPane = new JScrollPane(grid);
 	private final ThumbnailCache thumbnailCache = new ThumbnailCache();
 
 	private Path currentFolder = null;
 
-	// 流式分页
-	private DirectoryStream<Path> dirStream = null;
-	private Iterator<Path> dirIter = null;
-	private Stream<Path> walkStream = null;
-	private Iterator<Path> walkIter = null;
+	// 流式分页：当前文件夹的列举状态，每页在后台线程中读取
+	private Listing listing = null;
 	private int loadedCount = 0;
 	private static final int PAGE_SIZE = 50;
-	private volatile boolean isLoading = false;
-	private volatile boolean endOfEntries = false;
+	private static final int SEARCH_LIMIT = 500;
+	// 在子文件夹中搜索时结果还要按当前文件夹过滤，从索引多取若干倍，当前文件夹之外的命中较多时仍能填满一页
+	private static final int SEARCH_HEADROOM = 4;
+	// 正在进行的搜索（打开索引需派生密钥并读入整个索引，在后台线程中进行）；打开文件夹或再次搜索时作废
+	private SwingWorker<List<Cell>, Void> searchWorker;
+	private boolean endOfEntries = false;
 
-	// 短名映射缓存（父目录 -> (短名->原名)） LRU 256
-	private final Map<Path, Map<String, String>> dirMapCache = new LinkedHashMap<Path, Map<String,String>>(64, 0.75f, true) {
+	// 短名映射缓存（父目录 -> (短名->原名)） LRU 256；在后台线程中读写
+	private final Map<Path, Map<String, String>> dirMapCache = Collections.synchronizedMap(new LinkedHashMap<Path, Map<String,String>>(64, 0.75f, true) {
 		@Override protected boolean removeEldestEntry(Map.Entry<Path, Map<String, String>> eldest) { return size() > 256; }
-	};
+	});
+	// 目录元数据索引（目录 -> 索引，无索引或无法解密时为 empty），打开文件夹时清空，避免重复尝试解密
+	private final Map<Path, Optional<DirectoryIndex>> indexCache = new ConcurrentHashMap<>();
+
+	/** 一个待显示的条目：类型、显示名与目录索引项在后台线程中确定，事件线程只创建单元格。hit 不为 null 时为搜索结果。 */
+	private static final class Cell {
+		final Path path;
+		final boolean directory;
+		final String displayName;
+		final DirectoryIndex.Entry meta;
+		final SearchIndex.Hit hit;
+
+		Cell(Path path, boolean directory, String displayName, DirectoryIndex.Entry meta, SearchIndex.Hit hit) {
+			this.path = path;
+			this.directory = directory;
+			this.displayName = displayName;
+			this.meta = meta;
+			this.hit = hit;
+		}
+	}
+
+	/**
+	 * 一次打开文件夹的列举状态，只在后台线程中逐页读取，同一时刻至多一个页面任务（busy 由事件线程维护，
+	 * 流只在没有页面任务时由事件线程关闭）。非递归且当前目录有元数据索引时，先按索引列出其中的文件
+	 * （按原名排序，不逐个 stat），再从目录流中补上子目录与索引之外的文件；解密查看时展开打包成员。
+	 */
+	private final class Listing {
+		final Path folder;
+		final boolean recursive;
+		final boolean decrypt;
+		final char[] password;
+		boolean busy;
+		volatile boolean closed;
+		volatile boolean exhausted;
+		private boolean opened;
+		private DirectoryStream<Path> dirStream;
+		private Stream<Path> walkStream;
+		private Iterator<Path> entries;
+		private Iterator<DirectoryIndex.Entry> indexed = Collections.emptyIterator();
+		private final Set<String> indexedNames = new HashSet<>();
+		// 打包成员（虚拟路径），遇到 .pack.idx 时展开，优先于目录项输出
+		private final Deque<Path> packMembers = new ArrayDeque<>();
+
+		Listing(Path folder, boolean recursive, boolean decrypt, char[] password) {
+			this.folder = folder;
+			this.recursive = recursive;
+			this.decrypt = decrypt;
+			this.password = password;
+		}
+
+		private void open() throws IOException {
+			opened = true;
+			if (recursive) {
+				walkStream = Files.walk(folder);
+				entries = walkStream.iterator();
+				return;
+			}
+			DirectoryIndex index = indexFor(folder, password);
+			if (index != null) {
+				List<DirectoryIndex.Entry> files = new ArrayList<>();
+				for (DirectoryIndex.Entry e : index.entries()) {
+					// 打包成员（不带 .encrypted 后缀）只在解密查看时显示，与展开打包一致
+					if (!decrypt && !EncryptionUtils.isEncryptedFileName(e.name)) continue;
+					files.add(e);
+					indexedNames.add(e.name);
+				}
+				files.sort(Comparator.comparing(e -> e.originalName));
+				indexed = files.iterator();
+			}
+			dirStream = Files.newDirectoryStream(folder);
+			entries = dirStream.iterator();
+		}
+
+		/** 读取下一页（后台线程）。 */
+		List<Cell> next(int count) throws IOException {
+			if (!opened) open();
+			List<Cell> page = new ArrayList<>(count);
+			while (page.size() < count && !closed) {
+				if (indexed.hasNext()) {
+					DirectoryIndex.Entry e = indexed.next();
+					page.add(new Cell(folder.resolve(e.name), false, e.name, e, null));
+					continue;
+				}
+				Path p = !packMembers.isEmpty() ? packMembers.poll() : entries.hasNext() ? entries.next() : null;
+				if (p == null) {
+					exhausted = true;
+					break;
+				}
+				if (recursive && folder.equals(p)) continue; // 跳过根本身
+				String fileName = p.getFileName() != null ? p.getFileName().toString() : "";
+				if (folder.equals(p.getParent()) && indexedNames.contains(fileName)) continue; // 已按索引列出
+				if (isInsideDedupStore(folder, p)) continue; // 去重对象库不直接浏览
+				if (Vault.isVaultFile(fileName) || NameSalt.isSaltFile(fileName) || DirectoryIndex.isIndexFile(fileName) || ThumbnailStore.isStoreFile(fileName)
+						|| SearchIndex.isIndexFile(fileName) || Publisher.isTempName(fileName)) continue;
+				if (PackReader.isPackFile(fileName)) {
+					// 打包内部文件不直接显示；解密查看时展开索引中的成员
+					if (PackReader.INDEX_FILE.equals(fileName) && decrypt) expandPack(p.getParent());
+					continue;
+				}
+				page.add(cell(p, decrypt, password, null));
+			}
+			return page;
+		}
+
+		/**
+		 * 载入目录打包索引并把成员排入待显示队列（一次 KDF）。
+		 */
+		private void expandPack(Path dir) {
+			try {
+				PackReader pack = PackReader.forDirectory(dir, password);
+				if (pack == null) return;
+				for (String name : pack.names()) {
+					if (!dir.equals(folder) || !indexedNames.contains(name)) packMembers.add(dir.resolve(name));
+				}
+				LOG.debug("展开打包: {} 成员={}", dir, pack.names().size());
+			} catch (Exception ex) {
+				LOG.warn("读取打包索引失败: {} - {}", dir, ex.toString());
+			}
+		}
+
+		void closeStreams() {
+			try { if (dirStream != null) dirStream.close(); } catch (IOException ignored) {}
+			try { if (walkStream != null) walkStream.close(); } catch (Exception ignored) {}
+			dirStream = null;
+			walkStream = null;
+		}
+	}
 
 	public ViewPanel() {
 		setLayout(new BorderLayout(10, 10));
@@ -74,6 +218,9 @@ public class ViewPanel extends JPanel {
 		gc.gridx = 0; gc.gridy = 1; top.add(new JLabel("密码:"), gc);
 		gc.gridx = 1; gc.weightx = 1; top.add(passwordField, gc);
 		gc.gridx = 2; gc.weightx = 0; JPanel right = new JPanel(new FlowLayout(FlowLayout.LEFT, 8, 0)); right.add(decryptFiles); right.add(includeSubdirs); top.add(right, gc);
+		gc.gridx = 0; gc.gridy = 2; gc.weightx = 0; top.add(new JLabel("搜索名称:"), gc);
+		gc.gridx = 1; gc.weightx = 1; top.add(searchField, gc);
+		gc.gridx = 2; gc.weightx = 0; top.add(searchButton, gc);
 		add(top, BorderLayout.NORTH);
 
 		scrollPane.setHorizontalScrollBarPolicy(ScrollPaneConstants.HORIZONTAL_SCROLLBAR_NEVER);
@@ -85,6 +232,16 @@ public class ViewPanel extends JPanel {
 		scrollPane.addMouseWheelListener(e -> { if (e.getWheelRotation() > 0) maybeLoadMore(); });
 
 		chooseButton.addActionListener(e -> chooseFolder());
+		searchField.addActionListener(e -> search());
+		searchButton.addActionListener(e -> search());
+		// 密码改变时清零进程内缓存的旧密码与密钥，本页已解密的目录索引一并丢弃
+		passwordField.getDocument().addDocumentListener(new DocumentListener() {
+			@Override public void insertUpdate(DocumentEvent e) { passwordChanged(); }
+
+			@Override public void removeUpdate(DocumentEvent e) { passwordChanged(); }
+
+			@Override public void changedUpdate(DocumentEvent e) { passwordChanged(); }
+		});
 		decryptFiles.addActionListener(e -> { if (currentFolder != null) openFolder(currentFolder); });
 		includeSubdirs.addActionListener(e -> { if (currentFolder != null) openFolder(currentFolder); });
 	}
@@ -95,11 +252,17 @@ public class ViewPanel extends JPanel {
 		if (currentFolder != null) openFolder(currentFolder);
 	}
 
-	private void closeStream() {
-		try { if (dirStream != null) dirStream.close(); } catch (IOException ignored) {}
-		dirStream = null; dirIter = null;
-		try { if (walkStream != null) walkStream.close(); } catch (Exception ignored) {}
-		walkStream = null; walkIter = null;
+	private void passwordChanged() {
+		indexCache.clear();
+		SecretCaches.clear();
+	}
+
+	/** 作废当前列举；有页面任务在读取时由其结束后关闭流。 */
+	private void closeListing() {
+		if (listing == null) return;
+		listing.closed = true;
+		if (!listing.busy) listing.closeStreams();
+		listing = null;
 	}
 
 	private void chooseFolder() {
@@ -137,24 +300,14 @@ public class ViewPanel extends JPanel {
 	}
 
 	private void openFolder(Path folder) {
-		closeStream();
+		cancelSearch();
+		closeListing();
+		indexCache.clear();
 		currentFolder = folder;
 		folderField.setText(folder.toString());
 		LOG.info("打开文件夹: {}，包含子文件夹= {}", folder, includeSubdirs.isSelected());
-		try {
-			if (includeSubdirs.isSelected()) {
-				walkStream = Files.walk(currentFolder);
-				walkIter = walkStream.iterator();
-			} else {
-				dirStream = Files.newDirectoryStream(currentFolder);
-				dirIter = dirStream.iterator();
-			}
-			endOfEntries = false;
-		} catch (IOException e) {
-			JOptionPane.showMessageDialog(this, "读取目录失败: " + e.getMessage(), "错误", JOptionPane.ERROR_MESSAGE);
-			LOG.warn("读取目录失败: {} - {}", currentFolder, e.toString());
-			return;
-		}
+		listing = new Listing(folder, includeSubdirs.isSelected(), decryptFiles.isSelected(), passwordField.getPassword());
+		endOfEntries = false;
 		resetAndLoadFirstPage();
 	}
 
@@ -177,7 +330,7 @@ public class ViewPanel extends JPanel {
 	}
 
 	private void maybeLoadMore() {
-		if (isLoading || endOfEntries) return;
+		if (listing == null || listing.busy || endOfEntries) return;
 		JScrollBar v = scrollPane.getVerticalScrollBar();
 		int value = v.getValue();
 		int extent = v.getVisibleAmount();
@@ -185,60 +338,143 @@ public class ViewPanel extends JPanel {
 		if (value + extent >= max - 48) appendNextPage();
 	}
 
-	private boolean hasNextEntry() { return includeSubdirs.isSelected() ? (walkIter != null && walkIter.hasNext()) : (dirIter != null && dirIter.hasNext()); }
-	private Path nextEntry() { return includeSubdirs.isSelected() ? walkIter.next() : dirIter.next(); }
+	/**
+	 * 目录的元数据索引（一次读取、一次密钥派生，在后台线程中调用）；未输入密码、无索引或解密失败时返回 null。
+	 */
+	private DirectoryIndex indexFor(Path dir, char[] password) {
+		if (dir == null) return null;
+		Optional<DirectoryIndex> cached = indexCache.get(dir);
+		if (cached == null) {
+			cached = Optional.empty();
+			if (password.length > 0 && DirectoryIndex.hasIndex(dir)) {
+				try {
+					cached = Optional.ofNullable(DirectoryIndex.forDirectory(dir, password));
+				} catch (Exception ex) {
+					LOG.warn("读取目录索引失败: {} - {}", dir, ex.toString());
+				}
+			}
+			indexCache.put(dir, cached);
+		}
+		return cached.orElse(null);
+	}
+
+	private DirectoryIndex.Entry indexEntryFor(Path file, char[] password) {
+		DirectoryIndex index = indexFor(file.getParent(), password);
+		return index != null && file.getFileName() != null ? index.entry(file.getFileName().toString()) : null;
+	}
+
+	private static boolean isInsideDedupStore(Path folder, Path p) {
+		Path rel = folder.relativize(p);
+		for (Path part : rel) {
+			if (DedupStore.STORE_DIR.equals(part.toString())) return true;
+		}
+		return false;
+	}
 
+	/**
+	 * 在后台线程中读取下一页（stat、目录与打包索引的解密、目录名还原），完成后在事件线程中添加单元格。
+	 */
 	private void appendNextPage() {
-		isLoading = true;
-		int appended = 0;
+		Listing l = listing;
+		if (l == null || l.busy || endOfEntries) return;
+		l.busy = true;
 		long t0 = System.currentTimeMillis();
-		while (appended < PAGE_SIZE && hasNextEntry()) {
-			Path p = nextEntry();
-			if (includeSubdirs.isSelected() && currentFolder.equals(p)) continue; // 跳过根本身
-			addEntryCell(p);
-			appended++;
-		}
-		if (!hasNextEntry()) endOfEntries = true;
-		loadedCount += appended;
-		isLoading = false;
-		revalidate();
-		repaint();
-		LOG.info("加载页面: +{} 项, 总已加载={}，耗时={}ms, 目录={}", appended, loadedCount, (System.currentTimeMillis() - t0), currentFolder);
+		new SwingWorker<List<Cell>, Void>() {
+			@Override
+			protected List<Cell> doInBackground() throws IOException {
+				SecretCaches.enter();
+				try {
+					return l.next(PAGE_SIZE);
+				} finally {
+					SecretCaches.exit();
+				}
+			}
+
+			@Override
+			protected void done() {
+				l.busy = false;
+				if (l.closed) {
+					l.closeStreams(); // 页面任务期间已打开其他文件夹
+					return;
+				}
+				List<Cell> page;
+				try {
+					page = get();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				} catch (ExecutionException e) {
+					endOfEntries = true;
+					JOptionPane.showMessageDialog(ViewPanel.this, "读取目录失败: " + e.getCause().getMessage(), "错误", JOptionPane.ERROR_MESSAGE);
+					LOG.warn("读取目录失败: {} - {}", l.folder, e.getCause().toString());
+					return;
+				}
+				for (Cell c : page) addEntryCell(c, l.decrypt, l.password);
+				endOfEntries = l.exhausted;
+				if (endOfEntries) l.closeStreams();
+				loadedCount += page.size();
+				revalidate();
+				repaint();
+				LOG.info("加载页面: +{} 项, 总已加载={}，耗时={}ms, 目录={}", page.size(), loadedCount, (System.currentTimeMillis() - t0), l.folder);
+			}
+		}.execute();
 	}
 
-	private void addEntryCell(Path p) {
-		JPanel cell = new JPanel(new BorderLayout());
-		cell.setPreferredSize(new Dimension(140, 140));
+	/** 在后台线程中确定条目的类型、显示名与目录索引项。hit 不为 null 时为搜索结果。 */
+	private Cell cell(Path p, boolean decrypt, char[] password, SearchIndex.Hit hit) {
+		boolean isDir = Files.isDirectory(p);
 		String displayName = p.getFileName() != null ? p.getFileName().toString() : p.toString();
 		try {
-			if (Files.isDirectory(p) && decryptFiles.isSelected()) {
+			if (isDir && decrypt) {
 				// 1) 优先使用父目录的短名映射
 				Map<String,String> parentMap = getShortNameMapFor(p.getParent());
 				String mapped = parentMap.get(displayName);
 				if (mapped != null && !mapped.isEmpty()) {
 					displayName = mapped;
 				} else {
-					// 2) 尝试基于密码的可逆解密（兼容旧版非短名加密）
-					displayName = EncryptionUtils.decryptFileName(displayName, passwordField.getPassword());
+					// 2) 尝试可逆解密（SIV 确定性名称或旧版 ENCV1 名称）：先做语法预检，明文名不做任何密钥运算，结果按会话缓存；
+					//    密钥以所属目录树的名称盐派生（没有时为旧版固定盐）
+					String decrypted = NameCipher.forPassword(password, NameSalt.locate(p.getParent())).tryDecrypt(displayName);
+					if (decrypted != null) displayName = decrypted;
 				}
 			}
 		} catch (Exception ignored) {}
-		JLabel label = new JLabel(displayName, SwingConstants.CENTER);
+		return new Cell(p, isDir, displayName, isDir ? null : indexEntryFor(p, password), hit);
+	}
+
+	/** 为已确定的条目创建单元格（事件线程，不做文件 I/O）。 */
+	private void addEntryCell(Cell c, boolean decrypt, char[] password) {
+		Path p = c.path;
+		JPanel cell = new JPanel(new BorderLayout());
+		cell.setPreferredSize(new Dimension(140, 140));
+		JLabel label = new JLabel(c.displayName, SwingConstants.CENTER);
 		label.setHorizontalTextPosition(SwingConstants.CENTER);
 		label.setVerticalTextPosition(SwingConstants.BOTTOM);
 		label.setIconTextGap(6);
 		label.setToolTipText(p.toString());
 
-		boolean isDir = Files.isDirectory(p);
-		boolean isEncrypted = !isDir && EncryptionUtils.isEncryptedFileName(displayName);
+		boolean isDir = c.directory;
+		boolean isEncrypted = !isDir && EncryptionUtils.isEncryptedFileName(c.displayName);
 		boolean isImageByExt = !isDir && FileUtilsEx.isImageFile(p);
+		// 有目录索引时按索引中的类型判断，不是图片的加密文件不再为生成缩略图而解密
+		DirectoryIndex.Entry meta = c.meta;
+		if (meta != null) {
+			if (decrypt) label.setText(meta.originalName);
+			label.setToolTipText(describe(p, meta));
+			isImageByExt = meta.isImage();
+			isEncrypted = false;
+		}
+		if (c.hit != null) {
+			label.setText(c.hit.name());
+			label.setToolTipText(c.hit.originalPath + " -> " + p);
+		}
 		if (isDir) {
 			label.setIcon(UIManager.getIcon("FileView.directoryIcon"));
 			label.addMouseListener(new MouseAdapter() {
 				@Override public void mouseClicked(MouseEvent e) { if (e.getClickCount() == 2) enterDirectory(p); }
 			});
 		} else if (isImageByExt || isEncrypted) {
-			thumbnailCache.getThumbnail(p, 96, decryptFiles.isSelected() || isEncrypted, passwordField.getPassword(), icon -> label.setIcon(icon != null ? icon : UIManager.getIcon("FileView.fileIcon")));
+			thumbnailCache.getThumbnail(p, 96, decrypt || isEncrypted, password, icon -> label.setIcon(icon != null ? icon : UIManager.getIcon("FileView.fileIcon")));
 			label.addMouseListener(new MouseAdapter() {
 				@Override public void mouseClicked(MouseEvent e) { if (e.getClickCount() == 2) openImageViewer(p); }
 			});
@@ -254,6 +490,102 @@ public class ViewPanel extends JPanel {
 
 	private void enterDirectory(Path dir) { openFolder(dir); }
 
+	/**
+	 * 在当前文件夹所属保险库的搜索索引中按原始名称查找（只显示当前文件夹之下的结果）；查询为空时恢复目录浏览。
+	 * 打开索引与查找在后台线程中进行，完成后回到事件线程显示结果。
+	 */
+	private void search() {
+		if (currentFolder == null) return;
+		String query = searchField.getText().trim();
+		if (query.isEmpty()) {
+			openFolder(currentFolder);
+			return;
+		}
+		Path root = SearchIndex.locate(currentFolder);
+		if (root == null) {
+			JOptionPane.showMessageDialog(this, "当前文件夹及其上级没有搜索索引（加密复制时勾选“搜索索引”生成）", "搜索", JOptionPane.INFORMATION_MESSAGE);
+			return;
+		}
+		cancelSearch();
+		Path folder = currentFolder;
+		char[] password = passwordField.getPassword();
+		boolean decrypt = decryptFiles.isSelected();
+		int limit = folder.equals(root) ? SEARCH_LIMIT : SEARCH_LIMIT * SEARCH_HEADROOM;
+		SwingWorker<List<Cell>, Void> worker = new SwingWorker<>() {
+			private int indexSize;
+			private int hitCount;
+			private long elapsedMicros;
+
+			@Override
+			protected List<Cell> doInBackground() throws Exception {
+				SecretCaches.enter();
+				try {
+					return find();
+				} finally {
+					SecretCaches.exit();
+				}
+			}
+
+			private List<Cell> find() throws Exception {
+				long t0 = System.nanoTime();
+				SearchIndex index = SearchIndex.forRoot(root, password);
+				List<SearchIndex.Hit> hits = index.search(query, limit);
+				indexSize = index.size();
+				hitCount = hits.size();
+				elapsedMicros = (System.nanoTime() - t0) / 1000;
+				List<Cell> cells = new ArrayList<>();
+				for (SearchIndex.Hit hit : hits) {
+					if (isCancelled()) break;
+					Path target = hit.resolve(root);
+					if (!target.startsWith(folder)) continue;
+					cells.add(cell(target, decrypt, password, hit));
+					if (cells.size() >= SEARCH_LIMIT) break;
+				}
+				return cells;
+			}
+
+			@Override
+			protected void done() {
+				if (searchWorker != this) return; // 已被新的搜索或打开文件夹作废
+				searchWorker = null;
+				List<Cell> cells;
+				try {
+					cells = get();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				} catch (ExecutionException e) {
+					Throwable cause = e.getCause();
+					LOG.warn("搜索失败: {} - {}", root, cause.toString());
+					JOptionPane.showMessageDialog(ViewPanel.this, "搜索失败（密码错误或索引损坏）: " + cause.getMessage(), "错误", JOptionPane.ERROR_MESSAGE);
+					return;
+				}
+				closeListing();
+				grid.removeAll();
+				endOfEntries = true;
+				for (Cell c : cells) addEntryCell(c, decrypt, password);
+				loadedCount = cells.size();
+				revalidate();
+				repaint();
+				LOG.info("搜索: \"{}\" 于 {} 条目={} 命中={} 显示={} 耗时={}us", query, root, indexSize, hitCount, loadedCount, elapsedMicros);
+			}
+		};
+		searchWorker = worker;
+		worker.execute();
+	}
+
+	private void cancelSearch() {
+		if (searchWorker == null) return;
+		searchWorker.cancel(false);
+		searchWorker = null;
+	}
+
+	private static String describe(Path p, DirectoryIndex.Entry meta) {
+		StringBuilder sb = new StringBuilder(p.toString()).append(" | ").append(meta.mimeType).append(", ").append(meta.size).append(" 字节");
+		if (meta.width > 0 && meta.height > 0) sb.append(", ").append(meta.width).append('×').append(meta.height);
+		return sb.toString();
+	}
+
 	private void openImageViewer(Path file) {
 		try {
 			java.util.List<Path> list = listCandidateImages(currentFolder);
@@ -268,24 +600,41 @@ public class ViewPanel extends JPanel {
 	}
 
 	private java.util.List<Path> listCandidateImages(Path folder) throws IOException {
+		char[] password = passwordField.getPassword();
 		try (DirectoryStream<Path> ds = Files.newDirectoryStream(folder)) {
 			java.util.List<Path> all = new java.util.ArrayList<>();
 			for (Path p : ds) {
-				if (Files.isDirectory(p)) continue;
-				if (FileUtilsEx.isImageFile(p) || EncryptionUtils.isEncryptedFileName(p.getFileName().toString())) {
+				String name = p.getFileName().toString();
+				if (Files.isDirectory(p) || PackReader.isPackFile(name) || DirectoryIndex.isIndexFile(name) || ThumbnailStore.isStoreFile(name)) continue;
+				DirectoryIndex.Entry meta = indexEntryFor(p, password);
+				if (meta != null ? meta.isImage() : FileUtilsEx.isImageFile(p) || EncryptionUtils.isEncryptedFileName(name)) {
 					all.add(p);
 				}
 			}
+			if (decryptFiles.isSelected()) {
+				try {
+					PackReader pack = PackReader.forDirectory(folder, password);
+					if (pack != null) {
+						for (String name : pack.names()) {
+							Path member = folder.resolve(name);
+							DirectoryIndex.Entry meta = indexEntryFor(member, password);
+							if (meta != null ? meta.isImage() : FileUtilsEx.isImageFile(member)) all.add(member);
+						}
+					}
+				} catch (GeneralSecurityException ex) {
+					LOG.warn("读取打包索引失败: {} - {}", folder, ex.toString());
+				}
+			}
 			return all.stream().sorted().collect(Collectors.toList());
 		}
 	}
 
 	private void openFile(Path file) {
 		try {
-			if (decryptFiles.isSelected() || EncryptionUtils.isEncryptedFileName(file.getFileName().toString())) {
+			if (decryptFiles.isSelected() || EncryptionUtils.isEncryptedFileName(file.getFileName().toString()) || ContentReader.isPackMember(file)) {
 				Path tmp = Files.createTempFile("dec_", "_preview");
-				try (InputStream in = Files.newInputStream(file); OutputStream out = Files.newOutputStream(tmp)) {
-					EncryptionUtils.decryptStream(in, out, passwordField.getPassword());
+				try (OutputStream out = Files.newOutputStream(tmp)) {
+					ContentReader.writeTo(file, true, passwordField.getPassword(), out);
 				}
 				LOG.info("临时解密并打开文件: {} -> {}", file, tmp);
 				FileUtilsEx.openWithDesktop(tmp);
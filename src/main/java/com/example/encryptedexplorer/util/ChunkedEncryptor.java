@@ -0,0 +1,109 @@
+package com.example.encryptedexplorer.util;
+
+import javax.crypto.SecretKey;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.GeneralSecurityException;
+import java.util.function.LongConsumer;
+
+/**
+ * 分块并行加密（ENCV2，不压缩）。不压缩时密文布局可由明文大小推算：头部之后第 i 段位于
+ * 头长 + i*(分段大小+标签)，因此大文件可拆成若干分段区间，由不同线程各自读取、加密并按位置写入，
+ * 结果与 {@link EncryptionUtils#encryptStream} 顺序写出的格式完全相同。末段（空文件为一个空末段）带末段标志。
+ */
+public final class ChunkedEncryptor {
+	/** 每批写出的分段数（约 1MB 密文一次写入）。 */
+	private static final int BATCH_SEGMENTS = 16;
+
+	private final byte[] header;
+	private final CipherSuite suite;
+	private final SecretKey key;
+	private final byte[] noncePrefix;
+	private final int segmentSize;
+	private final long plainSize;
+	private final long segments;
+
+	ChunkedEncryptor(FileHeader header, CipherSuite suite, SecretKey key, long plainSize) {
+		this.header = header.encode();
+		this.suite = suite;
+		this.key = key;
+		this.noncePrefix = header.noncePrefix;
+		this.segmentSize = header.segmentSize;
+		this.plainSize = plainSize;
+		this.segments = Math.max(1, (plainSize + segmentSize - 1) / segmentSize);
+	}
+
+	/** 文件头（写在密文开头）。 */
+	public byte[] header() {
+		return header.clone();
+	}
+
+	public int segmentSize() {
+		return segmentSize;
+	}
+
+	public long segmentCount() {
+		return segments;
+	}
+
+	/** 完整密文（含头部）的字节数。 */
+	public long encryptedSize() {
+		return header.length + plainSize + segments * SegmentCipher.TAG_LEN;
+	}
+
+	/**
+	 * 加密 [first, end) 段：按窗口只读映射 in 的对应位置，各分段切片直接交给 Cipher，
+	 * 密文在直接缓冲区中攒够一批（约 1MB）后按位置写入 out。可在多个线程并发调用，
+	 * 每次调用使用独立的 Cipher 与缓冲区。源文件在此期间变短时抛出 IOException。
+	 * onBytes 在每批写出后按明文字节数回调。
+	 */
+	public void encryptSegments(FileChannel in, FileChannel out, long first, long end, LongConsumer onBytes) throws IOException, GeneralSecurityException {
+		if (first < 0 || end > segments || first >= end) throw new IllegalArgumentException("分段区间不合法: " + first + ".." + end);
+		SegmentCipher cipher = new SegmentCipher(suite, key, noncePrefix, header);
+		int sealedUnit = segmentSize + SegmentCipher.TAG_LEN;
+		ByteBuffer sealed = ByteBuffer.allocateDirect(BATCH_SEGMENTS * sealedUnit);
+		long position = header.length + first * sealedUnit;
+		long perWindow = MappedWindows.unitsPerWindow(segmentSize);
+		long i = first;
+		while (i < end) {
+			long windowEnd = Math.min(end, i + perWindow);
+			long plainFrom = i * segmentSize;
+			long plainTo = Math.min(plainSize, windowEnd * segmentSize);
+			// 空文件只有一个空末段，无需映射
+			MappedByteBuffer window = plainTo > plainFrom ? MappedWindows.map(in, plainFrom, plainTo - plainFrom) : null;
+			try {
+				long batchPlain = 0;
+				for (; i < windowEnd; i++) {
+					int offset = (int) (i * segmentSize - plainFrom);
+					int len = (int) Math.min(segmentSize, plainSize - i * segmentSize);
+					ByteBuffer plain = window != null ? MappedWindows.slice(window, offset, len) : ByteBuffer.allocate(0);
+					cipher.seal(i, i == segments - 1, plain, sealed);
+					batchPlain += len;
+					if (sealed.remaining() < sealedUnit || i == windowEnd - 1) {
+						position = write(out, sealed, position);
+						if (onBytes != null) onBytes.accept(batchPlain);
+						batchPlain = 0;
+					}
+				}
+			} catch (InternalError e) {
+				// 映射区域在访问时被截短（其他进程改写了源文件）
+				throw new IOException("源文件在加密过程中被截短", e);
+			} finally {
+				MappedWindows.unmap(window);
+			}
+		}
+	}
+
+	private static long write(FileChannel out, ByteBuffer sealed, long position) throws IOException {
+		sealed.flip();
+		long t0 = System.nanoTime();
+		while (sealed.hasRemaining()) {
+			position += out.write(sealed, position);
+		}
+		EncryptionUtils.MAPPED_WRITE_TIME.recordSince(t0);
+		sealed.clear();
+		return position;
+	}
+}
@@ -0,0 +1,21 @@
+package com.example.encryptedexplorer.util;
+
+import javax.crypto.Cipher;
+import java.security.GeneralSecurityException;
+import java.security.spec.AlgorithmParameterSpec;
+
+/**
+ * 分段 AEAD 算法：32 字节密钥、12 字节 nonce、16 字节标签，分段布局与 nonce 构造（见 {@link SegmentCipher}）与算法无关。
+ * id 写入 ENCV2 文件头，取值 0-255 且全局唯一；通过 {@link CipherSuites#register(CipherSuite)} 接入其他实现。
+ */
+public interface CipherSuite {
+	int id();
+
+	String name();
+
+	/** 新建 Cipher 实例；每个 SegmentCipher 持有一个，不跨线程共享。 */
+	Cipher newCipher() throws GeneralSecurityException;
+
+	/** 以 12 字节 nonce 构造初始化参数。 */
+	AlgorithmParameterSpec parameters(byte[] nonce);
+}
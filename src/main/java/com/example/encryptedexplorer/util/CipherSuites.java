@@ -0,0 +1,166 @@
+package com.example.encryptedexplorer.util;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.spec.AlgorithmParameterSpec;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 分段 AEAD 算法注册表与新文件的算法选择。解密按文件头记录的 id 分派，同一目录中不同算法的文件可以混存。
+ * <p>
+ * 新文件默认使用 AES-GCM；系统属性 {@code -Dencryptedexplorer.cipher} 可指定算法名，值为 {@code auto} 时
+ * 在首次需要时运行一次约半秒的微基准，选用本机吞吐最高的算法（没有 AES 硬件指令的 CPU 上通常是 ChaCha20-Poly1305）。
+ */
+public final class CipherSuites {
+	public static final String PROPERTY = "encryptedexplorer.cipher";
+	public static final String AUTO = "auto";
+
+	/** AES-256-GCM（id=0，文件头中省略，与旧版本写出的文件相同）。 */
+	public static final CipherSuite AES_GCM = new CipherSuite() {
+		@Override public int id() { return 0; }
+		@Override public String name() { return "aes-gcm"; }
+		@Override public Cipher newCipher() throws GeneralSecurityException { return Cipher.getInstance("AES/GCM/NoPadding"); }
+		@Override public AlgorithmParameterSpec parameters(byte[] nonce) { return new GCMParameterSpec(SegmentCipher.TAG_LEN * 8, nonce); }
+	};
+
+	/** ChaCha20-Poly1305（RFC 8439，JDK 11 起自带），不依赖 AES 硬件指令。 */
+	public static final CipherSuite CHACHA20_POLY1305 = new CipherSuite() {
+		@Override public int id() { return 1; }
+		@Override public String name() { return "chacha20-poly1305"; }
+		@Override public Cipher newCipher() throws GeneralSecurityException { return Cipher.getInstance("ChaCha20-Poly1305"); }
+		@Override public AlgorithmParameterSpec parameters(byte[] nonce) { return new IvParameterSpec(nonce); }
+	};
+
+	// 微基准：每个算法先预热（JIT 编译、启用内建指令），再按固定时长计量 64KB 分段加密
+	private static final int BENCH_SEGMENT = 64 * 1024;
+	private static final long WARMUP_NANOS = 150_000_000L;
+	private static final long MEASURE_NANOS = 100_000_000L;
+
+	private static final Map<Integer, CipherSuite> BY_ID = new ConcurrentHashMap<>();
+	private static final Map<String, CipherSuite> BY_NAME = new ConcurrentHashMap<>();
+	private static volatile CipherSuite preferred;
+	private static Map<String, Double> measured;
+
+	static {
+		register(AES_GCM);
+		register(CHACHA20_POLY1305);
+	}
+
+	private CipherSuites() {}
+
+	public static void register(CipherSuite suite) {
+		if (suite.id() < 0 || suite.id() > 255) throw new IllegalArgumentException("加密算法 id 超出范围: " + suite.id());
+		CipherSuite prev = BY_ID.putIfAbsent(suite.id(), suite);
+		if (prev != null && prev != suite) throw new IllegalArgumentException("加密算法 id 已被占用: " + suite.id());
+		BY_NAME.put(suite.name().toLowerCase(Locale.ROOT), suite);
+	}
+
+	public static CipherSuite byId(int id) throws IOException {
+		CipherSuite suite = BY_ID.get(id);
+		if (suite == null) throw new IOException("不支持的加密算法: " + id);
+		return suite;
+	}
+
+	public static CipherSuite byName(String name) {
+		CipherSuite suite = name == null ? null : BY_NAME.get(name.toLowerCase(Locale.ROOT));
+		if (suite == null) throw new IllegalArgumentException("未知的加密算法: " + name);
+		return suite;
+	}
+
+	/** 已注册的算法，按 id 排序。 */
+	public static List<CipherSuite> all() {
+		List<CipherSuite> suites = new ArrayList<>(BY_ID.values());
+		suites.sort(Comparator.comparingInt(CipherSuite::id));
+		return suites;
+	}
+
+	/**
+	 * 新文件使用的算法：{@link #setPreferred} 设定的算法，否则按系统属性解析（首次调用时，auto 会在此运行微基准）。
+	 * 属性值无法识别时抛出 IllegalArgumentException。
+	 */
+	public static CipherSuite preferred() {
+		CipherSuite suite = preferred;
+		if (suite == null) {
+			suite = resolve(System.getProperty(PROPERTY, AES_GCM.name()));
+			preferred = suite;
+		}
+		return suite;
+	}
+
+	/** 设定新文件使用的算法；null 表示重新按系统属性选择。 */
+	public static void setPreferred(CipherSuite suite) {
+		preferred = suite;
+	}
+
+	/** 算法名或 auto 解析为算法。 */
+	public static CipherSuite resolve(String name) {
+		String value = name == null ? null : name.trim();
+		return AUTO.equalsIgnoreCase(value) ? fastest() : byName(value);
+	}
+
+	/** 本机实测吞吐最高的可用算法（微基准只运行一次）。 */
+	public static CipherSuite fastest() {
+		CipherSuite best = AES_GCM;
+		double bestRate = 0;
+		for (Map.Entry<String, Double> e : benchmark().entrySet()) {
+			if (e.getValue() > bestRate) {
+				best = BY_NAME.get(e.getKey());
+				bestRate = e.getValue();
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * 各可用算法的分段加密吞吐（MB/s），按 id 顺序；当前运行时不支持的算法不出现。
+	 * 首次调用时测量（每个算法约 0.25 秒，单线程），之后返回缓存结果。
+	 */
+	public static synchronized Map<String, Double> benchmark() {
+		if (measured == null) {
+			Map<String, Double> results = new LinkedHashMap<>();
+			for (CipherSuite suite : all()) {
+				try {
+					results.put(suite.name(), measure(suite));
+				} catch (GeneralSecurityException e) {
+					// 当前运行时没有该算法的提供者
+				}
+			}
+			measured = Collections.unmodifiableMap(results);
+		}
+		return measured;
+	}
+
+	private static double measure(CipherSuite suite) throws GeneralSecurityException {
+		SegmentCipher cipher = new SegmentCipher(suite, new SecretKeySpec(EncryptionUtils.randomBytes(32), "AES"),
+				EncryptionUtils.randomBytes(SegmentCipher.NONCE_PREFIX_LEN), FileHeader.MAGIC);
+		byte[] plain = EncryptionUtils.randomBytes(BENCH_SEGMENT);
+		byte[] sealed = new byte[BENCH_SEGMENT + SegmentCipher.TAG_LEN];
+		long[] next = {0};
+		sealFor(cipher, plain, sealed, next, WARMUP_NANOS);
+		long t0 = System.nanoTime();
+		long bytes = sealFor(cipher, plain, sealed, next, MEASURE_NANOS);
+		return bytes / 1048576.0 / ((System.nanoTime() - t0) / 1e9);
+	}
+
+	/** 以递增的分段序号（即不同 nonce）连续加密，直到经过 nanos；返回加密的字节数。 */
+	private static long sealFor(SegmentCipher cipher, byte[] plain, byte[] sealed, long[] next, long nanos) throws GeneralSecurityException {
+		long deadline = System.nanoTime() + nanos;
+		long bytes = 0;
+		do {
+			cipher.seal(next[0]++, false, plain, 0, plain.length, sealed, 0);
+			bytes += plain.length;
+		} while (System.nanoTime() < deadline);
+		return bytes;
+	}
+}
@@ -0,0 +1,21 @@
+package com.example.encryptedexplorer.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * 压缩编解码器：在加密前压缩、解密后解压。id 写入 ENCV2 文件头，取值 1-255 且全局唯一。
+ * 通过 {@link CompressionCodecs#register(CompressionCodec)} 接入其他实现。
+ */
+public interface CompressionCodec {
+	int id();
+
+	String name();
+
+	/** 包装输出流；关闭返回的流时必须同时关闭 out。 */
+	OutputStream compress(OutputStream out) throws IOException;
+
+	/** 包装输入流；关闭返回的流时必须同时关闭 in。 */
+	InputStream decompress(InputStream in) throws IOException;
+}
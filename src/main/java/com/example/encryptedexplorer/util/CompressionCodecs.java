@@ -0,0 +1,130 @@
+package com.example.encryptedexplorer.util;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * 压缩编解码器注册表与自适应选择：已压缩格式（按扩展名）或采样熵过高的数据不压缩。
+ */
+public final class CompressionCodecs {
+	/** 不压缩（id=0），不需要注册。 */
+	public static final CompressionCodec NONE = new CompressionCodec() {
+		@Override public int id() { return 0; }
+		@Override public String name() { return "none"; }
+		@Override public OutputStream compress(OutputStream out) { return out; }
+		@Override public InputStream decompress(InputStream in) { return in; }
+	};
+
+	/** JDK 自带 Deflate（raw，无 zlib 头），默认级别 6。 */
+	public static final CompressionCodec DEFLATE = new CompressionCodec() {
+		@Override public int id() { return 1; }
+		@Override public String name() { return "deflate"; }
+
+		@Override
+		public OutputStream compress(OutputStream out) {
+			Deflater deflater = new Deflater(6, true);
+			return new DeflaterOutputStream(out, deflater, 64 * 1024) {
+				@Override public void close() throws IOException {
+					try { super.close(); } finally { deflater.end(); }
+				}
+			};
+		}
+
+		@Override
+		public InputStream decompress(InputStream in) {
+			Inflater inflater = new Inflater(true);
+			return new InflaterInputStream(in, inflater, 64 * 1024) {
+				@Override public void close() throws IOException {
+					try { super.close(); } finally { inflater.end(); }
+				}
+			};
+		}
+	};
+
+	// 采样大小与熵阈值（bit/byte）：超过阈值视为已压缩/随机数据
+	private static final int SAMPLE_SIZE = 64 * 1024;
+	private static final double ENTROPY_THRESHOLD = 7.5;
+	private static final Set<String> COMPRESSED_EXTENSIONS = new HashSet<>(Arrays.asList(
+			"jpg", "jpeg", "png", "gif", "webp", "heic", "avif",
+			"mp3", "aac", "m4a", "ogg", "opus", "flac",
+			"mp4", "m4v", "mkv", "mov", "avi", "webm",
+			"zip", "gz", "tgz", "bz2", "xz", "7z", "rar", "zst", "lz4",
+			"jar", "apk", "docx", "xlsx", "pptx", "odt", "epub", "pdf"));
+
+	private static final Map<Integer, CompressionCodec> BY_ID = new ConcurrentHashMap<>();
+	private static final Map<String, CompressionCodec> BY_NAME = new ConcurrentHashMap<>();
+
+	static {
+		register(NONE);
+		register(DEFLATE);
+	}
+
+	private CompressionCodecs() {}
+
+	public static void register(CompressionCodec codec) {
+		if (codec.id() < 0 || codec.id() > 255) throw new IllegalArgumentException("编解码器 id 超出范围: " + codec.id());
+		CompressionCodec prev = BY_ID.putIfAbsent(codec.id(), codec);
+		if (prev != null && prev != codec) throw new IllegalArgumentException("编解码器 id 已被占用: " + codec.id());
+		BY_NAME.put(codec.name().toLowerCase(Locale.ROOT), codec);
+	}
+
+	public static CompressionCodec byId(int id) throws IOException {
+		CompressionCodec codec = BY_ID.get(id);
+		if (codec == null) throw new IOException("不支持的压缩格式: " + id);
+		return codec;
+	}
+
+	public static CompressionCodec byName(String name) {
+		CompressionCodec codec = name == null ? null : BY_NAME.get(name.toLowerCase(Locale.ROOT));
+		if (codec == null) throw new IllegalArgumentException("未知的压缩格式: " + name);
+		return codec;
+	}
+
+	public static boolean isCompressedExtension(String fileName) {
+		int dot = fileName.lastIndexOf('.');
+		return dot >= 0 && COMPRESSED_EXTENSIONS.contains(fileName.substring(dot + 1).toLowerCase(Locale.ROOT));
+	}
+
+	/**
+	 * 为文件选择编解码器：扩展名属于已压缩格式或采样熵过高时返回 NONE，否则返回 preferred。
+	 * in 必须支持 mark/reset，采样后会复位，不消耗数据。
+	 */
+	public static CompressionCodec select(String fileName, BufferedInputStream in, CompressionCodec preferred) throws IOException {
+		if (preferred == null || preferred == NONE || isCompressedExtension(fileName)) return NONE;
+		in.mark(SAMPLE_SIZE);
+		byte[] sample = new byte[SAMPLE_SIZE];
+		int n = 0;
+		int r;
+		while (n < sample.length && (r = in.read(sample, n, sample.length - n)) != -1) n += r;
+		in.reset();
+		if (n < 64) return NONE; // 太小，压缩收益不足以抵消开销
+		return entropy(sample, n) > ENTROPY_THRESHOLD ? NONE : preferred;
+	}
+
+	/**
+	 * 字节级香农熵（bit/byte）。
+	 */
+	static double entropy(byte[] data, int len) {
+		int[] counts = new int[256];
+		for (int i = 0; i < len; i++) counts[data[i] & 0xFF]++;
+		double h = 0;
+		for (int c : counts) {
+			if (c == 0) continue;
+			double p = (double) c / len;
+			h -= p * (Math.log(p) / Math.log(2));
+		}
+		return h;
+	}
+}
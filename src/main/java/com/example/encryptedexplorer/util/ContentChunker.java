@@ -0,0 +1,101 @@
+package com.example.encryptedexplorer.util;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+
+/**
+ * 内容定义分块（FastCDC 风格的 gear 滚动哈希）：切点只取决于切点前约 64 字节的内容，文件中间插入或删除数据后，
+ * 改动之后的切点重新对齐，未改动的区域得到与上次相同的分块。
+ * <p>
+ * 分块大小在 {@link #MIN_SIZE} 与 {@link #MAX_SIZE} 之间，平均约 {@link #AVG_SIZE}；达到平均大小前用较严的掩码、
+ * 之后用较宽的掩码（归一化分块），分块大小集中在平均值附近。gear 表由密钥派生，不同密钥下同一内容的切点不同，
+ * 无法用公开的 gear 表从分块大小推测已知文件。
+ */
+public final class ContentChunker {
+	public static final int MIN_SIZE = 256 * 1024;
+	public static final int AVG_SIZE = 1024 * 1024;
+	public static final int MAX_SIZE = 4 * 1024 * 1024;
+	// 平均 2^20：平均大小之前要求 22 位为 0，之后 18 位；取高位，使其依赖最近 64 字节
+	private static final long MASK_SMALL = -1L << (64 - 22);
+	private static final long MASK_LARGE = -1L << (64 - 18);
+
+	private final InputStream in;
+	private final long[] gear;
+	// 两个最大分块的空间：剩余不足一个最大分块时才整理并补读，减少搬移
+	private final byte[] buffer = new byte[2 * MAX_SIZE];
+	private int start;
+	private int end;
+	private boolean eof;
+
+	public ContentChunker(InputStream in, long[] gear) {
+		if (gear.length != 256) throw new IllegalArgumentException("gear 表须有 256 项");
+		this.in = in;
+		this.gear = gear;
+	}
+
+	/** 由密钥派生 gear 表（256 个 64 位值）；相同密钥总是得到相同的表。 */
+	public static long[] gear(byte[] key) throws GeneralSecurityException {
+		Mac mac = Mac.getInstance("HmacSHA256");
+		mac.init(new SecretKeySpec(key, "HmacSHA256"));
+		ByteBuffer table = ByteBuffer.allocate(256 * 8);
+		for (int block = 0; table.hasRemaining(); block++) {
+			mac.update("cdc-gear:".getBytes(StandardCharsets.US_ASCII));
+			table.put(mac.doFinal(ByteBuffer.allocate(4).putInt(block).array()));
+		}
+		table.flip();
+		long[] gear = new long[256];
+		for (int i = 0; i < gear.length; i++) gear[i] = table.getLong();
+		return gear;
+	}
+
+	/** 读取下一个分块；输入结束时返回 null。返回的数组归调用方所有。 */
+	public byte[] next() throws IOException {
+		fill();
+		if (end == start) return null;
+		int len = cut(start, Math.min(end - start, MAX_SIZE));
+		byte[] chunk = Arrays.copyOfRange(buffer, start, start + len);
+		start += len;
+		return chunk;
+	}
+
+	/** 缓冲区中不足一个最大分块时，把未消费的数据移到开头并尽量填满。 */
+	private void fill() throws IOException {
+		if (eof || end - start >= MAX_SIZE) return;
+		if (start > 0) {
+			System.arraycopy(buffer, start, buffer, 0, end - start);
+			end -= start;
+			start = 0;
+		}
+		while (!eof && end < buffer.length) {
+			int r = in.read(buffer, end, buffer.length - end);
+			if (r < 0) {
+				eof = true;
+			} else {
+				end += r;
+			}
+		}
+	}
+
+	/** 在 buffer[off, off+n) 中寻找切点，返回分块长度。 */
+	private int cut(int off, int n) {
+		if (n <= MIN_SIZE) return n;
+		int normal = Math.min(AVG_SIZE, n);
+		long h = 0;
+		int i = MIN_SIZE;
+		for (; i < normal; i++) {
+			h = (h << 1) + gear[buffer[off + i] & 0xFF];
+			if ((h & MASK_SMALL) == 0) return i + 1;
+		}
+		for (; i < n; i++) {
+			h = (h << 1) + gear[buffer[off + i] & 0xFF];
+			if ((h & MASK_LARGE) == 0) return i + 1;
+		}
+		return n;
+	}
+}
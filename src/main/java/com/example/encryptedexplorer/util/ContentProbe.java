@@ -0,0 +1,189 @@
+package com.example.encryptedexplorer.util;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 在明文流经时顺带采集元数据：SHA-256 摘要与开头 {@link #HEAD_BYTES} 字节。
+ * 读取结束后可据此判断 MIME 类型与图片尺寸，无需再次读取或解密文件。
+ * 指定 captureLimit 时保留不超过该大小的完整内容（如用于生成缩略图），超出则放弃保留。
+ */
+public final class ContentProbe extends FilterInputStream {
+	/** 采集的开头字节数，足以覆盖常见图片格式的尺寸字段（JPEG 的 EXIF 过大时可能取不到）。 */
+	public static final int HEAD_BYTES = 64 * 1024;
+	public static final String OCTET_STREAM = "application/octet-stream";
+
+	private static final Map<String, String> BY_EXTENSION = new HashMap<>();
+	static {
+		String[][] types = {
+				{"jpg", "image/jpeg"}, {"jpeg", "image/jpeg"}, {"png", "image/png"}, {"gif", "image/gif"},
+				{"bmp", "image/bmp"}, {"webp", "image/webp"}, {"tif", "image/tiff"}, {"tiff", "image/tiff"},
+				{"pnm", "image/x-portable-anymap"}, {"ppm", "image/x-portable-pixmap"}, {"heic", "image/heic"},
+				{"txt", "text/plain"}, {"md", "text/markdown"}, {"csv", "text/csv"}, {"json", "application/json"},
+				{"xml", "application/xml"}, {"html", "text/html"}, {"htm", "text/html"}, {"pdf", "application/pdf"},
+				{"zip", "application/zip"}, {"gz", "application/gzip"}, {"7z", "application/x-7z-compressed"},
+				{"mp3", "audio/mpeg"}, {"wav", "audio/wav"}, {"flac", "audio/flac"},
+				{"mp4", "video/mp4"}, {"mov", "video/quicktime"}, {"mkv", "video/x-matroska"}, {"avi", "video/x-msvideo"},
+				{"doc", "application/msword"}, {"docx", "application/vnd.openxmlformats-officedocument.wordprocessingml.document"},
+				{"xls", "application/vnd.ms-excel"}, {"xlsx", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"},
+		};
+		for (String[] t : types) BY_EXTENSION.put(t[0], t[1]);
+	}
+
+	private final MessageDigest digest;
+	private final int captureLimit;
+	private byte[] captured = new byte[HEAD_BYTES];
+	private int length;
+	private boolean overflowed;
+
+	public ContentProbe(InputStream in) {
+		this(in, 0);
+	}
+
+	/**
+	 * @param captureLimit 保留完整内容的上限（字节），0 表示只保留开头
+	 */
+	public ContentProbe(InputStream in, int captureLimit) {
+		super(in);
+		this.captureLimit = captureLimit;
+		try {
+			this.digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	@Override
+	public int read() throws IOException {
+		int b = super.read();
+		if (b >= 0) {
+			digest.update((byte) b);
+			capture(new byte[]{(byte) b}, 0, 1);
+		}
+		return b;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		int n = super.read(b, off, len);
+		if (n > 0) {
+			digest.update(b, off, n);
+			capture(b, off, n);
+		}
+		return n;
+	}
+
+	private void capture(byte[] b, int off, int n) {
+		int limit = overflowed ? HEAD_BYTES : Math.max(HEAD_BYTES, captureLimit);
+		if (length + n > limit && !overflowed) {
+			// 超出上限：只保留开头，释放已保留的其余内容
+			overflowed = true;
+			limit = HEAD_BYTES;
+			if (length > HEAD_BYTES) {
+				captured = Arrays.copyOf(captured, HEAD_BYTES);
+				length = HEAD_BYTES;
+			}
+		}
+		n = Math.min(n, limit - length);
+		if (n <= 0) return;
+		if (length + n > captured.length) {
+			captured = Arrays.copyOf(captured, (int) Math.min(limit, Math.max(length + n, 2L * captured.length)));
+		}
+		System.arraycopy(b, off, captured, length, n);
+		length += n;
+	}
+
+	@Override
+	public boolean markSupported() {
+		return false;
+	}
+
+	/** 已读取内容的 SHA-256（读到流末尾后才是完整文件的摘要）。 */
+	public byte[] sha256() {
+		return digest.digest();
+	}
+
+	public byte[] head() {
+		return Arrays.copyOf(captured, Math.min(length, HEAD_BYTES));
+	}
+
+	/** 保留的完整内容；未开启保留或内容超出上限时返回 null。 */
+	public byte[] content() {
+		return captureLimit > 0 && !overflowed ? Arrays.copyOf(captured, length) : null;
+	}
+
+	public static byte[] sha256(byte[] content) {
+		try {
+			return MessageDigest.getInstance("SHA-256").digest(content);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * 先按文件头特征判断，识别不出时按扩展名。
+	 */
+	public static String mimeType(String fileName, byte[] head) {
+		String sniffed = sniff(head);
+		if (sniffed != null) return sniffed;
+		int dot = fileName.lastIndexOf('.');
+		String type = dot >= 0 ? BY_EXTENSION.get(fileName.substring(dot + 1).toLowerCase(Locale.ROOT)) : null;
+		return type != null ? type : OCTET_STREAM;
+	}
+
+	public static boolean isImageType(String mimeType) {
+		return mimeType != null && mimeType.startsWith("image/");
+	}
+
+	/**
+	 * 只解析图片头得到宽高，不解码像素；无法识别时返回 null。
+	 */
+	public static int[] imageSize(byte[] head) {
+		if (head == null || head.length == 0) return null;
+		try (ImageInputStream iis = ImageIO.createImageInputStream(new ByteArrayInputStream(head))) {
+			if (iis == null) return null;
+			Iterator<ImageReader> readers = ImageIO.getImageReaders(iis);
+			if (!readers.hasNext()) return null;
+			ImageReader reader = readers.next();
+			try {
+				reader.setInput(iis, true, true);
+				return new int[]{reader.getWidth(0), reader.getHeight(0)};
+			} finally {
+				reader.dispose();
+			}
+		} catch (IOException | RuntimeException e) {
+			return null; // 头部不完整或格式不支持
+		}
+	}
+
+	private static String sniff(byte[] h) {
+		if (h == null) return null;
+		if (starts(h, 0xFF, 0xD8, 0xFF)) return "image/jpeg";
+		if (starts(h, 0x89, 'P', 'N', 'G')) return "image/png";
+		if (starts(h, 'G', 'I', 'F', '8')) return "image/gif";
+		if (starts(h, 'I', 'I', 0x2A, 0x00) || starts(h, 'M', 'M', 0x00, 0x2A)) return "image/tiff";
+		if (starts(h, 'R', 'I', 'F', 'F') && h.length >= 12 && h[8] == 'W' && h[9] == 'E' && h[10] == 'B' && h[11] == 'P') return "image/webp";
+		if (starts(h, '%', 'P', 'D', 'F')) return "application/pdf";
+		return null;
+	}
+
+	private static boolean starts(byte[] h, int... magic) {
+		if (h.length < magic.length) return false;
+		for (int i = 0; i < magic.length; i++) {
+			if ((h[i] & 0xFF) != magic[i]) return false;
+		}
+		return true;
+	}
+}
@@ -2,28 +2,32 @@ package com.example.encryptedexplorer.util;
 
 import javax.crypto.Cipher;
 import javax.crypto.CipherInputStream;
-import javax.crypto.CipherOutputStream;
 import javax.crypto.Mac;
 import javax.crypto.SecretKey;
 import javax.crypto.SecretKeyFactory;
 import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.PBEKeySpec;
 import javax.crypto.spec.SecretKeySpec;
-import java.io.FilterInputStream;
-import java.io.FilterOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.security.GeneralSecurityException;
-import java.security.MessageDigest;
 import java.security.SecureRandom;
+import java.util.Arrays;
 import java.util.Base64;
 import java.util.function.LongConsumer;
 
 /**
- * 加解密工具：使用 PBKDF2 派生 AES-256-GCM 密钥。
- * 文件加密头格式："ENCV1" + salt(16) + iv(12) + GCM密文。
+ * 加解密工具：使用 PBKDF2 派生 256 位密钥。
+ * 文件加密格式（写入）：ENCV2 头（见 {@link FileHeader}）+ 分段 AEAD 密文（每段 64KB 明文 + 16 字节标签），
+ * 可选在加密前压缩；分段算法为 {@link CipherSuites#preferred()}（默认 AES-GCM），解密按文件头记录的算法分派。旧格式 "ENCV1" + salt(16) + iv(12) + GCM密文 仍可解密；名称与小块数据沿用 ENCV1。
  */
 public final class EncryptionUtils {
 	public static final String ENCRYPTED_FILE_SUFFIX = ".encrypted";
@@ -33,17 +37,23 @@ public final class EncryptionUtils {
 	private static final int KEY_LEN = 32; // 256-bit
 	private static final int GCM_TAG_LEN_BITS = 128;
 	private static final int PBKDF2_ITERATIONS = 200_000;
+	private static final int SEGMENT_SIZE = 64 * 1024;
+	private static final int MAPPED_BATCH_SEGMENTS = 16;
 	private static final SecureRandom RANDOM = new SecureRandom();
+	/** PBKDF2 次数与耗时（JMX：type=EncryptionUtils,name=kdf）；CopyService 据此拆分每个文件的 KDF 阶段。 */
+	public static final Metrics.Timer KDF_TIME = Metrics.timer("EncryptionUtils", "kdf");
+	/** 映射路径预读每个窗口（缺页读入）的耗时，每个窗口一次；CopyService 据此拆分映射复制的读取阶段。 */
+	public static final Metrics.Timer MAPPED_READ_TIME = Metrics.timer("EncryptionUtils", "mappedRead");
+	/** 映射路径每批结果经通道写出的耗时；CopyService 据此拆分映射复制的写入阶段。 */
+	public static final Metrics.Timer MAPPED_WRITE_TIME = Metrics.timer("EncryptionUtils", "mappedWrite");
 	public static final String DIR_NAME_META = ".name.meta";
 
 	private EncryptionUtils() {}
 
 	public static boolean looksEncrypted(byte[] header) {
 		if (header == null || header.length < MAGIC.length) return false;
-		for (int i = 0; i < MAGIC.length; i++) {
-			if (header[i] != MAGIC[i]) return false;
-		}
-		return true;
+		byte[] magic = Arrays.copyOf(header, MAGIC.length);
+		return Arrays.equals(magic, MAGIC) || Arrays.equals(magic, FileHeader.MAGIC);
 	}
 
 	public static boolean isEncryptedFileName(String name) {
@@ -61,6 +71,12 @@ public final class EncryptionUtils {
 		return encrypted;
 	}
 
+	public static byte[] randomBytes(int length) {
+		byte[] out = new byte[length];
+		RANDOM.nextBytes(out);
+		return out;
+	}
+
 	public static byte[] encryptBytes(byte[] plain, char[] password) throws GeneralSecurityException {
 		byte[] salt = new byte[SALT_LEN];
 		RANDOM.nextBytes(salt);
@@ -78,6 +94,26 @@ public final class EncryptionUtils {
 		return out;
 	}
 
+	/**
+	 * 在保险库内时以 ENCV2（主密钥派生文件密钥）加密小块数据，否则退回 ENCV1 密码加密。
+	 */
+	public static byte[] encryptBytes(byte[] plain, char[] password, VaultKey vault) throws GeneralSecurityException, IOException {
+		if (vault == null) return encryptBytes(plain, password);
+		ByteArrayOutputStream bos = new ByteArrayOutputStream(plain.length + 128);
+		encryptStream(new ByteArrayInputStream(plain), bos, password, vault, CompressionCodecs.NONE, null);
+		return bos.toByteArray();
+	}
+
+	public static byte[] decryptBytes(byte[] packed, char[] password, VaultKey vault) throws GeneralSecurityException, IOException {
+		if (packed.length < FileHeader.MAGIC.length
+				|| !Arrays.equals(Arrays.copyOf(packed, FileHeader.MAGIC.length), FileHeader.MAGIC)) {
+			return decryptBytes(packed, password);
+		}
+		ByteArrayOutputStream bos = new ByteArrayOutputStream(packed.length);
+		decryptStream(new ByteArrayInputStream(packed), bos, password, vault, null);
+		return bos.toByteArray();
+	}
+
 	public static byte[] decryptBytes(byte[] packed, char[] password) throws GeneralSecurityException, IOException {
 		if (packed.length < MAGIC.length + SALT_LEN + IV_LEN + 1) {
 			throw new IOException("密文长度不合法");
@@ -100,81 +136,192 @@ public final class EncryptionUtils {
 	}
 
 	public static void encryptStream(InputStream in, OutputStream out, char[] password) throws IOException, GeneralSecurityException {
-		byte[] salt = new byte[SALT_LEN];
-		RANDOM.nextBytes(salt);
-		byte[] iv = new byte[IV_LEN];
-		RANDOM.nextBytes(iv);
-		SecretKey key = deriveKey(password, salt);
-		Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
-		cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(GCM_TAG_LEN_BITS, iv));
-
-		out.write(MAGIC);
-		out.write(salt);
-		out.write(iv);
-		try (CipherOutputStream cos = new CipherOutputStream(out, cipher)) {
-			copy(in, cos);
-		}
+		encryptStream(in, out, password, CompressionCodecs.NONE, null);
 	}
 
 	public static void encryptStream(InputStream in, OutputStream out, char[] password, LongConsumer onBytes) throws IOException, GeneralSecurityException {
-		byte[] salt = new byte[SALT_LEN];
-		RANDOM.nextBytes(salt);
-		byte[] iv = new byte[IV_LEN];
-		RANDOM.nextBytes(iv);
-		SecretKey key = deriveKey(password, salt);
-		Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
-		cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(GCM_TAG_LEN_BITS, iv));
+		encryptStream(in, out, password, CompressionCodecs.NONE, onBytes);
+	}
 
-		out.write(MAGIC);
-		out.write(salt);
-		out.write(iv);
-		try (CipherOutputStream cos = new CipherOutputStream(out, cipher)) {
-			copyWithProgress(in, cos, onBytes);
+	/**
+	 * 以 ENCV2 格式加密：可选先压缩（codec 写入文件头），再按分段 AEAD 加密。
+	 * onBytes 按读取的明文字节数回调进度。
+	 */
+	public static void encryptStream(InputStream in, OutputStream out, char[] password, CompressionCodec codec, LongConsumer onBytes) throws IOException, GeneralSecurityException {
+		encryptStream(in, out, password, null, codec, onBytes);
+	}
+
+	/**
+	 * vault 非空时文件密钥由保险库主密钥派生（头部记录保险库标识），不再运行 PBKDF2。
+	 */
+	public static void encryptStream(InputStream in, OutputStream out, char[] password, VaultKey vault, CompressionCodec codec, LongConsumer onBytes) throws IOException, GeneralSecurityException {
+		CipherSuite suite = CipherSuites.preferred();
+		FileHeader header = new FileHeader();
+		header.codecId = codec.id();
+		header.cipherId = suite.id();
+		header.salt = randomBytes(SALT_LEN);
+		header.noncePrefix = randomBytes(SegmentCipher.NONCE_PREFIX_LEN);
+		header.segmentSize = SEGMENT_SIZE;
+		header.vaultId = vault != null ? vault.id() : null;
+		byte[] encodedHeader = header.encode();
+		SecretKey key = vault != null ? vault.fileKey(header.salt) : deriveKey(password, header.salt);
+		SegmentCipher segmentCipher = new SegmentCipher(suite, key, header.noncePrefix, encodedHeader);
+
+		out.write(encodedHeader);
+		try (OutputStream sink = codec.compress(new SegmentedOutputStream(out, segmentCipher, header.segmentSize))) {
+			copyWithProgress(in, sink, onBytes);
 		}
 	}
 
+	/**
+	 * 为大小已知的明文准备分块并行加密（不压缩）；密钥派生只做一次，各分块共用。
+	 */
+	public static ChunkedEncryptor chunkedEncryptor(long plainSize, char[] password, VaultKey vault) throws GeneralSecurityException {
+		CipherSuite suite = CipherSuites.preferred();
+		FileHeader header = new FileHeader();
+		header.codecId = CompressionCodecs.NONE.id();
+		header.cipherId = suite.id();
+		header.salt = randomBytes(SALT_LEN);
+		header.noncePrefix = randomBytes(SegmentCipher.NONCE_PREFIX_LEN);
+		header.segmentSize = SEGMENT_SIZE;
+		header.vaultId = vault != null ? vault.id() : null;
+		SecretKey key = vault != null ? vault.fileKey(header.salt) : deriveKey(password, header.salt);
+		return new ChunkedEncryptor(header, suite, key, plainSize);
+	}
+
 	public static void decryptStream(InputStream in, OutputStream out, char[] password) throws IOException, GeneralSecurityException {
-		byte[] header = in.readNBytes(MAGIC.length + SALT_LEN + IV_LEN);
-		if (header.length != MAGIC.length + SALT_LEN + IV_LEN) {
-			throw new IOException("加密头读取失败");
+		decryptStream(in, out, password, null);
+	}
+
+	/**
+	 * 解密 ENCV2 或旧版 ENCV1 格式，按魔数分派。onBytes 按输出的明文字节数回调进度。
+	 */
+	public static void decryptStream(InputStream in, OutputStream out, char[] password, LongConsumer onBytes) throws IOException, GeneralSecurityException {
+		decryptStream(in, out, password, null, onBytes);
+	}
+
+	/**
+	 * 解密；文件头带保险库标识时必须提供匹配的 vault。
+	 */
+	public static void decryptStream(InputStream in, OutputStream out, char[] password, VaultKey vault, LongConsumer onBytes) throws IOException, GeneralSecurityException {
+		try (InputStream source = openAuthenticated(in, password, vault, true)) {
+			copyWithProgress(source, out, onBytes);
 		}
-		for (int i = 0; i < MAGIC.length; i++) {
-			if (header[i] != MAGIC[i]) {
-				throw new IOException("不是受支持的加密格式");
+	}
+
+	/**
+	 * 只校验不输出：认证全部密文分段（ENCV2 不解压），返回认证通过的字节数。
+	 * 文件被篡改、截断或密码错误时抛出 IOException。onBytes 按认证的字节数回调。
+	 */
+	public static long verifyStream(InputStream in, char[] password, VaultKey vault, LongConsumer onBytes) throws IOException, GeneralSecurityException {
+		long total = 0;
+		byte[] buf = new byte[SEGMENT_SIZE];
+		try (InputStream source = openAuthenticated(in, password, vault, false)) {
+			int r;
+			while ((r = source.read(buf)) != -1) {
+				total += r;
+				if (onBytes != null) onBytes.accept(r);
 			}
 		}
-		byte[] salt = new byte[SALT_LEN];
-		byte[] iv = new byte[IV_LEN];
-		System.arraycopy(header, MAGIC.length, salt, 0, SALT_LEN);
-		System.arraycopy(header, MAGIC.length + SALT_LEN, iv, 0, IV_LEN);
-		SecretKey key = deriveKey(password, salt);
-		Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
-		cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(GCM_TAG_LEN_BITS, iv));
-		try (CipherInputStream cis = new CipherInputStream(in, cipher)) {
-			copy(cis, out);
-		}
+		return total;
 	}
 
-	public static void decryptStream(InputStream in, OutputStream out, char[] password, LongConsumer onBytes) throws IOException, GeneralSecurityException {
-		byte[] header = in.readNBytes(MAGIC.length + SALT_LEN + IV_LEN);
-		if (header.length != MAGIC.length + SALT_LEN + IV_LEN) {
+	/**
+	 * 读取文件头并返回逐段认证的明文流；decompress 为 false 时返回未解压的数据。
+	 */
+	private static InputStream openAuthenticated(InputStream in, char[] password, VaultKey vault, boolean decompress) throws IOException, GeneralSecurityException {
+		byte[] magic = in.readNBytes(MAGIC.length);
+		if (magic.length != MAGIC.length) {
 			throw new IOException("加密头读取失败");
 		}
-		for (int i = 0; i < MAGIC.length; i++) {
-			if (header[i] != MAGIC[i]) {
-				throw new IOException("不是受支持的加密格式");
-			}
+		if (Arrays.equals(magic, FileHeader.MAGIC)) {
+			FileHeader header = FileHeader.readAfterMagic(in);
+			CompressionCodec codec = CompressionCodecs.byId(header.codecId);
+			SegmentCipher segmentCipher = new SegmentCipher(CipherSuites.byId(header.cipherId), fileKey(header, password, vault), header.noncePrefix, header.encode());
+			InputStream segments = new SegmentedInputStream(in, segmentCipher, header.segmentSize);
+			return decompress ? codec.decompress(segments) : segments;
+		}
+		if (!Arrays.equals(magic, MAGIC)) {
+			throw new IOException("不是受支持的加密格式");
+		}
+		byte[] rest = in.readNBytes(SALT_LEN + IV_LEN);
+		if (rest.length != SALT_LEN + IV_LEN) {
+			throw new IOException("加密头读取失败");
 		}
 		byte[] salt = new byte[SALT_LEN];
 		byte[] iv = new byte[IV_LEN];
-		System.arraycopy(header, MAGIC.length, salt, 0, SALT_LEN);
-		System.arraycopy(header, MAGIC.length + SALT_LEN, iv, 0, IV_LEN);
+		System.arraycopy(rest, 0, salt, 0, SALT_LEN);
+		System.arraycopy(rest, SALT_LEN, iv, 0, IV_LEN);
 		SecretKey key = deriveKey(password, salt);
 		Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
 		cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(GCM_TAG_LEN_BITS, iv));
-		try (CipherInputStream cis = new CipherInputStream(in, cipher)) {
-			copyWithProgress(cis, out, onBytes);
+		return new CipherInputStream(in, cipher);
+	}
+
+	/**
+	 * 映射输入的整文件解密：ENCV2 且未压缩时按窗口只读映射密文，各分段切片直接交给 Cipher，
+	 * 明文在直接缓冲区中攒够一批（约 1MB）后写入 out 的当前位置，返回 true。
+	 * 压缩或旧版 ENCV1 文件只读取文件头、不写入任何内容并返回 false，由调用方改走流式解密。
+	 * onBytes 在每批写出后按明文字节数回调。
+	 */
+	public static boolean decryptMapped(FileChannel in, FileChannel out, char[] password, VaultKey vault, LongConsumer onBytes) throws IOException, GeneralSecurityException {
+		InputStream headerIn = Channels.newInputStream(in.position(0));
+		byte[] magic = headerIn.readNBytes(FileHeader.MAGIC.length);
+		if (!Arrays.equals(magic, FileHeader.MAGIC)) return false;
+		FileHeader header = FileHeader.readAfterMagic(headerIn);
+		if (header.codecId != CompressionCodecs.NONE.id()) return false;
+		byte[] encodedHeader = header.encode();
+		SegmentCipher cipher = new SegmentCipher(CipherSuites.byId(header.cipherId), fileKey(header, password, vault), header.noncePrefix, encodedHeader);
+
+		int segmentSize = header.segmentSize;
+		int sealedUnit = segmentSize + SegmentCipher.TAG_LEN;
+		long body = in.size() - encodedHeader.length;
+		long segments = (body + sealedUnit - 1) / sealedUnit;
+		// 最后一段至少要有标签；空文件也有一个只含标签的末段
+		if (segments == 0 || body - (segments - 1) * sealedUnit < SegmentCipher.TAG_LEN) throw new IOException("密文被截断");
+		ByteBuffer plain = ByteBuffer.allocateDirect(MAPPED_BATCH_SEGMENTS * segmentSize);
+		long perWindow = MappedWindows.unitsPerWindow(sealedUnit);
+		long i = 0;
+		while (i < segments) {
+			long windowEnd = Math.min(segments, i + perWindow);
+			long from = encodedHeader.length + i * sealedUnit;
+			long to = Math.min(encodedHeader.length + body, encodedHeader.length + windowEnd * sealedUnit);
+			MappedByteBuffer window = MappedWindows.map(in, from, to - from);
+			try {
+				for (; i < windowEnd; i++) {
+					int offset = (int) (encodedHeader.length + i * sealedUnit - from);
+					int len = (int) Math.min(sealedUnit, to - from - offset);
+					try {
+						cipher.open(i, i == segments - 1, MappedWindows.slice(window, offset, len), plain);
+					} catch (GeneralSecurityException e) {
+						throw new IOException("密文认证失败（密码错误或文件已损坏）", e);
+					}
+					if (plain.remaining() < segmentSize || i == windowEnd - 1) {
+						plain.flip();
+						long n = plain.remaining();
+						long t0 = System.nanoTime();
+						while (plain.hasRemaining()) out.write(plain);
+						MAPPED_WRITE_TIME.recordSince(t0);
+						plain.clear();
+						if (onBytes != null && n > 0) onBytes.accept(n);
+					}
+				}
+			} catch (InternalError e) {
+				throw new IOException("源文件在解密过程中被截短", e);
+			} finally {
+				MappedWindows.unmap(window);
+			}
+		}
+		return true;
+	}
+
+	/** ENCV2 文件密钥：头部带保险库标识时由匹配的保险库派生，否则由密码派生。 */
+	private static SecretKey fileKey(FileHeader header, char[] password, VaultKey vault) throws IOException, GeneralSecurityException {
+		if (header.vaultId == null) return deriveKey(password, header.salt);
+		if (vault == null || !vault.matches(header.vaultId)) {
+			throw new IOException("文件由保险库密钥加密，未找到匹配的保险库（.vault）");
 		}
+		return vault.fileKey(header.salt);
 	}
 
 	public static String encryptFileName(String plainName, char[] password) throws GeneralSecurityException {
@@ -184,80 +331,64 @@ public final class EncryptionUtils {
 
 	/**
 	 * 确定性文件名加密：对相同 plainName 与 password，每次输出相同结果。
-	 * 仅用于目录名称加密，避免同一目录生成多个不同名称。
+	 * 仅用于目录名称加密，避免同一目录生成多个不同名称。使用 {@link NameCipher} 的 SIV 结构，
+	 * 密钥每个密码只派生一次，不再对每个名称运行 PBKDF2。
 	 */
 	public static String encryptFileNameDeterministic(String plainName, char[] password) throws GeneralSecurityException {
-		try {
-			byte[] pwd = new String(password).getBytes(StandardCharsets.UTF_8);
-			byte[] nameBytes = plainName.getBytes(StandardCharsets.UTF_8);
-			byte[] salt = deriveDeterministicBytes(pwd, nameBytes, "salt", SALT_LEN);
-			byte[] iv = deriveDeterministicBytes(pwd, nameBytes, "iv", IV_LEN);
-			SecretKey key = deriveKey(password, salt);
-			Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
-			cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(GCM_TAG_LEN_BITS, iv));
-			byte[] ciphertext = cipher.doFinal(nameBytes);
-			byte[] out = new byte[MAGIC.length + SALT_LEN + IV_LEN + ciphertext.length];
-			System.arraycopy(MAGIC, 0, out, 0, MAGIC.length);
-			System.arraycopy(salt, 0, out, MAGIC.length, SALT_LEN);
-			System.arraycopy(iv, 0, out, MAGIC.length + SALT_LEN, IV_LEN);
-			System.arraycopy(ciphertext, 0, out, MAGIC.length + SALT_LEN + IV_LEN, ciphertext.length);
-			return FileNameCodec.encodeUrlBase64(out);
-		} catch (Exception e) {
-			throw new GeneralSecurityException("确定性加密失败", e);
-		}
+		return NameCipher.forPassword(password).encrypt(plainName);
 	}
 
 	/**
 	 * 生成固定长度（例如16字符）的目录短名，基于 HMAC-SHA256（密码+明文目录名）并使用Base64URL无填充编码。
 	 */
 	public static String encryptDirectoryNameShort(String plainName, char[] password, int length) throws GeneralSecurityException {
+		return NameCipher.forPassword(password).shortName(plainName, length);
+	}
+
+	/**
+	 * 以给定密钥（如保险库目录名子密钥）生成目录短名。
+	 */
+	public static String encryptDirectoryNameShort(String plainName, byte[] nameKey, int length) throws GeneralSecurityException {
 		Mac mac = Mac.getInstance("HmacSHA256");
-		SecretKeySpec key = new SecretKeySpec(new String(password).getBytes(StandardCharsets.UTF_8), "HmacSHA256");
-		mac.init(key);
+		mac.init(new SecretKeySpec(nameKey, "HmacSHA256"));
 		byte[] h = mac.doFinal(plainName.getBytes(StandardCharsets.UTF_8));
 		String b64 = Base64.getUrlEncoder().withoutPadding().encodeToString(h);
 		return b64.substring(0, Math.min(length, b64.length()));
 	}
 
+	/**
+	 * 解密名称（SIV 确定性名称或旧版 ENCV1 名称），结果按会话缓存；明显不是加密名称时直接抛出异常。
+	 */
 	public static String decryptFileName(String encoded, char[] password) throws GeneralSecurityException, IOException {
-		byte[] packed = FileNameCodec.decodeUrlBase64(encoded);
-		byte[] plain = decryptBytes(packed, password);
-		return new String(plain, StandardCharsets.UTF_8);
+		return NameCipher.forPassword(password).decrypt(encoded);
 	}
 
 	private static SecretKey deriveKey(char[] password, byte[] salt) throws GeneralSecurityException {
-		PBEKeySpec spec = new PBEKeySpec(password, salt, PBKDF2_ITERATIONS, KEY_LEN * 8);
-		SecretKeyFactory factory = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256");
-		byte[] keyBytes = factory.generateSecret(spec).getEncoded();
-		return new SecretKeySpec(keyBytes, "AES");
+		return new SecretKeySpec(deriveKeyBytes(password, salt), "AES");
 	}
 
-	private static void copy(InputStream in, OutputStream out) throws IOException {
-		byte[] buffer = new byte[8192];
-		int read;
-		while ((read = in.read(buffer)) != -1) {
-			out.write(buffer, 0, read);
+	/**
+	 * PBKDF2-HMAC-SHA256 派生 32 字节密钥材料，供需要自行使用密钥的模块（如去重域密钥）。
+	 */
+	public static byte[] deriveKeyBytes(char[] password, byte[] salt) throws GeneralSecurityException {
+		long t0 = System.nanoTime();
+		Tracing.KeyDerivationEvent trace = Tracing.keyDerivation();
+		try {
+			PBEKeySpec spec = new PBEKeySpec(password, salt, PBKDF2_ITERATIONS, KEY_LEN * 8);
+			SecretKeyFactory factory = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256");
+			return factory.generateSecret(spec).getEncoded();
+		} finally {
+			KDF_TIME.recordSince(t0);
+			if (trace != null) trace.complete(PBKDF2_ITERATIONS);
 		}
 	}
 
 	private static void copyWithProgress(InputStream in, OutputStream out, LongConsumer onBytes) throws IOException {
-		byte[] buffer = new byte[8192];
+		byte[] buffer = new byte[SEGMENT_SIZE];
 		int read;
 		while ((read = in.read(buffer)) != -1) {
 			out.write(buffer, 0, read);
 			if (onBytes != null && read > 0) onBytes.accept(read);
 		}
 	}
-
-	private static byte[] deriveDeterministicBytes(byte[] passwordBytes, byte[] nameBytes, String purpose, int length) throws GeneralSecurityException {
-		MessageDigest md = MessageDigest.getInstance("SHA-256");
-		md.update(passwordBytes);
-		md.update((":" + purpose + ":").getBytes(StandardCharsets.UTF_8));
-		md.update(nameBytes);
-		byte[] digest = md.digest();
-		if (length == digest.length) return digest;
-		byte[] out = new byte[length];
-		System.arraycopy(digest, 0, out, 0, Math.min(length, digest.length));
-		return out;
-	}
 } 
\ No newline at end of file
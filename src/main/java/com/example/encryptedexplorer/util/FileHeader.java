@@ -0,0 +1,129 @@
+package com.example.encryptedexplorer.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * ENCV2 文件头："ENCV2" + 头长度(u16) + 若干 TLV 字段（tag(u8) + len(u8) + value）。
+ * 整个头（含魔数）作为每个密文分段的 AAD，任何字段被篡改都会导致认证失败。
+ * tag &lt; 0x80 为必须理解的字段，遇到未知字段拒绝解密；tag &gt;= 0x80 为可忽略的扩展字段。
+ */
+public final class FileHeader {
+	public static final byte[] MAGIC = "ENCV2".getBytes(StandardCharsets.US_ASCII);
+	static final int TAG_CODEC = 0x01;
+	static final int TAG_SALT = 0x02;
+	static final int TAG_NONCE_PREFIX = 0x03;
+	static final int TAG_SEGMENT_SIZE = 0x04;
+	static final int TAG_VAULT_ID = 0x05;
+	static final int TAG_CIPHER = 0x06;
+	private static final int MAX_HEADER_LEN = 4096;
+
+	public int codecId = CompressionCodecs.NONE.id();
+	public byte[] salt;
+	public byte[] noncePrefix;
+	public int segmentSize;
+	/** 非空表示文件密钥由该保险库主密钥派生（信封加密），否则由密码经 PBKDF2 派生。 */
+	public byte[] vaultId;
+	/**
+	 * 分段加密算法 id（见 {@link CipherSuites}）。AES-GCM（0）不写入头部，与旧版本写出的文件逐字节相同；
+	 * 其他算法写入必须理解的字段，旧版本会拒绝解密而不是误用 AES-GCM。
+	 */
+	public int cipherId = CipherSuites.AES_GCM.id();
+
+	private byte[] encoded;
+
+	/**
+	 * 序列化文件头（含魔数）。结果同时作为分段 AAD 使用。
+	 */
+	public byte[] encode() {
+		if (encoded != null) return encoded;
+		ByteArrayOutputStream body = new ByteArrayOutputStream(64);
+		writeField(body, TAG_CODEC, new byte[] {(byte) codecId});
+		writeField(body, TAG_SALT, salt);
+		writeField(body, TAG_NONCE_PREFIX, noncePrefix);
+		writeField(body, TAG_SEGMENT_SIZE, new byte[] {
+				(byte) (segmentSize >>> 24), (byte) (segmentSize >>> 16), (byte) (segmentSize >>> 8), (byte) segmentSize});
+		if (vaultId != null) writeField(body, TAG_VAULT_ID, vaultId);
+		if (cipherId != CipherSuites.AES_GCM.id()) writeField(body, TAG_CIPHER, new byte[] {(byte) cipherId});
+		byte[] fields = body.toByteArray();
+		byte[] out = new byte[MAGIC.length + 2 + fields.length];
+		System.arraycopy(MAGIC, 0, out, 0, MAGIC.length);
+		out[MAGIC.length] = (byte) (fields.length >>> 8);
+		out[MAGIC.length + 1] = (byte) fields.length;
+		System.arraycopy(fields, 0, out, MAGIC.length + 2, fields.length);
+		encoded = out;
+		return out;
+	}
+
+	/**
+	 * 在魔数已被读取的前提下读取剩余头部。
+	 */
+	public static FileHeader readAfterMagic(InputStream in) throws IOException {
+		byte[] lenBytes = in.readNBytes(2);
+		if (lenBytes.length != 2) throw new IOException("加密头读取失败");
+		int len = ((lenBytes[0] & 0xFF) << 8) | (lenBytes[1] & 0xFF);
+		if (len > MAX_HEADER_LEN) throw new IOException("加密头长度不合法");
+		byte[] fields = in.readNBytes(len);
+		if (fields.length != len) throw new IOException("加密头读取失败");
+
+		FileHeader h = new FileHeader();
+		int pos = 0;
+		while (pos < fields.length) {
+			if (pos + 2 > fields.length) throw new IOException("加密头字段不完整");
+			int tag = fields[pos] & 0xFF;
+			int flen = fields[pos + 1] & 0xFF;
+			pos += 2;
+			if (pos + flen > fields.length) throw new IOException("加密头字段不完整");
+			switch (tag) {
+				case TAG_CODEC:
+					h.codecId = fields[pos] & 0xFF;
+					break;
+				case TAG_SALT:
+					h.salt = slice(fields, pos, flen);
+					break;
+				case TAG_NONCE_PREFIX:
+					h.noncePrefix = slice(fields, pos, flen);
+					break;
+				case TAG_SEGMENT_SIZE:
+					if (flen != 4) throw new IOException("分段大小字段不合法");
+					h.segmentSize = ((fields[pos] & 0xFF) << 24) | ((fields[pos + 1] & 0xFF) << 16)
+							| ((fields[pos + 2] & 0xFF) << 8) | (fields[pos + 3] & 0xFF);
+					break;
+				case TAG_VAULT_ID:
+					h.vaultId = slice(fields, pos, flen);
+					break;
+				case TAG_CIPHER:
+					if (flen != 1) throw new IOException("加密算法字段不合法");
+					h.cipherId = fields[pos] & 0xFF;
+					break;
+				default:
+					if (tag < 0x80) throw new IOException("不支持的加密头字段: 0x" + Integer.toHexString(tag));
+			}
+			pos += flen;
+		}
+		if (h.salt == null || h.noncePrefix == null || h.segmentSize <= 0) {
+			throw new IOException("加密头缺少必要字段");
+		}
+		byte[] all = new byte[MAGIC.length + 2 + len];
+		System.arraycopy(MAGIC, 0, all, 0, MAGIC.length);
+		all[MAGIC.length] = lenBytes[0];
+		all[MAGIC.length + 1] = lenBytes[1];
+		System.arraycopy(fields, 0, all, MAGIC.length + 2, len);
+		h.encoded = all;
+		return h;
+	}
+
+	private static void writeField(ByteArrayOutputStream out, int tag, byte[] value) {
+		out.write(tag);
+		out.write(value.length);
+		out.write(value, 0, value.length);
+	}
+
+	private static byte[] slice(byte[] src, int off, int len) {
+		byte[] out = new byte[len];
+		System.arraycopy(src, off, out, 0, len);
+		return out;
+	}
+}
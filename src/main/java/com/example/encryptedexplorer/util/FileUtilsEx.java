@@ -4,8 +4,10 @@ import javax.swing.JOptionPane;
 import java.awt.Desktop;
 import java.io.File;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
 
 /**
@@ -49,6 +51,25 @@ public final class FileUtilsEx {
 				.stream().anyMatch(name::endsWith);
 	}
 
+	/**
+	 * 将文件数据与元数据刷到磁盘（fsync）。
+	 */
+	public static void force(Path file) throws IOException {
+		try (FileChannel ch = FileChannel.open(file, StandardOpenOption.WRITE)) {
+			ch.force(true);
+		}
+	}
+
+	/**
+	 * 将目录项（新建、改名）刷到磁盘。部分平台（如 Windows）不支持打开目录，此时忽略。
+	 */
+	public static void forceDirectory(Path dir) {
+		try (FileChannel ch = FileChannel.open(dir, StandardOpenOption.READ)) {
+			ch.force(true);
+		} catch (IOException | UnsupportedOperationException ignored) {
+		}
+	}
+
 	public static long safeSize(Path path) {
 		try {
 			return Files.size(path);
@@ -0,0 +1,55 @@
+package com.example.encryptedexplorer.util;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * I/O 任务与 CPU 任务的执行器。运行在 Java 21+ 上时（多版本 JAR），I/O 为主的任务（目录列举与 stat、小文件复制、
+ * 缩略图源文件读取）默认每个任务一个虚拟线程，成百上千个请求可以同时等待存储，网络挂载等高延迟设备上的总耗时
+ * 不再是 条目数 × 往返延迟；加解密、解码等 CPU 密集工作仍在固定大小的平台线程池中进行。
+ * <p>
+ * 以 {@code -Dencryptedexplorer.virtualThreads=false} 启动或运行在 Java 11~20 上时退回平台线程，行为与此前相同。
+ * 同时进行的 I/O 任务数由调用方按 {@link #parallelism} 限制，默认 256（{@code -Dencryptedexplorer.ioParallelism}）。
+ */
+public final class IoExecutors {
+	public static final String PROPERTY = "encryptedexplorer.virtualThreads";
+	public static final String PARALLELISM_PROPERTY = "encryptedexplorer.ioParallelism";
+	// 与 JDK 虚拟线程调度器的 maxPoolSize 默认值一致：阻塞式文件 I/O 会临时占住载体线程
+	private static final int DEFAULT_PARALLELISM = 256;
+	private static final boolean VIRTUAL = useVirtual(VirtualThreads.supported(), System.getProperty(PROPERTY));
+
+	private IoExecutors() {}
+
+	/** 运行时支持虚拟线程且未以属性值 false 关闭时使用虚拟线程。 */
+	static boolean useVirtual(boolean supported, String property) {
+		return supported && (property == null || !"false".equalsIgnoreCase(property.trim()));
+	}
+
+	/** I/O 任务是否使用虚拟线程。 */
+	public static boolean virtual() {
+		return VIRTUAL;
+	}
+
+	/** 同时进行的 I/O 任务上限：虚拟线程模式下为配置值（默认 256，不低于 platformThreads），否则为 platformThreads。 */
+	public static int parallelism(int platformThreads) {
+		if (!VIRTUAL) return platformThreads;
+		return Math.max(platformThreads, Integer.getInteger(PARALLELISM_PROPERTY, DEFAULT_PARALLELISM));
+	}
+
+	/**
+	 * I/O 任务执行器：虚拟线程模式下每个任务一个虚拟线程，否则为 platformThreads 个守护平台线程。
+	 * 虚拟线程执行器不排队，调用方须以信号量等方式限制同时提交的任务数。
+	 */
+	public static ExecutorService io(String name, int platformThreads) {
+		return VIRTUAL ? VirtualThreads.newPerTaskExecutor(name) : platform(name, platformThreads);
+	}
+
+	/** 固定大小的守护平台线程池，用于 CPU 密集任务。 */
+	public static ExecutorService platform(String name, int threads) {
+		return Executors.newFixedThreadPool(threads, r -> {
+			Thread t = new Thread(r, name);
+			t.setDaemon(true);
+			return t;
+		});
+	}
+}
@@ -0,0 +1,301 @@
+package com.example.encryptedexplorer.util;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 按设备（FileStore）调度 I/O：每个设备独立限制并发数，并根据实测吞吐自适应调整并发与块大小；
+ * 可选的全局字节速率限制由所有设备共享。
+ * <p>
+ * 并发采用爬山法：每个统计窗口比较吞吐，变好则沿原方向继续增减，变差则反向；
+ * 机械硬盘会收敛到 1~2 个并发，SSD/NVMe 会逐步升到上限。块大小取约 20ms 的实测传输量，
+ * 按 2 的幂取整并限制在 64KB~4MB。
+ */
+public final class IoScheduler {
+	public static final int MIN_BLOCK = 64 * 1024;
+	public static final int MAX_BLOCK = 4 * 1024 * 1024;
+	private static final int INITIAL_BLOCK = 256 * 1024;
+	private static final long WINDOW_NANOS = 500_000_000L;
+	private static final double BLOCK_SECONDS = 0.02;
+
+	private final int maxConcurrency;
+	private final RateLimiter limiter;
+	private final Map<Object, Device> devices = new ConcurrentHashMap<>();
+	private final Map<Path, Device> byDirectory = new ConcurrentHashMap<>();
+
+	/**
+	 * @param maxConcurrency 每个设备的并发上限
+	 * @param limiter        全局限速，不限速时传 {@link RateLimiter#unlimited()}
+	 */
+	public IoScheduler(int maxConcurrency, RateLimiter limiter) {
+		if (maxConcurrency <= 0) throw new IllegalArgumentException("并发上限必须大于 0");
+		this.maxConcurrency = maxConcurrency;
+		this.limiter = limiter;
+	}
+
+	public RateLimiter limiter() {
+		return limiter;
+	}
+
+	/**
+	 * 为一次传输申请所涉及设备（如源与目标）的并发额度，额度不足时阻塞。
+	 * 多个设备按固定顺序申请，避免交叉等待死锁。
+	 */
+	public Ticket acquire(Path... paths) throws InterruptedIOException {
+		List<Device> needed = new ArrayList<>(paths.length);
+		for (Path p : paths) {
+			Device d = deviceOf(p);
+			if (!needed.contains(d)) needed.add(d);
+		}
+		needed.sort(Comparator.comparingInt(d -> d.order));
+		List<Device> held = new ArrayList<>(needed.size());
+		try {
+			for (Device d : needed) {
+				d.acquire();
+				held.add(d);
+			}
+		} catch (InterruptedException e) {
+			for (Device d : held) d.release();
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("等待 I/O 调度被中断");
+		}
+		return new Ticket(held.toArray(new Device[0]));
+	}
+
+	/** 不经过并发调度、只扣减限速额度（如打包小文件一次性读取）。 */
+	public void charge(long bytes) throws InterruptedIOException {
+		limiter.acquire(bytes);
+	}
+
+	/** 各设备当前状态，供日志与监控输出。 */
+	public List<Device> devices() {
+		List<Device> list = new ArrayList<>(devices.values());
+		list.sort(Comparator.comparingInt(d -> d.order));
+		return list;
+	}
+
+	private Device deviceOf(Path path) {
+		Path dir = path.toAbsolutePath().getParent();
+		if (dir == null) dir = path.toAbsolutePath();
+		return byDirectory.computeIfAbsent(dir, this::lookup);
+	}
+
+	private Device lookup(Path dir) {
+		// 目标文件或目录可能尚未创建，取最近的已存在上级目录所在的 FileStore
+		Path existing = dir;
+		while (existing != null && !Files.exists(existing)) existing = existing.getParent();
+		Object key;
+		String name;
+		try {
+			FileStore store = Files.getFileStore(existing != null ? existing : dir);
+			key = store;
+			name = store.name() + " (" + store.type() + ")";
+		} catch (IOException | RuntimeException e) {
+			key = dir.getRoot() != null ? dir.getRoot() : dir;
+			name = key.toString();
+		}
+		String label = name;
+		return devices.computeIfAbsent(key, k -> new Device(label, devices.size(), maxConcurrency));
+	}
+
+	/**
+	 * 一次传输持有的额度。读取流经 {@link #throttle} 包装后自动计入吞吐并受全局限速；
+	 * 也可用 {@link #transferred} 手动计入。关闭时归还并发额度。
+	 */
+	public final class Ticket implements AutoCloseable {
+		private final Device[] held;
+		private boolean closed;
+
+		private Ticket(Device[] held) {
+			this.held = held;
+		}
+
+		/** 建议的读写块大小：所涉及设备中最小者。 */
+		public int blockSize() {
+			int size = MAX_BLOCK;
+			for (Device d : held) size = Math.min(size, d.blockSize());
+			return held.length == 0 ? INITIAL_BLOCK : size;
+		}
+
+		public void transferred(long bytes) {
+			for (Device d : held) d.record(bytes);
+		}
+
+		public InputStream throttle(InputStream in) {
+			InputStream limited = limiter.throttle(in);
+			return new FilterInputStream(limited) {
+				@Override
+				public int read() throws IOException {
+					int b = super.read();
+					if (b >= 0) transferred(1);
+					return b;
+				}
+
+				@Override
+				public int read(byte[] b, int off, int len) throws IOException {
+					int n = super.read(b, off, len);
+					if (n > 0) transferred(n);
+					return n;
+				}
+			};
+		}
+
+		@Override
+		public void close() {
+			if (closed) return;
+			closed = true;
+			for (Device d : held) d.release();
+		}
+	}
+
+	/**
+	 * 单个设备的自适应状态。等待额度用 ReentrantLock 而非对象监视器：Java 21 上在监视器中等待会占住虚拟线程的载体线程。
+	 */
+	public static final class Device {
+		private final String name;
+		private final int order;
+		private final int max;
+		private final ReentrantLock lock = new ReentrantLock();
+		private final Condition available = lock.newCondition();
+		private int limit;
+		private int active;
+		private int peakActive;
+		private int direction = 1;
+		private int blockSize = INITIAL_BLOCK;
+		private long windowStart = System.nanoTime();
+		private long windowBytes;
+		private double lastRate;
+		private long totalBytes;
+
+		Device(String name, int order, int max) {
+			this.name = name;
+			this.order = order;
+			this.max = max;
+			// 上限很高时（虚拟线程模式）从其四分之一起步，免得爬山过程过长
+			this.limit = Math.max(Math.min(2, max), max / 4);
+		}
+
+		public String name() { return name; }
+
+		public int concurrency() {
+			lock.lock();
+			try {
+				return limit;
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		public int blockSize() {
+			lock.lock();
+			try {
+				return blockSize;
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		/** 最近一个统计窗口的吞吐（字节/秒）。 */
+		public double bytesPerSecond() {
+			lock.lock();
+			try {
+				return lastRate;
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		public long totalBytes() {
+			lock.lock();
+			try {
+				return totalBytes;
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		void acquire() throws InterruptedException {
+			lock.lockInterruptibly();
+			try {
+				while (active >= limit) available.await();
+				active++;
+				peakActive = Math.max(peakActive, active);
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		void release() {
+			lock.lock();
+			try {
+				active--;
+				adjust();
+				available.signalAll();
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		void record(long bytes) {
+			lock.lock();
+			try {
+				windowBytes += bytes;
+				totalBytes += bytes;
+				adjust();
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		/** 调用方已持有 lock。 */
+		private void adjust() {
+			long now = System.nanoTime();
+			long elapsed = now - windowStart;
+			if (elapsed < WINDOW_NANOS || windowBytes == 0) return;
+			double rate = windowBytes * 1_000_000_000.0 / elapsed;
+			if (lastRate > 0 && rate < lastRate * 0.95) direction = -direction;
+			// 并发未用满时增大上限没有意义
+			if (direction < 0 || peakActive >= limit) {
+				int next = Math.max(1, Math.min(max, limit + direction));
+				if (next == limit) direction = -direction;
+				limit = next;
+			}
+			long block = Integer.highestOneBit((int) Math.min(MAX_BLOCK, Math.max(MIN_BLOCK, rate * BLOCK_SECONDS)));
+			blockSize = (int) Math.max(MIN_BLOCK, block);
+			lastRate = rate;
+			windowStart = now;
+			windowBytes = 0;
+			peakActive = active;
+			available.signalAll();
+		}
+
+		@Override
+		public String toString() {
+			lock.lock();
+			try {
+				return name + " 并发=" + limit + "/" + max + " 块=" + (blockSize / 1024) + "KB 吞吐="
+						+ String.format("%.1f", lastRate / (1024 * 1024)) + "MB/s 累计=" + totalBytes;
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		return Arrays.toString(devices().toArray());
+	}
+}
@@ -0,0 +1,81 @@
+package com.example.encryptedexplorer.util;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * 大文件的只读映射窗口：按固定大小（默认 64MB，按分段对齐）逐个映射源文件，处理完立即解除映射，
+ * 进程地址空间与页缓存占用不随文件大小增长，Windows 上源文件也不会因残留映射而无法删除。
+ * <p>
+ * 解除映射使用 sun.misc.Unsafe#invokeCleaner（jdk.unsupported），不可用时退回由 GC 回收。
+ * 解除映射后窗口及其切片不可再访问，调用方不得让它们逃出处理范围。
+ */
+final class MappedWindows {
+	/** 单个映射窗口的最大字节数。 */
+	static final long WINDOW_BYTES = 64L * 1024 * 1024;
+	private static final MethodHandle INVOKE_CLEANER = invokeCleaner();
+
+	private MappedWindows() {}
+
+	/** 一个窗口最多包含多少个 unit（至少 1）。 */
+	static long unitsPerWindow(long unit) {
+		return Math.max(1, WINDOW_BYTES / unit);
+	}
+
+	/**
+	 * 只读映射 [position, position + length) 并预读入内存，预读耗时计入
+	 * {@link EncryptionUtils#MAPPED_READ_TIME}，之后加解密只访问已在内存中的页。区间必须完全位于文件内：
+	 * 映射超出文件末尾的部分在访问时会使 JVM 报错，因此先检查文件大小，不足时按截短处理。
+	 */
+	static MappedByteBuffer map(FileChannel channel, long position, long length) throws IOException {
+		if (channel.size() < position + length) throw new IOException("源文件在处理过程中被截短");
+		MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+		long t0 = System.nanoTime();
+		try {
+			window.load();
+		} catch (InternalError e) {
+			unmap(window);
+			throw new IOException("源文件在处理过程中被截短", e);
+		}
+		EncryptionUtils.MAPPED_READ_TIME.recordSince(t0);
+		return window;
+	}
+
+	/** 窗口内 [offset, offset + length) 的切片，与窗口共享内存。 */
+	static ByteBuffer slice(ByteBuffer window, int offset, int length) {
+		ByteBuffer dup = window.duplicate();
+		dup.limit(offset + length);
+		dup.position(offset);
+		return dup;
+	}
+
+	/** 立即解除映射；buffer 为 null 或无法解除时忽略。 */
+	static void unmap(MappedByteBuffer buffer) {
+		if (buffer == null || INVOKE_CLEANER == null) return;
+		try {
+			INVOKE_CLEANER.invoke(buffer);
+		} catch (Throwable ignored) {
+			// 交给 GC
+		}
+	}
+
+	private static MethodHandle invokeCleaner() {
+		try {
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			Field field = unsafeClass.getDeclaredField("theUnsafe");
+			field.setAccessible(true);
+			Object unsafe = field.get(null);
+			return MethodHandles.lookup()
+					.findVirtual(unsafeClass, "invokeCleaner", MethodType.methodType(void.class, ByteBuffer.class))
+					.bindTo(unsafe);
+		} catch (Exception | LinkageError e) {
+			return null;
+		}
+	}
+}
@@ -0,0 +1,235 @@
+package com.example.encryptedexplorer.util;
+
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * 轻量运行指标：计数器、仪表与耗时直方图，记录路径无锁。每个指标发布为一个 MXBean，
+ * 名称为 {@code com.example.encryptedexplorer:type=<模块>,name=<指标>}，可用 JConsole / VisualVM
+ * 或本地采集程序查看正在运行的任务。
+ * <p>
+ * 同名指标只创建一次（各实例共享）；MBean 注册在后台线程进行，不拖慢启动，注册失败时指标照常计数。
+ */
+public final class Metrics {
+	public static final String DOMAIN = "com.example.encryptedexplorer";
+
+	private static final ConcurrentMap<String, Object> REGISTRY = new ConcurrentHashMap<>();
+	private static final ExecutorService REGISTRAR = Executors.newSingleThreadExecutor(r -> {
+		Thread t = new Thread(r, "metrics-jmx");
+		t.setDaemon(true);
+		return t;
+	});
+
+	private Metrics() {}
+
+	public interface CounterMXBean {
+		long getCount();
+	}
+
+	public interface GaugeMXBean {
+		long getValue();
+	}
+
+	public interface TimerMXBean {
+		long getCount();
+		double getTotalMillis();
+		double getMeanMillis();
+		double getMaxMillis();
+		double getP50Millis();
+		double getP95Millis();
+		double getP99Millis();
+		void reset();
+	}
+
+	/** 单调递增计数器。 */
+	public static final class Counter implements CounterMXBean {
+		private final LongAdder count = new LongAdder();
+
+		private Counter() {}
+
+		public void increment() {
+			count.increment();
+		}
+
+		public void add(long n) {
+			count.add(n);
+		}
+
+		@Override
+		public long getCount() {
+			return count.sum();
+		}
+	}
+
+	/** 读取时计算的瞬时值（如活动任务数、队列深度）。 */
+	public static final class Gauge implements GaugeMXBean {
+		private final LongSupplier value;
+
+		private Gauge(LongSupplier value) {
+			this.value = value;
+		}
+
+		@Override
+		public long getValue() {
+			return value.getAsLong();
+		}
+	}
+
+	/**
+	 * 耗时直方图（纳秒）：每个 2 的幂区间再分 4 个子桶，分位数取桶中点，相对误差约 12%。
+	 * 另按线程累计记录的纳秒数，供调用方从一段总耗时中扣除该阶段。
+	 */
+	public static final class Timer implements TimerMXBean {
+		private static final int BUCKETS = 256;
+
+		private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+		private final LongAdder count = new LongAdder();
+		private final LongAdder total = new LongAdder();
+		private final AtomicLong max = new AtomicLong();
+		private final ThreadLocal<long[]> perThread = ThreadLocal.withInitial(() -> new long[1]);
+
+		private Timer() {}
+
+		/** 记录一次耗时；负值按 0 计。 */
+		public void record(long nanos) {
+			if (nanos < 0) nanos = 0;
+			buckets.incrementAndGet(bucket(nanos));
+			count.increment();
+			total.add(nanos);
+			perThread.get()[0] += nanos;
+			long m;
+			while (nanos > (m = max.get()) && !max.compareAndSet(m, nanos)) {
+				// 其他线程更新了最大值，重试
+			}
+		}
+
+		/** 记录从 startNanos（System.nanoTime()）到现在的耗时。 */
+		public void recordSince(long startNanos) {
+			record(System.nanoTime() - startNanos);
+		}
+
+		/** 当前线程迄今记录的总纳秒数。 */
+		public long threadNanos() {
+			return perThread.get()[0];
+		}
+
+		@Override
+		public long getCount() {
+			return count.sum();
+		}
+
+		@Override
+		public double getTotalMillis() {
+			return total.sum() / 1e6;
+		}
+
+		@Override
+		public double getMeanMillis() {
+			long n = count.sum();
+			return n == 0 ? 0 : total.sum() / 1e6 / n;
+		}
+
+		@Override
+		public double getMaxMillis() {
+			return max.get() / 1e6;
+		}
+
+		@Override
+		public double getP50Millis() {
+			return percentile(0.50);
+		}
+
+		@Override
+		public double getP95Millis() {
+			return percentile(0.95);
+		}
+
+		@Override
+		public double getP99Millis() {
+			return percentile(0.99);
+		}
+
+		/** 清零直方图与累计值（计数过程中清零时结果是近似的）。 */
+		@Override
+		public void reset() {
+			for (int i = 0; i < BUCKETS; i++) buckets.set(i, 0);
+			count.reset();
+			total.reset();
+			max.set(0);
+		}
+
+		/** 分位数（毫秒），按各桶计数累计，不要求与 count 精确一致。 */
+		public double percentile(double q) {
+			long[] snapshot = new long[BUCKETS];
+			long n = 0;
+			for (int i = 0; i < BUCKETS; i++) {
+				snapshot[i] = buckets.get(i);
+				n += snapshot[i];
+			}
+			if (n == 0) return 0;
+			long rank = Math.max(1, (long) Math.ceil(q * n));
+			long seen = 0;
+			for (int i = 0; i < BUCKETS; i++) {
+				seen += snapshot[i];
+				if (seen >= rank) return Math.min(midpoint(i), max.get()) / 1e6;
+			}
+			return max.get() / 1e6;
+		}
+
+		private static int bucket(long v) {
+			if (v < 8) return (int) v;
+			int exp = 63 - Long.numberOfLeadingZeros(v);
+			return exp * 4 + (int) ((v >>> (exp - 2)) & 3);
+		}
+
+		private static double midpoint(int index) {
+			if (index < 8) return index;
+			int exp = index >>> 2;
+			long width = 1L << (exp - 2);
+			return ((4L + (index & 3)) << (exp - 2)) + width / 2.0;
+		}
+	}
+
+	public static Counter counter(String type, String name) {
+		return register(type, name, Counter.class, new Counter());
+	}
+
+	/** 注册仪表；同名仪表已存在时返回已有的那个（value 被忽略）。 */
+	public static Gauge gauge(String type, String name, LongSupplier value) {
+		return register(type, name, Gauge.class, new Gauge(value));
+	}
+
+	public static Timer timer(String type, String name) {
+		return register(type, name, Timer.class, new Timer());
+	}
+
+	private static <T> T register(String type, String name, Class<T> kind, T created) {
+		String key = type + "/" + name;
+		Object existing = REGISTRY.putIfAbsent(key, created);
+		if (existing != null) {
+			if (!kind.isInstance(existing)) throw new IllegalArgumentException("指标类型不一致: " + key);
+			return kind.cast(existing);
+		}
+		REGISTRAR.execute(() -> {
+			try {
+				ManagementFactory.getPlatformMBeanServer().registerMBean(created, objectName(type, name));
+			} catch (Exception | LinkageError ignored) {
+				// 没有 java.management 或名称冲突时只是不发布
+			}
+		});
+		return created;
+	}
+
+	public static ObjectName objectName(String type, String name) throws MalformedObjectNameException {
+		return new ObjectName(DOMAIN + ":type=" + type + ",name=" + name);
+	}
+}
@@ -0,0 +1,293 @@
+package com.example.encryptedexplorer.util;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * 名称加密子系统：每个会话（密码或保险库）只派生一次密钥，之后每个名称只是几次 HMAC/AES 运算。
+ * <ul>
+ *   <li>可逆的确定性名称：SIV 结构（合成 IV = HMAC-SHA256(MAC 密钥, 明文名) 前 16 字节，
+ *       再以该 IV 做 AES-CTR），解密时重算 HMAC 校验，相同名称总是得到相同密文；</li>
+ *   <li>目录短名：HMAC 截断；没有树盐的密码会话与原有短名结果一致；</li>
+ *   <li>解密前先做语法预检（Base64URL 字符集、长度、格式标记），明显的明文名直接跳过，
+ *       只有形似旧版 ENCV1 名称的才会运行 PBKDF2；结果（包括失败）按名称缓存。</li>
+ * </ul>
+ * 密码会话的密钥以目录树的随机名称盐派生（盐保存在树的根目录，见 service 包的 NameSalt），不同目录树中
+ * 同一名称的密文与短名互不相同；没有名称盐的旧目录树与不带树上下文的静态方法沿用固定的旧盐。
+ * 实例可在多个线程中共享。
+ */
+public final class NameCipher {
+	/** SIV 名称的格式标记（解码后第一个字节）。 */
+	private static final byte SIV_VERSION = 0x53;
+	private static final int SIV_LEN = 16;
+	private static final byte[] LEGACY_MAGIC = "ENCV1".getBytes(StandardCharsets.US_ASCII);
+	/** ENCV1 名称最短长度：magic(5) + salt(16) + iv(12) + 至少 1 字节密文 + 标签(16)。 */
+	private static final int LEGACY_MIN_LEN = 5 + 16 + 12 + 1 + 16;
+	/** 旧版固定盐：只用于没有名称盐的旧目录树（及不带树上下文的调用），以便还原已有名称。 */
+	private static final byte[] LEGACY_SALT = "name-siv:v1/salt".getBytes(StandardCharsets.US_ASCII);
+	private static final int MEMO_SIZE = 4096;
+	// 会话指纹的进程内随机密钥：缓存键不是密码的普通哈希，无法离线比对
+	private static final byte[] SESSION_KEY = EncryptionUtils.randomBytes(32);
+
+	// 会话缓存（带密钥的会话指纹 -> 实例），只保留最近 8 个
+	private static final Map<String, NameCipher> SESSIONS = Collections.synchronizedMap(new LinkedHashMap<String, NameCipher>(16, 0.75f, true) {
+		@Override protected boolean removeEldestEntry(Map.Entry<String, NameCipher> eldest) { return size() > 8; }
+	});
+
+	private static volatile NameCipher lastPasswordSession;
+
+	private final char[] password;
+	private final VaultKey vault;
+	private final byte[] salt;
+	// 保险库与旧版密码会话的短名密钥可直接得到；带名称盐的密码会话随 SIV 密钥一起派生
+	private final byte[] shortKey;
+	private volatile byte[][] keys;
+	private final Map<String, String> encrypted = memo();
+	private final Map<String, Optional<String>> decrypted = memo();
+	private final Map<String, String> shortNames = memo();
+
+	private NameCipher(char[] password, VaultKey vault, byte[] salt, byte[] shortKey) {
+		this.password = password;
+		this.vault = vault;
+		this.salt = salt;
+		this.shortKey = shortKey;
+	}
+
+	private static <V> Map<String, V> memo() {
+		return Collections.synchronizedMap(new LinkedHashMap<String, V>(256, 0.75f, true) {
+			@Override protected boolean removeEldestEntry(Map.Entry<String, V> eldest) { return size() > MEMO_SIZE; }
+		});
+	}
+
+	/**
+	 * 取得密码对应的旧版会话实例（固定盐）；短名与 {@link EncryptionUtils#encryptDirectoryNameShort(String, char[], int)} 一致。
+	 */
+	public static NameCipher forPassword(char[] password) {
+		return forPassword(password, null);
+	}
+
+	/**
+	 * 取得密码与目录树名称盐对应的会话实例；treeSalt 为 null 时为旧版会话。带盐会话首次使用时运行一次 PBKDF2。
+	 */
+	public static NameCipher forPassword(char[] password, byte[] treeSalt) {
+		char[] pw = password != null ? password : new char[0];
+		// 查看页每个格子都会调用：同一密码与盐直接复用上次的实例，不再计算指纹
+		NameCipher last = lastPasswordSession;
+		if (last != null && Arrays.equals(last.password, pw) && Arrays.equals(last.salt, treeSalt)) return last;
+		byte[] pwBytes = new String(pw).getBytes(StandardCharsets.UTF_8);
+		byte[] salt = treeSalt != null ? treeSalt.clone() : null;
+		String fingerprint = "pw:" + fingerprint(salt != null ? salt : new byte[0], pwBytes);
+		NameCipher session = SESSIONS.computeIfAbsent(fingerprint, k -> new NameCipher(pw.clone(), null, salt, salt != null ? null : pwBytes));
+		lastPasswordSession = session;
+		return session;
+	}
+
+	/**
+	 * 取得保险库对应的会话实例：密钥由主密钥派生，不运行 PBKDF2；短名使用保险库的 dir-name 子密钥。
+	 * password 仅用于兼容解密旧版 ENCV1 名称。
+	 */
+	public static NameCipher forVault(VaultKey vault, char[] password) throws GeneralSecurityException {
+		if (vault == null) return forPassword(password);
+		char[] pw = password != null ? password : new char[0];
+		String fingerprint = "vault:" + hex(vault.id()) + ":" + fingerprint(new String(pw).getBytes(StandardCharsets.UTF_8));
+		NameCipher cached = SESSIONS.get(fingerprint);
+		if (cached != null) return cached;
+		NameCipher created = new NameCipher(pw.clone(), vault, null, vault.subKey("dir-name:"));
+		NameCipher raced = SESSIONS.putIfAbsent(fingerprint, created);
+		return raced != null ? raced : created;
+	}
+
+	/**
+	 * 清空会话缓存，清零其中的密码副本与名称密钥。调用方须保证已取得的实例不再使用。
+	 */
+	public static void clearSessions() {
+		synchronized (SESSIONS) {
+			for (NameCipher session : SESSIONS.values()) session.destroy();
+			SESSIONS.clear();
+		}
+		lastPasswordSession = null;
+	}
+
+	private synchronized void destroy() {
+		Arrays.fill(password, '\0');
+		if (shortKey != null) Arrays.fill(shortKey, (byte) 0);
+		byte[][] k = keys;
+		if (k != null) {
+			for (byte[] key : k) Arrays.fill(key, (byte) 0);
+		}
+		keys = null;
+		encrypted.clear();
+		decrypted.clear();
+		shortNames.clear();
+	}
+
+	/**
+	 * 确定性加密名称：相同会话、相同名称总是得到相同的 Base64URL 结果，可由 {@link #decrypt(String)} 还原。
+	 */
+	public String encrypt(String plainName) throws GeneralSecurityException {
+		String cached = encrypted.get(plainName);
+		if (cached != null) return cached;
+		byte[][] keys = keys();
+		byte[] plain = plainName.getBytes(StandardCharsets.UTF_8);
+		byte[] iv = Arrays.copyOf(hmac(keys[0], plain), SIV_LEN);
+		Cipher ctr = Cipher.getInstance("AES/CTR/NoPadding");
+		ctr.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(keys[1], "AES"), new IvParameterSpec(iv));
+		byte[] out = new byte[1 + SIV_LEN + plain.length];
+		out[0] = SIV_VERSION;
+		System.arraycopy(iv, 0, out, 1, SIV_LEN);
+		ctr.doFinal(plain, 0, plain.length, out, 1 + SIV_LEN);
+		String encoded = FileNameCodec.encodeUrlBase64(out);
+		encrypted.put(plainName, encoded);
+		decrypted.put(encoded, Optional.of(plainName));
+		return encoded;
+	}
+
+	/**
+	 * 解密 SIV 名称或旧版 ENCV1 名称（带缓存）。不是加密名称或校验失败时抛出异常。
+	 */
+	public String decrypt(String encoded) throws GeneralSecurityException, IOException {
+		Optional<String> known = decrypted.get(encoded);
+		if (known != null) {
+			if (known.isPresent()) return known.get();
+			throw new IOException("不是可解密的名称: " + encoded);
+		}
+		String plain = null;
+		try {
+			plain = decryptUncached(encoded);
+			return plain;
+		} finally {
+			decrypted.put(encoded, Optional.ofNullable(plain));
+		}
+	}
+
+	/**
+	 * 尝试解密名称；明显是明文、不是本会话密钥加密或校验失败时返回 null，不抛出异常。
+	 */
+	public String tryDecrypt(String name) {
+		if (!mayBeEncryptedName(name)) return null;
+		try {
+			return decrypt(name);
+		} catch (GeneralSecurityException | IOException | RuntimeException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * 固定长度的目录短名（HMAC-SHA256 截断，Base64URL），结果缓存。
+	 */
+	public String shortName(String plainName, int length) throws GeneralSecurityException {
+		String key = length + ":" + plainName;
+		String cached = shortNames.get(key);
+		if (cached != null) return cached;
+		byte[] h = hmac(shortKey != null ? shortKey : keys()[2], plainName.getBytes(StandardCharsets.UTF_8));
+		String b64 = FileNameCodec.encodeUrlBase64(h);
+		String result = b64.substring(0, Math.min(length, b64.length()));
+		shortNames.put(key, result);
+		return result;
+	}
+
+	/**
+	 * 语法预检：只有 Base64URL 字符组成、长度足够且解码后带 SIV 或 ENCV1 标记的名称才可能是加密名称。
+	 * 不做任何密钥运算。
+	 */
+	public static boolean mayBeEncryptedName(String name) {
+		int n = name != null ? name.length() : 0;
+		if (n < base64Length(1 + SIV_LEN + 1) || n % 4 == 1) return false;
+		for (int i = 0; i < n; i++) {
+			char c = name.charAt(i);
+			boolean ok = (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '-' || c == '_';
+			if (!ok) return false;
+		}
+		byte[] head = FileNameCodec.decodeUrlBase64(name.substring(0, 8));
+		if (head[0] == SIV_VERSION) return true;
+		return n >= base64Length(LEGACY_MIN_LEN) && startsWith(head, LEGACY_MAGIC);
+	}
+
+	private String decryptUncached(String encoded) throws GeneralSecurityException, IOException {
+		if (!mayBeEncryptedName(encoded)) throw new IOException("不是加密名称: " + encoded);
+		byte[] packed = FileNameCodec.decodeUrlBase64(encoded);
+		if (packed[0] == SIV_VERSION) {
+			byte[][] keys = keys();
+			byte[] iv = Arrays.copyOfRange(packed, 1, 1 + SIV_LEN);
+			Cipher ctr = Cipher.getInstance("AES/CTR/NoPadding");
+			ctr.init(Cipher.DECRYPT_MODE, new SecretKeySpec(keys[1], "AES"), new IvParameterSpec(iv));
+			byte[] plain = ctr.doFinal(packed, 1 + SIV_LEN, packed.length - 1 - SIV_LEN);
+			if (!MessageDigest.isEqual(iv, Arrays.copyOf(hmac(keys[0], plain), SIV_LEN))) {
+				throw new GeneralSecurityException("名称校验失败");
+			}
+			return new String(plain, StandardCharsets.UTF_8);
+		}
+		// 旧版 ENCV1 名称：每个名称一次 PBKDF2，仅在通过预检后才会走到这里
+		return new String(EncryptionUtils.decryptBytes(packed, password), StandardCharsets.UTF_8);
+	}
+
+	/** [MAC 密钥, 加密密钥, 短名密钥]；密码会话首次使用时运行一次 PBKDF2（以名称盐，旧版会话以固定盐）。 */
+	private byte[][] keys() throws GeneralSecurityException {
+		byte[][] k = keys;
+		if (k != null) return k;
+		synchronized (this) {
+			if (keys == null) {
+				byte[] root = vault != null ? vault.subKey("name-siv:")
+						: EncryptionUtils.deriveKeyBytes(password, salt != null ? salt : LEGACY_SALT);
+				keys = new byte[][]{
+						hmac(root, "mac".getBytes(StandardCharsets.US_ASCII)),
+						hmac(root, "enc".getBytes(StandardCharsets.US_ASCII)),
+						hmac(root, "dir-name".getBytes(StandardCharsets.US_ASCII))
+				};
+				Arrays.fill(root, (byte) 0);
+			}
+			return keys;
+		}
+	}
+
+	/** 会话缓存键：以进程内随机密钥对各部分（带长度前缀）做 HMAC。 */
+	private static String fingerprint(byte[]... parts) {
+		try {
+			Mac mac = Mac.getInstance("HmacSHA256");
+			mac.init(new SecretKeySpec(SESSION_KEY, "HmacSHA256"));
+			for (byte[] part : parts) {
+				mac.update(ByteBuffer.allocate(4).putInt(part.length).array());
+				mac.update(part);
+			}
+			return hex(mac.doFinal());
+		} catch (GeneralSecurityException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static byte[] hmac(byte[] key, byte[] data) throws GeneralSecurityException {
+		Mac mac = Mac.getInstance("HmacSHA256");
+		mac.init(new SecretKeySpec(key, "HmacSHA256"));
+		return mac.doFinal(data);
+	}
+
+	private static int base64Length(int bytes) {
+		return (bytes * 4 + 2) / 3;
+	}
+
+	private static boolean startsWith(byte[] data, byte[] prefix) {
+		if (data.length < prefix.length) return false;
+		for (int i = 0; i < prefix.length; i++) {
+			if (data[i] != prefix[i]) return false;
+		}
+		return true;
+	}
+
+	private static String hex(byte[] bytes) {
+		StringBuilder sb = new StringBuilder(bytes.length * 2);
+		for (byte b : bytes) sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		return sb.toString();
+	}
+}
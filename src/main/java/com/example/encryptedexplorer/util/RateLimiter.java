@@ -0,0 +1,76 @@
+package com.example.encryptedexplorer.util;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+
+/**
+ * 字节速率限制器（预约式令牌桶），可在多个线程间共享。bytesPerSecond &lt;= 0 表示不限速。
+ * 空闲后最多累积 100ms 的额度，避免长时间空闲后瞬间突发。
+ */
+public final class RateLimiter {
+	private static final long MAX_BURST_NANOS = 100_000_000L;
+
+	private final long bytesPerSecond;
+	private long nextFreeNanos = System.nanoTime();
+
+	public RateLimiter(long bytesPerSecond) {
+		this.bytesPerSecond = bytesPerSecond;
+	}
+
+	public static RateLimiter unlimited() {
+		return new RateLimiter(0);
+	}
+
+	public boolean isUnlimited() {
+		return bytesPerSecond <= 0;
+	}
+
+	public long bytesPerSecond() {
+		return bytesPerSecond;
+	}
+
+	/**
+	 * 预约 bytes 字节的额度，必要时阻塞当前线程直到额度可用。
+	 */
+	public void acquire(long bytes) throws InterruptedIOException {
+		if (isUnlimited() || bytes <= 0) return;
+		long waitNanos;
+		synchronized (this) {
+			long now = System.nanoTime();
+			if (nextFreeNanos < now - MAX_BURST_NANOS) nextFreeNanos = now - MAX_BURST_NANOS;
+			waitNanos = nextFreeNanos - now;
+			nextFreeNanos += (long) (bytes * 1_000_000_000.0 / bytesPerSecond);
+		}
+		if (waitNanos <= 0) return;
+		try {
+			Thread.sleep(waitNanos / 1_000_000L, (int) (waitNanos % 1_000_000L));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("限速等待被中断");
+		}
+	}
+
+	/**
+	 * 包装输入流：每次读取后按实际读取的字节数扣减额度。不限速时原样返回。
+	 */
+	public InputStream throttle(InputStream in) {
+		if (isUnlimited()) return in;
+		return new FilterInputStream(in) {
+			@Override
+			public int read() throws IOException {
+				int b = super.read();
+				if (b >= 0) acquire(1);
+				return b;
+			}
+
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException {
+				int n = super.read(b, off, len);
+				if (n > 0) acquire(n);
+				return n;
+			}
+		};
+	}
+}
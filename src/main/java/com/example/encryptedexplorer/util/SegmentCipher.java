@@ -0,0 +1,81 @@
+package com.example.encryptedexplorer.util;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+
+/**
+ * 分段 AEAD：每个分段独立认证，nonce = 前缀(7) + 分段序号(u32) + 末段标志(1)。
+ * 末段标志防止在分段边界处截断，序号防止分段重排。算法由 {@link CipherSuite} 决定（记录在文件头中）。
+ * 非线程安全，每个线程各用一个实例。
+ */
+public final class SegmentCipher {
+	public static final int TAG_LEN = 16;
+	public static final int NONCE_PREFIX_LEN = 7;
+	private static final int NONCE_LEN = 12;
+
+	private final CipherSuite suite;
+	private final SecretKey key;
+	private final byte[] noncePrefix;
+	private final byte[] aad;
+	private final Cipher cipher;
+
+	public SegmentCipher(CipherSuite suite, SecretKey key, byte[] noncePrefix, byte[] aad) throws GeneralSecurityException {
+		if (noncePrefix.length != NONCE_PREFIX_LEN) throw new GeneralSecurityException("nonce 前缀长度不合法");
+		this.suite = suite;
+		this.key = key;
+		this.noncePrefix = noncePrefix.clone();
+		this.aad = aad;
+		this.cipher = suite.newCipher();
+	}
+
+	/**
+	 * 加密一个分段，返回写入 out 的字节数（明文长度 + 标签）。
+	 */
+	public int seal(long index, boolean last, byte[] in, int off, int len, byte[] out, int outOff) throws GeneralSecurityException {
+		cipher.init(Cipher.ENCRYPT_MODE, key, suite.parameters(nonceFor(index, last)));
+		cipher.updateAAD(aad);
+		return cipher.doFinal(in, off, len, out, outOff);
+	}
+
+	/**
+	 * 解密并认证一个分段，返回明文字节数。
+	 */
+	public int open(long index, boolean last, byte[] in, int off, int len, byte[] out, int outOff) throws GeneralSecurityException {
+		cipher.init(Cipher.DECRYPT_MODE, key, suite.parameters(nonceFor(index, last)));
+		cipher.updateAAD(aad);
+		return cipher.doFinal(in, off, len, out, outOff);
+	}
+
+	/**
+	 * 加密一个分段：读取 in 的剩余字节，写入 out（需留出明文长度 + 标签的空间），返回写入的字节数。
+	 * in 可以是映射窗口的切片，out 可以是直接缓冲区，避免经过堆数组复制。
+	 */
+	public int seal(long index, boolean last, ByteBuffer in, ByteBuffer out) throws GeneralSecurityException {
+		cipher.init(Cipher.ENCRYPT_MODE, key, suite.parameters(nonceFor(index, last)));
+		cipher.updateAAD(aad);
+		return cipher.doFinal(in, out);
+	}
+
+	/**
+	 * 解密并认证一个分段：读取 in 的剩余字节（密文 + 标签），明文写入 out，返回明文字节数。
+	 */
+	public int open(long index, boolean last, ByteBuffer in, ByteBuffer out) throws GeneralSecurityException {
+		cipher.init(Cipher.DECRYPT_MODE, key, suite.parameters(nonceFor(index, last)));
+		cipher.updateAAD(aad);
+		return cipher.doFinal(in, out);
+	}
+
+	private byte[] nonceFor(long index, boolean last) throws GeneralSecurityException {
+		if (index < 0 || index > 0xFFFFFFFFL) throw new GeneralSecurityException("分段序号溢出");
+		byte[] nonce = new byte[NONCE_LEN];
+		System.arraycopy(noncePrefix, 0, nonce, 0, NONCE_PREFIX_LEN);
+		nonce[7] = (byte) (index >>> 24);
+		nonce[8] = (byte) (index >>> 16);
+		nonce[9] = (byte) (index >>> 8);
+		nonce[10] = (byte) index;
+		nonce[11] = (byte) (last ? 1 : 0);
+		return nonce;
+	}
+}
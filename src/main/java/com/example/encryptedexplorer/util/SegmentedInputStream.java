@@ -0,0 +1,81 @@
+package com.example.encryptedexplorer.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.GeneralSecurityException;
+
+/**
+ * 分段解密输入流：逐段读取并认证，明文只在认证通过后交给调用方，内存占用与文件大小无关。
+ */
+final class SegmentedInputStream extends InputStream {
+	private final InputStream in;
+	private final SegmentCipher cipher;
+	private final byte[] sealed;
+	private final byte[] plain;
+	private int sealedFilled;
+	private int pos;
+	private int limit;
+	private long index;
+	private boolean done;
+
+	SegmentedInputStream(InputStream in, SegmentCipher cipher, int segmentSize) {
+		this.in = in;
+		this.cipher = cipher;
+		// 多读 1 字节用于判断当前分段是否为末段
+		this.sealed = new byte[segmentSize + SegmentCipher.TAG_LEN + 1];
+		this.plain = new byte[segmentSize];
+	}
+
+	@Override
+	public int read() throws IOException {
+		byte[] one = new byte[1];
+		int r = read(one, 0, 1);
+		return r < 0 ? -1 : one[0] & 0xFF;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0) return 0;
+		while (pos == limit) {
+			if (done) return -1;
+			nextSegment();
+		}
+		int n = Math.min(len, limit - pos);
+		System.arraycopy(plain, pos, b, off, n);
+		pos += n;
+		return n;
+	}
+
+	private void nextSegment() throws IOException {
+		int full = sealed.length;
+		while (sealedFilled < full) {
+			int r = in.read(sealed, sealedFilled, full - sealedFilled);
+			if (r < 0) break;
+			sealedFilled += r;
+		}
+		boolean last = sealedFilled < full;
+		int segLen = last ? sealedFilled : full - 1;
+		if (segLen < SegmentCipher.TAG_LEN) {
+			throw new IOException("密文被截断");
+		}
+		try {
+			limit = cipher.open(index++, last, sealed, 0, segLen, plain, 0);
+		} catch (GeneralSecurityException e) {
+			throw new IOException("密文认证失败（密码错误或文件已损坏）", e);
+		}
+		pos = 0;
+		if (last) {
+			done = true;
+			sealedFilled = 0;
+		} else {
+			// 保留预读的 1 字节作为下一分段开头
+			sealed[0] = sealed[full - 1];
+			sealedFilled = 1;
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+}
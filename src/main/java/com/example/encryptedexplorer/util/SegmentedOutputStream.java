@@ -0,0 +1,65 @@
+package com.example.encryptedexplorer.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.GeneralSecurityException;
+
+/**
+ * 分段加密输出流：缓冲一个分段的明文，确认其后仍有数据才按非末段写出，close 时写出末段。
+ */
+final class SegmentedOutputStream extends OutputStream {
+	private final OutputStream out;
+	private final SegmentCipher cipher;
+	private final byte[] plain;
+	private final byte[] sealed;
+	private int filled;
+	private long index;
+	private boolean closed;
+
+	SegmentedOutputStream(OutputStream out, SegmentCipher cipher, int segmentSize) {
+		this.out = out;
+		this.cipher = cipher;
+		this.plain = new byte[segmentSize];
+		this.sealed = new byte[segmentSize + SegmentCipher.TAG_LEN];
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		write(new byte[] {(byte) b}, 0, 1);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		while (len > 0) {
+			if (filled == plain.length) {
+				flushSegment(false);
+			}
+			int n = Math.min(len, plain.length - filled);
+			System.arraycopy(b, off, plain, filled, n);
+			filled += n;
+			off += n;
+			len -= n;
+		}
+	}
+
+	private void flushSegment(boolean last) throws IOException {
+		try {
+			int n = cipher.seal(index++, last, plain, 0, filled, sealed, 0);
+			out.write(sealed, 0, n);
+			filled = 0;
+		} catch (GeneralSecurityException e) {
+			throw new IOException("分段加密失败", e);
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (closed) return;
+		closed = true;
+		try {
+			flushSegment(true);
+		} finally {
+			out.close();
+		}
+	}
+}
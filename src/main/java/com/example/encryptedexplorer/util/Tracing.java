@@ -0,0 +1,230 @@
+package com.example.encryptedexplorer.util;
+
+import jdk.jfr.Category;
+import jdk.jfr.Configuration;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.util.Arrays;
+
+/**
+ * Java Flight Recorder 自定义事件：逐文件复制（含各阶段耗时）、PBKDF2 密钥派生、缩略图加载与大图加载。
+ * 录制结果可在 JDK Mission Control 中与 GC、文件 I/O 事件对照，无需挂接分析器。
+ * <p>
+ * 以系统属性 {@code -Dencryptedexplorer.trace} 开启；值为文件路径（而非 true）时程序启动即开始录制，
+ * 退出时写入该文件。未开启时各埋点只判断一个静态常量，JIT 会整段消除，事件类也不会被加载；
+ * 开启但没有录制进行时，事件在 begin/shouldCommit 处即返回。
+ * <p>
+ * 事件中的路径只记录 SHA-256 前 8 字节的十六进制，不把文件名写进录制文件。
+ */
+public final class Tracing {
+	public static final String PROPERTY = "encryptedexplorer.trace";
+	public static final boolean ENABLED = enabled(System.getProperty(PROPERTY));
+	private static final String CATEGORY = "Encrypted Explorer";
+
+	private Tracing() {}
+
+	private static boolean enabled(String value) {
+		return value != null && !"false".equalsIgnoreCase(value.trim());
+	}
+
+	/**
+	 * 属性值为路径时开始一个录制（default 配置，本程序事件全部开启），JVM 退出时写入该路径。
+	 * 返回录制文件路径；未开启或只开启事件（值为 true / 空）时返回 null。
+	 */
+	public static Path startRecording() throws IOException, ParseException {
+		String value = System.getProperty(PROPERTY);
+		if (!ENABLED || value.trim().isEmpty() || "true".equalsIgnoreCase(value.trim())) return null;
+		Path destination = Paths.get(value.trim()).toAbsolutePath();
+		Recording recording = new Recording(Configuration.getConfiguration("default"));
+		recording.setName("encrypted-explorer");
+		for (Class<? extends Event> type : Arrays.asList(FileCopyEvent.class, KeyDerivationEvent.class, ThumbnailLoadEvent.class, ImageLoadEvent.class)) {
+			recording.enable(type).withoutThreshold();
+		}
+		recording.setDestination(destination);
+		recording.setDumpOnExit(true);
+		recording.start();
+		return destination;
+	}
+
+	/** 开始一个文件复制事件；未开启时返回 null。 */
+	public static FileCopyEvent fileCopy() {
+		if (!ENABLED) return null;
+		FileCopyEvent event = new FileCopyEvent();
+		event.begin();
+		return event;
+	}
+
+	/** 开始一个密钥派生事件；未开启时返回 null。 */
+	public static KeyDerivationEvent keyDerivation() {
+		if (!ENABLED) return null;
+		KeyDerivationEvent event = new KeyDerivationEvent();
+		event.begin();
+		return event;
+	}
+
+	/** 开始一个缩略图加载事件；未开启时返回 null。 */
+	public static ThumbnailLoadEvent thumbnailLoad() {
+		if (!ENABLED) return null;
+		ThumbnailLoadEvent event = new ThumbnailLoadEvent();
+		event.begin();
+		return event;
+	}
+
+	/** 开始一个大图加载事件；未开启时返回 null。 */
+	public static ImageLoadEvent imageLoad() {
+		if (!ENABLED) return null;
+		ImageLoadEvent event = new ImageLoadEvent();
+		event.begin();
+		return event;
+	}
+
+	/** 路径的短哈希（SHA-256 前 8 字节），同一路径在不同事件中一致，便于关联。 */
+	static String pathHash(Path path) {
+		byte[] digest = ContentProbe.sha256(path.toAbsolutePath().toString().getBytes(StandardCharsets.UTF_8));
+		StringBuilder sb = new StringBuilder(16);
+		for (int i = 0; i < 8; i++) sb.append(String.format("%02x", digest[i] & 0xff));
+		return sb.toString();
+	}
+
+	@Name("com.example.encryptedexplorer.FileCopy")
+	@Label("文件复制")
+	@Description("单个文件的复制（可选加/解密），事件时长为整个文件的处理时间")
+	@Category({CATEGORY, "复制"})
+	@StackTrace(false)
+	public static final class FileCopyEvent extends Event {
+		@Label("路径哈希")
+		String pathHash;
+		@Label("大小")
+		@DataAmount
+		long size;
+		@Label("模式")
+		@Description("复制路径：encrypt / decrypt / plain（流式）、mapped（映射）、chunked（分块）、dedup（去重）、"
+				+ "pack（打包）、split（拆分文件的一个分段，大小为分段字节数）；冲突跳过时为 skipped")
+		String mode;
+		@Label("读取")
+		@Timespan
+		long readTime;
+		@Label("密钥派生")
+		@Timespan
+		long kdfTime;
+		@Label("加解密")
+		@Description("总耗时扣除读取、密钥派生与写入后的部分（含压缩与摘要）")
+		@Timespan
+		long cipherTime;
+		@Label("写入")
+		@Timespan
+		long writeTime;
+
+		/** 结束并提交；各阶段为纳秒。 */
+		public void complete(Path source, long size, String mode, long read, long kdf, long write, long total) {
+			end();
+			if (!shouldCommit()) return;
+			this.pathHash = pathHash(source);
+			this.size = size;
+			this.mode = mode;
+			this.readTime = read;
+			this.kdfTime = kdf;
+			this.cipherTime = Math.max(0, total - read - kdf - write);
+			this.writeTime = write;
+			commit();
+		}
+	}
+
+	@Name("com.example.encryptedexplorer.KeyDerivation")
+	@Label("密钥派生")
+	@Description("一次 PBKDF2-HMAC-SHA256 密钥派生")
+	@Category({CATEGORY, "加密"})
+	public static final class KeyDerivationEvent extends Event {
+		@Label("迭代次数")
+		int iterations;
+
+		public void complete(int iterations) {
+			end();
+			if (!shouldCommit()) return;
+			this.iterations = iterations;
+			commit();
+		}
+	}
+
+	@Name("com.example.encryptedexplorer.ThumbnailLoad")
+	@Label("缩略图加载")
+	@Description("查看页生成一个缩略图：读取/解密、解码与缩放")
+	@Category({CATEGORY, "查看"})
+	@StackTrace(false)
+	public static final class ThumbnailLoadEvent extends Event {
+		@Label("路径哈希")
+		String pathHash;
+		@Label("来源")
+		@Description("store（加密时生成的缩略图）/ decrypt（解密原图）/ plain（明文原图）")
+		String source;
+		@Label("解密")
+		@Timespan
+		long decryptTime;
+		@Label("解码")
+		@Timespan
+		long decodeTime;
+		@Label("缩放")
+		@Timespan
+		long scaleTime;
+		@Label("成功")
+		boolean success;
+
+		public void complete(Path path, String source, long decrypt, long decode, long scale, boolean success) {
+			end();
+			if (!shouldCommit()) return;
+			this.pathHash = pathHash(path);
+			this.source = source;
+			this.decryptTime = decrypt;
+			this.decodeTime = decode;
+			this.scaleTime = scale;
+			this.success = success;
+			commit();
+		}
+	}
+
+	@Name("com.example.encryptedexplorer.ImageLoad")
+	@Label("图片加载")
+	@Description("图片查看器打开一张图片：读取/解密与解码")
+	@Category({CATEGORY, "查看"})
+	@StackTrace(false)
+	public static final class ImageLoadEvent extends Event {
+		@Label("路径哈希")
+		String pathHash;
+		@Label("已加密")
+		boolean encrypted;
+		@Label("宽度")
+		int width;
+		@Label("高度")
+		int height;
+		@Label("解密")
+		@Timespan
+		long decryptTime;
+		@Label("解码")
+		@Timespan
+		long decodeTime;
+
+		public void complete(Path path, boolean encrypted, int width, int height, long decrypt, long decode) {
+			end();
+			if (!shouldCommit()) return;
+			this.pathHash = pathHash(path);
+			this.encrypted = encrypted;
+			this.width = width;
+			this.height = height;
+			this.decryptTime = decrypt;
+			this.decodeTime = decode;
+			commit();
+		}
+	}
+}
@@ -0,0 +1,130 @@
+package com.example.encryptedexplorer.util;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * 目录树中普通文件（含指向普通文件的符号链接）的总字节数，用于复制前估算进度。
+ * <p>
+ * 虚拟线程模式下（见 {@link IoExecutors}）每个目录的列举、每批条目的 stat 各在一个虚拟线程中进行，
+ * 同时进行的请求数不超过 {@link IoExecutors#parallelism}，高延迟存储上耗时接近 树深 × 往返延迟；
+ * 否则顺序遍历。遍历中途不可读的目录与条目计为 0。
+ */
+public final class TreeScanner {
+	// 每个虚拟线程 stat 的条目数：大目录的 stat 分批并行，小目录不拆
+	private static final int STAT_BATCH = 32;
+
+	private TreeScanner() {}
+
+	public static long totalBytes(Path root) throws IOException {
+		if (!IoExecutors.virtual()) {
+			try (Stream<Path> files = Files.walk(root)) {
+				return files.filter(Files::isRegularFile).mapToLong(FileUtilsEx::safeSize).sum();
+			}
+		}
+		if (!Files.isDirectory(root)) throw new IOException("不是目录: " + root);
+		ExecutorService executor = IoExecutors.io("tree-scan", 1);
+		Scan scan = new Scan(executor, new Semaphore(IoExecutors.parallelism(1)));
+		try {
+			scan.directory(root);
+			scan.finished();
+			scan.done.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("统计目录大小被中断");
+		} finally {
+			executor.shutdown();
+		}
+		return scan.total.sum();
+	}
+
+	/** 一次扫描的共享状态；pending 为尚未完成的任务数（含发起扫描的线程），归零时 done 放行。 */
+	private static final class Scan {
+		final ExecutorService executor;
+		final Semaphore permits;
+		final AtomicLong pending = new AtomicLong(1);
+		final CountDownLatch done = new CountDownLatch(1);
+		final LongAdder total = new LongAdder();
+
+		Scan(ExecutorService executor, Semaphore permits) {
+			this.executor = executor;
+			this.permits = permits;
+		}
+
+		void directory(Path dir) {
+			submit(() -> {
+				List<Path> batch = new ArrayList<>(STAT_BATCH);
+				try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+					for (Path entry : entries) {
+						batch.add(entry);
+						if (batch.size() == STAT_BATCH) {
+							stat(batch);
+							batch = new ArrayList<>(STAT_BATCH);
+						}
+					}
+				}
+				if (!batch.isEmpty()) stat(batch);
+			});
+		}
+
+		void stat(List<Path> batch) {
+			submit(() -> {
+				for (Path entry : batch) {
+					try {
+						BasicFileAttributes attrs = Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+						if (attrs.isDirectory()) {
+							directory(entry);
+						} else if (attrs.isRegularFile()) {
+							total.add(attrs.size());
+						} else if (attrs.isSymbolicLink() && Files.isRegularFile(entry)) {
+							total.add(FileUtilsEx.safeSize(entry));
+						}
+					} catch (IOException ignored) {
+						// 条目在遍历中被删除或无权访问
+					}
+				}
+			});
+		}
+
+		void finished() {
+			if (pending.decrementAndGet() == 0) done.countDown();
+		}
+
+		private void submit(IoTask task) {
+			pending.incrementAndGet();
+			executor.execute(() -> {
+				try {
+					permits.acquire();
+					try {
+						task.run();
+					} finally {
+						permits.release();
+					}
+				} catch (IOException ignored) {
+					// 目录不可读，按空目录计
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				} finally {
+					finished();
+				}
+			});
+		}
+	}
+
+	private interface IoTask {
+		void run() throws IOException;
+	}
+}
@@ -0,0 +1,98 @@
+package com.example.encryptedexplorer.util;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+/**
+ * 保险库主密钥（信封加密）：随机 256 位主密钥由密码派生的密钥加密密钥包裹保存，
+ * 文件密钥、名称密钥等均由主密钥经 HMAC-SHA256 派生，不再对每个文件运行 PBKDF2。
+ * 修改密码只需重新包裹主密钥，文件内容无需重新加密。
+ */
+public final class VaultKey {
+	public static final int ID_LEN = 16;
+	private static final int MASTER_LEN = 32;
+
+	private final byte[] id;
+	private final byte[] masterKey;
+
+	private VaultKey(byte[] id, byte[] masterKey) {
+		this.id = id;
+		this.masterKey = masterKey;
+	}
+
+	public static VaultKey generate() {
+		return new VaultKey(EncryptionUtils.randomBytes(ID_LEN), EncryptionUtils.randomBytes(MASTER_LEN));
+	}
+
+	/**
+	 * 以给定标识与主密钥构造，文件密钥的派生方式与保险库相同；用于保险库之外的数据密钥（如分块对象）。
+	 */
+	public static VaultKey of(byte[] id, byte[] masterKey) {
+		if (id.length != ID_LEN || masterKey.length != MASTER_LEN) throw new IllegalArgumentException("密钥长度不合法");
+		return new VaultKey(id.clone(), masterKey.clone());
+	}
+
+	public byte[] id() {
+		return id.clone();
+	}
+
+	/** 清零主密钥，之后不能再派生密钥。 */
+	public void destroy() {
+		Arrays.fill(masterKey, (byte) 0);
+	}
+
+	public boolean matches(byte[] otherId) {
+		return otherId != null && MessageDigest.isEqual(id, otherId);
+	}
+
+	/**
+	 * 用密码包裹主密钥（ENCV1：PBKDF2 + AES-GCM），保险库标识同时放入密文以绑定两者。
+	 */
+	public byte[] wrap(char[] password) throws GeneralSecurityException {
+		byte[] plain = new byte[ID_LEN + MASTER_LEN];
+		System.arraycopy(id, 0, plain, 0, ID_LEN);
+		System.arraycopy(masterKey, 0, plain, ID_LEN, MASTER_LEN);
+		try {
+			return EncryptionUtils.encryptBytes(plain, password);
+		} finally {
+			Arrays.fill(plain, (byte) 0);
+		}
+	}
+
+	public static VaultKey unwrap(byte[] expectedId, byte[] wrapped, char[] password) throws GeneralSecurityException, IOException {
+		byte[] plain = EncryptionUtils.decryptBytes(wrapped, password);
+		if (plain.length != ID_LEN + MASTER_LEN) throw new IOException("保险库密钥长度不合法");
+		byte[] id = Arrays.copyOfRange(plain, 0, ID_LEN);
+		if (!MessageDigest.isEqual(id, expectedId)) throw new IOException("保险库标识不匹配");
+		byte[] master = Arrays.copyOfRange(plain, ID_LEN, plain.length);
+		Arrays.fill(plain, (byte) 0);
+		return new VaultKey(id, master);
+	}
+
+	/**
+	 * 文件密钥 = HMAC(主密钥, "file-key:" + 文件盐)。
+	 */
+	public SecretKey fileKey(byte[] salt) throws GeneralSecurityException {
+		return new SecretKeySpec(derive("file-key:", salt), "AES");
+	}
+
+	/**
+	 * 按用途派生子密钥（如目录名、去重域），不同用途互不相关。
+	 */
+	public byte[] subKey(String purpose) throws GeneralSecurityException {
+		return derive(purpose, new byte[0]);
+	}
+
+	private byte[] derive(String label, byte[] context) throws GeneralSecurityException {
+		Mac mac = Mac.getInstance("HmacSHA256");
+		mac.init(new SecretKeySpec(masterKey, "HmacSHA256"));
+		mac.update(label.getBytes(StandardCharsets.UTF_8));
+		return mac.doFinal(context);
+	}
+}
@@ -0,0 +1,20 @@
+package com.example.encryptedexplorer.util;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * 虚拟线程支持的多版本入口。本实现用于 Java 11~20，不支持虚拟线程；Java 21 的实现位于 src/main/java21，
+ * 以 Java 21+ 构建时编译进 JAR 的 META-INF/versions/21，运行时由 JVM 自动选用。两份实现保持相同的方法签名。
+ */
+final class VirtualThreads {
+	private VirtualThreads() {}
+
+	static boolean supported() {
+		return false;
+	}
+
+	/** 每个任务启动一个虚拟线程的执行器，线程名为 name-序号。 */
+	static ExecutorService newPerTaskExecutor(String name) {
+		throw new UnsupportedOperationException("当前 Java 版本不支持虚拟线程");
+	}
+}
@@ -0,0 +1,20 @@
+package com.example.encryptedexplorer.util;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 虚拟线程支持的 Java 21 实现（多版本 JAR 中的 META-INF/versions/21）。方法签名与 src/main/java 中的基础实现相同。
+ */
+final class VirtualThreads {
+	private VirtualThreads() {}
+
+	static boolean supported() {
+		return true;
+	}
+
+	/** 每个任务启动一个虚拟线程的执行器，线程名为 name-序号。 */
+	static ExecutorService newPerTaskExecutor(String name) {
+		return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-", 0).factory());
+	}
+}
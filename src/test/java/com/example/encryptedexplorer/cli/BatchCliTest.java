@@ -0,0 +1,153 @@
+package com.example.encryptedexplorer.cli;
+
+import com.example.encryptedexplorer.model.ConflictPolicy;
+import com.example.encryptedexplorer.model.ErrorDecision;
+import com.example.encryptedexplorer.model.Resolution;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BatchCliTest {
+	// 测试中没有可控的标准输入，密码取自必然存在的环境变量
+	private static final String PASSWORD_ENV = "PATH";
+
+	@TempDir
+	Path dir;
+
+	private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+	@Test
+	void parsesOptions() {
+		BatchCli.Args a = BatchCli.Args.parse(new String[]{"encrypt", "src", "dst", "--workers", "4", "--on-conflict", "rename",
+				"--on-error", "retry", "--limit", "2M", "--chunk=1K", "--compress=deflate", "--durable", "--pre-scan"});
+		assertEquals("encrypt", a.command);
+		assertEquals(List.of("src", "dst"), a.positional);
+		assertEquals(4, a.workers);
+		assertTrue(a.workersGiven);
+		assertEquals(ConflictPolicy.RENAME, a.conflictPolicy);
+		assertEquals(Resolution.SKIP, a.onConflict);
+		assertEquals(ErrorDecision.RETRY, a.onError);
+		assertEquals(2L * 1024 * 1024, a.limitBytesPerSecond);
+		assertTrue(a.chunk);
+		assertEquals(1024, a.chunkThreshold);
+		assertEquals("deflate", a.compressCodec);
+		assertTrue(a.durable);
+		assertTrue(a.preScan);
+	}
+
+	@Test
+	void conflictChoices() {
+		BatchCli.Args cancel = BatchCli.Args.parse(new String[]{"copy", "--on-conflict", "cancel"});
+		assertEquals(Resolution.CANCEL, cancel.onConflict);
+		assertEquals(ConflictPolicy.SKIP, cancel.conflictPolicy);
+		BatchCli.Args replace = BatchCli.Args.parse(new String[]{"copy", "--on-conflict", "replace"});
+		assertEquals(Resolution.REPLACE, replace.onConflict);
+		assertEquals(ConflictPolicy.OVERWRITE, replace.conflictPolicy);
+		assertThrows(IllegalArgumentException.class, () -> BatchCli.Args.parse(new String[]{"copy", "--on-conflict", "merge"}));
+	}
+
+	@Test
+	void rejectsBadArguments() {
+		assertThrows(IllegalArgumentException.class, () -> BatchCli.Args.parse(new String[]{"shred"}));
+		assertThrows(IllegalArgumentException.class, () -> BatchCli.Args.parse(new String[]{"copy", "--bogus"}));
+		assertThrows(IllegalArgumentException.class, () -> BatchCli.Args.parse(new String[]{"copy", "--workers"}));
+		assertThrows(IllegalArgumentException.class, () -> BatchCli.Args.parse(new String[]{"copy", "--workers", "many"}));
+		assertEquals(3L * 1024 * 1024 * 1024, BatchCli.Args.size("3G", "--limit"));
+		assertEquals(512, BatchCli.Args.size("512b", "--limit"));
+	}
+
+	@Test
+	void usageExitCodes() {
+		assertEquals(BatchCli.EXIT_USAGE, execute());
+		assertEquals(BatchCli.EXIT_OK, execute("help"));
+		assertEquals(BatchCli.EXIT_USAGE, execute("shred"));
+		// 缺少密码来源、缺少目标目录
+		assertEquals(BatchCli.EXIT_USAGE, execute("encrypt", dir.toString(), dir.resolve("out").toString()));
+		assertEquals(BatchCli.EXIT_USAGE, execute("encrypt", dir.toString(), "--password-env", PASSWORD_ENV));
+	}
+
+	@Test
+	void encryptDecryptAndVerify() throws Exception {
+		Path src = Files.createDirectories(dir.resolve("src"));
+		Files.write(src.resolve("a.txt"), "hello".getBytes(StandardCharsets.UTF_8));
+		Files.write(Files.createDirectories(src.resolve("sub")).resolve("b.bin"), new byte[100_000]);
+		Path enc = dir.resolve("enc");
+		assertEquals(BatchCli.EXIT_OK, execute("encrypt", src.toString(), enc.toString(), "--password-env", PASSWORD_ENV, "--workers", "2"));
+		assertTrue(lastLine().contains("\"status\":\"ok\""));
+		assertTrue(Files.isRegularFile(enc.resolve("a.txt.encrypted")));
+
+		assertEquals(BatchCli.EXIT_OK, execute("verify", enc.toString(), "--password-env", PASSWORD_ENV));
+		Path out = dir.resolve("out");
+		assertEquals(BatchCli.EXIT_OK, execute("decrypt", enc.toString(), out.toString(), "--password-env", PASSWORD_ENV));
+		assertArrayEquals(Files.readAllBytes(src.resolve("sub").resolve("b.bin")), Files.readAllBytes(out.resolve("sub").resolve("b.bin")));
+
+		Path encrypted = enc.resolve("sub").resolve("b.bin.encrypted");
+		byte[] raw = Files.readAllBytes(encrypted);
+		raw[raw.length / 2] ^= 1;
+		Files.write(encrypted, raw);
+		assertEquals(BatchCli.EXIT_FAILED, execute("verify", enc.toString(), "--password-env", PASSWORD_ENV));
+		assertTrue(output().contains("\"event\":\"corrupt\""));
+	}
+
+	@Test
+	void preScanCancelWritesNothing() throws Exception {
+		Path src = Files.createDirectories(dir.resolve("src"));
+		Files.write(src.resolve("a.txt"), "new".getBytes(StandardCharsets.UTF_8));
+		Files.write(src.resolve("b.txt"), "new".getBytes(StandardCharsets.UTF_8));
+		Path dst = Files.createDirectories(dir.resolve("dst"));
+		Files.write(dst.resolve("a.txt"), "old".getBytes(StandardCharsets.UTF_8));
+
+		assertEquals(BatchCli.EXIT_CANCELLED, execute("copy", src.toString(), dst.toString(), "--pre-scan", "--on-conflict", "cancel"));
+		assertTrue(output().contains("\"event\":\"scan\",") && output().contains("\"conflicts\":1"));
+		assertEquals("old", new String(Files.readAllBytes(dst.resolve("a.txt")), StandardCharsets.UTF_8));
+		assertFalse(Files.exists(dst.resolve("b.txt")));
+
+		assertEquals(BatchCli.EXIT_OK, execute("copy", src.toString(), dst.toString(), "--on-conflict", "replace"));
+		assertEquals("new", new String(Files.readAllBytes(dst.resolve("a.txt")), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	void gcRemovesUnreferencedObjects() throws Exception {
+		Path src = Files.createDirectories(dir.resolve("src"));
+		Files.write(src.resolve("a.txt"), "one".getBytes(StandardCharsets.UTF_8));
+		Files.write(src.resolve("b.txt"), "two".getBytes(StandardCharsets.UTF_8));
+		Path enc = dir.resolve("enc");
+		assertEquals(BatchCli.EXIT_OK, execute("encrypt", src.toString(), enc.toString(), "--password-env", PASSWORD_ENV, "--dedup"));
+		Files.delete(enc.resolve("a.txt.encrypted"));
+
+		assertEquals(BatchCli.EXIT_OK, execute("gc", enc.toString(), "--password-env", PASSWORD_ENV, "--dry-run"));
+		assertTrue(lastLine().contains("\"removed\":1"));
+		assertEquals(BatchCli.EXIT_OK, execute("gc", enc.toString(), "--password-env", PASSWORD_ENV));
+		assertTrue(lastLine().contains("\"removed\":1"));
+		assertEquals(BatchCli.EXIT_OK, execute("gc", enc.toString(), "--password-env", PASSWORD_ENV));
+		assertTrue(lastLine().contains("\"removed\":0"));
+		assertEquals(BatchCli.EXIT_OK, execute("verify", enc.toString(), "--password-env", PASSWORD_ENV));
+	}
+
+	private int execute(String... args) {
+		out.reset();
+		PrintStream err = new PrintStream(new ByteArrayOutputStream(), true, StandardCharsets.UTF_8);
+		return new BatchCli(new PrintStream(out, true, StandardCharsets.UTF_8), err).execute(args);
+	}
+
+	private String output() {
+		return new String(out.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	private String lastLine() {
+		String[] lines = output().trim().split("\n");
+		return lines[lines.length - 1];
+	}
+}
@@ -0,0 +1,123 @@
+package com.example.encryptedexplorer.service;
+
+import com.example.encryptedexplorer.util.CompressionCodecs;
+import com.example.encryptedexplorer.util.EncryptionUtils;
+import com.example.encryptedexplorer.util.IoScheduler;
+import com.example.encryptedexplorer.util.RateLimiter;
+import com.example.encryptedexplorer.util.VaultKey;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.example.encryptedexplorer.util.TestData.random;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChunkListTest {
+	private static final char[] PASSWORD = "chunks-test".toCharArray();
+	private static final VaultKey VAULT = VaultKey.generate();
+	private static final byte[] DATA = random(1, 6 * 1024 * 1024);
+
+	@TempDir
+	Path root;
+	private DedupStore store;
+	private Path file;
+
+	@BeforeEach
+	void storeFile() throws Exception {
+		store = DedupStore.open(root, PASSWORD, VAULT);
+		file = Files.createDirectories(root.resolve("sub")).resolve("big.bin.encrypted");
+		Files.write(file, store.storeChunked(new ByteArrayInputStream(DATA), CompressionCodecs.NONE, null));
+	}
+
+	@Test
+	void roundTrip() throws Exception {
+		assertTrue(ChunkList.isChunkList(file));
+		assertTrue(store.chunksWritten() > 1);
+		assertArrayEquals(DATA, decrypt());
+		assertEquals(DATA.length, ChunkList.verify(file, PASSWORD, VAULT, null));
+		try (IoScheduler.Ticket io = new IoScheduler(1, RateLimiter.unlimited()).acquire(file)) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			ChunkList.decrypt(file, out, PASSWORD, VAULT, io, null);
+			assertArrayEquals(DATA, out.toByteArray());
+		}
+	}
+
+	@Test
+	void unchangedChunksAreReused() throws Exception {
+		long written = store.chunksWritten();
+		byte[] edited = DATA.clone();
+		edited[edited.length - 10] ^= 1;
+		Path second = root.resolve("second.bin.encrypted");
+		Files.write(second, store.storeChunked(new ByteArrayInputStream(edited), CompressionCodecs.NONE, null));
+		// 只有末尾被修改的分块需要重新写出
+		assertEquals(written + 1, store.chunksWritten());
+		assertEquals(written - 1, store.chunksReused());
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ChunkList.decrypt(second, out, PASSWORD, VAULT, null);
+		assertArrayEquals(edited, out.toByteArray());
+	}
+
+	@Test
+	void swappedChunkObjectsAreDetected() throws Exception {
+		List<Path> objects = objects();
+		Path a = objects.get(0);
+		Path b = objects.get(1);
+		Path tmp = a.resolveSibling("swap.tmp");
+		Files.move(a, tmp);
+		Files.move(b, a);
+		Files.move(tmp, b);
+		IOException e = assertThrows(IOException.class, this::decrypt);
+		assertTrue(e.getMessage().startsWith("分块内容与清单不符"), e.getMessage());
+		assertThrows(IOException.class, () -> ChunkList.verify(file, PASSWORD, VAULT, null));
+	}
+
+	@Test
+	void missingChunkObjectIsDetected() throws Exception {
+		Files.delete(objects().get(0));
+		IOException e = assertThrows(IOException.class, this::decrypt);
+		assertTrue(e.getMessage().startsWith("分块对象不存在"), e.getMessage());
+	}
+
+	@Test
+	void replacedChunkObjectFailsAuthentication() throws Exception {
+		// 用普通文件覆盖分块对象：对象以数据密钥加密，外来内容无法通过认证
+		Path victim = objects().get(0);
+		Path foreign = root.resolve("foreign.encrypted");
+		Files.write(foreign, EncryptionUtils.encryptBytes(new byte[100], null, VAULT));
+		Files.move(foreign, victim, StandardCopyOption.REPLACE_EXISTING);
+		assertThrows(IOException.class, this::decrypt);
+	}
+
+	private byte[] decrypt() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ChunkList.decrypt(file, out, PASSWORD, VAULT, null);
+		return out.toByteArray();
+	}
+
+	/** 存储中的分块对象（不含域文件与临时目录）。 */
+	private List<Path> objects() throws IOException {
+		Path dir = root.resolve(DedupStore.STORE_DIR);
+		try (Stream<Path> walk = Files.walk(dir)) {
+			List<Path> objects = walk.filter(Files::isRegularFile)
+					.filter(p -> !p.getParent().equals(dir) && !p.getParent().getFileName().toString().equals("tmp"))
+					.sorted()
+					.collect(Collectors.toCollection(ArrayList::new));
+			assertTrue(objects.size() >= 2, "objects = " + objects.size());
+			return objects;
+		}
+	}
+}
@@ -0,0 +1,160 @@
+package com.example.encryptedexplorer.service;
+
+import com.example.encryptedexplorer.model.ConflictPolicy;
+import com.example.encryptedexplorer.model.CopyOptions;
+import com.example.encryptedexplorer.model.ErrorDecision;
+import com.example.encryptedexplorer.model.Resolution;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+class ConflictResolverTest {
+	private static final char[] PASSWORD = "conflict-test".toCharArray();
+	private static final long T0 = 1_600_000_000_000L;
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void fixedPolicies() {
+		Path target = dir.resolve("a.txt");
+		ConflictResolver.Side source = new ConflictResolver.Side(3, T0, null);
+		ConflictResolver.Side current = new ConflictResolver.Side(3, T0, null);
+		assertEquals(Resolution.REPLACE, resolver(ConflictPolicy.OVERWRITE).resolve(target, target, source, current, p -> false).resolution);
+		assertEquals(Resolution.SKIP, resolver(ConflictPolicy.SKIP).resolve(target, target, source, current, p -> false).resolution);
+		ConflictResolver ask = new ConflictResolver(options(ConflictPolicy.ASK), callbacks(Resolution.CANCEL));
+		assertEquals(Resolution.CANCEL, ask.resolve(target, target, source, current, p -> false).resolution);
+	}
+
+	@Test
+	void keepNewerComparesModifiedTime() {
+		Path target = dir.resolve("a.txt");
+		ConflictResolver resolver = resolver(ConflictPolicy.KEEP_NEWER);
+		ConflictResolver.Side current = new ConflictResolver.Side(3, T0, null);
+		assertEquals(Resolution.REPLACE, resolver.resolve(target, target, new ConflictResolver.Side(3, T0 + 1, null), current, p -> false).resolution);
+		assertEquals(Resolution.SKIP, resolver.resolve(target, target, new ConflictResolver.Side(3, T0, null), current, p -> false).resolution);
+	}
+
+	@Test
+	void skipIfIdenticalUsesSizeTimeAndHash() {
+		Path target = dir.resolve("a.txt");
+		ConflictResolver resolver = resolver(ConflictPolicy.SKIP_IF_IDENTICAL);
+		ConflictResolver.Side current = new ConflictResolver.Side(3, T0, null);
+		assertEquals(Resolution.SKIP, resolver.resolve(target, target, new ConflictResolver.Side(3, T0, null), current, p -> false).resolution);
+		assertEquals(Resolution.REPLACE, resolver.resolve(target, target, new ConflictResolver.Side(4, T0, null), current, p -> false).resolution);
+		assertEquals(Resolution.REPLACE, resolver.resolve(target, target, new ConflictResolver.Side(3, T0 + 1, null), current, p -> false).resolution);
+		// 明文大小未知时只比较时间
+		assertEquals(Resolution.SKIP, resolver.resolve(target, target, new ConflictResolver.Side(4, T0, null), new ConflictResolver.Side(-1, T0, null), p -> false).resolution);
+
+		CopyOptions byHash = options(ConflictPolicy.SKIP_IF_IDENTICAL);
+		byHash.identicalByHash = true;
+		ConflictResolver hashing = new ConflictResolver(byHash, callbacks(null));
+		ConflictResolver.Side abc = new ConflictResolver.Side(3, T0, out -> out.write("abc".getBytes(StandardCharsets.UTF_8)));
+		ConflictResolver.Side abd = new ConflictResolver.Side(3, T0, out -> out.write("abd".getBytes(StandardCharsets.UTF_8)));
+		assertEquals(Resolution.SKIP, hashing.resolve(target, target, abc, abc, p -> false).resolution);
+		assertEquals(Resolution.REPLACE, hashing.resolve(target, target, abc, abd, p -> false).resolution);
+	}
+
+	@Test
+	void renameKeepsSuffixAndSkipsTakenNames() {
+		ConflictResolver resolver = resolver(ConflictPolicy.RENAME);
+		ConflictResolver.Side side = new ConflictResolver.Side(1, T0, null);
+		Path target = dir.resolve("photo.jpg.encrypted");
+		Set<Path> taken = Set.of(dir.resolve("photo (1).jpg.encrypted"));
+		ConflictResolver.Outcome first = resolver.resolve(target, target, side, side, taken::contains);
+		assertEquals(Resolution.REPLACE, first.resolution);
+		assertEquals(dir.resolve("photo (2).jpg.encrypted"), first.target);
+		// 并发分配时不会给出同一个新名字
+		assertEquals(dir.resolve("photo (3).jpg.encrypted"), resolver.resolve(target, target, side, side, taken::contains).target);
+	}
+
+	@Test
+	void encryptedSideUsesDirectoryIndex() throws Exception {
+		Path file = Files.write(dir.resolve("a.txt.encrypted"), new byte[64]);
+		ConflictResolver resolver = resolver(ConflictPolicy.SKIP_IF_IDENTICAL);
+		assertEquals(-1, resolver.existing(file).size);
+		DirectoryIndex.update(dir, List.of(new DirectoryIndex.Entry("a.txt.encrypted", "a.txt", 5, T0, null, -1, -1, null)), PASSWORD, null, false);
+		ConflictResolver.Side side = resolver.existing(file);
+		assertEquals(5, side.size);
+		assertEquals(T0, side.modified);
+	}
+
+	@Test
+	void preScanIsReadOnlyAndOutputsKeepSourceTime() throws Exception {
+		Path src = Files.createDirectories(dir.resolve("src"));
+		Path a = Files.write(src.resolve("a.txt"), "old".getBytes(StandardCharsets.UTF_8));
+		Files.setLastModifiedTime(a, FileTime.fromMillis(T0));
+		Files.write(src.resolve("b.txt"), "b".getBytes(StandardCharsets.UTF_8));
+		Path dst = dir.resolve("dst");
+		CopyOptions options = options(ConflictPolicy.SKIP_IF_IDENTICAL);
+		options.sourceDirectory = src;
+		options.targetDirectory = dst;
+		options.useVault = true;
+		options.indexDirectories = true;
+
+		assertTrue(new CopyService().findConflicts(options).isEmpty());
+		assertFalse(Files.exists(dst.resolve(Vault.FILE_NAME)));
+		new CopyService().copyDirectory(options, callbacks(null));
+		assertTrue(Vault.exists(dst));
+		assertEquals(T0, Files.getLastModifiedTime(dst.resolve("a.txt.encrypted")).toMillis());
+		assertEquals(List.of(dst.resolve("a.txt.encrypted"), dst.resolve("b.txt.encrypted")), new CopyService().findConflicts(options));
+
+		// 内容变了但修改时间被还原：索引中的明文大小不同，仍然覆盖
+		Files.write(a, "changed".getBytes(StandardCharsets.UTF_8));
+		Files.setLastModifiedTime(a, FileTime.fromMillis(T0));
+		new CopyService().copyDirectory(options, callbacks(null));
+		Path out = dir.resolve("out");
+		CopyOptions decrypt = new CopyOptions();
+		decrypt.sourceDirectory = dst;
+		decrypt.targetDirectory = out;
+		decrypt.decryptFiles = true;
+		decrypt.password = PASSWORD;
+		new CopyService().copyDirectory(decrypt, callbacks(null));
+		assertEquals("changed", new String(Files.readAllBytes(out.resolve("a.txt")), StandardCharsets.UTF_8));
+		assertEquals(T0, Files.getLastModifiedTime(out.resolve("a.txt")).toMillis());
+	}
+
+	private ConflictResolver resolver(ConflictPolicy policy) {
+		return new ConflictResolver(options(policy), callbacks(null));
+	}
+
+	private static CopyOptions options(ConflictPolicy policy) {
+		CopyOptions options = new CopyOptions();
+		options.encryptFiles = true;
+		options.password = PASSWORD;
+		options.conflictPolicy = policy;
+		return options;
+	}
+
+	private static CopyService.Callbacks callbacks(Resolution onConflict) {
+		return new CopyService.Callbacks() {
+			@Override
+			public Resolution onConflict(Path targetPath) {
+				if (onConflict == null) fail("不应询问: " + targetPath);
+				return onConflict;
+			}
+
+			@Override
+			public ErrorDecision onError(Path sourcePath, Exception error) {
+				throw new AssertionError(sourcePath + ": " + error, error);
+			}
+
+			@Override public void onProgress(String currentFile, long copiedBytes, long totalBytes) {}
+
+			@Override public void onLog(String message) {}
+
+			@Override public boolean isCancelled() { return false; }
+		};
+	}
+}
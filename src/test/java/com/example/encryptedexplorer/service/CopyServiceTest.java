@@ -0,0 +1,141 @@
+package com.example.encryptedexplorer.service;
+
+import com.example.encryptedexplorer.model.CopyOptions;
+import com.example.encryptedexplorer.model.ErrorDecision;
+import com.example.encryptedexplorer.model.Resolution;
+import com.example.encryptedexplorer.util.Metrics;
+import com.example.encryptedexplorer.util.Tracing;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class CopyServiceTest {
+	private static final char[] PASSWORD = "copy-test".toCharArray();
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void chunkedCopyRecordsStages() throws Exception {
+		CopyOptions options = options("chunked");
+		options.chunkLargeFiles = true;
+		options.chunkThresholdBytes = 1024;
+		assertStagesRecorded(options, 2);
+	}
+
+	@Test
+	void dedupCopyRecordsStages() throws Exception {
+		CopyOptions options = options("dedup");
+		options.deduplicate = true;
+		assertStagesRecorded(options, 2);
+	}
+
+	@Test
+	void streamCopyRecordsStages() throws Exception {
+		assertStagesRecorded(options("stream"), 0);
+	}
+
+	@Test
+	void everyCopyPathEmitsTraceEvent() throws Exception {
+		assumeTrue(Tracing.ENABLED, "需以 -Dencryptedexplorer.trace=true 运行");
+		CopyOptions chunked = options("trace-chunked");
+		chunked.chunkLargeFiles = true;
+		chunked.chunkThresholdBytes = 1024;
+		CopyOptions dedup = options("trace-dedup");
+		dedup.deduplicate = true;
+		CopyOptions pack = options("trace-pack");
+		pack.packSmallFiles = true;
+		pack.packThresholdBytes = 1024 * 1024;
+
+		List<RecordedEvent> events;
+		try (Recording recording = new Recording()) {
+			recording.enable(Tracing.FileCopyEvent.class).withoutThreshold();
+			recording.start();
+			for (CopyOptions options : List.of(options("trace-stream"), chunked, dedup, pack)) {
+				writeSources(options);
+				new CopyService().copyDirectory(options, callbacks());
+			}
+			recording.stop();
+			Path jfr = dir.resolve("trace.jfr");
+			recording.dump(jfr);
+			events = RecordingFile.readAllEvents(jfr).stream()
+					.filter(e -> e.getEventType().getName().equals("com.example.encryptedexplorer.FileCopy"))
+					.collect(Collectors.toList());
+		}
+		Set<String> modes = events.stream().map(e -> e.getString("mode")).collect(Collectors.toSet());
+		assertTrue(modes.containsAll(Set.of("encrypt", "chunked", "dedup", "pack")), modes.toString());
+		for (RecordedEvent e : events) assertEquals(256 * 1024, e.getLong("size"));
+	}
+
+	/** 每个文件各阶段各记录一次；写入对象的路径另记对象写盘耗时。 */
+	private void assertStagesRecorded(CopyOptions options, int objectWrites) throws Exception {
+		writeSources(options);
+		long files = timer("fileTime").getCount();
+		long reads = timer("readTime").getCount();
+		long readMillis = (long) (timer("readTime").getTotalMillis() * 1e6);
+		long writes = timer("writeTime").getCount();
+		long ciphers = timer("cipherTime").getCount();
+		long objects = DedupStore.OBJECT_WRITE_TIME.getCount();
+		new CopyService().copyDirectory(options, callbacks());
+
+		assertEquals(files + 2, timer("fileTime").getCount());
+		assertEquals(reads + 2, timer("readTime").getCount());
+		assertEquals(writes + 2, timer("writeTime").getCount());
+		assertEquals(ciphers + 2, timer("cipherTime").getCount());
+		assertTrue((long) (timer("readTime").getTotalMillis() * 1e6) > readMillis);
+		assertTrue(DedupStore.OBJECT_WRITE_TIME.getCount() >= objects + objectWrites);
+	}
+
+	/** 两个 256KB、内容不同的源文件。 */
+	private static void writeSources(CopyOptions options) throws Exception {
+		Path src = Files.createDirectories(options.sourceDirectory);
+		byte[] content = new byte[256 * 1024];
+		new Random(3).nextBytes(content);
+		Files.write(src.resolve("a.bin"), content);
+		content[0] ^= 1;
+		Files.write(src.resolve("b.bin"), content);
+	}
+
+	private CopyOptions options(String name) {
+		CopyOptions options = new CopyOptions();
+		options.sourceDirectory = dir.resolve(name).resolve("src");
+		options.targetDirectory = dir.resolve(name).resolve("dst");
+		options.encryptFiles = true;
+		options.password = PASSWORD;
+		return options;
+	}
+
+	private static Metrics.Timer timer(String name) {
+		return Metrics.timer("CopyService", name);
+	}
+
+	private static CopyService.Callbacks callbacks() {
+		return new CopyService.Callbacks() {
+			@Override public Resolution onConflict(Path targetPath) { return Resolution.REPLACE; }
+
+			@Override
+			public ErrorDecision onError(Path sourcePath, Exception error) {
+				throw new AssertionError(sourcePath + ": " + error, error);
+			}
+
+			@Override public void onProgress(String currentFile, long copiedBytes, long totalBytes) {}
+
+			@Override public void onLog(String message) {}
+
+			@Override public boolean isCancelled() { return false; }
+		};
+	}
+}
@@ -0,0 +1,109 @@
+package com.example.encryptedexplorer.service;
+
+import com.example.encryptedexplorer.util.CompressionCodecs;
+import com.example.encryptedexplorer.util.EncryptionUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DedupStoreTest {
+	private static final char[] PASSWORD = "dedup-test".toCharArray();
+	private static final byte[] CONTENT = "重复的内容".getBytes(StandardCharsets.UTF_8);
+
+	@TempDir
+	Path root;
+
+	@Test
+	void missThenHit() throws Exception {
+		DedupStore store = DedupStore.open(root, PASSWORD, null);
+		String id = store.contentId(new ByteArrayInputStream(CONTENT), null);
+		assertNull(store.lookup(id));
+		assertEquals(0, store.hits());
+
+		Path object = store.store(id, new ByteArrayInputStream(CONTENT), CompressionCodecs.NONE, null);
+		assertTrue(Files.isRegularFile(object));
+		assertArrayEquals(CONTENT, EncryptionUtils.decryptBytes(Files.readAllBytes(object), PASSWORD, null));
+
+		assertEquals(object, store.lookup(store.contentId(new ByteArrayInputStream(CONTENT), null)));
+		assertEquals(1, store.hits());
+		assertEquals(Files.size(object), store.savedBytes());
+	}
+
+	@Test
+	void storeRejectsChangedContent() throws Exception {
+		DedupStore store = DedupStore.open(root, PASSWORD, null);
+		String id = store.contentId(new ByteArrayInputStream(CONTENT), null);
+		byte[] changed = "被修改的内容".getBytes(StandardCharsets.UTF_8);
+		assertThrows(IOException.class, () -> store.store(id, new ByteArrayInputStream(changed), CompressionCodecs.NONE, null));
+		// 不留下对象与临时文件
+		assertNull(store.lookup(id));
+		try (Stream<Path> tmp = Files.list(root.resolve(DedupStore.STORE_DIR).resolve("tmp"))) {
+			assertEquals(0, tmp.count());
+		}
+	}
+
+	@Test
+	void idsAreKeyedPerDomain(@TempDir Path otherRoot) throws Exception {
+		DedupStore store = DedupStore.open(root, PASSWORD, null);
+		DedupStore other = DedupStore.open(otherRoot, PASSWORD, null);
+		String id = store.contentId(new ByteArrayInputStream(CONTENT), null);
+		assertNotEquals(id, other.contentId(new ByteArrayInputStream(CONTENT), null));
+		// 同一域重新打开后标识不变
+		assertEquals(id, DedupStore.open(root, PASSWORD, null).contentId(new ByteArrayInputStream(CONTENT), null));
+	}
+
+	@Test
+	void reopenWithWrongPasswordFails() throws Exception {
+		DedupStore.open(root, PASSWORD, null);
+		assertThrows(GeneralSecurityException.class, () -> DedupStore.open(root, "wrong".toCharArray(), null));
+	}
+
+	@Test
+	void linkedTargetResolvesToObject() throws Exception {
+		DedupStore store = DedupStore.open(root, PASSWORD, null);
+		String id = store.contentId(new ByteArrayInputStream(CONTENT), null);
+		Path object = store.store(id, new ByteArrayInputStream(CONTENT), CompressionCodecs.NONE, null);
+		Path target = Files.createDirectories(root.resolve("sub")).resolve("a.txt.encrypted");
+		store.link(object, target);
+		assertArrayEquals(Files.readAllBytes(object), Files.readAllBytes(DedupStore.resolve(target)));
+	}
+
+	@Test
+	void pointerResolvesInsideStore() throws Exception {
+		DedupStore store = DedupStore.open(root, PASSWORD, null);
+		String id = store.contentId(new ByteArrayInputStream(CONTENT), null);
+		Path object = store.store(id, new ByteArrayInputStream(CONTENT), CompressionCodecs.NONE, null);
+		String rel = root.resolve(DedupStore.STORE_DIR).relativize(object).toString().replace('\\', '/');
+		Path pointer = pointer(Files.createDirectories(root.resolve("sub")).resolve("a.txt.encrypted"), rel);
+		assertEquals(object, DedupStore.resolve(pointer));
+	}
+
+	@Test
+	void pointerOutsideStoreIsRejected() throws Exception {
+		DedupStore.open(root, PASSWORD, null);
+		Files.write(root.resolve("secret.txt"), CONTENT);
+		Path target = Files.createDirectories(root.resolve("sub")).resolve("a.txt.encrypted");
+		assertThrows(IOException.class, () -> DedupStore.resolve(pointer(target, "../secret.txt")));
+		assertThrows(IOException.class, () -> DedupStore.resolve(pointer(target, "ab/../../secret.txt")));
+		// 格式正确但对象不存在
+		assertThrows(IOException.class, () -> DedupStore.resolve(pointer(target, "ab/" + "0".repeat(62) + ".encrypted")));
+	}
+
+	private static Path pointer(Path file, String rel) throws IOException {
+		return Files.write(file, ("ENCREF1\n" + rel).getBytes(StandardCharsets.US_ASCII));
+	}
+}
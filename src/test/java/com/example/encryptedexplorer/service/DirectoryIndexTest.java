@@ -0,0 +1,95 @@
+package com.example.encryptedexplorer.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DirectoryIndexTest {
+	private static final char[] PASSWORD = "index-test".toCharArray();
+	private static final long T0 = 1_600_000_000_000L;
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void roundTrip() throws Exception {
+		assertNull(DirectoryIndex.forDirectory(dir, PASSWORD));
+		Files.write(dir.resolve("a.png.encrypted"), new byte[1]);
+		Files.write(dir.resolve("b.txt.encrypted"), new byte[1]);
+		byte[] hash = new byte[32];
+		hash[0] = 7;
+		DirectoryIndex.update(dir, List.of(
+				new DirectoryIndex.Entry("a.png.encrypted", "a.png", 1234, T0, "image/png", 640, 480, hash),
+				new DirectoryIndex.Entry("b.txt.encrypted", "b.txt", 5, T0 + 1, null, -1, -1, null)), PASSWORD, null, false);
+
+		assertTrue(DirectoryIndex.hasIndex(dir));
+		assertFalse(Files.exists(dir.resolve(DirectoryIndex.INDEX_FILE + ".tmp")));
+		DirectoryIndex index = DirectoryIndex.forDirectory(dir, PASSWORD);
+		assertEquals(2, index.size());
+		DirectoryIndex.Entry a = index.entry("a.png.encrypted");
+		assertEquals("a.png", a.originalName);
+		assertEquals(1234, a.size);
+		assertEquals(T0, a.lastModified);
+		assertEquals(640, a.width);
+		assertEquals(480, a.height);
+		assertArrayEquals(hash, a.sha256);
+		assertTrue(a.isImage());
+		DirectoryIndex.Entry b = index.entry("b.txt.encrypted");
+		assertNull(b.sha256);
+		assertFalse(b.isImage());
+		// 按写入顺序列出；同一密码、索引未变时命中缓存
+		assertEquals(List.of("a.png.encrypted", "b.txt.encrypted"), index.entries().stream().map(e -> e.name).collect(Collectors.toList()));
+		assertSame(index, DirectoryIndex.forDirectory(dir, PASSWORD));
+	}
+
+	@Test
+	void updateMergesAndDropsMissingFiles() throws Exception {
+		Files.write(dir.resolve("a.txt.encrypted"), new byte[1]);
+		Path b = Files.write(dir.resolve("b.txt.encrypted"), new byte[1]);
+		DirectoryIndex.update(dir, List.of(entry("a.txt.encrypted", 1), entry("b.txt.encrypted", 2)), PASSWORD, null, false);
+		DirectoryIndex before = DirectoryIndex.forDirectory(dir, PASSWORD);
+
+		Files.delete(b);
+		Files.write(dir.resolve("c.txt.encrypted"), new byte[1]);
+		DirectoryIndex.update(dir, List.of(entry("a.txt.encrypted", 10), entry("c.txt.encrypted", 3)), PASSWORD, null, true);
+		DirectoryIndex after = DirectoryIndex.forDirectory(dir, PASSWORD);
+		assertNotSame(before, after);
+		assertEquals(2, after.size());
+		assertEquals(10, after.entry("a.txt.encrypted").size);
+		assertNull(after.entry("b.txt.encrypted"));
+		assertEquals(3, after.entry("c.txt.encrypted").size);
+	}
+
+	@Test
+	void wrongPasswordFailsAndUpdateRebuilds() throws Exception {
+		Files.write(dir.resolve("a.txt.encrypted"), new byte[1]);
+		DirectoryIndex.update(dir, List.of(entry("a.txt.encrypted", 1)), PASSWORD, null, false);
+		char[] other = "other".toCharArray();
+		assertThrows(GeneralSecurityException.class, () -> DirectoryIndex.load(dir, other, null));
+
+		// 换了密码：旧索引无法读取，以本次条目重建
+		Files.write(dir.resolve("b.txt.encrypted"), new byte[1]);
+		DirectoryIndex.update(dir, List.of(entry("b.txt.encrypted", 2)), other, null, false);
+		DirectoryIndex rebuilt = DirectoryIndex.forDirectory(dir, other);
+		assertEquals(1, rebuilt.size());
+		assertEquals(2, rebuilt.entry("b.txt.encrypted").size);
+	}
+
+	private static DirectoryIndex.Entry entry(String name, long size) {
+		return new DirectoryIndex.Entry(name, name.substring(0, name.length() - ".encrypted".length()), size, T0, null, -1, -1, null);
+	}
+}
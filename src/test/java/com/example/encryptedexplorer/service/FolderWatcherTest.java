@@ -0,0 +1,151 @@
+package com.example.encryptedexplorer.service;
+
+import com.example.encryptedexplorer.model.CopyOptions;
+import com.example.encryptedexplorer.util.EncryptionUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+class FolderWatcherTest {
+	private static final char[] PASSWORD = "watch-test".toCharArray();
+
+	@TempDir
+	Path dir;
+
+	private final List<FolderWatcher> started = new ArrayList<>();
+	private final List<Thread> threads = new ArrayList<>();
+
+	/** 记录监听回调。 */
+	private static final class Recorder implements FolderWatcher.Listener {
+		final List<Integer> batches = Collections.synchronizedList(new ArrayList<>());
+		final List<Path> encrypted = Collections.synchronizedList(new ArrayList<>());
+		final List<Integer> reconciled = Collections.synchronizedList(new ArrayList<>());
+		final List<Exception> errors = Collections.synchronizedList(new ArrayList<>());
+
+		@Override public void onBatch(int files) { batches.add(files); }
+
+		@Override public void onEncrypted(Path source) { encrypted.add(source); }
+
+		@Override public void onError(Path source, Exception error) { errors.add(error); }
+
+		@Override public void onReconciled(int queued) { reconciled.add(queued); }
+	}
+
+	@AfterEach
+	void stop() throws Exception {
+		for (FolderWatcher w : started) w.close();
+		for (Thread t : threads) t.join(10_000);
+	}
+
+	@Test
+	void startupReconcileEncryptsExistingFilesOnce() throws Exception {
+		Path src = Files.createDirectories(dir.resolve("src"));
+		write(src.resolve("a.txt"), "a");
+		write(Files.createDirectories(src.resolve("sub")).resolve("b.txt"), "b");
+		Path dst = dir.resolve("dst");
+
+		Recorder first = start(options(src, dst), 0);
+		await(() -> first.encrypted.size() == 2);
+		assertEquals(2, (int) first.reconciled.get(0));
+		assertEquals("a", decrypt(dst.resolve("a.txt.encrypted")));
+		assertEquals("b", decrypt(dst.resolve("sub").resolve("b.txt.encrypted")));
+		stop();
+
+		// 重新启动时目标已是最新，对账不再排队
+		Recorder second = start(options(src, dst), 0);
+		await(() -> !second.reconciled.isEmpty());
+		assertEquals(0, (int) second.reconciled.get(0));
+		assertTrue(second.batches.isEmpty());
+	}
+
+	@Test
+	void debounceMergesRepeatedWrites() throws Exception {
+		Path src = Files.createDirectories(dir.resolve("src"));
+		Path dst = dir.resolve("dst");
+		Recorder recorder = start(options(src, dst), 500);
+		await(() -> !recorder.reconciled.isEmpty());
+
+		Path file = src.resolve("log.txt");
+		for (int i = 0; i < 5; i++) {
+			write(file, "第 " + i + " 次写入");
+			Thread.sleep(50);
+		}
+		write(src.resolve("download.part"), "未完成");
+		await(() -> !recorder.encrypted.isEmpty());
+		// 去抖期内的多次写入只加密一次，内容为最后一次写入；临时文件被忽略
+		Thread.sleep(800);
+		assertEquals(List.of(1), recorder.batches);
+		assertEquals(List.of(file), recorder.encrypted);
+		assertEquals("第 4 次写入", decrypt(dst.resolve("log.txt.encrypted")));
+		assertFalse(Files.exists(dst.resolve("download.part.encrypted")));
+		assertTrue(recorder.errors.isEmpty());
+	}
+
+	@Test
+	void newDirectoryIsWatched() throws Exception {
+		Path src = Files.createDirectories(dir.resolve("src"));
+		Path dst = dir.resolve("dst");
+		Recorder recorder = start(options(src, dst), 100);
+		await(() -> !recorder.reconciled.isEmpty());
+
+		Path sub = Files.createDirectories(src.resolve("new"));
+		write(sub.resolve("c.txt"), "c");
+		await(() -> recorder.encrypted.contains(sub.resolve("c.txt")));
+		assertEquals("c", decrypt(dst.resolve("new").resolve("c.txt.encrypted")));
+	}
+
+	private Recorder start(CopyOptions options, long debounceMillis) {
+		Recorder recorder = new Recorder();
+		FolderWatcher watcher = new FolderWatcher(options, debounceMillis, 60_000, recorder);
+		Thread t = new Thread(() -> {
+			try {
+				watcher.run();
+			} catch (Exception e) {
+				recorder.errors.add(e);
+			}
+		}, "watch-test");
+		t.start();
+		started.add(watcher);
+		threads.add(t);
+		return recorder;
+	}
+
+	private static CopyOptions options(Path src, Path dst) {
+		CopyOptions options = new CopyOptions();
+		options.sourceDirectory = src;
+		options.targetDirectory = dst;
+		options.encryptFiles = true;
+		options.password = PASSWORD;
+		return options;
+	}
+
+	private static void await(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(20);
+		while (!condition.getAsBoolean()) {
+			if (System.nanoTime() > deadline) fail("等待超时");
+			Thread.sleep(20);
+		}
+	}
+
+	private static void write(Path file, String content) throws Exception {
+		Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static String decrypt(Path file) throws Exception {
+		return new String(EncryptionUtils.decryptBytes(Files.readAllBytes(file), PASSWORD, null), StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,54 @@
+package com.example.encryptedexplorer.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NameSaltTest {
+
+	@TempDir
+	Path root;
+
+	@Test
+	void freshRootGetsSalt() throws Exception {
+		// 只有内部文件（. 开头）的根目录仍视为新树
+		Files.write(root.resolve(".vault"), new byte[1]);
+		byte[] salt = NameSalt.openOrCreate(root);
+		assertEquals(16, salt.length);
+		assertTrue(Files.isRegularFile(root.resolve(NameSalt.FILE_NAME)));
+		assertArrayEquals(salt, NameSalt.openOrCreate(root));
+		assertArrayEquals(salt, NameSalt.read(root));
+	}
+
+	@Test
+	void legacyTreeKeepsLegacySalt() throws Exception {
+		Files.createDirectory(root.resolve("Q2hhcHRlcjE"));
+		assertNull(NameSalt.openOrCreate(root));
+		assertFalse(Files.exists(root.resolve(NameSalt.FILE_NAME)));
+	}
+
+	@Test
+	void locateSearchesUpwards() throws Exception {
+		Path tree = Files.createDirectories(root.resolve("tree"));
+		byte[] salt = NameSalt.openOrCreate(tree);
+		Path deep = Files.createDirectories(tree.resolve("a").resolve("b"));
+		assertArrayEquals(salt, NameSalt.locate(deep));
+		assertNull(NameSalt.locate(Files.createDirectories(root.resolve("outside"))));
+	}
+
+	@Test
+	void corruptSaltFileFails() throws Exception {
+		Files.write(root.resolve(NameSalt.FILE_NAME), new byte[] {1, 2, 3});
+		assertThrows(IOException.class, () -> NameSalt.read(root));
+	}
+}
@@ -0,0 +1,120 @@
+package com.example.encryptedexplorer.service;
+
+import com.example.encryptedexplorer.model.CopyOptions;
+import com.example.encryptedexplorer.model.ErrorDecision;
+import com.example.encryptedexplorer.model.Resolution;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.util.stream.Stream;
+
+import static com.example.encryptedexplorer.util.TestData.random;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ObjectCollectorTest {
+	private static final char[] PASSWORD = "gc-test".toCharArray();
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void removesOnlyUnreferencedObjects() throws Exception {
+		Path src = Files.createDirectories(dir.resolve("src"));
+		Files.write(src.resolve("a.bin"), random(1, 8 * 1024));
+		byte[] b = random(2, 8 * 1024);
+		Files.write(src.resolve("b.bin"), b);
+		Files.write(src.resolve("b-copy.bin"), b);
+		byte[] big = random(3, 600 * 1024);
+		Files.write(src.resolve("big.bin"), big);
+		Files.write(src.resolve("old.bin"), random(4, 600 * 1024));
+		Path dst = dir.resolve("dst");
+		CopyOptions options = new CopyOptions();
+		options.sourceDirectory = src;
+		options.targetDirectory = dst;
+		options.encryptFiles = true;
+		options.password = PASSWORD;
+		options.deduplicate = true;
+		options.chunkLargeFiles = true;
+		options.chunkThresholdBytes = 100 * 1024;
+		new CopyService().copyDirectory(options, callbacks());
+		long before = objectCount(dst);
+
+		// 目标中删除一个整文件对象的唯一引用与一个分块文件
+		Files.delete(dst.resolve("a.bin.encrypted"));
+		Files.delete(dst.resolve("old.bin.encrypted"));
+		ObjectCollector.Report dryRun = ObjectCollector.collect(dst, PASSWORD, true);
+		assertTrue(dryRun.removed >= 2, "removed=" + dryRun.removed);
+		assertEquals(before, dryRun.objects);
+		assertEquals(before, objectCount(dst));
+
+		ObjectCollector.Report report = ObjectCollector.collect(dst, PASSWORD, false);
+		assertEquals(dryRun.removed, report.removed);
+		assertEquals(1, report.chunkLists);
+		assertEquals(before - report.removed, objectCount(dst));
+		assertEquals(0, ObjectCollector.collect(dst, PASSWORD, false).removed);
+
+		// 仍被引用的对象完好：解密结果与源文件一致
+		Path out = dir.resolve("out");
+		CopyOptions decrypt = new CopyOptions();
+		decrypt.sourceDirectory = dst;
+		decrypt.targetDirectory = out;
+		decrypt.decryptFiles = true;
+		decrypt.password = PASSWORD;
+		new CopyService().copyDirectory(decrypt, callbacks());
+		assertArrayEquals(b, Files.readAllBytes(out.resolve("b.bin")));
+		assertArrayEquals(b, Files.readAllBytes(out.resolve("b-copy.bin")));
+		assertArrayEquals(big, Files.readAllBytes(out.resolve("big.bin")));
+		assertFalse(Files.exists(out.resolve("a.bin")));
+	}
+
+	@Test
+	void wrongPasswordRemovesNothing() throws Exception {
+		Path src = Files.createDirectories(dir.resolve("src"));
+		Files.write(src.resolve("a.bin"), random(5, 1024));
+		Path dst = dir.resolve("dst");
+		CopyOptions options = new CopyOptions();
+		options.sourceDirectory = src;
+		options.targetDirectory = dst;
+		options.encryptFiles = true;
+		options.password = PASSWORD;
+		options.deduplicate = true;
+		new CopyService().copyDirectory(options, callbacks());
+		Files.delete(dst.resolve("a.bin.encrypted"));
+
+		assertThrows(GeneralSecurityException.class, () -> ObjectCollector.collect(dst, "wrong".toCharArray(), false));
+		assertEquals(1, objectCount(dst));
+		// 没有去重存储的目录：空结果
+		assertEquals(0, ObjectCollector.collect(src, PASSWORD, false).objects);
+	}
+
+	private static long objectCount(Path root) throws Exception {
+		Path store = root.resolve(DedupStore.STORE_DIR);
+		try (Stream<Path> s = Files.walk(store)) {
+			return s.filter(p -> DedupStore.isObject(store, p)).count();
+		}
+	}
+
+	private static CopyService.Callbacks callbacks() {
+		return new CopyService.Callbacks() {
+			@Override public Resolution onConflict(Path targetPath) { return Resolution.REPLACE; }
+
+			@Override
+			public ErrorDecision onError(Path sourcePath, Exception error) {
+				throw new AssertionError(sourcePath + ": " + error, error);
+			}
+
+			@Override public void onProgress(String currentFile, long copiedBytes, long totalBytes) {}
+
+			@Override public void onLog(String message) {}
+
+			@Override public boolean isCancelled() { return false; }
+		};
+	}
+}
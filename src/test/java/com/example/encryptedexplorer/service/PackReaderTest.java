@@ -0,0 +1,89 @@
+package com.example.encryptedexplorer.service;
+
+import com.example.encryptedexplorer.util.EncryptionUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.crypto.AEADBadTagException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PackReaderTest {
+	private static final char[] PASSWORD = "pack-test".toCharArray();
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void roundTripAcrossSegments() throws Exception {
+		// 段上限很小，每个成员各占一段
+		try (PackWriter writer = PackWriter.open(dir, PASSWORD, 64)) {
+			writer.add("a.txt", bytes("alpha"), 1000L);
+			writer.add("b.txt", bytes("bravo"), 2000L);
+			writer.add("c.txt", new byte[0], 3000L);
+		}
+		PackReader pack = PackReader.load(dir, PASSWORD);
+		assertEquals(Arrays.asList("a.txt", "b.txt", "c.txt"), pack.names());
+		assertArrayEquals(bytes("alpha"), pack.read("a.txt"));
+		assertArrayEquals(bytes("bravo"), pack.read("b.txt"));
+		assertArrayEquals(new byte[0], pack.read("c.txt"));
+		assertEquals(2000L, pack.entry("b.txt").lastModified);
+		assertEquals(1, pack.entry("b.txt").segment);
+	}
+
+	@Test
+	void reopenAppendsToNewSegment() throws Exception {
+		try (PackWriter writer = PackWriter.open(dir, PASSWORD, 1024)) {
+			writer.add("a.txt", bytes("alpha"), 0L);
+		}
+		try (PackWriter writer = PackWriter.open(dir, PASSWORD, 1024)) {
+			writer.add("b.txt", bytes("bravo"), 0L);
+		}
+		PackReader pack = PackReader.load(dir, PASSWORD);
+		assertEquals(0, pack.entry("a.txt").segment);
+		assertEquals(1, pack.entry("b.txt").segment);
+		assertArrayEquals(bytes("alpha"), pack.read("a.txt"));
+		assertArrayEquals(bytes("bravo"), pack.read("b.txt"));
+	}
+
+	@Test
+	void swappedMembersFailAuthentication() throws Exception {
+		try (PackWriter writer = PackWriter.open(dir, PASSWORD, 1024)) {
+			writer.add("a.txt", bytes("alpha"), 0L);
+			writer.add("b.txt", bytes("bravo"), 0L);
+		}
+		PackReader pack = PackReader.load(dir, PASSWORD);
+		PackReader.Entry a = pack.entry("a.txt");
+		PackReader.Entry b = pack.entry("b.txt");
+		// 重写索引，让两个成员名指向对方的记录：记录以成员名为 AAD，错位必须认证失败
+		Map<String, PackReader.Entry> swapped = new LinkedHashMap<>();
+		swapped.put("a.txt", new PackReader.Entry("a.txt", b.segment, b.offset, b.length, b.size, b.lastModified));
+		swapped.put("b.txt", new PackReader.Entry("b.txt", a.segment, a.offset, a.length, a.size, a.lastModified));
+		byte[] index = PackReader.serializeIndex(pack.dataKey(), swapped);
+		Files.write(PackReader.indexFileFor(dir), EncryptionUtils.encryptBytes(index, PASSWORD));
+
+		PackReader tampered = PackReader.load(dir, PASSWORD);
+		assertThrows(AEADBadTagException.class, () -> tampered.read("a.txt"));
+		assertThrows(AEADBadTagException.class, () -> tampered.read("b.txt"));
+	}
+
+	@Test
+	void wrongPasswordRejected() throws Exception {
+		try (PackWriter writer = PackWriter.open(dir, PASSWORD, 1024)) {
+			writer.add("a.txt", bytes("alpha"), 0L);
+		}
+		assertThrows(AEADBadTagException.class, () -> PackReader.load(dir, "wrong".toCharArray()));
+	}
+
+	private static byte[] bytes(String s) {
+		return s.getBytes(StandardCharsets.UTF_8);
+	}
+}
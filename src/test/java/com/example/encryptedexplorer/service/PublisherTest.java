@@ -0,0 +1,142 @@
+package com.example.encryptedexplorer.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+class PublisherTest {
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void tempNameIsHiddenSibling() {
+		Path temp = Publisher.tempFor(dir.resolve("a.txt"));
+		assertEquals(dir, temp.getParent());
+		assertTrue(Publisher.isTempName(temp.getFileName().toString()));
+		assertFalse(Publisher.isTempName("a.txt"));
+	}
+
+	@Test
+	void nonDurablePublishesImmediately() throws Exception {
+		Path target = dir.resolve("a.txt");
+		Path temp = write(target, "new");
+		AtomicInteger published = new AtomicInteger();
+		new Publisher(false).publish(temp, target, 3, published::incrementAndGet, PublisherTest::unexpected);
+		assertEquals(1, published.get());
+		assertEquals("new", read(target));
+		assertFalse(Files.exists(temp));
+	}
+
+	@Test
+	void durableWaitsForFlush() throws Exception {
+		Path target = dir.resolve("a.txt");
+		Files.write(target, "old".getBytes(StandardCharsets.UTF_8));
+		Path temp = write(target, "new");
+		AtomicInteger published = new AtomicInteger();
+		Publisher publisher = new Publisher(true);
+		publisher.publish(temp, target, 3, published::incrementAndGet, PublisherTest::unexpected);
+		// 提交前最终名下仍是旧内容，回调未执行
+		assertEquals(0, published.get());
+		assertEquals("old", read(target));
+
+		publisher.flush();
+		assertEquals(1, published.get());
+		assertEquals("new", read(target));
+		assertFalse(Files.exists(temp));
+	}
+
+	@Test
+	void fullBatchCommitsWithoutFlush() throws Exception {
+		Publisher publisher = new Publisher(true);
+		AtomicInteger published = new AtomicInteger();
+		for (int i = 0; i < 300; i++) {
+			Path target = Files.createDirectories(dir.resolve("d" + (i % 7))).resolve(i + ".txt");
+			publisher.publish(write(target, Integer.toString(i)), target, 1, published::incrementAndGet, PublisherTest::unexpected);
+		}
+		// 第一批（256 个文件）已在 publish 中提交，其余等待 flush
+		assertEquals(256, published.get());
+		publisher.close();
+		assertEquals(300, published.get());
+		assertEquals("299", read(dir.resolve("d5").resolve("299.txt")));
+	}
+
+	@Test
+	void failedItemDoesNotFailBatch() throws Exception {
+		Publisher publisher = new Publisher(true);
+		AtomicInteger published = new AtomicInteger();
+		List<Path> failed = new ArrayList<>();
+		Path ok = dir.resolve("a.txt");
+		publisher.publish(write(ok, "a"), ok, 1, published::incrementAndGet, e -> failed.add(ok));
+		Path missing = dir.resolve("b.txt");
+		publisher.publish(Publisher.tempFor(missing), missing, 1, published::incrementAndGet, e -> failed.add(missing));
+		publisher.flush();
+		assertEquals(1, published.get());
+		assertEquals(List.of(missing), failed);
+		assertEquals("a", read(ok));
+		assertFalse(Files.exists(missing));
+	}
+
+	@Test
+	void fullBatchReportsEachFailure() throws Exception {
+		Publisher publisher = new Publisher(true);
+		AtomicInteger published = new AtomicInteger();
+		List<Path> failed = Collections.synchronizedList(new ArrayList<>());
+		// 重命名失败（目标是非空目录）与刷盘失败（临时文件不存在）各一个，由第 256 个文件触发提交
+		Path blocked = Files.createDirectories(dir.resolve("blocked.txt"));
+		Files.write(blocked.resolve("inner"), new byte[1]);
+		Path blockedTemp = write(blocked, "x");
+		publisher.publish(blockedTemp, blocked, 1, published::incrementAndGet, e -> failed.add(blocked));
+		Path missing = dir.resolve("missing.txt");
+		publisher.publish(Publisher.tempFor(missing), missing, 1, published::incrementAndGet, e -> failed.add(missing));
+		for (int i = 2; i < 256; i++) {
+			Path target = dir.resolve(i + ".txt");
+			publisher.publish(write(target, Integer.toString(i)), target, 1, published::incrementAndGet, e -> failed.add(target));
+		}
+		assertEquals(254, published.get());
+		assertEquals(2, failed.size());
+		assertTrue(failed.containsAll(List.of(blocked, missing)));
+		// 失败项的临时文件已删除，已有目标不受影响
+		assertFalse(Files.exists(blockedTemp));
+		assertTrue(Files.isDirectory(blocked));
+		assertEquals("255", read(dir.resolve("255.txt")));
+	}
+
+	@Test
+	void nonDurableFailureThrowsToCaller() throws Exception {
+		Path blocked = Files.createDirectories(dir.resolve("blocked.txt"));
+		Files.write(blocked.resolve("inner"), new byte[1]);
+		Path temp = write(blocked, "x");
+		assertThrows(IOException.class, () -> new Publisher(false).publish(temp, blocked, 1, PublisherTest::unexpected, PublisherTest::unexpected));
+	}
+
+	private static void unexpected() {
+		fail("不应发布");
+	}
+
+	private static void unexpected(IOException e) {
+		fail(e);
+	}
+
+	private static Path write(Path target, String content) throws IOException {
+		return Files.write(Publisher.tempFor(target), content.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static String read(Path file) throws IOException {
+		return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+	}
+}
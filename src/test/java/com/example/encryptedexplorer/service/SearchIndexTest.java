@@ -0,0 +1,91 @@
+package com.example.encryptedexplorer.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SearchIndexTest {
+	private static final char[] PASSWORD = "search-test".toCharArray();
+
+	@TempDir
+	Path root;
+
+	@Test
+	void prefixMatchesComeFirst() throws Exception {
+		update(hit("docs/Report.pdf", "d1/f1"), hit("docs/annual report.txt", "d1/f2"),
+				hit("photos/reports", "d2", true), hit("other.txt", "f3"));
+		SearchIndex index = SearchIndex.forRoot(root, PASSWORD);
+		assertEquals(4, index.size());
+		// 名称前缀匹配在前，名称包含查询串的在后；不区分大小写
+		assertEquals(Arrays.asList("docs/Report.pdf", "photos/reports", "docs/annual report.txt"), originals(index.search("REPORT", 10)));
+		assertEquals(Arrays.asList("docs/Report.pdf"), originals(index.search("report", 1)));
+		assertTrue(index.search("missing", 10).isEmpty());
+		assertTrue(index.search("  ", 10).isEmpty());
+	}
+
+	@Test
+	void pathQueriesMatchOriginalPaths() throws Exception {
+		update(hit("docs/Report.pdf", "d1/f1"), hit("photos/docs.txt", "d2/f2"));
+		SearchIndex index = SearchIndex.forRoot(root, PASSWORD);
+		assertEquals(Arrays.asList("docs/Report.pdf"), originals(index.search("docs/", 10)));
+		assertEquals(Arrays.asList("docs/Report.pdf"), originals(index.search("DOCS\\rep", 10)));
+		assertEquals(root.resolve("d1").resolve("f1"), index.search("docs/", 10).get(0).resolve(root));
+		assertEquals(root, SearchIndex.locate(root.resolve("d1")));
+	}
+
+	@Test
+	void updateDropsVanishedEntriesInTouchedDirectories() throws Exception {
+		update(hit("a/one.txt", "d1/f1"), hit("a/two.txt", "d1/f2"), hit("b/three.txt", "d2/f3"));
+		Files.delete(root.resolve("d1").resolve("f2"));
+		Files.delete(root.resolve("d2").resolve("f3"));
+		update(hit("a/four.txt", "d1/f4"));
+		// 只检查本次涉及的 d1：f2 被移除，未涉及的 d2 中的条目保留
+		SearchIndex index = SearchIndex.forRoot(root, PASSWORD);
+		List<String> all = new ArrayList<>();
+		for (SearchIndex.Hit h : index.search(".txt", 10)) all.add(h.targetPath);
+		all.sort(null);
+		assertEquals(Arrays.asList("d1/f1", "d1/f4", "d2/f3"), all);
+	}
+
+	@Test
+	void wrongPasswordFails() throws Exception {
+		update(hit("a.txt", "f1"));
+		assertThrows(GeneralSecurityException.class, () -> SearchIndex.forRoot(root, "wrong".toCharArray()));
+	}
+
+	private void update(SearchIndex.Hit... hits) throws Exception {
+		SearchIndex.update(root, Arrays.asList(hits), PASSWORD, null, false);
+	}
+
+	private SearchIndex.Hit hit(String original, String target) throws Exception {
+		return hit(original, target, false);
+	}
+
+	/** 记录一条并创建对应的目标，使更新时的存在性检查保留它。 */
+	private SearchIndex.Hit hit(String original, String target, boolean directory) throws Exception {
+		Path path = root.resolve(target);
+		if (directory) {
+			Files.createDirectories(path);
+		} else {
+			Files.createDirectories(path.getParent());
+			Files.write(path, new byte[0]);
+		}
+		return new SearchIndex.Hit(original, target, directory);
+	}
+
+	private static List<String> originals(List<SearchIndex.Hit> hits) {
+		List<String> result = new ArrayList<>();
+		for (SearchIndex.Hit h : hits) result.add(h.originalPath);
+		return result;
+	}
+}
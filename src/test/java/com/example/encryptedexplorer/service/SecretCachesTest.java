@@ -0,0 +1,57 @@
+package com.example.encryptedexplorer.service;
+
+import com.example.encryptedexplorer.util.NameCipher;
+import com.example.encryptedexplorer.util.VaultKey;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class SecretCachesTest {
+	private static final char[] PASSWORD = "secret-caches".toCharArray();
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void clearIsDeferredUntilLastUserExits() throws Exception {
+		Vault.openOrCreate(dir, PASSWORD, true);
+		VaultKey key = Vault.open(dir, PASSWORD);
+		assertSame(key, Vault.open(dir, PASSWORD));
+		byte[] before = key.subKey("test:");
+
+		SecretCaches.enter();
+		try {
+			SecretCaches.clear();
+			// 任务仍在运行：密钥保持可用
+			assertArrayEquals(before, key.subKey("test:"));
+			assertSame(key, Vault.open(dir, PASSWORD));
+		} finally {
+			SecretCaches.exit();
+		}
+		// 最后一个使用者结束后清零，重新打开得到新的实例与相同的密钥
+		assertFalse(Arrays.equals(before, key.subKey("test:")));
+		VaultKey reopened = Vault.open(dir, PASSWORD);
+		assertNotSame(key, reopened);
+		assertArrayEquals(before, reopened.subKey("test:"));
+	}
+
+	@Test
+	void nameSessionsAreRebuiltAfterClear() throws Exception {
+		byte[] salt = new byte[16];
+		NameCipher session = NameCipher.forPassword(PASSWORD, salt);
+		String encrypted = session.encrypt("照片");
+		SecretCaches.clear();
+		NameCipher fresh = NameCipher.forPassword(PASSWORD, salt);
+		assertNotSame(session, fresh);
+		assertEquals(encrypted, fresh.encrypt("照片"));
+		assertEquals("照片", fresh.decrypt(encrypted));
+	}
+}
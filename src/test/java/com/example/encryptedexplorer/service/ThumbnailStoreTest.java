@@ -0,0 +1,112 @@
+package com.example.encryptedexplorer.service;
+
+import com.example.encryptedexplorer.model.CopyOptions;
+import com.example.encryptedexplorer.model.ErrorDecision;
+import com.example.encryptedexplorer.model.Resolution;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ThumbnailStoreTest {
+	private static final char[] PASSWORD = "thumbs-test".toCharArray();
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void renderKeepsAspectRatio() throws Exception {
+		BufferedImage thumb = decode(ThumbnailStore.render(png(1000, 500, false)));
+		assertEquals(ThumbnailStore.MAX_EDGE, thumb.getWidth());
+		assertEquals(ThumbnailStore.MAX_EDGE / 2, thumb.getHeight());
+		// 小图不放大；带透明通道时保留
+		BufferedImage small = decode(ThumbnailStore.render(png(40, 30, true)));
+		assertEquals(40, small.getWidth());
+		assertTrue(small.getColorModel().hasAlpha());
+		assertNull(ThumbnailStore.render("不是图片".getBytes(StandardCharsets.UTF_8)));
+	}
+
+	@Test
+	void updateAndLookupRoundTrip() throws Exception {
+		Path a = Files.write(dir.resolve("a.png.encrypted"), new byte[1]);
+		Path b = Files.write(dir.resolve("b.png.encrypted"), new byte[1]);
+		byte[] first = {1, 2, 3};
+		assertNull(ThumbnailStore.lookup(a, PASSWORD));
+		ThumbnailStore.update(dir, Map.of("a.png.encrypted", first, "b.png.encrypted", new byte[]{4}), PASSWORD, null, false);
+		assertArrayEquals(first, ThumbnailStore.lookup(a, PASSWORD));
+		assertArrayEquals(new byte[]{4}, ThumbnailStore.lookup(b, PASSWORD));
+		assertNull(ThumbnailStore.lookup(a, "wrong".toCharArray()));
+
+		// 合并：同名覆盖，已删除文件的缩略图被移除
+		Files.delete(b);
+		ThumbnailStore.update(dir, Map.of("a.png.encrypted", new byte[]{9}), PASSWORD, null, true);
+		assertArrayEquals(new byte[]{9}, ThumbnailStore.lookup(a, PASSWORD));
+		assertNull(ThumbnailStore.lookup(b, PASSWORD));
+	}
+
+	@Test
+	void encryptedCopyWritesThumbnails() throws Exception {
+		Path src = Files.createDirectories(dir.resolve("src"));
+		Files.write(src.resolve("photo.png"), png(600, 300, false));
+		Files.write(src.resolve("notes.txt"), "text".getBytes(StandardCharsets.UTF_8));
+		Path dst = dir.resolve("dst");
+		CopyOptions options = new CopyOptions();
+		options.sourceDirectory = src;
+		options.targetDirectory = dst;
+		options.encryptFiles = true;
+		options.password = PASSWORD;
+		options.thumbnails = true;
+		new CopyService().copyDirectory(options, callbacks());
+
+		assertTrue(ThumbnailStore.hasStore(dst));
+		byte[] thumb = ThumbnailStore.lookup(dst.resolve("photo.png.encrypted"), PASSWORD);
+		assertNotNull(thumb);
+		assertEquals(ThumbnailStore.MAX_EDGE, decode(thumb).getWidth());
+		assertNull(ThumbnailStore.lookup(dst.resolve("notes.txt.encrypted"), PASSWORD));
+	}
+
+	private static byte[] png(int width, int height, boolean alpha) throws Exception {
+		BufferedImage image = new BufferedImage(width, height, alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) image.setRGB(x, y, 0x80000000 | (x * 255 / width) << 16 | (y * 255 / height) << 8);
+		}
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ImageIO.write(image, "png", out);
+		return out.toByteArray();
+	}
+
+	private static BufferedImage decode(byte[] data) throws Exception {
+		assertNotNull(data);
+		return ImageIO.read(new ByteArrayInputStream(data));
+	}
+
+	private static CopyService.Callbacks callbacks() {
+		return new CopyService.Callbacks() {
+			@Override public Resolution onConflict(Path targetPath) { return Resolution.REPLACE; }
+
+			@Override
+			public ErrorDecision onError(Path sourcePath, Exception error) {
+				throw new AssertionError(sourcePath + ": " + error, error);
+			}
+
+			@Override public void onProgress(String currentFile, long copiedBytes, long totalBytes) {}
+
+			@Override public void onLog(String message) {}
+
+			@Override public boolean isCancelled() { return false; }
+		};
+	}
+}
@@ -0,0 +1,68 @@
+package com.example.encryptedexplorer.service;
+
+import com.example.encryptedexplorer.util.EncryptionUtils;
+import com.example.encryptedexplorer.util.VaultKey;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VaultTest {
+	private static final char[] PASSWORD = "vault-test".toCharArray();
+	private static final byte[] PLAIN = "保险库内的文件".getBytes(StandardCharsets.UTF_8);
+
+	@TempDir
+	Path root;
+
+	@Test
+	void createThenOpenYieldsSameKey() throws Exception {
+		assertNull(Vault.openOrCreate(root, PASSWORD, false));
+		VaultKey created = Vault.openOrCreate(root, PASSWORD, true);
+		byte[] sealed = EncryptionUtils.encryptBytes(PLAIN, null, created);
+		VaultKey opened = Vault.openOrCreate(root, PASSWORD, true);
+		assertTrue(opened.matches(created.id()));
+		assertArrayEquals(PLAIN, EncryptionUtils.decryptBytes(sealed, null, opened));
+	}
+
+	@Test
+	void wrongPasswordFails() throws Exception {
+		Vault.openOrCreate(root, PASSWORD, true);
+		assertThrows(GeneralSecurityException.class, () -> Vault.open(root, "wrong".toCharArray()));
+	}
+
+	@Test
+	void rekeyKeepsFilesReadable() throws Exception {
+		VaultKey key = Vault.openOrCreate(root, PASSWORD, true);
+		byte[] sealed = EncryptionUtils.encryptBytes(PLAIN, null, key);
+		char[] newPassword = "vault-test-2".toCharArray();
+		Vault.rekey(root, PASSWORD, newPassword);
+		assertThrows(GeneralSecurityException.class, () -> Vault.open(root, PASSWORD));
+		assertArrayEquals(PLAIN, EncryptionUtils.decryptBytes(sealed, null, Vault.open(root, newPassword)));
+	}
+
+	@Test
+	void locateFindsEnclosingVault() throws Exception {
+		VaultKey key = Vault.openOrCreate(root, PASSWORD, true);
+		Path sub = Files.createDirectories(root.resolve("a").resolve("b"));
+		VaultKey located = Vault.locate(sub, PASSWORD);
+		assertNotNull(located);
+		assertTrue(located.matches(key.id()));
+	}
+
+	@Test
+	void vaultFileNeedsMatchingVault() throws Exception {
+		byte[] sealed = EncryptionUtils.encryptBytes(PLAIN, null, VaultKey.generate());
+		assertThrows(IOException.class, () -> EncryptionUtils.decryptBytes(sealed, PASSWORD, null));
+		assertThrows(IOException.class, () -> EncryptionUtils.decryptBytes(sealed, PASSWORD, VaultKey.generate()));
+	}
+}
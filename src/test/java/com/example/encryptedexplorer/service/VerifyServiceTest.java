@@ -0,0 +1,92 @@
+package com.example.encryptedexplorer.service;
+
+import com.example.encryptedexplorer.model.VerifyOptions;
+import com.example.encryptedexplorer.util.EncryptionUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VerifyServiceTest {
+	private static final char[] PASSWORD = "verify-test".toCharArray();
+
+	@TempDir
+	Path root;
+
+	@Test
+	void cleanTreeVerifies() throws Exception {
+		writeEncrypted(root.resolve("a.txt.encrypted"), 1000);
+		writeEncrypted(Files.createDirectories(root.resolve("sub")).resolve("b.bin.encrypted"), 200_000);
+		Files.write(root.resolve("plain.txt"), new byte[10]);
+
+		VerifyService.Report report = verify(PASSWORD);
+		assertTrue(report.isClean());
+		assertEquals(2, report.filesVerified);
+		assertEquals(201_000, report.bytesVerified);
+		assertEquals(1, report.filesSkipped);
+	}
+
+	@Test
+	void corruptedFileIsReported() throws Exception {
+		writeEncrypted(root.resolve("a.txt.encrypted"), 1000);
+		Path bad = root.resolve("b.bin.encrypted");
+		writeEncrypted(bad, 200_000);
+		byte[] raw = Files.readAllBytes(bad);
+		raw[raw.length / 2] ^= 1;
+		Files.write(bad, raw);
+
+		VerifyService.Report report = verify(PASSWORD);
+		assertFalse(report.isClean());
+		assertEquals(1, report.failures.size());
+		assertEquals(bad, report.failures.get(0).file);
+	}
+
+	@Test
+	void packMembersAreVerified() throws Exception {
+		try (PackWriter writer = PackWriter.open(root, PASSWORD, 1 << 20)) {
+			writer.add("a.txt", new byte[100], 0L);
+			writer.add("b.txt", new byte[200], 0L);
+		}
+		assertTrue(verify(PASSWORD).isClean());
+
+		// 篡改第二个成员的记录：失败项指向该成员
+		Path segment = PackReader.segmentFileFor(root, 0);
+		byte[] raw = Files.readAllBytes(segment);
+		raw[raw.length - 1] ^= 1;
+		Files.write(segment, raw);
+		VerifyService.Report report = verify(PASSWORD);
+		assertEquals(1, report.failures.size());
+		assertEquals(root.resolve("b.txt"), report.failures.get(0).file);
+	}
+
+	@Test
+	void wrongPasswordFails() throws Exception {
+		writeEncrypted(root.resolve("a.txt.encrypted"), 1000);
+		VerifyService.Report report = verify("wrong".toCharArray());
+		assertEquals(1, report.failures.size());
+	}
+
+	private VerifyService.Report verify(char[] password) throws Exception {
+		VerifyOptions options = new VerifyOptions();
+		options.rootDirectory = root;
+		options.password = password;
+		options.workers = 2;
+		return new VerifyService().verify(options, new VerifyService.Callbacks() {
+			@Override public void onVerified(Path file, long bytes) { }
+			@Override public void onFailure(Path file, Exception error) { }
+			@Override public boolean isCancelled() { return false; }
+		});
+	}
+
+	private static void writeEncrypted(Path file, int size) throws Exception {
+		byte[] plain = new byte[size];
+		new Random(size).nextBytes(plain);
+		Files.write(file, EncryptionUtils.encryptBytes(plain, PASSWORD, null));
+	}
+}
@@ -0,0 +1,70 @@
+package com.example.encryptedexplorer.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.example.encryptedexplorer.util.TestData.decrypt;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ChunkedEncryptorTest {
+	private static final char[] PASSWORD = "chunked-test".toCharArray();
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void rangesInAnyOrderFormOneFile() throws Exception {
+		byte[] plain = new byte[10 * 64 * 1024 + 123];
+		new Random(7).nextBytes(plain);
+		Path source = Files.write(dir.resolve("source.bin"), plain);
+		ChunkedEncryptor encryptor = EncryptionUtils.chunkedEncryptor(plain.length, PASSWORD, null);
+		assertEquals(11, encryptor.segmentCount());
+
+		Path target = dir.resolve("target.bin.encrypted");
+		AtomicLong progress = new AtomicLong();
+		try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+			 FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+			out.write(ByteBuffer.wrap(encryptor.header()));
+			// 各区间独立加密、按位置写入，顺序无关
+			encryptor.encryptSegments(in, out, 8, 11, progress::addAndGet);
+			encryptor.encryptSegments(in, out, 0, 3, progress::addAndGet);
+			encryptor.encryptSegments(in, out, 3, 8, progress::addAndGet);
+		}
+		assertEquals(plain.length, progress.get());
+		assertEquals(encryptor.encryptedSize(), Files.size(target));
+		assertArrayEquals(plain, decrypt(target, PASSWORD, null));
+	}
+
+	@Test
+	void emptyFileHasOneSegment() throws Exception {
+		Path source = Files.write(dir.resolve("empty"), new byte[0]);
+		VaultKey vault = VaultKey.generate();
+		ChunkedEncryptor encryptor = EncryptionUtils.chunkedEncryptor(0, PASSWORD, vault);
+		assertEquals(1, encryptor.segmentCount());
+		Path target = dir.resolve("empty.encrypted");
+		try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+			 FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+			out.write(ByteBuffer.wrap(encryptor.header()));
+			encryptor.encryptSegments(in, out, 0, 1, null);
+		}
+		assertEquals(encryptor.encryptedSize(), Files.size(target));
+		assertEquals(0, EncryptionUtils.decryptBytes(Files.readAllBytes(target), null, vault).length);
+	}
+
+	@Test
+	void rejectsInvalidRange() throws Exception {
+		ChunkedEncryptor encryptor = EncryptionUtils.chunkedEncryptor(100, PASSWORD, null);
+		assertThrows(IllegalArgumentException.class, () -> encryptor.encryptSegments(null, null, 0, 2, null));
+		assertThrows(IllegalArgumentException.class, () -> encryptor.encryptSegments(null, null, 1, 1, null));
+	}
+}
@@ -0,0 +1,137 @@
+package com.example.encryptedexplorer.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.crypto.Cipher;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.spec.AlgorithmParameterSpec;
+import java.util.Arrays;
+
+import static com.example.encryptedexplorer.util.TestData.decrypt;
+import static com.example.encryptedexplorer.util.TestData.encrypt;
+import static com.example.encryptedexplorer.util.TestData.random;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CipherSuitesTest {
+	private static final VaultKey VAULT = VaultKey.generate();
+	private static final int SEGMENT = 64 * 1024;
+
+	@AfterEach
+	void restorePreferred() {
+		CipherSuites.setPreferred(null);
+	}
+
+	@Test
+	void bothSuitesRoundTrip() throws Exception {
+		byte[] plain = random(1, 3 * SEGMENT + 9);
+		for (CipherSuite suite : CipherSuites.all()) {
+			CipherSuites.setPreferred(suite);
+			for (CompressionCodec codec : new CompressionCodec[] {CompressionCodecs.NONE, CompressionCodecs.DEFLATE}) {
+				byte[] packed = encrypt(plain, null, VAULT, codec);
+				assertEquals(suite.id(), headerOf(packed).cipherId, suite.name());
+				assertArrayEquals(plain, decrypt(packed, null, VAULT), suite.name() + "/" + codec.name());
+			}
+		}
+	}
+
+	@Test
+	void filesDecryptRegardlessOfPreferredSuite() throws Exception {
+		byte[] plain = random(2, SEGMENT + 1);
+		CipherSuites.setPreferred(CipherSuites.CHACHA20_POLY1305);
+		byte[] chacha = encrypt(plain, null, VAULT, CompressionCodecs.NONE);
+		CipherSuites.setPreferred(CipherSuites.AES_GCM);
+		byte[] gcm = encrypt(plain, null, VAULT, CompressionCodecs.NONE);
+		// 算法由文件头决定，与当前首选算法无关
+		assertArrayEquals(plain, decrypt(chacha, null, VAULT));
+		CipherSuites.setPreferred(CipherSuites.CHACHA20_POLY1305);
+		assertArrayEquals(plain, decrypt(gcm, null, VAULT));
+		// 密文长度相同（标签都是 16 字节），只差头部的算法字段
+		assertEquals(gcm.length + 3, chacha.length);
+	}
+
+	@Test
+	void cipherIdIsAuthenticated() throws Exception {
+		CipherSuites.setPreferred(CipherSuites.CHACHA20_POLY1305);
+		byte[] packed = encrypt(random(3, 1000), null, VAULT, CompressionCodecs.NONE);
+		FileHeader header = headerOf(packed);
+		// 把算法字段改回 AES-GCM：头部是 AAD，必须认证失败而不是换算法解密
+		FileHeader forgedHeader = new FileHeader();
+		forgedHeader.codecId = header.codecId;
+		forgedHeader.salt = header.salt;
+		forgedHeader.noncePrefix = header.noncePrefix;
+		forgedHeader.segmentSize = header.segmentSize;
+		forgedHeader.vaultId = header.vaultId;
+		forgedHeader.cipherId = CipherSuites.AES_GCM.id();
+		byte[] original = header.encode();
+		byte[] forged = forgedHeader.encode();
+		assertNotEquals(original.length, forged.length);
+		byte[] swapped = new byte[forged.length + packed.length - original.length];
+		System.arraycopy(forged, 0, swapped, 0, forged.length);
+		System.arraycopy(packed, original.length, swapped, forged.length, packed.length - original.length);
+		assertThrows(IOException.class, () -> decrypt(swapped, null, VAULT));
+
+		byte[] flipped = packed.clone();
+		flipped[flipped.length - 1] ^= 1;
+		assertThrows(IOException.class, () -> decrypt(flipped, null, VAULT));
+	}
+
+	@Test
+	void chachaSplitAndMappedPaths(@TempDir Path dir) throws Exception {
+		CipherSuites.setPreferred(CipherSuites.CHACHA20_POLY1305);
+		byte[] plain = random(4, 5 * SEGMENT + 77);
+		Path source = Files.write(dir.resolve("plain"), plain);
+		ChunkedEncryptor encryptor = EncryptionUtils.chunkedEncryptor(plain.length, null, VAULT);
+		Path sealed = dir.resolve("sealed");
+		try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+			 FileChannel out = FileChannel.open(sealed, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+			out.write(ByteBuffer.wrap(encryptor.header()));
+			encryptor.encryptSegments(in, out, 3, encryptor.segmentCount(), null);
+			encryptor.encryptSegments(in, out, 0, 3, null);
+		}
+		assertEquals(CipherSuites.CHACHA20_POLY1305.id(), headerOf(Files.readAllBytes(sealed)).cipherId);
+		Path restored = dir.resolve("restored");
+		try (FileChannel in = FileChannel.open(sealed, StandardOpenOption.READ);
+			 FileChannel out = FileChannel.open(restored, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+			assertTrue(EncryptionUtils.decryptMapped(in, out, null, VAULT, null));
+		}
+		assertArrayEquals(plain, Files.readAllBytes(restored));
+		assertArrayEquals(plain, decrypt(Files.readAllBytes(sealed), null, VAULT));
+	}
+
+	@Test
+	void lookupByIdAndName() throws Exception {
+		assertSame(CipherSuites.CHACHA20_POLY1305, CipherSuites.byId(1));
+		assertSame(CipherSuites.AES_GCM, CipherSuites.byName("AES-GCM"));
+		assertSame(CipherSuites.CHACHA20_POLY1305, CipherSuites.resolve(" chacha20-poly1305 "));
+		assertEquals(Arrays.asList(CipherSuites.AES_GCM, CipherSuites.CHACHA20_POLY1305), CipherSuites.all());
+		assertThrows(IOException.class, () -> CipherSuites.byId(200));
+		assertThrows(IllegalArgumentException.class, () -> CipherSuites.byName("rot13"));
+		// id 写入文件头，不能被另一个实现占用
+		CipherSuite clash = new CipherSuite() {
+			@Override public int id() { return 0; }
+			@Override public String name() { return "other"; }
+			@Override public Cipher newCipher() { return null; }
+			@Override public AlgorithmParameterSpec parameters(byte[] nonce) { return null; }
+		};
+		assertThrows(IllegalArgumentException.class, () -> CipherSuites.register(clash));
+	}
+
+	private static FileHeader headerOf(byte[] packed) throws IOException {
+		ByteArrayInputStream in = new ByteArrayInputStream(packed);
+		assertArrayEquals(FileHeader.MAGIC, in.readNBytes(FileHeader.MAGIC.length));
+		return FileHeader.readAfterMagic(in);
+	}
+}
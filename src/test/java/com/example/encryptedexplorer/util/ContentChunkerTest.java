@@ -0,0 +1,135 @@
+package com.example.encryptedexplorer.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static com.example.encryptedexplorer.util.TestData.random;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ContentChunkerTest {
+	private static final long[] GEAR = gear("chunker-test");
+	private static final byte[] DATA = random(1, 24 * 1024 * 1024);
+
+	@Test
+	void chunksCoverInputWithinBounds() throws Exception {
+		List<byte[]> chunks = chunk(DATA, GEAR);
+		assertArrayEquals(DATA, concat(chunks));
+		for (int i = 0; i < chunks.size() - 1; i++) {
+			int n = chunks.get(i).length;
+			assertTrue(n >= ContentChunker.MIN_SIZE && n <= ContentChunker.MAX_SIZE, "chunk " + i + " = " + n);
+		}
+		// 平均约 1MB：24MB 随机数据的分块数应在平均值附近
+		assertTrue(chunks.size() >= 8 && chunks.size() <= 60, "chunks = " + chunks.size());
+	}
+
+	@Test
+	void smallAndEmptyInputs() throws Exception {
+		assertNull(new ContentChunker(new ByteArrayInputStream(new byte[0]), GEAR).next());
+		byte[] small = random(2, ContentChunker.MIN_SIZE);
+		List<byte[]> chunks = chunk(small, GEAR);
+		assertEquals(1, chunks.size());
+		assertArrayEquals(small, chunks.get(0));
+	}
+
+	@Test
+	void uniformInputCutsAtMaxSize() throws Exception {
+		// 全零内容的哈希不会命中掩码，只能按最大分块切
+		List<byte[]> chunks = chunk(new byte[3 * ContentChunker.MAX_SIZE + 5], GEAR);
+		assertEquals(4, chunks.size());
+		assertEquals(ContentChunker.MAX_SIZE, chunks.get(0).length);
+		assertEquals(5, chunks.get(3).length);
+	}
+
+	@Test
+	void shortReadsGiveSameChunks() throws Exception {
+		// 每次只返回少量字节的输入流与一次读满的结果一致
+		InputStream trickle = new ByteArrayInputStream(DATA) {
+			@Override
+			public synchronized int read(byte[] b, int off, int len) {
+				return super.read(b, off, Math.min(len, 1000));
+			}
+		};
+		List<byte[]> expected = chunk(DATA, GEAR);
+		List<byte[]> actual = chunks(new ContentChunker(trickle, GEAR));
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) assertArrayEquals(expected.get(i), actual.get(i));
+	}
+
+	@Test
+	void insertionKeepsMostChunks() throws Exception {
+		int at = DATA.length / 2;
+		byte[] edited = new byte[DATA.length + 100];
+		System.arraycopy(DATA, 0, edited, 0, at);
+		System.arraycopy(random(3, 100), 0, edited, at, 100);
+		System.arraycopy(DATA, at, edited, at + 100, DATA.length - at);
+
+		List<byte[]> before = chunk(DATA, GEAR);
+		List<byte[]> after = chunk(edited, GEAR);
+		Set<ByteBuffer> known = new HashSet<>();
+		for (byte[] c : before) known.add(ByteBuffer.wrap(c));
+		int changed = 0;
+		for (byte[] c : after) {
+			if (!known.contains(ByteBuffer.wrap(c))) changed++;
+		}
+		// 只有插入点附近的一两个分块改变
+		assertTrue(changed <= 2, "changed chunks = " + changed + " of " + after.size());
+	}
+
+	@Test
+	void gearDependsOnKey() throws Exception {
+		assertArrayEquals(GEAR, gear("chunker-test"));
+		long[] other = gear("other-key");
+		assertNotEquals(Arrays.toString(GEAR), Arrays.toString(other));
+		List<Integer> a = sizes(chunk(DATA, GEAR));
+		List<Integer> b = sizes(chunk(DATA, other));
+		assertNotEquals(a, b);
+		assertThrows(IllegalArgumentException.class, () -> new ContentChunker(new ByteArrayInputStream(DATA), new long[16]));
+	}
+
+	private static List<byte[]> chunk(byte[] data, long[] gear) throws IOException {
+		return chunks(new ContentChunker(new ByteArrayInputStream(data), gear));
+	}
+
+	private static List<byte[]> chunks(ContentChunker chunker) throws IOException {
+		List<byte[]> chunks = new ArrayList<>();
+		byte[] c;
+		while ((c = chunker.next()) != null) chunks.add(c);
+		return chunks;
+	}
+
+	private static byte[] concat(List<byte[]> chunks) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		for (byte[] c : chunks) out.writeBytes(c);
+		return out.toByteArray();
+	}
+
+	private static List<Integer> sizes(List<byte[]> chunks) {
+		List<Integer> sizes = new ArrayList<>();
+		for (byte[] c : chunks) sizes.add(c.length);
+		return sizes;
+	}
+
+	private static long[] gear(String key) {
+		try {
+			return ContentChunker.gear(key.getBytes(StandardCharsets.UTF_8));
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
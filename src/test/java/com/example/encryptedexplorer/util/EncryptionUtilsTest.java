@@ -0,0 +1,162 @@
+package com.example.encryptedexplorer.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.crypto.AEADBadTagException;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import static com.example.encryptedexplorer.util.TestData.decrypt;
+import static com.example.encryptedexplorer.util.TestData.encrypt;
+import static com.example.encryptedexplorer.util.TestData.random;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EncryptionUtilsTest {
+	private static final char[] PASSWORD = "encryption-test".toCharArray();
+	private static final int SEGMENT = 64 * 1024;
+	private static final int SEALED = SEGMENT + SegmentCipher.TAG_LEN;
+
+	@Test
+	void encv1BytesRoundTrip() throws Exception {
+		byte[] plain = "ENCV1 明文".getBytes(StandardCharsets.UTF_8);
+		byte[] packed = EncryptionUtils.encryptBytes(plain, PASSWORD);
+		assertEquals("ENCV1", new String(packed, 0, 5, StandardCharsets.US_ASCII));
+		assertArrayEquals(plain, EncryptionUtils.decryptBytes(packed, PASSWORD));
+		// ENCV1 也可经流式接口按魔数分派解密
+		assertArrayEquals(plain, decrypt(packed, PASSWORD, null));
+	}
+
+	@Test
+	void encv1RejectsWrongPassword() throws Exception {
+		byte[] packed = EncryptionUtils.encryptBytes(new byte[100], PASSWORD);
+		assertThrows(AEADBadTagException.class, () -> EncryptionUtils.decryptBytes(packed, "wrong".toCharArray()));
+	}
+
+	@Test
+	void encv2RoundTripAcrossSegmentBoundaries() throws Exception {
+		for (int size : new int[] {0, 1, SEGMENT - 1, SEGMENT, SEGMENT + 1, 2 * SEGMENT, 3 * SEGMENT + 17}) {
+			byte[] plain = random(size, size);
+			byte[] packed = encrypt(plain, PASSWORD, null, CompressionCodecs.NONE);
+			assertArrayEquals(FileHeader.MAGIC, Arrays.copyOf(packed, FileHeader.MAGIC.length));
+			assertArrayEquals(plain, decrypt(packed, PASSWORD, null), "size=" + size);
+			assertEquals(size, EncryptionUtils.verifyStream(new ByteArrayInputStream(packed), PASSWORD, null, null));
+		}
+	}
+
+	@Test
+	void encv2CompressedRoundTrip() throws Exception {
+		byte[] plain = new byte[5 * SEGMENT];
+		Arrays.fill(plain, (byte) 'x');
+		byte[] packed = encrypt(plain, PASSWORD, null, CompressionCodecs.DEFLATE);
+		assertTrue(packed.length < SEGMENT, "可压缩的内容应明显变小");
+		assertArrayEquals(plain, decrypt(packed, PASSWORD, null));
+	}
+
+	@Test
+	void tamperedSegmentFails() throws Exception {
+		byte[] packed = encrypt(random(1, 3 * SEGMENT), PASSWORD, null, CompressionCodecs.NONE);
+		// 翻转第二个分段中的一个字节
+		packed[headerLength(packed, 3 * SEGMENT, 3) + SEALED + 100] ^= 1;
+		assertAuthenticationFails(packed);
+	}
+
+	@Test
+	void tamperedHeaderFails() throws Exception {
+		byte[] packed = encrypt(random(2, 1000), PASSWORD, null, CompressionCodecs.NONE);
+		int header = headerLength(packed, 1000, 1);
+		// 文件头作为 AAD 参与每段认证，改动其中任一字节都必须失败
+		for (int i = FileHeader.MAGIC.length; i < header; i++) {
+			byte[] copy = packed.clone();
+			copy[i] ^= 1;
+			assertThrows(IOException.class, () -> decrypt(copy, PASSWORD, null), "offset=" + i);
+		}
+	}
+
+	@Test
+	void droppingLastSegmentFails() throws Exception {
+		// 明文恰为两个整段：去掉带结束标记的第二段后，第一段看起来像最后一段，但其 nonce 未带结束标记
+		byte[] packed = encrypt(random(3, 2 * SEGMENT), PASSWORD, null, CompressionCodecs.NONE);
+		int header = headerLength(packed, 2 * SEGMENT, 2);
+		assertAuthenticationFails(Arrays.copyOf(packed, header + SEALED));
+	}
+
+	@Test
+	void truncatedTailFails() throws Exception {
+		byte[] packed = encrypt(random(4, SEGMENT + 500), PASSWORD, null, CompressionCodecs.NONE);
+		assertAuthenticationFails(Arrays.copyOf(packed, packed.length - 1));
+		int header = headerLength(packed, SEGMENT + 500, 2);
+		assertThrows(IOException.class, () -> decrypt(Arrays.copyOf(packed, header + SEALED + 3), PASSWORD, null));
+	}
+
+	@Test
+	void wrongPasswordFails() throws Exception {
+		byte[] packed = encrypt(random(5, 100), PASSWORD, null, CompressionCodecs.NONE);
+		assertThrows(IOException.class, () -> decrypt(packed, "wrong".toCharArray(), null));
+	}
+
+	@Test
+	void mappedDecryptMatchesStream(@TempDir Path dir) throws Exception {
+		for (int size : new int[] {0, SEGMENT, 40 * SEGMENT + 5}) {
+			byte[] plain = random(6, size);
+			Path source = Files.write(dir.resolve("source-" + size), encrypt(plain, PASSWORD, null, CompressionCodecs.NONE));
+			assertArrayEquals(plain, decryptMapped(source, dir.resolve("plain-" + size)), "size=" + size);
+		}
+	}
+
+	@Test
+	void mappedDecryptDeclinesCompressedAndEncv1(@TempDir Path dir) throws Exception {
+		Path compressed = Files.write(dir.resolve("compressed"), encrypt(new byte[1000], PASSWORD, null, CompressionCodecs.DEFLATE));
+		Path legacy = Files.write(dir.resolve("legacy"), EncryptionUtils.encryptBytes(new byte[1000], PASSWORD));
+		for (Path source : new Path[] {compressed, legacy}) {
+			Path target = dir.resolve(source.getFileName() + ".out");
+			try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+				 FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+				assertFalse(EncryptionUtils.decryptMapped(in, out, PASSWORD, null, null));
+			}
+			assertEquals(0, Files.size(target));
+		}
+	}
+
+	@Test
+	void mappedDecryptDetectsTamperingAndTruncation(@TempDir Path dir) throws Exception {
+		byte[] packed = encrypt(random(7, 2 * SEGMENT), PASSWORD, null, CompressionCodecs.NONE);
+		int header = headerLength(packed, 2 * SEGMENT, 2);
+		byte[] flipped = packed.clone();
+		flipped[header + 10] ^= 1;
+		Path tampered = Files.write(dir.resolve("tampered"), flipped);
+		Path truncated = Files.write(dir.resolve("truncated"), Arrays.copyOf(packed, header + SEALED));
+		Path tagless = Files.write(dir.resolve("tagless"), Arrays.copyOf(packed, header + SEALED + 5));
+		for (Path source : new Path[] {tampered, truncated, tagless}) {
+			assertThrows(IOException.class, () -> decryptMapped(source, dir.resolve(source.getFileName() + ".out")), source.toString());
+		}
+	}
+
+	private static byte[] decryptMapped(Path source, Path target) throws Exception {
+		try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+			 FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			assertTrue(EncryptionUtils.decryptMapped(in, out, PASSWORD, null, null));
+		}
+		return Files.readAllBytes(target);
+	}
+
+	private static void assertAuthenticationFails(byte[] packed) {
+		assertThrows(IOException.class, () -> decrypt(packed, PASSWORD, null));
+		assertThrows(IOException.class, () -> EncryptionUtils.verifyStream(new ByteArrayInputStream(packed), PASSWORD, null, null));
+	}
+
+	/** 未压缩 ENCV2 的文件头长度 = 总长 - 明文 - 每段标签。 */
+	private static int headerLength(byte[] packed, int plainSize, int segments) {
+		return packed.length - plainSize - segments * SegmentCipher.TAG_LEN;
+	}
+}
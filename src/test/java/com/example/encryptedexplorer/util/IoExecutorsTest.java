@@ -0,0 +1,43 @@
+package com.example.encryptedexplorer.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+class IoExecutorsTest {
+	@Test
+	void propertyDisablesVirtualThreads() {
+		assertTrue(IoExecutors.useVirtual(true, null));
+		assertTrue(IoExecutors.useVirtual(true, ""));
+		assertTrue(IoExecutors.useVirtual(true, "true"));
+		assertFalse(IoExecutors.useVirtual(true, " FALSE "));
+		// 运行时不支持时属性无效
+		assertFalse(IoExecutors.useVirtual(false, null));
+		assertFalse(IoExecutors.useVirtual(false, "true"));
+	}
+
+	@Test
+	void fallsBackToPlatformThreads() throws Exception {
+		// 测试运行在 target/classes 上，不经多版本 JAR 选择，总是基础实现
+		assumeFalse(VirtualThreads.supported());
+		assertFalse(IoExecutors.virtual());
+		assertEquals(4, IoExecutors.parallelism(4));
+		assertThrows(UnsupportedOperationException.class, () -> VirtualThreads.newPerTaskExecutor("io"));
+
+		ExecutorService pool = IoExecutors.io("io-test", 2);
+		try {
+			Thread worker = pool.submit(Thread::currentThread).get(10, TimeUnit.SECONDS);
+			assertEquals("io-test", worker.getName());
+			assertTrue(worker.isDaemon());
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+}
@@ -0,0 +1,91 @@
+package com.example.encryptedexplorer.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IoSchedulerTest {
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void pathsOnOneDeviceShareOneSlot() throws Exception {
+		IoScheduler io = new IoScheduler(1, RateLimiter.unlimited());
+		// 源与目标在同一设备上只申请一次额度，上限为 1 时也不会自锁
+		try (IoScheduler.Ticket ticket = io.acquire(dir.resolve("a"), dir.resolve("b"), dir.resolve("sub/c"))) {
+			assertEquals(1, io.devices().size());
+			assertTrue(ticket.blockSize() >= IoScheduler.MIN_BLOCK && ticket.blockSize() <= IoScheduler.MAX_BLOCK);
+		}
+	}
+
+	@Test
+	void concurrencyLimitBlocksUntilRelease() throws Exception {
+		IoScheduler io = new IoScheduler(1, RateLimiter.unlimited());
+		IoScheduler.Ticket first = io.acquire(dir.resolve("a"));
+		CountDownLatch acquired = new CountDownLatch(1);
+		Thread waiter = new Thread(() -> {
+			try (IoScheduler.Ticket second = io.acquire(dir.resolve("b"))) {
+				acquired.countDown();
+			} catch (InterruptedIOException e) {
+				// 测试失败时由断言报告
+			}
+		});
+		waiter.start();
+		assertFalse(acquired.await(200, TimeUnit.MILLISECONDS));
+		first.close();
+		first.close(); // 重复关闭不会多归还额度
+		assertTrue(acquired.await(5, TimeUnit.SECONDS));
+		waiter.join();
+	}
+
+	@Test
+	void interruptedAcquireFails() throws Exception {
+		IoScheduler io = new IoScheduler(1, RateLimiter.unlimited());
+		AtomicReference<Throwable> failure = new AtomicReference<>();
+		try (IoScheduler.Ticket held = io.acquire(dir.resolve("a"))) {
+			Thread waiter = new Thread(() -> {
+				try {
+					io.acquire(dir.resolve("b")).close();
+				} catch (Throwable t) {
+					failure.set(t);
+				}
+			});
+			waiter.start();
+			Thread.sleep(100);
+			waiter.interrupt();
+			waiter.join(5000);
+		}
+		assertTrue(failure.get() instanceof InterruptedIOException);
+		// 被中断的申请没有占用额度
+		io.acquire(dir.resolve("a")).close();
+	}
+
+	@Test
+	void throttledReadsAreRecorded() throws Exception {
+		IoScheduler io = new IoScheduler(2, RateLimiter.unlimited());
+		try (IoScheduler.Ticket ticket = io.acquire(dir.resolve("a"));
+			 InputStream in = ticket.throttle(new ByteArrayInputStream(new byte[100_000]))) {
+			assertEquals(100_000, in.readAllBytes().length);
+			ticket.transferred(5);
+		}
+		assertEquals(100_005, io.devices().get(0).totalBytes());
+	}
+
+	@Test
+	void rejectsNonPositiveConcurrency() {
+		assertThrows(IllegalArgumentException.class, () -> new IoScheduler(0, RateLimiter.unlimited()));
+	}
+}
@@ -0,0 +1,90 @@
+package com.example.encryptedexplorer.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MetricsTest {
+	@TempDir
+	Path dir;
+
+	@Test
+	void timerPercentilesWithinBucketError() {
+		Metrics.Timer timer = Metrics.timer("MetricsTest", "percentiles");
+		timer.reset();
+		for (int i = 1; i <= 100; i++) timer.record(TimeUnit.MILLISECONDS.toNanos(i));
+		assertEquals(100, timer.getCount());
+		assertEquals(5050, timer.getTotalMillis(), 1e-6);
+		assertEquals(100, timer.getMaxMillis(), 1e-6);
+		// 每个 2 的幂区间分 4 个子桶，分位数误差约 12%
+		assertEquals(50, timer.getP50Millis(), 50 * 0.125);
+		assertEquals(95, timer.getP95Millis(), 95 * 0.125);
+		assertEquals(99, timer.getP99Millis(), 99 * 0.125);
+		assertTrue(timer.getP99Millis() <= timer.getMaxMillis());
+
+		timer.reset();
+		assertEquals(0, timer.getCount());
+		assertEquals(0, timer.getP50Millis());
+	}
+
+	@Test
+	void timerAccumulatesPerThread() throws Exception {
+		Metrics.Timer timer = Metrics.timer("MetricsTest", "perThread");
+		long before = timer.threadNanos();
+		timer.record(1_000);
+		timer.record(-5); // 负值按 0 计
+		assertEquals(before + 1_000, timer.threadNanos());
+
+		AtomicLong other = new AtomicLong();
+		Thread t = new Thread(() -> {
+			timer.record(7_000);
+			other.set(timer.threadNanos());
+		});
+		t.start();
+		t.join();
+		assertEquals(7_000, other.get());
+		assertEquals(before + 1_000, timer.threadNanos());
+	}
+
+	@Test
+	void sameNameSharesInstance() {
+		Metrics.Counter counter = Metrics.counter("MetricsTest", "shared");
+		assertSame(counter, Metrics.counter("MetricsTest", "shared"));
+		long n = counter.getCount();
+		counter.add(3);
+		counter.increment();
+		assertEquals(n + 4, Metrics.counter("MetricsTest", "shared").getCount());
+		assertThrows(IllegalArgumentException.class, () -> Metrics.timer("MetricsTest", "shared"));
+		assertEquals(42, Metrics.gauge("MetricsTest", "gauge", () -> 42).getValue());
+	}
+
+	@Test
+	void mappedPathRecordsReadAndWrite() throws Exception {
+		byte[] plain = new byte[3 * 64 * 1024];
+		Path source = Files.write(dir.resolve("source.bin"), plain);
+		long reads = EncryptionUtils.MAPPED_READ_TIME.getCount();
+		long writes = EncryptionUtils.MAPPED_WRITE_TIME.getCount();
+		long readNanos = EncryptionUtils.MAPPED_READ_TIME.threadNanos();
+		ChunkedEncryptor encryptor = EncryptionUtils.chunkedEncryptor(plain.length, "metrics".toCharArray(), VaultKey.generate());
+		try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+			 FileChannel out = FileChannel.open(dir.resolve("target"), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+			out.write(ByteBuffer.wrap(encryptor.header()));
+			encryptor.encryptSegments(in, out, 0, encryptor.segmentCount(), null);
+		}
+		assertTrue(EncryptionUtils.MAPPED_READ_TIME.getCount() > reads);
+		assertTrue(EncryptionUtils.MAPPED_WRITE_TIME.getCount() > writes);
+		assertTrue(EncryptionUtils.MAPPED_READ_TIME.threadNanos() > readNanos);
+	}
+}
@@ -0,0 +1,103 @@
+package com.example.encryptedexplorer.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.security.GeneralSecurityException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NameCipherTest {
+	private static final char[] PASSWORD = "name-test".toCharArray();
+	private static final String NAME = "年度报告 2024 (final).pdf";
+
+	@Test
+	void sivRoundTripIsDeterministic() throws Exception {
+		NameCipher names = NameCipher.forPassword(PASSWORD, salt(1));
+		String encoded = names.encrypt(NAME);
+		assertEquals(encoded, names.encrypt(NAME));
+		assertTrue(NameCipher.mayBeEncryptedName(encoded));
+		assertEquals(NAME, names.decrypt(encoded));
+		// 新会话（没有名称缓存）重新派生密钥后同样可以还原
+		NameCipher fresh = freshSession(salt(1));
+		assertNotSame(names, fresh);
+		assertEquals(NAME, fresh.decrypt(encoded));
+	}
+
+	@Test
+	void tamperedNameIsRejected() throws Exception {
+		NameCipher names = NameCipher.forPassword(PASSWORD, salt(2));
+		String encoded = names.encrypt(NAME);
+		int i = encoded.length() - 3;
+		String tampered = encoded.substring(0, i) + (encoded.charAt(i) == 'A' ? 'B' : 'A') + encoded.substring(i + 1);
+		assertThrows(GeneralSecurityException.class, () -> names.decrypt(tampered));
+		assertNull(names.tryDecrypt(tampered));
+	}
+
+	@Test
+	void treeSaltSeparatesSessions() throws Exception {
+		NameCipher a = NameCipher.forPassword(PASSWORD, salt(3));
+		NameCipher b = NameCipher.forPassword(PASSWORD, salt(4));
+		NameCipher legacy = NameCipher.forPassword(PASSWORD);
+		assertNotEquals(a.encrypt(NAME), b.encrypt(NAME));
+		assertNotEquals(a.shortName(NAME, 16), b.shortName(NAME, 16));
+		assertNotEquals(a.shortName(NAME, 16), legacy.shortName(NAME, 16));
+		assertNull(b.tryDecrypt(a.encrypt(NAME)));
+		assertNull(legacy.tryDecrypt(a.encrypt(NAME)));
+	}
+
+	@Test
+	void legacySessionMatchesStaticShortNames() throws Exception {
+		NameCipher legacy = NameCipher.forPassword(PASSWORD);
+		assertSame(legacy, NameCipher.forPassword(PASSWORD.clone()));
+		assertEquals(EncryptionUtils.encryptDirectoryNameShort(NAME, PASSWORD, 16), legacy.shortName(NAME, 16));
+		assertEquals(10, legacy.shortName(NAME, 10).length());
+	}
+
+	@Test
+	void decryptsLegacyEncv1Names() throws Exception {
+		String old = EncryptionUtils.encryptFileName(NAME, PASSWORD);
+		assertTrue(NameCipher.mayBeEncryptedName(old));
+		assertEquals(NAME, NameCipher.forPassword(PASSWORD, salt(5)).decrypt(old));
+	}
+
+	@Test
+	void vaultSessionUsesVaultKeys() throws Exception {
+		VaultKey vault = VaultKey.generate();
+		NameCipher names = NameCipher.forVault(vault, PASSWORD);
+		assertSame(names, NameCipher.forVault(vault, PASSWORD));
+		String encoded = names.encrypt(NAME);
+		assertEquals(NAME, names.decrypt(encoded));
+		assertNull(NameCipher.forVault(VaultKey.generate(), PASSWORD).tryDecrypt(encoded));
+		assertNull(NameCipher.forPassword(PASSWORD).tryDecrypt(encoded));
+	}
+
+	@Test
+	void plainNamesFailPrecheck() {
+		assertFalse(NameCipher.mayBeEncryptedName("photo.jpg"));
+		assertFalse(NameCipher.mayBeEncryptedName("short"));
+		assertFalse(NameCipher.mayBeEncryptedName(null));
+		// 字符集合法但没有格式标记
+		assertFalse(NameCipher.mayBeEncryptedName("AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA"));
+		assertNull(NameCipher.forPassword(PASSWORD).tryDecrypt("photo.jpg"));
+	}
+
+	private static byte[] salt(int seed) {
+		byte[] salt = new byte[16];
+		salt[0] = (byte) seed;
+		return salt;
+	}
+
+	/** 挤出会话缓存（只保留最近 8 个）与“上一次会话”后重新取会话，得到没有名称缓存的新实例。 */
+	private static NameCipher freshSession(byte[] salt) throws GeneralSecurityException {
+		for (int i = 0; i < 8; i++) NameCipher.forVault(VaultKey.generate(), PASSWORD);
+		NameCipher.forPassword("other".toCharArray());
+		return NameCipher.forPassword(PASSWORD.clone(), salt.clone());
+	}
+}
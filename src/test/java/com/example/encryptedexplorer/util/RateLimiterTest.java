@@ -0,0 +1,62 @@
+package com.example.encryptedexplorer.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RateLimiterTest {
+
+	@Test
+	void unlimitedNeverWaits() throws Exception {
+		RateLimiter limiter = RateLimiter.unlimited();
+		assertTrue(limiter.isUnlimited());
+		long t0 = System.nanoTime();
+		limiter.acquire(Long.MAX_VALUE / 2);
+		assertTrue(System.nanoTime() - t0 < 50_000_000L);
+		InputStream in = new ByteArrayInputStream(new byte[10]);
+		assertSame(in, limiter.throttle(in));
+	}
+
+	@Test
+	void acquireHonoursRate() throws Exception {
+		// 1 MB/s：突发额度至多 100ms，预约 300KB 至少要等约 200ms
+		RateLimiter limiter = new RateLimiter(1_000_000);
+		long t0 = System.nanoTime();
+		for (int i = 0; i < 3; i++) limiter.acquire(100_000);
+		limiter.acquire(1);
+		assertTrue(System.nanoTime() - t0 >= 150_000_000L);
+	}
+
+	@Test
+	void throttledStreamReadsEverything() throws Exception {
+		RateLimiter limiter = new RateLimiter(2_000_000);
+		long t0 = System.nanoTime();
+		try (InputStream in = limiter.throttle(new ByteArrayInputStream(new byte[500_000]))) {
+			assertEquals(500_000, in.readAllBytes().length);
+			in.read();
+		}
+		// 500KB 在 2MB/s 下扣除突发额度后至少约 150ms
+		assertTrue(System.nanoTime() - t0 >= 100_000_000L);
+	}
+
+	@Test
+	void interruptedWaitFails() {
+		RateLimiter limiter = new RateLimiter(1000);
+		Thread.currentThread().interrupt();
+		try {
+			assertThrows(InterruptedIOException.class, () -> {
+				limiter.acquire(1000);
+				limiter.acquire(1000);
+			});
+		} finally {
+			Thread.interrupted();
+		}
+	}
+}
@@ -0,0 +1,41 @@
+package com.example.encryptedexplorer.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/** 测试共用的数据与加解密辅助方法。 */
+public final class TestData {
+	private TestData() {}
+
+	/** 按种子生成的确定性随机字节。 */
+	public static byte[] random(long seed, int size) {
+		byte[] b = new byte[size];
+		new Random(seed).nextBytes(b);
+		return b;
+	}
+
+	/** 以密码或保险库（另一方为 null）流式加密。 */
+	public static byte[] encrypt(byte[] plain, char[] password, VaultKey vault, CompressionCodec codec) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		EncryptionUtils.encryptStream(new ByteArrayInputStream(plain), out, password, vault, codec, null);
+		return out.toByteArray();
+	}
+
+	public static byte[] decrypt(byte[] packed, char[] password, VaultKey vault) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		EncryptionUtils.decryptStream(new ByteArrayInputStream(packed), out, password, vault, null);
+		return out.toByteArray();
+	}
+
+	public static byte[] decrypt(Path file, char[] password, VaultKey vault) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (InputStream in = Files.newInputStream(file)) {
+			EncryptionUtils.decryptStream(in, out, password, vault, null);
+		}
+		return out.toByteArray();
+	}
+}